@@ -0,0 +1,108 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.zaradai.config.ConfigurationSource;
+import com.zaradai.distributor.config.DistributorConfigImpl;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.EventLoopGroups;
+import com.zaradai.distributor.messaging.netty.handler.MessageHandlerFactory;
+import com.zaradai.events.EventAggregator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time from a decoded message reaching the message handler to its event reaching an application subscriber,
+ * unwrapped by the distributor service in compatibility mode against delivered straight to the subscriber, e.g.
+ * <pre>java -jar target/benchmarks.jar InboundDeliveryBenchmark</pre>
+ * The dispatch thread is not started so both paths deliver on the calling thread, the hop to it is common to both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = InboundDeliveryBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = InboundDeliveryBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InboundDeliveryBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final String INTERCEPT = "intercept";
+
+    @Param({ INTERCEPT, "direct" })
+    private String path;
+
+    private Injector injector;
+    private EmbeddedChannel channel;
+    private Sink sink;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        injector = Guice.createInjector(new DistributorModule());
+        injector.getInstance(ConfigurationSource.class).set(DistributorConfigImpl.EVENT_BUS_INTERCEPT,
+                INTERCEPT.equals(path));
+        // subscribes to the aggregator when intercepting
+        injector.getInstance(DistributorService.class);
+        sink = new Sink();
+        injector.getInstance(EventAggregator.class).subscribe(sink);
+        channel = new EmbeddedChannel(injector.getInstance(MessageHandlerFactory.class).create());
+        message = new Message.Builder().event(new TickEvent()).build();
+        message.setIncoming(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.close();
+        injector.getInstance(EventLoopGroups.class).shutdown();
+    }
+
+    @Benchmark
+    public long receive() {
+        channel.writeInbound(message);
+
+        return sink.count;
+    }
+
+    public static final class TickEvent {
+    }
+
+    public static final class Sink {
+        private long count;
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void onTick(TickEvent event) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up connections with many registered peers, each on its own host, the way sending and publishing do, e.g.
+ * <pre>java -jar target/benchmarks.jar ConnectionManagerBenchmark</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = ConnectionManagerBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = ConnectionManagerBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionManagerBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final int PORT = 1707;
+    private static final int BYTE_MASK = 0xFF;
+    private static final byte NETWORK = 10;
+
+    @Param({ "1000", "10000" })
+    private int peers;
+
+    private ConnectionManager manager;
+    private InetSocketAddress[] endpoints;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        manager = new ConnectionManager(new ConnectionFactory() {
+            @Override
+            public Connection create(InetSocketAddress target) {
+                return new NullConnection();
+            }
+        });
+        endpoints = new InetSocketAddress[peers];
+
+        for (int i = 0; i < peers; i++) {
+            byte[] host = {NETWORK, 0, (byte) (i >> Byte.SIZE & BYTE_MASK), (byte) (i & BYTE_MASK)};
+            endpoints[i] = new InetSocketAddress(InetAddress.getByAddress(host), PORT);
+            manager.getOrCreate(endpoints[i]);
+        }
+    }
+
+    private InetSocketAddress nextEndpoint() {
+        if (++next == peers) {
+            next = 0;
+        }
+
+        return endpoints[next];
+    }
+
+    @Benchmark
+    public Connection getOrCreateExisting() {
+        return manager.getOrCreate(nextEndpoint());
+    }
+
+    @Benchmark
+    public Set<Connection> getForAddress() {
+        return manager.getForAddress(nextEndpoint().getAddress());
+    }
+
+    @Benchmark
+    public int publishToAll() throws Exception {
+        Connection[] connections = manager.getConnections();
+
+        for (Connection connection : connections) {
+            connection.send(null);
+        }
+
+        return connections.length;
+    }
+
+    private static final class NullConnection implements Connection {
+        @Override
+        public void send(Message message) {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.zaradai.distributor.DistributorModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes to many peers of which only one in four subscribes to the event, sending to every connection against
+ * sending to those the routing table picks, e.g.
+ * <pre>java -jar target/benchmarks.jar RoutingTableBenchmark</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = RoutingTableBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = RoutingTableBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingTableBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final int PORT = 1707;
+    private static final int BYTE_MASK = 0xFF;
+    private static final byte NETWORK = 10;
+    private static final int INTERESTED_EVERY = 4;
+    private static final List<String> INTERESTED = ImmutableList.of(Number.class.getName());
+    private static final List<String> NOT_INTERESTED = ImmutableList.of(String.class.getName());
+
+    @Param({ "100", "1000" })
+    private int peers;
+
+    private ConnectionManager manager;
+    private RoutingTable routingTable;
+
+    @Setup
+    public void setUp() throws Exception {
+        Injector injector = Guice.createInjector(new DistributorModule());
+        manager = injector.getInstance(ConnectionManager.class);
+        routingTable = injector.getInstance(RoutingTable.class);
+
+        for (int i = 0; i < peers; i++) {
+            byte[] host = {NETWORK, 0, (byte) (i >> Byte.SIZE & BYTE_MASK), (byte) (i & BYTE_MASK)};
+            InetSocketAddress endpoint = new InetSocketAddress(InetAddress.getByAddress(host), PORT);
+            Object link = new Object();
+            manager.add(endpoint, new CountingConnection());
+            routingTable.joined(endpoint, link);
+            routingTable.advertised(endpoint, link, (i % INTERESTED_EVERY == 0) ? INTERESTED : NOT_INTERESTED);
+        }
+    }
+
+    @Benchmark
+    public int publishToAll() throws Exception {
+        return sendAll(manager.getConnections());
+    }
+
+    @Benchmark
+    public int publishRouted() throws Exception {
+        return sendAll(routingTable.route(Integer.class));
+    }
+
+    private int sendAll(Connection[] connections) throws Exception {
+        for (Connection connection : connections) {
+            connection.send(null);
+        }
+
+        return connections.length;
+    }
+
+    private static final class CountingConnection implements Connection {
+        private int sent;
+
+        @Override
+        public void send(Message message) {
+            sent++;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.google.common.collect.Lists;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.util.concurrent.MpscRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the queues a connection's writers could share, the blocking queue used for pending messages, the
+ * linked queue the {@link ChannelWriter} drained before and the ring buffer it uses now.  Each burst is offered by
+ * the given number of producer threads and polled by the benchmark thread standing in for the event loop, e.g.
+ * <pre>java -jar target/benchmarks.jar OutboundQueueBenchmark</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = OutboundQueueBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = OutboundQueueBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutboundQueueBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    static final int BURST = 8 * 1024;
+
+    @Param({ "linkedBlocking", "concurrentLinked", "mpscRing" })
+    private String queue;
+
+    @Param({ "1", "4", "16" })
+    private int producers;
+
+    private final Message message = new Message();
+    private final Semaphore bursts = new Semaphore(0);
+    private final List<Thread> threads = Lists.newArrayList();
+    private OutboundQueue outbound;
+
+    @Setup
+    public void setUp() throws Exception {
+        outbound = createQueue();
+        final int share = BURST / producers;
+
+        for (int i = 0; i < producers; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (!Thread.currentThread().isInterrupted()) {
+                            bursts.acquire();
+
+                            for (int j = 0; j < share; j++) {
+                                outbound.offer(message);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "producer-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    private OutboundQueue createQueue() {
+        if ("linkedBlocking".equals(queue)) {
+            return new JdkQueue(new LinkedBlockingQueue<Message>());
+        } else if ("concurrentLinked".equals(queue)) {
+            return new JdkQueue(new ConcurrentLinkedQueue<Message>());
+        }
+
+        // sized like the default write queue, room for a whole burst as the unbounded queues have
+        return new RingQueue(new MpscRingBuffer<Message>(BURST));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int drain() {
+        bursts.release(producers);
+        int polled = 0;
+
+        while (polled < BURST) {
+            if (outbound.poll() != null) {
+                polled++;
+            }
+        }
+
+        return polled;
+    }
+
+    private interface OutboundQueue {
+        void offer(Message message);
+        Message poll();
+    }
+
+    private static final class JdkQueue implements OutboundQueue {
+        private final Queue<Message> queue;
+
+        private JdkQueue(Queue<Message> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void offer(Message message) {
+            queue.offer(message);
+        }
+
+        @Override
+        public Message poll() {
+            return queue.poll();
+        }
+    }
+
+    private static final class RingQueue implements OutboundQueue {
+        private final MpscRingBuffer<Message> ring;
+
+        private RingQueue(MpscRingBuffer<Message> ring) {
+            this.ring = ring;
+        }
+
+        @Override
+        public void offer(Message message) {
+            // as the writer does off the event loop
+            while (!ring.offer(message)) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public Message poll() {
+            return ring.poll();
+        }
+    }
+}
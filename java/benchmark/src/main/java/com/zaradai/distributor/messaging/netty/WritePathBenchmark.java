@@ -0,0 +1,185 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.zaradai.distributor.DistributorModule;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.handler.MessageDecoderFactory;
+import com.zaradai.distributor.messaging.netty.handler.MessageEncoderFactory;
+import com.zaradai.distributor.messaging.netty.handler.SourceRegistry;
+import com.zaradai.distributor.messaging.netty.handler.SourceTable;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares sending through a flush per message, the write path used before {@link ChannelWriter}, against the
+ * consolidated writer.  Small tick events are sent over loopback in bursts, as the integration ping pong does, and
+ * each burst waits until the peer has decoded every message, e.g.
+ * <pre>java -jar target/benchmarks.jar WritePathBenchmark</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = WritePathBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = WritePathBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WritePathBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    static final int BURST = 1000;
+    private static final int FLUSH_LIMIT = 64;
+    private static final double PRICE = 1.3654;
+    private static final ChannelWriter.Callback IGNORE = new ChannelWriter.Callback() {
+        @Override
+        public void onWritten(List<Message> messages) {
+        }
+
+        @Override
+        public void onFailed(List<Message> messages, Throwable cause) {
+        }
+    };
+
+    @Param({ "flushEach", "consolidated" })
+    private String path;
+
+    private final AtomicLong received = new AtomicLong();
+    private EventLoopGroup group;
+    private Channel server;
+    private Channel client;
+    private ChannelWriter writer;
+    private Message message;
+
+    @Setup
+    public void setUp() throws Exception {
+        Injector injector = Guice.createInjector(new DistributorModule());
+        final MessageDecoderFactory decoderFactory = injector.getInstance(MessageDecoderFactory.class);
+        MessageEncoderFactory encoderFactory = injector.getInstance(MessageEncoderFactory.class);
+        final InetSocketAddress source = injector.getInstance(SourceRegistry.class).getLocalAddress();
+        group = new NioEventLoopGroup();
+
+        server = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) throws Exception {
+                        // stands in for the handshake binding the peer
+                        SourceTable.get(ch).setPeer(source);
+                        ch.pipeline().addLast(decoderFactory.create(), new Counter());
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        client = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(encoderFactory.create())
+                .connect(server.localAddress()).sync().channel();
+        writer = new ChannelWriter(client, FLUSH_LIMIT, BURST, IGNORE);
+
+        message = new Message();
+        message.setSource(source);
+        message.setEvent(new Tick("EUR/USD", PRICE, System.currentTimeMillis()));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close().sync();
+        server.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public long send() {
+        long target = received.get() + BURST;
+
+        if ("flushEach".equals(path)) {
+            for (int i = 0; i < BURST; i++) {
+                client.writeAndFlush(message).addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        future.isSuccess();
+                    }
+                });
+            }
+        } else {
+            for (int i = 0; i < BURST; i++) {
+                writer.write(message);
+            }
+        }
+
+        while (received.get() < target) {
+            Thread.yield();
+        }
+
+        return target;
+    }
+
+    private final class Counter extends SimpleChannelInboundHandler<Message> {
+        @Override
+        protected void messageReceived(ChannelHandlerContext ctx, Message msg) throws Exception {
+            received.incrementAndGet();
+        }
+    }
+
+    public static class Tick {
+        private String symbol;
+        private double price;
+        private long time;
+
+        public Tick() {
+        }
+
+        public Tick(String symbol, double price, long time) {
+            this.symbol = symbol;
+            this.price = price;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import com.google.common.collect.Lists;
+import com.zaradai.distributor.messaging.netty.KryoByteBufSerializer;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU cost of each codec against the bytes it saves on a serialized snapshot event, e.g.
+ * <pre>java -jar target/benchmarks.jar CompressionCodecBenchmark</pre>
+ * The compressed size and ratio for each combination are printed when the trial is set up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = CompressionCodecBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = CompressionCodecBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionCodecBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long SEED = 1907;
+    private static final String[] SYMBOLS = {"EUR/USD", "GBP/USD", "USD/JPY", "AUD/USD", "USD/CHF"};
+    private static final double BASE_PRICE = 1.3654;
+    private static final double TICK = 0.0001;
+    private static final int TICK_RANGE = 20;
+
+    @Param({ "deflate", "snappy" })
+    private String codecName;
+    @Param({ "16", "256", "4096" })
+    private int quotes;
+
+    private CompressionCodec codec;
+    private ByteBuf original;
+    private ByteBuf compressed;
+    private ByteBuf target;
+
+    @Setup
+    public void setUp() {
+        codec = new CompressionCodecs().get(codecName);
+        original = createSnapshot(quotes);
+        compressed = Unpooled.buffer(original.readableBytes());
+        codec.compress(original.duplicate(), compressed);
+        target = Unpooled.buffer(original.readableBytes());
+        System.out.println(String.format("%n%s quotes=%d original=%d compressed=%d ratio=%.3f", codecName, quotes,
+                original.readableBytes(), compressed.readableBytes(),
+                (double) compressed.readableBytes() / original.readableBytes()));
+    }
+
+    @Benchmark
+    public ByteBuf compress() {
+        target.clear();
+        codec.compress(original.duplicate(), target);
+
+        return target;
+    }
+
+    @Benchmark
+    public ByteBuf decompress() {
+        target.clear();
+        codec.decompress(compressed.duplicate(), target, original.readableBytes());
+
+        return target;
+    }
+
+    private ByteBuf createSnapshot(int count) {
+        Random random = new Random(SEED);
+        List<Quote> snapshot = Lists.newArrayListWithCapacity(count);
+        long time = System.currentTimeMillis();
+
+        for (int i = 0; i < count; i++) {
+            double mid = BASE_PRICE + (random.nextInt(TICK_RANGE) * TICK);
+            snapshot.add(new Quote(SYMBOLS[i % SYMBOLS.length], mid - TICK, mid + TICK, time + i));
+        }
+
+        ByteBuf res = Unpooled.buffer();
+        new KryoByteBufSerializer(new KryoPool(new KryoFactory())).serialize(res, snapshot);
+
+        return res;
+    }
+
+    public static class Quote {
+        private String symbol;
+        private double bid;
+        private double ask;
+        private long time;
+
+        public Quote() {
+        }
+
+        public Quote(String symbol, double bid, double ask, long time) {
+            this.symbol = symbol;
+            this.bid = bid;
+            this.ask = ask;
+            this.time = time;
+        }
+    }
+}
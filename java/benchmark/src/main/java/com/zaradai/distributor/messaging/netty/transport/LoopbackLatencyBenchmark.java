@@ -0,0 +1,145 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.zaradai.distributor.DistributorModule;
+import com.zaradai.distributor.config.DistributorConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round trip time of a small frame echoed by a node on the same host, over loopback TCP and over a Unix domain
+ * socket, e.g.
+ * <pre>java -jar target/benchmarks.jar LoopbackLatencyBenchmark</pre>
+ * TCP uses the native epoll transport when available so only the socket type differs.  The domain socket case needs
+ * the native transport and fails to set up without it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = LoopbackLatencyBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = LoopbackLatencyBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoopbackLatencyBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final int FRAME_SIZE = 64;
+
+    @Param({ "tcp", "domain" })
+    private String socket;
+
+    private final AtomicLong received = new AtomicLong();
+    private EventLoopGroup group;
+    private Channel server;
+    private Channel client;
+    private ByteBuf frame;
+
+    @Setup
+    public void setUp() throws Exception {
+        Injector injector = Guice.createInjector(new DistributorModule());
+        DistributorConfig config = injector.getInstance(DistributorConfig.class);
+        Transport transport;
+        SocketAddress address;
+
+        if (DomainSocketTransport.NAME.equals(socket)) {
+            if (!DomainSocketTransport.isAvailable()) {
+                throw new IllegalStateException("Native domain socket transport not available");
+            }
+            transport = new DomainSocketTransport(config);
+            address = injector.getInstance(DomainSockets.class).getListenAddress();
+        } else {
+            transport = EpollTransport.isAvailable() ? new EpollTransport(config) : new NioTransport();
+            address = new InetSocketAddress("127.0.0.1", 0);
+        }
+
+        group = transport.createEventLoopGroup(0);
+        ServerBootstrap serverBootstrap = new ServerBootstrap()
+                .group(group)
+                .channel(transport.getServerChannelClass())
+                .childHandler(new Echo());
+        transport.configureServer(serverBootstrap);
+        server = serverBootstrap.bind(address).sync().channel();
+
+        Bootstrap clientBootstrap = new Bootstrap()
+                .group(group)
+                .channel(transport.getChannelClass())
+                .handler(new Counter());
+        transport.configureClient(clientBootstrap);
+        client = clientBootstrap.connect(server.localAddress()).sync().channel();
+        frame = Unpooled.directBuffer(FRAME_SIZE).writeZero(FRAME_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close().sync();
+        server.close().sync();
+        group.shutdownGracefully().sync();
+        frame.release();
+    }
+
+    @Benchmark
+    public long roundTrip() {
+        long target = received.get() + FRAME_SIZE;
+        client.writeAndFlush(frame.duplicate().retain());
+
+        while (received.get() < target) {
+            Thread.yield();
+        }
+
+        return target;
+    }
+
+    private static final class Echo extends ChannelHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    private final class Counter extends ChannelHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            received.addAndGet(((ByteBuf) msg).readableBytes());
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
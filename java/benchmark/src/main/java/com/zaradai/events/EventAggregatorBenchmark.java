@@ -0,0 +1,130 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.zaradai.events.eventbus.EventBusAggregator;
+import com.zaradai.events.parallel.ParallelEventAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes bursts of keyed events to a subscriber doing a fixed amount of work and waits for all to be delivered,
+ * comparing the Guava event bus with the parallel aggregator, e.g.
+ * <pre>java -jar target/benchmarks.jar EventAggregatorBenchmark</pre>
+ * With a single key the parallel aggregator is limited to one worker, with many it scales with the cores available.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = EventAggregatorBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = EventAggregatorBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventAggregatorBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    static final int BURST = 1024;
+    private static final long WORK_TOKENS = 256;
+    private static final String EVENT_BUS = "eventBus";
+
+    @Param({ EVENT_BUS, "parallel" })
+    private String aggregator;
+
+    @Param({ "1", "64" })
+    private int keys;
+
+    private EventAggregator uut;
+    private Sink sink;
+    private KeyedEvent[] events;
+    private long expected;
+
+    @Setup
+    public void setUp() {
+        uut = EVENT_BUS.equals(aggregator)
+                ? new EventBusAggregator(new EventBus())
+                : new ParallelEventAggregator();
+        sink = new Sink();
+        uut.subscribe(sink);
+        events = new KeyedEvent[BURST];
+
+        for (int i = 0; i < BURST; i++) {
+            events[i] = new KeyedEvent(i % keys);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (uut instanceof ParallelEventAggregator) {
+            ((ParallelEventAggregator) uut).shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public long publishBurst() {
+        for (KeyedEvent event : events) {
+            uut.publish(event);
+        }
+        expected += BURST;
+        // delivered once the subscriber has seen the whole burst
+        while (sink.delivered.get() < expected) {
+            Thread.yield();
+        }
+
+        return expected;
+    }
+
+    public static final class KeyedEvent implements OrderedEvent {
+        private final Integer key;
+
+        KeyedEvent(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object getOrderingKey() {
+            return key;
+        }
+    }
+
+    public static final class Sink {
+        private final AtomicLong delivered = new AtomicLong();
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void onEvent(KeyedEvent event) {
+            Blackhole.consumeCPU(WORK_TOKENS);
+            delivered.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.dispatch;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.zaradai.events.EventAggregator;
+import com.zaradai.events.eventbus.EventBusAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of publishing an event to a single subscriber on the calling thread, through the Guava event bus and the
+ * direct aggregator, against calling the subscriber method itself, e.g.
+ * <pre>java -jar target/benchmarks.jar SubscriberDispatchBenchmark</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = SubscriberDispatchBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = SubscriberDispatchBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubscriberDispatchBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final String EVENT_BUS = "eventBus";
+
+    @Param({ EVENT_BUS, "direct" })
+    private String aggregator;
+
+    private EventAggregator uut;
+    private Sink sink;
+    private TestEvent event;
+
+    @Setup
+    public void setUp() {
+        uut = EVENT_BUS.equals(aggregator)
+                ? new EventBusAggregator(new EventBus())
+                : new DirectEventAggregator();
+        sink = new Sink();
+        uut.subscribe(sink);
+        event = new TestEvent();
+    }
+
+    @Benchmark
+    public long publish() {
+        uut.publish(event);
+
+        return sink.count;
+    }
+
+    @Benchmark
+    public long directCall() {
+        sink.onEvent(event);
+
+        return sink.count;
+    }
+
+    public static final class TestEvent {
+    }
+
+    public static final class Sink {
+        private long count;
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void onEvent(TestEvent received) {
+            count++;
+        }
+    }
+}
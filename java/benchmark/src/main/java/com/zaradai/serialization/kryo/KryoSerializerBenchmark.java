@@ -0,0 +1,125 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.serialization.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.zaradai.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializer throughput under contention, run with increasing thread counts e.g.
+ * <pre>java -jar target/benchmarks.jar KryoSerializerBenchmark -t 1 -t 4</pre>
+ * The synchronized engine is the single shared kryo instance used prior to pooling.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = KryoSerializerBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = KryoSerializerBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+public class KryoSerializerBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final int BUFFER_SIZE = 256;
+    private static final int SAMPLE_ID = 42;
+    private static final double SAMPLE_PRICE = 1.3654;
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+        @Param({ "synchronized", "pooled" })
+        private String engine;
+        private Serializer serializer;
+
+        @Setup
+        public void setUp() {
+            KryoFactory factory = new KryoFactory();
+            factory.register(Sample.class);
+
+            if ("synchronized".equals(engine)) {
+                serializer = new SynchronizedKryoSerializer(factory.create());
+            } else {
+                serializer = new KryoSerializer(new KryoPool(factory));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Payload {
+        private final Sample sample = new Sample(SAMPLE_ID, "EUR/USD", SAMPLE_PRICE);
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+    }
+
+    @Benchmark
+    public Object roundTrip(Engine engine, Payload payload) {
+        payload.out.reset();
+        engine.serializer.serialize(payload.out, payload.sample);
+
+        return engine.serializer.deserialize(new ByteArrayInputStream(payload.out.toByteArray()));
+    }
+
+    public static class Sample {
+        private int id;
+        private String symbol;
+        private double price;
+
+        public Sample() {
+        }
+
+        public Sample(int id, String symbol, double price) {
+            this.id = id;
+            this.symbol = symbol;
+            this.price = price;
+        }
+    }
+
+    private static final class SynchronizedKryoSerializer implements Serializer {
+        private final Kryo kryo;
+
+        private SynchronizedKryoSerializer(Kryo kryo) {
+            this.kryo = kryo;
+        }
+
+        @Override
+        public synchronized void serialize(OutputStream out, Object object) {
+            Output output = new Output(out);
+            kryo.writeClassAndObject(output, object);
+            output.flush();
+            output.close();
+        }
+
+        @Override
+        public synchronized Object deserialize(InputStream in) {
+            return kryo.readClassAndObject(new Input(in));
+        }
+    }
+}
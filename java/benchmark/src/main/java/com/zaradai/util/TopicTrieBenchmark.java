@@ -0,0 +1,118 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a topic against many subscriptions, a few in ten with a wildcard, walking the trie against testing each
+ * subscription's pattern in turn, e.g.
+ * <pre>java -jar target/benchmarks.jar TopicTrieBenchmark</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = TopicTrieBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = TopicTrieBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopicTrieBenchmark {
+    static final int WARMUP_ITERATIONS = 3;
+    static final int MEASUREMENT_ITERATIONS = 5;
+    private static final int REGIONS = 50;
+    private static final int ANY_WORD_EVERY = 10;
+    private static final int ANY_WORDS_EVERY = 100;
+    private static final int TOPICS = 64;
+    private static final int TOPIC_MASK = TOPICS - 1;
+
+    @Param({ "1000", "10000", "100000" })
+    private int subscriptions;
+
+    private TopicTrie<Integer> trie;
+    private List<Pattern> patterns;
+    private String[] topics;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        trie = new TopicTrie<Integer>();
+        patterns = Lists.newArrayList();
+
+        for (int i = 0; i < subscriptions; i++) {
+            String pattern = createPattern(i);
+            trie.add(pattern, i);
+            patterns.add(toRegex(pattern));
+        }
+        topics = new String[TOPICS];
+
+        for (int i = 0; i < TOPICS; i++) {
+            topics[i] = "prices.r" + (i % REGIONS) + ".i" + (i * subscriptions / TOPICS / REGIONS);
+        }
+    }
+
+    private static String createPattern(int i) {
+        if (i % ANY_WORDS_EVERY == 0) {
+            return "prices.r" + (i / ANY_WORDS_EVERY % REGIONS) + ".#";
+        } else if (i % ANY_WORD_EVERY == 0) {
+            return "prices.*.i" + (i / REGIONS);
+        }
+
+        return "prices.r" + (i % REGIONS) + ".i" + (i / REGIONS);
+    }
+
+    private static Pattern toRegex(String pattern) {
+        String res = pattern.replace(".", "\\.").replace("*", "[^.]+").replace("\\.#", "(\\..+)?");
+
+        return Pattern.compile(res);
+    }
+
+    @Benchmark
+    public int matchTrie() {
+        return trie.match(nextTopic()).size();
+    }
+
+    @Benchmark
+    public int matchEach() {
+        String topic = nextTopic();
+        int res = 0;
+
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(topic).matches()) {
+                res++;
+            }
+        }
+
+        return res;
+    }
+
+    private String nextTopic() {
+        return topics[next++ & TOPIC_MASK];
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events;
+
+/**
+ * An event that must reach subscribers in publishing order relative to other events with an equal key.  Events with
+ * different keys, or no key, may be delivered concurrently by aggregators that dispatch in parallel.
+ */
+public interface OrderedEvent {
+    /**
+     * @return the key events are ordered by, null for no ordering.
+     */
+    Object getOrderingKey();
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.dispatch;
+
+import com.google.common.base.Preconditions;
+import com.zaradai.events.EventAggregator;
+
+/**
+ * Delivers events to {@link com.google.common.eventbus.Subscribe} methods on the publishing thread.  Each event class
+ * is looked up once in a dispatch table built when subscribers change, and subscribers are called through generated
+ * accessors rather than reflection, so publishing takes no locks.  As with the Guava event bus a subscriber method
+ * not marked {@link com.google.common.eventbus.AllowConcurrentEvents} is only called by one thread at a time and
+ * events without subscribers are published again as {@link com.google.common.eventbus.DeadEvent}s.  Unlike the event
+ * bus an event published from within a subscriber is delivered at once rather than queued behind the current one.
+ */
+public class DirectEventAggregator implements EventAggregator {
+    private final SubscriberRegistry registry = new SubscriberRegistry();
+
+    @Override
+    public void publish(Object event) {
+        registry.deliver(this, Preconditions.checkNotNull(event, "Invalid event"));
+    }
+
+    @Override
+    public void subscribe(Object listener) {
+        registry.register(listener);
+    }
+
+    @Override
+    public void unsubscribe(Object listener) {
+        registry.unregister(listener);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.dispatch;
+
+import com.esotericsoftware.reflectasm.MethodAccess;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A subscribing method on a listener, called by one thread at a time unless marked {@link AllowConcurrentEvents}.
+ * Public listener classes are called through a generated accessor that invokes the method directly, others fall back
+ * to reflection.
+ */
+public class Subscriber {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Subscriber.class);
+
+    private final Object listener;
+    private final Method method;
+    private final boolean concurrent;
+    private final MethodAccess access;
+    private final int index;
+
+    Subscriber(Object listener, Method method, MethodAccess access) {
+        this.listener = listener;
+        this.method = method;
+        concurrent = method.isAnnotationPresent(AllowConcurrentEvents.class);
+        method.setAccessible(true);
+        index = (access != null) ? indexOf(access, method) : -1;
+        this.access = (index != -1) ? access : null;
+    }
+
+    private static int indexOf(MethodAccess access, Method method) {
+        try {
+            return access.getIndex(method.getName(), method.getParameterTypes());
+        } catch (IllegalArgumentException e) {
+            // inherited from a class the accessor does not cover
+            return -1;
+        }
+    }
+
+    /**
+     * @param listenerType the class of a listener
+     * @return an accessor for its methods, or null if it must be called reflectively.
+     */
+    static MethodAccess createAccess(Class<?> listenerType) {
+        if (!Modifier.isPublic(listenerType.getModifiers())) {
+            // a generated accessor lives in its own class loader so cannot reach non public classes
+            return null;
+        }
+
+        try {
+            return MethodAccess.get(listenerType);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unable to generate accessor for {}, using reflection", listenerType, e);
+            return null;
+        }
+    }
+
+    public Object getListener() {
+        return listener;
+    }
+
+    public Class<?> getEventType() {
+        return method.getParameterTypes()[0];
+    }
+
+    boolean isGenerated() {
+        return access != null;
+    }
+
+    /**
+     * @param args the event as the only element, shared by every subscriber the event is delivered to
+     * @throws InvocationTargetException wrapping anything thrown by the subscriber
+     */
+    public void invoke(Object[] args) throws InvocationTargetException {
+        if (concurrent) {
+            call(args);
+        } else {
+            synchronized (this) {
+                call(args);
+            }
+        }
+    }
+
+    private void call(Object[] args) throws InvocationTargetException {
+        if (access != null) {
+            callGenerated(args);
+            return;
+        }
+
+        try {
+            method.invoke(listener, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Subscriber method not accessible " + method, e);
+        }
+    }
+
+    private void callGenerated(Object[] args) throws InvocationTargetException {
+        try {
+            access.invoke(listener, index, args);
+        } catch (Exception e) {
+            // checked exceptions pass through the accessor undeclared
+            throw new InvocationTargetException(e);
+        }
+    }
+}
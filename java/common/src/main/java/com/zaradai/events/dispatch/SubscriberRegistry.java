@@ -0,0 +1,180 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.dispatch;
+
+import com.esotericsoftware.reflectasm.MethodAccess;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The subscribers of each listener registered, by the event type they take.  Published events are looked up in an
+ * immutable dispatch table mapping each event class seen to every subscriber of it or its supertypes.  The table is
+ * rebuilt and replaced whole whenever subscribers change, or extended by copy for a new event class, so delivery
+ * reads it without locking or allocating.  The argument array handed to the subscribers is reused by each thread.
+ */
+public class SubscriberRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubscriberRegistry.class);
+    private static final Subscriber[] NONE = new Subscriber[0];
+    // an argument array kept by each delivering thread, taken whilst in use so a nested delivery gets its own
+    private static final ThreadLocal<Object[]> SPARE_ARGS = new ThreadLocal<Object[]>();
+
+    // guarded by this
+    private final SetMultimap<Class<?>, Subscriber> byType = HashMultimap.create();
+    private final Map<Class<?>, MethodAccess> accessors = Maps.newHashMap();
+    private volatile ImmutableMap<Class<?>, Subscriber[]> table = ImmutableMap.of();
+
+    /**
+     * @param listener an object with public {@link Subscribe} methods each taking the event as its only parameter
+     */
+    public synchronized void register(Object listener) {
+        Preconditions.checkNotNull(listener, "Invalid listener");
+        MethodAccess access = accessFor(listener.getClass());
+
+        for (Method method : listener.getClass().getMethods()) {
+            if (method.isAnnotationPresent(Subscribe.class) && method.getParameterTypes().length == 1) {
+                Subscriber subscriber = new Subscriber(listener, method, access);
+                byType.put(subscriber.getEventType(), subscriber);
+            }
+        }
+        rebuild();
+    }
+
+    public synchronized void unregister(Object listener) {
+        boolean found = false;
+
+        for (Iterator<Subscriber> it = byType.values().iterator(); it.hasNext();) {
+            if (it.next().getListener() == listener) {
+                it.remove();
+                found = true;
+            }
+        }
+        Preconditions.checkArgument(found, "Listener was not registered");
+        rebuild();
+    }
+
+    /**
+     * @param eventType the class of a published event
+     * @return the subscribers taking the type or any of its supertypes, read without locking once resolved.
+     */
+    public Subscriber[] get(Class<?> eventType) {
+        Subscriber[] res = table.get(eventType);
+
+        return (res != null) ? res : resolve(eventType);
+    }
+
+    /**
+     * Call every subscriber of the event on this thread, an event nobody subscribes to is delivered as a
+     * {@link DeadEvent} instead.
+     *
+     * @param source the aggregator the event was published to
+     * @param event the event
+     */
+    public void deliver(Object source, Object event) {
+        Subscriber[] subscribers = get(event.getClass());
+
+        if (subscribers.length == 0) {
+            if (!(event instanceof DeadEvent)) {
+                deliver(source, new DeadEvent(source, event));
+            }
+            return;
+        }
+
+        // one argument array shared by all subscribers of the event
+        Object[] args = takeArgs();
+        args[0] = event;
+
+        try {
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.invoke(args);
+                } catch (InvocationTargetException e) {
+                    LOGGER.warn("Subscriber failed for {}", event, e.getCause());
+                }
+            }
+        } finally {
+            // not holding on to the event
+            args[0] = null;
+            SPARE_ARGS.set(args);
+        }
+    }
+
+    private static Object[] takeArgs() {
+        Object[] res = SPARE_ARGS.get();
+
+        if (res == null) {
+            // first delivery on the thread, or one made by a subscriber whilst the outer delivery holds the array
+            return new Object[1];
+        }
+        SPARE_ARGS.set(null);
+
+        return res;
+    }
+
+    private MethodAccess accessFor(Class<?> listenerType) {
+        if (!accessors.containsKey(listenerType)) {
+            // generated once per listener class
+            accessors.put(listenerType, Subscriber.createAccess(listenerType));
+        }
+
+        return accessors.get(listenerType);
+    }
+
+    private void rebuild() {
+        ImmutableMap.Builder<Class<?>, Subscriber[]> builder = ImmutableMap.builder();
+
+        for (Class<?> eventType : Sets.union(table.keySet(), byType.keySet())) {
+            builder.put(eventType, resolveSubscribers(eventType));
+        }
+        table = builder.build();
+    }
+
+    private synchronized Subscriber[] resolve(Class<?> eventType) {
+        Subscriber[] res = table.get(eventType);
+
+        if (res == null) {
+            res = resolveSubscribers(eventType);
+            table = ImmutableMap.<Class<?>, Subscriber[]>builder().putAll(table).put(eventType, res).build();
+        }
+
+        return res;
+    }
+
+    private Subscriber[] resolveSubscribers(Class<?> eventType) {
+        List<Subscriber> found = Lists.newArrayList();
+
+        for (Class<?> type : TypeToken.of(eventType).getTypes().rawTypes()) {
+            found.addAll(byType.get(type));
+        }
+
+        return found.isEmpty() ? NONE : found.toArray(new Subscriber[found.size()]);
+    }
+}
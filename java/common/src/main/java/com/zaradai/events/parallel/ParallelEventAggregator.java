@@ -0,0 +1,181 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.parallel;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zaradai.events.EventAggregator;
+import com.zaradai.events.OrderedEvent;
+import com.zaradai.events.OrderingKey;
+import com.zaradai.events.dispatch.SubscriberRegistry;
+import com.zaradai.util.concurrent.BlockingWaitStrategy;
+import com.zaradai.util.concurrent.RingDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers events to {@link com.google.common.eventbus.Subscribe} methods across a pool of worker threads.  Events
+ * with equal ordering keys, see {@link OrderedEvent} and {@link OrderingKey}, always go to the same worker so reach
+ * subscribers in publishing order, events without a key are spread across the workers.  As with the Guava event bus
+ * a subscriber method not marked {@link com.google.common.eventbus.AllowConcurrentEvents} is only called by one
+ * thread at a time, and events without subscribers are published again as
+ * {@link com.google.common.eventbus.DeadEvent}s.  A subscriber publishing whilst the chosen worker is full has its
+ * event delivered on its own worker thread rather than waiting, as the full worker may be waiting on it in turn, so
+ * such an event can overtake others with its key.
+ */
+public class ParallelEventAggregator implements EventAggregator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelEventAggregator.class);
+    public static final int DEFAULT_QUEUE_CAPACITY = 4 * 1024;
+    private static final String THREAD_NAME = "event-worker-%d";
+    private static final Optional<Method> NO_KEY = Optional.absent();
+
+    private final SubscriberRegistry registry = new SubscriberRegistry();
+    private final ConcurrentMap<Class<?>, Optional<Method>> keyMethods =
+            new ConcurrentHashMap<Class<?>, Optional<Method>>();
+    private final RingDispatcher<Object>[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    /**
+     * A worker per available processor.
+     */
+    public ParallelEventAggregator() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param workerCount the number of worker threads
+     * @param queueCapacity the most events waiting on each worker
+     */
+    @SuppressWarnings("unchecked")
+    public ParallelEventAggregator(int workerCount, int queueCapacity) {
+        Preconditions.checkArgument(workerCount > 0, "Invalid worker count specified");
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat(THREAD_NAME).setDaemon(true).build();
+        RingDispatcher.Handler<Object> handler = new RingDispatcher.Handler<Object>() {
+            @Override
+            public void onEvent(Object event, boolean endOfBatch) {
+                registry.deliver(ParallelEventAggregator.this, event);
+            }
+        };
+        workers = new RingDispatcher[workerCount];
+
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new RingDispatcher<Object>(queueCapacity, new BlockingWaitStrategy(), threadFactory, handler);
+            workers[i].start();
+        }
+    }
+
+    @Override
+    public void publish(Object event) {
+        Preconditions.checkNotNull(event, "Invalid event");
+        RingDispatcher<Object> worker = workerFor(event);
+
+        if (!worker.tryDispatch(event)) {
+            if (isWorker()) {
+                // waiting on a worker from a worker can deadlock, two workers filling each other's rings
+                registry.deliver(this, event);
+            } else {
+                worker.dispatch(event);
+            }
+        }
+    }
+
+    private boolean isWorker() {
+        for (RingDispatcher<Object> worker : workers) {
+            if (worker.isConsumer()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void subscribe(Object listener) {
+        registry.register(listener);
+    }
+
+    @Override
+    public void unsubscribe(Object listener) {
+        registry.unregister(listener);
+    }
+
+    /**
+     * Stop the workers once every event already published has been delivered, later events are delivered on the
+     * publishing thread.
+     */
+    public void shutdown() {
+        for (RingDispatcher<Object> worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    private RingDispatcher<Object> workerFor(Object event) {
+        Object key = keyOf(event);
+        int hash = (key != null) ? key.hashCode() : nextWorker.getAndIncrement();
+
+        return workers[(hash & Integer.MAX_VALUE) % workers.length];
+    }
+
+    private Object keyOf(Object event) {
+        if (event instanceof OrderedEvent) {
+            return ((OrderedEvent) event).getOrderingKey();
+        }
+
+        Optional<Method> method = keyMethods.get(event.getClass());
+
+        if (method == null) {
+            method = findKeyMethod(event.getClass());
+            keyMethods.putIfAbsent(event.getClass(), method);
+        }
+
+        return method.isPresent() ? readKey(method.get(), event) : null;
+    }
+
+    private static Optional<Method> findKeyMethod(Class<?> eventType) {
+        for (Method method : eventType.getMethods()) {
+            if (method.isAnnotationPresent(OrderingKey.class) && method.getParameterTypes().length == 0) {
+                method.setAccessible(true);
+                return Optional.of(method);
+            }
+        }
+
+        return NO_KEY;
+    }
+
+    private static Object readKey(Method method, Object event) {
+        try {
+            return method.invoke(event);
+        } catch (IllegalAccessException e) {
+            LOGGER.warn("Unable to read ordering key of {}", event, e);
+        } catch (InvocationTargetException e) {
+            LOGGER.warn("Unable to read ordering key of {}", event, e.getCause());
+        }
+
+        return null;
+    }
+}
@@ -42,9 +42,15 @@ abstract class AbstractDelayPolicy implements DelayPolicy {
 
     @Override
     public void delay() {
+        delay.delay(nextDelay(), TimeUnit.MILLISECONDS, false);
+    }
+
+    @Override
+    public long nextDelay() {
         long delayInMillis = getDelayPeriodInMillis();
         LOGGER.debug("Retry in {} ms", delayInMillis);
-        delay.delay(delayInMillis, TimeUnit.MILLISECONDS, false);
+
+        return delayInMillis;
     }
 
     protected abstract long getDelayPeriodInMillis();
@@ -43,5 +43,14 @@ abstract class AbstractRetryPolicy implements RetryPolicy {
         return false;
     }
 
+    @Override
+    public long nextRetryDelay() {
+        if (shouldRetry()) {
+            return delayPolicy.nextDelay();
+        }
+
+        return NO_RETRY;
+    }
+
     protected abstract boolean shouldRetry();
 }
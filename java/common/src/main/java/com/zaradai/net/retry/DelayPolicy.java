@@ -18,4 +18,11 @@ package com.zaradai.net.retry;
 public interface DelayPolicy {
     void reset();
     void delay();
+
+    /**
+     * Advances the policy as {@link #delay()} does but returns the period instead of waiting it out, for callers that
+     * must not block such as I/O threads.
+     * @return the time in milliseconds to wait before the next attempt
+     */
+    long nextDelay();
 }
@@ -28,6 +28,13 @@ public class NoDelay implements DelayPolicy {
 
     @Override
     public void delay() {
+        nextDelay();
+    }
+
+    @Override
+    public long nextDelay() {
         LOGGER.debug("Retrying immediately");
+
+        return 0;
     }
 }
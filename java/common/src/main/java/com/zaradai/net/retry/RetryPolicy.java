@@ -16,6 +16,18 @@
 package com.zaradai.net.retry;
 
 public interface RetryPolicy {
+    /**
+     * Returned by {@link #nextRetryDelay()} when no further attempts should be made.
+     */
+    long NO_RETRY = -1;
+
     void reset();
     boolean retry();
+
+    /**
+     * The non-blocking form of {@link #retry()}, counts the attempt and returns how long to wait before making it so
+     * the caller can schedule it rather than sleep.
+     * @return the time in milliseconds to wait before the next attempt or {@link #NO_RETRY} if attempts are exhausted
+     */
+    long nextRetryDelay();
 }
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.serialization.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Kryo serializer for {@link InetSocketAddress}, it has no no-arg constructor so cannot be handled by the
+ * default field serializer.  Unresolved addresses are written by host name.
+ */
+public class InetSocketAddressSerializer extends Serializer<InetSocketAddress> {
+    public InetSocketAddressSerializer() {
+        setImmutable(true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, InetSocketAddress address) {
+        InetAddress inetAddress = address.getAddress();
+
+        if (inetAddress == null) {
+            output.writeInt(0, true);
+            output.writeString(address.getHostName());
+        } else {
+            byte[] bytes = inetAddress.getAddress();
+            output.writeInt(bytes.length, true);
+            output.writeBytes(bytes);
+        }
+
+        output.writeInt(address.getPort(), true);
+    }
+
+    @Override
+    public InetSocketAddress read(Kryo kryo, Input input, Class<InetSocketAddress> type) {
+        int length = input.readInt(true);
+
+        if (length == 0) {
+            String host = input.readString();
+            return InetSocketAddress.createUnresolved(host, input.readInt(true));
+        }
+
+        try {
+            InetAddress inetAddress = InetAddress.getByAddress(input.readBytes(length));
+            return new InetSocketAddress(inetAddress, input.readInt(true));
+        } catch (UnknownHostException e) {
+            throw new KryoException("Unable to read address", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.serialization.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the class registration configuration shared by every {@link Kryo} instance in the process and
+ * creates new, fully configured, instances on demand.
+ * Registrations are append only and are always applied in the same order so that every instance
+ * assigns the same registration ids.
+ */
+public class KryoFactory {
+    private final List<Class<?>> registrations;
+
+    public KryoFactory() {
+        registrations = createRegistrations();
+    }
+
+    protected List<Class<?>> createRegistrations() {
+        return new CopyOnWriteArrayList<Class<?>>();
+    }
+
+    /**
+     * Create a new Kryo instance with all current registrations applied.
+     * @return configured instance.
+     */
+    public Kryo create() {
+        Kryo res = createKryo();
+        configure(res);
+        apply(res, 0);
+
+        return res;
+    }
+
+    protected Kryo createKryo() {
+        return new Kryo();
+    }
+
+    protected void configure(Kryo kryo) {
+        kryo.addDefaultSerializer(InetSocketAddress.class, InetSocketAddressSerializer.class);
+    }
+
+    /**
+     * Add a class registration, instances already created will pick it up through
+     * {@link #apply(com.esotericsoftware.kryo.Kryo, int)}.
+     * @param type to register.
+     */
+    public void register(Class<?> type) {
+        Preconditions.checkNotNull(type, "Invalid type");
+
+        synchronized (registrations) {
+            if (!registrations.contains(type)) {
+                registrations.add(type);
+            }
+        }
+    }
+
+    public int getRegistrationCount() {
+        return registrations.size();
+    }
+
+    public List<Class<?>> getRegistrations() {
+        return ImmutableList.copyOf(registrations);
+    }
+
+    /**
+     * Apply all registrations from the given index onwards to the kryo instance.
+     * @param kryo to register with.
+     * @param from index of the first registration to apply.
+     * @return the number of registrations the instance now holds.
+     */
+    public int apply(Kryo kryo, int from) {
+        List<Class<?>> toApply = Lists.newArrayList(registrations);
+
+        for (int i = from; i < toApply.size(); i++) {
+            kryo.register(toApply.get(i));
+        }
+
+        return toApply.size();
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.serialization.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.google.inject.Inject;
+
+/**
+ * Hands out a {@link Kryo} instance per calling thread so that serialization never contends on a shared
+ * instance.  All instances are created by a shared {@link KryoFactory} and are brought up to date with any
+ * registrations made after they were created before being returned.
+ */
+public class KryoPool {
+    private final KryoFactory factory;
+    private final ThreadLocal<PooledKryo> pooled;
+
+    @Inject
+    public KryoPool(KryoFactory factory) {
+        this.factory = factory;
+        pooled = createPooled();
+    }
+
+    private ThreadLocal<PooledKryo> createPooled() {
+        return new ThreadLocal<PooledKryo>() {
+            @Override
+            protected PooledKryo initialValue() {
+                // read the count first, a registration racing with creation is simply applied again on get
+                int registered = factory.getRegistrationCount();
+                return new PooledKryo(factory.create(), registered);
+            }
+        };
+    }
+
+    /**
+     * Get the kryo instance owned by the calling thread.
+     * @return a configured kryo instance, it must not be shared with other threads.
+     */
+    public Kryo get() {
+        PooledKryo res = pooled.get();
+
+        if (res.registered != factory.getRegistrationCount()) {
+            res.registered = factory.apply(res.kryo, res.registered);
+        }
+
+        return res.kryo;
+    }
+
+    public void register(Class<?> type) {
+        factory.register(type);
+    }
+
+    public KryoFactory getFactory() {
+        return factory;
+    }
+
+    private static final class PooledKryo {
+        private final Kryo kryo;
+        private int registered;
+
+        private PooledKryo(Kryo kryo, int registered) {
+            this.kryo = kryo;
+            this.registered = registered;
+        }
+    }
+}
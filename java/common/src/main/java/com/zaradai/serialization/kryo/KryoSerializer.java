@@ -24,18 +24,22 @@ import com.zaradai.serialization.Serializer;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+/**
+ * Kryo backed serializer, safe to call concurrently as each calling thread is given its own
+ * kryo instance from the {@link KryoPool}.
+ */
 public class KryoSerializer implements Serializer {
-    private final Kryo kryo;
+    private final KryoPool pool;
 
     @Inject
-    public KryoSerializer(Kryo kryo) {
-        this.kryo = kryo;
+    public KryoSerializer(KryoPool pool) {
+        this.pool = pool;
     }
 
     @Override
-    public synchronized void serialize(OutputStream out, Object object) {
+    public void serialize(OutputStream out, Object object) {
         Output output = createOutput(out);
-        kryo.writeClassAndObject(output, object);
+        getKryo().writeClassAndObject(output, object);
         output.flush();
         output.close();
     }
@@ -45,15 +49,19 @@ public class KryoSerializer implements Serializer {
     }
 
     @Override
-    public synchronized Object deserialize(InputStream in) {
-        return kryo.readClassAndObject(createInput(in));
+    public Object deserialize(InputStream in) {
+        return getKryo().readClassAndObject(createInput(in));
     }
 
     protected Input createInput(InputStream in) {
         return new Input(in);
     }
 
+    protected Kryo getKryo() {
+        return pool.get();
+    }
+
     public void register(Class type) {
-        kryo.register(type);
+        pool.register(type);
     }
 }
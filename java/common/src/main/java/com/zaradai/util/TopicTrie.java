@@ -0,0 +1,216 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Topic patterns compiled into a trie of their words, each pattern holding the values registered against it.  Topics
+ * are words separated by '.', in a pattern '*' matches exactly one word and '#' any number of words, none included,
+ * so "prices.eu.*" matches "prices.eu.gbp" and "orders.#" matches "orders" and "orders.new.fx".  A topic is matched
+ * by walking its words down the literal, '*' and '#' branches of the trie, the cost grows with the length of the
+ * topic and the wildcards met on the way rather than with the number of patterns.  Runs of '#' match the same topics
+ * as one, so patterns differing only in them, "orders.#" and "orders.#.#", are the same pattern and share their
+ * values.  Callers counting subscriptions by pattern should {@link #normalise(String)} them first.  Changes are made
+ * under the trie's lock, matching takes none.
+ *
+ * @param <V> the value type
+ */
+public class TopicTrie<V> {
+    public static final char SEPARATOR = '.';
+    public static final String ANY_WORD = "*";
+    public static final String ANY_WORDS = "#";
+
+    private final Node<V> root = new Node<V>();
+
+    /**
+     * @param pattern the topic pattern
+     * @param value the value to register against it
+     * @return true if the value was not already registered against the pattern.
+     */
+    public synchronized boolean add(String pattern, V value) {
+        Preconditions.checkNotNull(value, "Invalid value");
+        Node<V> node = root;
+
+        for (String word : compile(pattern)) {
+            Node<V> child = node.children.get(word);
+
+            if (child == null) {
+                child = new Node<V>();
+                node.children.put(word, child);
+            }
+            node = child;
+        }
+
+        if (node.values.contains(value)) {
+            return false;
+        }
+        node.values = ImmutableSet.<V>builder().addAll(node.values).add(value).build();
+
+        return true;
+    }
+
+    /**
+     * @param pattern the topic pattern
+     * @param value the value to remove from it
+     * @return true if the value was registered against the pattern.
+     */
+    public synchronized boolean remove(String pattern, V value) {
+        List<String> words = compile(pattern);
+        List<Node<V>> path = Lists.newArrayList();
+        Node<V> node = root;
+
+        for (String word : words) {
+            path.add(node);
+            node = node.children.get(word);
+
+            if (node == null) {
+                return false;
+            }
+        }
+
+        if (!node.values.contains(value)) {
+            return false;
+        }
+        node.values = ImmutableSet.copyOf(Sets.difference(node.values, ImmutableSet.of(value)));
+        // drop the branch back to the last node still in use
+        for (int i = words.size() - 1; i >= 0 && node.isEmpty(); i--) {
+            node = path.get(i);
+            node.children.remove(words.get(i));
+        }
+
+        return true;
+    }
+
+    /**
+     * @param topic the topic, without wildcards
+     * @return every value registered against a pattern matching the topic.
+     */
+    public Set<V> match(String topic) {
+        Set<V> res = Sets.newHashSet();
+        collect(root, split(topic), 0, res);
+
+        return res;
+    }
+
+    public boolean isEmpty() {
+        return root.isEmpty();
+    }
+
+    private void collect(Node<V> node, String[] words, int index, Set<V> res) {
+        Node<V> anyWords = node.children.get(ANY_WORDS);
+
+        if (anyWords != null) {
+            // swallow none, some or all of the remaining words
+            for (int i = index; i <= words.length; i++) {
+                collect(anyWords, words, i, res);
+            }
+        }
+
+        if (index == words.length) {
+            res.addAll(node.values);
+            return;
+        }
+
+        Node<V> literal = node.children.get(words[index]);
+
+        if (literal != null) {
+            collect(literal, words, index + 1, res);
+        }
+
+        Node<V> anyWord = node.children.get(ANY_WORD);
+
+        if (anyWord != null) {
+            collect(anyWord, words, index + 1, res);
+        }
+    }
+
+    /**
+     * @param pattern a topic pattern
+     * @return its words, with runs of '#' reduced to one as they match the same topics.
+     */
+    static List<String> compile(String pattern) {
+        List<String> res = Lists.newArrayList();
+
+        for (String word : split(pattern)) {
+            if (!(ANY_WORDS.equals(word) && !res.isEmpty() && ANY_WORDS.equals(res.get(res.size() - 1)))) {
+                res.add(word);
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * @param pattern a topic pattern
+     * @return the pattern with runs of '#' reduced to one, the form it is held in the trie.
+     */
+    public static String normalise(String pattern) {
+        if (!pattern.contains(ANY_WORDS + SEPARATOR + ANY_WORDS)) {
+            return pattern;
+        }
+
+        return Joiner.on(SEPARATOR).join(compile(pattern));
+    }
+
+    /**
+     * @param pattern a topic pattern
+     * @throws IllegalArgumentException if a word is empty or has a wildcard mixed with other characters.
+     */
+    public static void checkPattern(String pattern) {
+        Preconditions.checkNotNull(pattern, "Invalid pattern");
+
+        for (String word : split(pattern)) {
+            Preconditions.checkArgument(!word.isEmpty(), "Empty word in pattern %s", pattern);
+            Preconditions.checkArgument(ANY_WORD.equals(word) || ANY_WORDS.equals(word)
+                    || (!word.contains(ANY_WORD) && !word.contains(ANY_WORDS)), "Invalid wildcard in pattern %s",
+                    pattern);
+        }
+    }
+
+    private static String[] split(String topic) {
+        List<String> res = Lists.newArrayList();
+        int start = 0;
+        int end = topic.indexOf(SEPARATOR);
+
+        while (end >= 0) {
+            res.add(topic.substring(start, end));
+            start = end + 1;
+            end = topic.indexOf(SEPARATOR, start);
+        }
+        res.add(topic.substring(start));
+
+        return res.toArray(new String[res.size()]);
+    }
+
+    private static final class Node<V> {
+        private final ConcurrentMap<String, Node<V>> children = Maps.newConcurrentMap();
+        private volatile ImmutableSet<V> values = ImmutableSet.of();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && values.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Parks the consumer until signalled, no CPU is used whilst idle at the cost of a wake up per burst.
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // producers only take the lock when the consumer may be parked
+    private volatile boolean waiting;
+
+    @Override
+    public void waitFor(MpscRingBuffer<?> ring) throws InterruptedException {
+        if (!ring.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            waiting = true;
+            // checked after raising the flag so a producer either sees it or its element is seen here
+            while (ring.isEmpty()) {
+                notEmpty.await();
+            }
+        } finally {
+            waiting = false;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void signal() {
+        if (waiting) {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+/**
+ * Checks the ring continuously, the lowest latency but holds a core whilst idle so only suits a dedicated CPU.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+    @Override
+    public void waitFor(MpscRingBuffer<?> ring) throws InterruptedException {
+        while (ring.isEmpty()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public void signal() {
+        // the consumer never sleeps
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock free queue for many producer threads and a single consumer thread.  Producers claim a slot by
+ * advancing the producer index then publish the element into it, the consumer clears each slot before moving on so
+ * no node is allocated per element.  Only one thread at a time may call {@link #poll()}.
+ *
+ * @param <E> the element type
+ */
+public class MpscRingBuffer<E> {
+    private static final int MAX_CAPACITY = 1 << (Integer.SIZE - 2);
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex;
+    private final AtomicLong consumerIndex;
+
+    /**
+     * @param capacity the minimum number of elements held, rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= MAX_CAPACITY, "Invalid capacity specified");
+        int size = Integer.highestOneBit(capacity);
+
+        if (size < capacity) {
+            size <<= 1;
+        }
+        buffer = new AtomicReferenceArray<E>(size);
+        mask = size - 1;
+        producerIndex = new AtomicLong();
+        consumerIndex = new AtomicLong();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Add the element if there is room, safe to call from any thread.
+     *
+     * @param element the element to add
+     * @return false if the buffer was full.
+     */
+    public boolean offer(E element) {
+        Preconditions.checkNotNull(element, "Invalid element");
+        long index;
+
+        do {
+            index = producerIndex.get();
+
+            if (index - consumerIndex.get() > mask) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        // the consumer cleared the slot before moving past it, so it is ours until published
+        buffer.lazySet(offset(index), element);
+
+        return true;
+    }
+
+    /**
+     * Remove the oldest element, only to be called from the single consumer thread.  Never waits, so it also returns
+     * null whilst the oldest slot has been claimed by a producer that has yet to publish into it.  A consumer woken by
+     * each producer once its offer returns, as the writer and dispatcher are, will see the element on its next pass.
+     *
+     * @return the element or null if empty or the oldest element is not yet published.
+     */
+    public E poll() {
+        long index = consumerIndex.get();
+        int offset = offset(index);
+        E res = buffer.get(offset);
+
+        if (res == null) {
+            // empty, or claimed with the producer between its claim and its store, spinning here would stall the
+            // consumer on a producer thread that may not be running
+            return null;
+        }
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+
+        return res;
+    }
+
+    /**
+     * @return the number of elements, only a snapshot while producers are active.
+     */
+    public int size() {
+        long after = consumerIndex.get();
+
+        while (true) {
+            long before = after;
+            long produced = producerIndex.get();
+            after = consumerIndex.get();
+
+            if (before == after) {
+                return (int) (produced - after);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    private int offset(long index) {
+        return (int) index & mask;
+    }
+}
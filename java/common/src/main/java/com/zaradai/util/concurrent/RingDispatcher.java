@@ -0,0 +1,185 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Hands elements from any number of threads to a handler on a single dedicated thread.  Elements pass through a
+ * preallocated ring so dispatching allocates nothing, the consumer takes everything available as one batch before
+ * waiting again.  Until started, and once shut down, elements are handled on the dispatching thread.  The handler may
+ * dispatch again, if the ring is full its element is handled there and then as the consumer cannot wait on itself.
+ *
+ * @param <E> the element type
+ */
+public class RingDispatcher<E> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RingDispatcher.class);
+
+    /**
+     * Receives elements in the order they were dispatched.
+     *
+     * @param <E> the element type
+     */
+    public interface Handler<E> {
+        /**
+         * @param event the element
+         * @param endOfBatch true for the last element currently available
+         */
+        void onEvent(E event, boolean endOfBatch);
+    }
+
+    private final MpscRingBuffer<E> ring;
+    private final WaitStrategy waitStrategy;
+    private final ThreadFactory threadFactory;
+    private final Handler<E> handler;
+    private volatile boolean running;
+    private volatile Thread consumer;
+
+    public RingDispatcher(int capacity, WaitStrategy waitStrategy, ThreadFactory threadFactory, Handler<E> handler) {
+        this.ring = new MpscRingBuffer<E>(capacity);
+        this.waitStrategy = Preconditions.checkNotNull(waitStrategy, "Invalid wait strategy specified");
+        this.threadFactory = Preconditions.checkNotNull(threadFactory, "Invalid thread factory specified");
+        this.handler = Preconditions.checkNotNull(handler, "Invalid handler specified");
+    }
+
+    public synchronized void start() {
+        if (consumer != null) {
+            return;
+        }
+
+        running = true;
+        consumer = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        });
+        consumer.start();
+    }
+
+    /**
+     * Stop the consumer thread once it has handled everything already dispatched.
+     */
+    public synchronized void shutdown() {
+        if (consumer == null) {
+            return;
+        }
+
+        running = false;
+        consumer.interrupt();
+        Uninterruptibles.joinUninterruptibly(consumer);
+        consumer = null;
+        // anything added as the consumer stopped
+        drain();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Safe to call from any thread, waits for room if the ring is full.
+     *
+     * @param event the element to hand over
+     */
+    public void dispatch(E event) {
+        while (!tryDispatch(event)) {
+            if (isConsumer()) {
+                // only this thread makes room, handled here ahead of those queued rather than waiting on itself
+                deliver(event, true);
+                return;
+            }
+            // full, hold the producer back until the consumer catches up
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Safe to call from any thread, never waits.
+     *
+     * @param event the element to hand over
+     * @return false if the ring was full and the element not taken
+     */
+    public boolean tryDispatch(E event) {
+        if (!running) {
+            deliver(event, true);
+            return true;
+        }
+
+        if (!ring.offer(event)) {
+            return false;
+        }
+        waitStrategy.signal();
+
+        if (!running) {
+            drainStopped();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if called from within the handler, on the consumer thread
+     */
+    public boolean isConsumer() {
+        return Thread.currentThread() == consumer;
+    }
+
+    private synchronized void drainStopped() {
+        // added after the consumer made its last pass
+        if (consumer == null) {
+            drain();
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                waitStrategy.waitFor(ring);
+            } catch (InterruptedException e) {
+                LOGGER.debug("Dispatcher interrupted");
+            }
+            drain();
+        }
+    }
+
+    private void drain() {
+        // everything visible now is one batch, cut short at a slot claimed but not yet published whose producer
+        // signals again once it is, each event is held back until the next is polled to know if it ends the batch
+        int remaining = ring.size();
+        E event = (remaining > 0) ? ring.poll() : null;
+
+        while (event != null) {
+            remaining--;
+            E next = (remaining > 0) ? ring.poll() : null;
+            deliver(event, next == null);
+            event = next;
+        }
+    }
+
+    private void deliver(E event, boolean endOfBatch) {
+        try {
+            handler.onEvent(event, endOfBatch);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Handler failed for {}", event, e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+/**
+ * How the consumer of a {@link RingDispatcher} waits for work, trading latency against the CPU it burns.
+ */
+public interface WaitStrategy {
+    /**
+     * Return once the ring has an element or the waiting thread is interrupted.
+     *
+     * @param ring the ring being consumed
+     * @throws InterruptedException if the consumer was interrupted whilst waiting
+     */
+    void waitFor(MpscRingBuffer<?> ring) throws InterruptedException;
+
+    /**
+     * Called by producers after adding to the ring, wakes a waiting consumer.
+     */
+    void signal();
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.dispatch;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DirectEventAggregatorTest {
+    private static final String TEST_EVENT = "test";
+
+    private DirectEventAggregator uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new DirectEventAggregator();
+    }
+
+    @Test
+    public void shouldPublishOnCallingThread() throws Exception {
+        Listener listener = new Listener();
+        uut.subscribe(listener);
+
+        uut.publish(TEST_EVENT);
+
+        assertThat(listener.received, is((Object) TEST_EVENT));
+        assertThat(listener.thread == Thread.currentThread(), is(true));
+    }
+
+    @Test
+    public void shouldNotPublishOnceUnsubscribed() throws Exception {
+        Listener listener = new Listener();
+        uut.subscribe(listener);
+        uut.unsubscribe(listener);
+
+        uut.publish(TEST_EVENT);
+
+        assertThat(listener.received, is(nullValue()));
+    }
+
+    @Test
+    public void shouldPublishDeadEventFromAggregator() throws Exception {
+        DeadListener listener = new DeadListener();
+        uut.subscribe(listener);
+
+        uut.publish(TEST_EVENT);
+
+        assertThat(listener.dead.getEvent(), is((Object) TEST_EVENT));
+        assertThat(listener.dead.getSource() == uut, is(true));
+    }
+
+    @Test
+    public void shouldContinueAfterSubscriberFails() throws Exception {
+        Listener listener = new Listener();
+        uut.subscribe(new Failing());
+        uut.subscribe(listener);
+
+        uut.publish(TEST_EVENT);
+
+        assertThat(listener.received, is((Object) TEST_EVENT));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldCatchNullEvent() throws Exception {
+        uut.publish(null);
+    }
+
+    public static class Listener {
+        private Object received;
+        private Thread thread;
+
+        @Subscribe
+        public void onEvent(String event) {
+            received = event;
+            thread = Thread.currentThread();
+        }
+    }
+
+    public static class DeadListener {
+        private DeadEvent dead;
+
+        @Subscribe
+        public void onDead(DeadEvent event) {
+            dead = event;
+        }
+    }
+
+    public static class Failing {
+        @Subscribe
+        public void onEvent(String event) {
+            throw new IllegalStateException("test");
+        }
+    }
+}
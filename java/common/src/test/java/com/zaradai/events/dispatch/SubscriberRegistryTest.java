@@ -0,0 +1,186 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.dispatch;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SubscriberRegistryTest {
+    private SubscriberRegistry uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new SubscriberRegistry();
+    }
+
+    @Test
+    public void shouldResolveSubscribersOfSupertypes() throws Exception {
+        uut.register(new Listener());
+
+        assertThat(uut.get(Integer.class).length, is(2));
+        assertThat(uut.get(String.class).length, is(1));
+        assertThat(uut.get(Long.class).length, is(2));
+    }
+
+    @Test
+    public void shouldResolveNoneForUnknownType() throws Exception {
+        uut.register(new Listener());
+
+        assertThat(uut.get(Thread.class).length, is(0));
+    }
+
+    @Test
+    public void shouldRefreshOnRegister() throws Exception {
+        assertThat(uut.get(Integer.class).length, is(0));
+
+        uut.register(new Listener());
+
+        assertThat(uut.get(Integer.class).length, is(2));
+    }
+
+    @Test
+    public void shouldRemoveOnUnregister() throws Exception {
+        Listener listener = new Listener();
+        uut.register(listener);
+        uut.get(Integer.class);
+
+        uut.unregister(listener);
+
+        assertThat(uut.get(Integer.class).length, is(0));
+    }
+
+    @Test
+    public void shouldReuseTableUntilSubscribersChange() throws Exception {
+        uut.register(new Listener());
+        Subscriber[] resolved = uut.get(Integer.class);
+
+        assertThat(uut.get(Integer.class) == resolved, is(true));
+        uut.register(new Listener());
+        assertThat(uut.get(Integer.class).length, is(4));
+    }
+
+    @Test
+    public void shouldDeliverToEachSubscriber() throws Exception {
+        Listener listener = new Listener();
+        uut.register(listener);
+
+        uut.deliver(this, 1);
+
+        assertThat(listener.numbers, is(1));
+        assertThat(listener.comparables, is(1));
+    }
+
+    @Test
+    public void shouldKeepEventForRemainingSubscribersOfNestedDelivery() throws Exception {
+        Listener listener = new Listener();
+        uut.register(new Republisher(uut));
+        uut.register(listener);
+
+        uut.deliver(this, 1);
+
+        // the republished string is not a number, so the outer event reached both of the listener's subscribers
+        assertThat(listener.numbers, is(1));
+        assertThat(listener.comparables, is(2));
+    }
+
+    @Test
+    public void shouldDeliverDeadEventIfNoSubscribers() throws Exception {
+        DeadListener listener = new DeadListener();
+        uut.register(listener);
+
+        uut.deliver(this, 1);
+
+        assertThat(listener.dead.getEvent(), is((Object) 1));
+        assertThat(listener.dead.getSource() == this, is(true));
+    }
+
+    @Test
+    public void shouldGenerateAccessorForPublicListener() throws Exception {
+        uut.register(new Listener());
+
+        assertThat(uut.get(Integer.class)[0].isGenerated(), is(true));
+    }
+
+    @Test
+    public void shouldCallNonPublicListenerReflectively() throws Exception {
+        HiddenListener listener = new HiddenListener();
+        uut.register(listener);
+
+        uut.deliver(this, "test");
+
+        assertThat(uut.get(String.class)[0].isGenerated(), is(false));
+        assertThat(listener.received, is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCatchUnregisteredListener() throws Exception {
+        uut.unregister(new Listener());
+    }
+
+    public static class Listener {
+        private int numbers;
+        private int comparables;
+
+        @Subscribe
+        public void onNumber(Number number) {
+            numbers++;
+        }
+
+        @Subscribe
+        public void onComparable(Comparable<?> comparable) {
+            comparables++;
+        }
+
+        public void notSubscribed(Integer value) {
+        }
+    }
+
+    public static class Republisher {
+        private final SubscriberRegistry registry;
+
+        public Republisher(SubscriberRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Subscribe
+        public void onInteger(Integer event) {
+            registry.deliver(this, event.toString());
+        }
+    }
+
+    public static class DeadListener {
+        private DeadEvent dead;
+
+        @Subscribe
+        public void onDead(DeadEvent event) {
+            dead = event;
+        }
+    }
+
+    static class HiddenListener {
+        private int received;
+
+        @Subscribe
+        public void onString(String event) {
+            received++;
+        }
+    }
+}
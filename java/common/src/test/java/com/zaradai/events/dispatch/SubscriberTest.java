@@ -0,0 +1,101 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.dispatch;
+
+import com.google.common.eventbus.Subscribe;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SubscriberTest {
+    private static final Object[] TEST_ARGS = {"test"};
+
+    @Test
+    public void shouldInvokeThroughAccessor() throws Exception {
+        Listener listener = new Listener();
+        Subscriber uut = create(listener, "onEvent");
+
+        uut.invoke(TEST_ARGS);
+
+        assertThat(uut.isGenerated(), is(true));
+        assertThat(listener.received, is(TEST_ARGS[0]));
+    }
+
+    @Test
+    public void shouldInvokeReflectivelyWithoutAccessor() throws Exception {
+        Listener listener = new Listener();
+        Subscriber uut = new Subscriber(listener, Listener.class.getMethod("onEvent", String.class), null);
+
+        uut.invoke(TEST_ARGS);
+
+        assertThat(uut.isGenerated(), is(false));
+        assertThat(listener.received, is(TEST_ARGS[0]));
+    }
+
+    @Test
+    public void shouldWrapUncheckedFailure() throws Exception {
+        assertWrapped(create(new Listener(), "onFail"), IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldWrapCheckedFailure() throws Exception {
+        assertWrapped(create(new Listener(), "onChecked"), IOException.class);
+    }
+
+    @Test
+    public void shouldGetEventType() throws Exception {
+        assertThat(create(new Listener(), "onEvent").getEventType() == String.class, is(true));
+    }
+
+    private void assertWrapped(Subscriber uut, Class<?> expected) throws Exception {
+        try {
+            uut.invoke(TEST_ARGS);
+            fail("expected failure");
+        } catch (InvocationTargetException e) {
+            assertThat(e.getCause(), instanceOf(expected));
+        }
+    }
+
+    private Subscriber create(Listener listener, String name) throws Exception {
+        return new Subscriber(listener, Listener.class.getMethod(name, String.class),
+                Subscriber.createAccess(Listener.class));
+    }
+
+    public static class Listener {
+        private Object received;
+
+        @Subscribe
+        public void onEvent(String event) {
+            received = event;
+        }
+
+        @Subscribe
+        public void onFail(String event) {
+            throw new IllegalStateException("test");
+        }
+
+        @Subscribe
+        public void onChecked(String event) throws IOException {
+            throw new IOException("test");
+        }
+    }
+}
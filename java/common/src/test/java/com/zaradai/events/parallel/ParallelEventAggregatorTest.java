@@ -0,0 +1,276 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.events.parallel;
+
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import com.zaradai.events.OrderedEvent;
+import com.zaradai.events.OrderingKey;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ParallelEventAggregatorTest {
+    private static final int WORKERS = 4;
+    private static final int CAPACITY = 64;
+    private static final int KEYS = 8;
+    private static final int SMALL_WORKERS = 2;
+    private static final int SMALL_CAPACITY = 2;
+    private static final int PER_KEY = 500;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private ParallelEventAggregator uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new ParallelEventAggregator(WORKERS, CAPACITY);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uut.shutdown();
+    }
+
+    @Test
+    public void shouldDeliverToSubscriberOfSupertype() throws Exception {
+        Recorder recorder = new Recorder(1);
+        uut.subscribe(recorder);
+
+        uut.publish(new KeyedEvent(1, 1));
+
+        assertThat(recorder.await(), is(true));
+    }
+
+    @Test
+    public void shouldNotDeliverOnceUnsubscribed() throws Exception {
+        Recorder recorder = new Recorder(1);
+        DeadRecorder dead = new DeadRecorder();
+        uut.subscribe(recorder);
+        uut.subscribe(dead);
+        uut.unsubscribe(recorder);
+
+        uut.publish(new KeyedEvent(1, 1));
+
+        assertThat(dead.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+        assertThat(recorder.received.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldPublishDeadEventIfNoSubscribers() throws Exception {
+        DeadRecorder dead = new DeadRecorder();
+        uut.subscribe(dead);
+
+        uut.publish(new Object());
+
+        assertThat(dead.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void shouldKeepOrderForEqualKeys() throws Exception {
+        Recorder recorder = new Recorder(KEYS * PER_KEY);
+        uut.subscribe(recorder);
+
+        for (int i = 0; i < PER_KEY; i++) {
+            for (int key = 0; key < KEYS; key++) {
+                uut.publish(new KeyedEvent(key, i));
+            }
+        }
+
+        assertThat(recorder.await(), is(true));
+        int[] last = new int[KEYS];
+        for (Object received : recorder.received) {
+            KeyedEvent event = (KeyedEvent) received;
+            assertThat(event.sequence, is(last[event.key]++));
+        }
+    }
+
+    @Test
+    public void shouldKeepOrderForAnnotatedKeys() throws Exception {
+        Recorder recorder = new Recorder(PER_KEY);
+        uut.subscribe(recorder);
+
+        for (int i = 0; i < PER_KEY; i++) {
+            uut.publish(new AnnotatedEvent(i));
+        }
+
+        assertThat(recorder.await(), is(true));
+        for (int i = 0; i < PER_KEY; i++) {
+            assertThat(((AnnotatedEvent) recorder.received.get(i)).sequence, is(i));
+        }
+    }
+
+    @Test
+    public void shouldDeliverDifferentKeysConcurrently() throws Exception {
+        // each event waits for the other, only completes if both are delivered at once
+        Rendezvous rendezvous = new Rendezvous();
+        uut.subscribe(rendezvous);
+
+        uut.publish(new KeyedEvent(0, 0));
+        uut.publish(new KeyedEvent(1, 0));
+
+        assertThat(rendezvous.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void shouldContinueAfterSubscriberFails() throws Exception {
+        Recorder recorder = new Recorder(1);
+        uut.subscribe(new Failing());
+        uut.subscribe(recorder);
+
+        uut.publish(new KeyedEvent(1, 1));
+
+        assertThat(recorder.await(), is(true));
+    }
+
+    @Test
+    public void shouldDeliverEventsRepublishedIntoFullWorkers() throws Exception {
+        uut.shutdown();
+        uut = new ParallelEventAggregator(SMALL_WORKERS, SMALL_CAPACITY);
+        // each first event republishes one to every key
+        Republisher republisher = new Republisher(uut, KEYS + KEYS * KEYS);
+        uut.subscribe(republisher);
+
+        for (int key = 0; key < KEYS; key++) {
+            uut.publish(new KeyedEvent(key, 0));
+        }
+
+        assertThat(republisher.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void shouldDefaultToWorkerPerProcessor() throws Exception {
+        ParallelEventAggregator defaults = new ParallelEventAggregator();
+
+        assertThat(defaults.getWorkerCount(), is(Runtime.getRuntime().availableProcessors()));
+        defaults.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCatchInvalidWorkerCount() throws Exception {
+        new ParallelEventAggregator(0, CAPACITY);
+    }
+
+    public static class KeyedEvent implements OrderedEvent {
+        private final int key;
+        private final int sequence;
+
+        KeyedEvent(int key, int sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public Object getOrderingKey() {
+            return key;
+        }
+    }
+
+    public static class AnnotatedEvent {
+        private final int sequence;
+
+        AnnotatedEvent(int sequence) {
+            this.sequence = sequence;
+        }
+
+        @OrderingKey
+        public String getStream() {
+            return "stream";
+        }
+    }
+
+    public static class Recorder {
+        private final List<Object> received = Collections.synchronizedList(Lists.newArrayList());
+        private final CountDownLatch done;
+
+        Recorder(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void onEvent(Object event) {
+            if (!(event instanceof DeadEvent)) {
+                received.add(event);
+                done.countDown();
+            }
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public static class DeadRecorder {
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        @Subscribe
+        public void onDead(DeadEvent event) {
+            done.countDown();
+        }
+    }
+
+    public static class Rendezvous {
+        private final CyclicBarrier barrier = new CyclicBarrier(2);
+        private final CountDownLatch done = new CountDownLatch(2);
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void onEvent(KeyedEvent event) throws Exception {
+            barrier.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            done.countDown();
+        }
+    }
+
+    public static class Republisher {
+        private final ParallelEventAggregator aggregator;
+        private final CountDownLatch done;
+
+        Republisher(ParallelEventAggregator aggregator, int expected) {
+            this.aggregator = aggregator;
+            done = new CountDownLatch(expected);
+        }
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void onEvent(KeyedEvent event) {
+            if (event.sequence == 0) {
+                // to every key, so each worker publishes into the others and itself
+                for (int key = 0; key < KEYS; key++) {
+                    aggregator.publish(new KeyedEvent(key, 1));
+                }
+            }
+            done.countDown();
+        }
+    }
+
+    public static class Failing {
+        @Subscribe
+        public void onEvent(KeyedEvent event) {
+            throw new IllegalStateException("test");
+        }
+    }
+}
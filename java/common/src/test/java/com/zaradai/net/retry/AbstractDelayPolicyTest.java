@@ -20,8 +20,11 @@ import org.junit.Test;
 
 import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class AbstractDelayPolicyTest {
     private static final long TEST_DELAY_PERIOD = 1000;
@@ -46,4 +49,24 @@ public class AbstractDelayPolicyTest {
 
         verify(delay).delay(TEST_DELAY_PERIOD, TimeUnit.MILLISECONDS, false);
     }
+
+    @Test
+    public void shouldReturnNextDelayWithoutDelaying() throws Exception {
+        final Delay delay = mock(Delay.class);
+
+        AbstractDelayPolicy uut = new AbstractDelayPolicy() {
+            @Override
+            protected long getDelayPeriodInMillis() {
+                return TEST_DELAY_PERIOD;
+            }
+
+            @Override
+            protected Delay createDelay() {
+                return delay;
+            }
+        };
+
+        assertThat(uut.nextDelay(), is(TEST_DELAY_PERIOD));
+        verifyZeroInteractions(delay);
+    }
 }
@@ -20,9 +20,13 @@ import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class AbstractRetryPolicyTest {
+    private static final long TEST_DELAY = 250;
+
     @Test
     public void shouldDelayAndReturnTrueIfShouldRetry() throws Exception {
         DelayPolicy delayPolicy = DelayPolicyMocker.create();
@@ -69,6 +73,39 @@ public class AbstractRetryPolicyTest {
         assertThat(res, is(false));
     }
 
+    @Test
+    public void shouldReturnNextDelayWithoutDelayingIfShouldRetry() throws Exception {
+        DelayPolicy delayPolicy = DelayPolicyMocker.create();
+        when(delayPolicy.nextDelay()).thenReturn(TEST_DELAY);
+        AbstractRetryPolicy uut = new AbstractRetryPolicy(delayPolicy) {
+            @Override
+            protected boolean shouldRetry() {
+                return true;
+            }
+        };
+
+        long res = uut.nextRetryDelay();
+
+        assertThat(res, is(TEST_DELAY));
+        verify(delayPolicy, never()).delay();
+    }
+
+    @Test
+    public void shouldReturnNoRetryIfNoRetry() throws Exception {
+        DelayPolicy delayPolicy = DelayPolicyMocker.create();
+        AbstractRetryPolicy uut = new AbstractRetryPolicy(delayPolicy) {
+            @Override
+            protected boolean shouldRetry() {
+                return false;
+            }
+        };
+
+        long res = uut.nextRetryDelay();
+
+        assertThat(res, is(RetryPolicy.NO_RETRY));
+        verify(delayPolicy, never()).nextDelay();
+    }
+
     @Test(expected = NullPointerException.class)
     public void shouldThrowIfInvalidDelayPolicy() throws Exception {
         new AbstractRetryPolicy(null) {
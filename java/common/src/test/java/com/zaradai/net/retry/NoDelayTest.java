@@ -38,4 +38,9 @@ public class NoDelayTest {
         assertThat(logs.size(), is(1));
         assertThat(logs.get(0), containsString("Retrying"));
     }
+
+    @Test
+    public void shouldRetryImmediately() throws Exception {
+        assertThat(new NoDelay().nextDelay(), is(0L));
+    }
 }
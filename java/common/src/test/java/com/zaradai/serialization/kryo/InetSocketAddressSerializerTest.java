@@ -0,0 +1,62 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.serialization.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class InetSocketAddressSerializerTest {
+    private static final int TEST_PORT = 1907;
+    private Kryo kryo;
+
+    @Before
+    public void setUp() throws Exception {
+        kryo = new KryoFactory().create();
+    }
+
+    @Test
+    public void shouldRoundTripResolvedAddress() throws Exception {
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", TEST_PORT);
+
+        assertThat(roundTrip(address), is(address));
+    }
+
+    @Test
+    public void shouldRoundTripUnresolvedAddress() throws Exception {
+        InetSocketAddress address = InetSocketAddress.createUnresolved("unknown.zaradai.com", TEST_PORT);
+
+        InetSocketAddress res = roundTrip(address);
+
+        assertThat(res.isUnresolved(), is(true));
+        assertThat(res.getHostName(), is(address.getHostName()));
+        assertThat(res.getPort(), is(TEST_PORT));
+    }
+
+    private InetSocketAddress roundTrip(InetSocketAddress address) {
+        Output output = new Output(256);
+        kryo.writeClassAndObject(output, address);
+
+        return (InetSocketAddress) kryo.readClassAndObject(new Input(output.toBytes()));
+    }
+}
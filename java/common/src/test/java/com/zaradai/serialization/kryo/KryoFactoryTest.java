@@ -0,0 +1,94 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.serialization.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class KryoFactoryTest {
+    private KryoFactory uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new KryoFactory();
+    }
+
+    @Test
+    public void shouldCreateWithRegistrations() throws Exception {
+        uut.register(TestSerialization.class);
+
+        Kryo res = uut.create();
+
+        assertThat(res.getClassResolver().getRegistration(TestSerialization.class), not(nullValue()));
+    }
+
+    @Test
+    public void shouldAssignSameIdsToAllInstances() throws Exception {
+        uut.register(TestSerialization.class);
+        uut.register(KryoFactoryTest.class);
+
+        Kryo first = uut.create();
+        Kryo second = uut.create();
+
+        assertThat(first.getRegistration(KryoFactoryTest.class).getId(),
+                is(second.getRegistration(KryoFactoryTest.class).getId()));
+    }
+
+    @Test
+    public void shouldIgnoreDuplicateRegistration() throws Exception {
+        uut.register(TestSerialization.class);
+        uut.register(TestSerialization.class);
+
+        assertThat(uut.getRegistrationCount(), is(1));
+    }
+
+    @Test
+    public void shouldApplyFromIndex() throws Exception {
+        Kryo kryo = mock(Kryo.class);
+        uut.register(TestSerialization.class);
+        uut.register(KryoFactoryTest.class);
+
+        int res = uut.apply(kryo, 1);
+
+        assertThat(res, is(2));
+        verify(kryo, never()).register(TestSerialization.class);
+        verify(kryo).register(KryoFactoryTest.class);
+    }
+
+    @Test
+    public void shouldConfigureInetSocketAddressSerializer() throws Exception {
+        Kryo res = uut.create();
+
+        assertThat(res.getDefaultSerializer(InetSocketAddress.class), instanceOf(InetSocketAddressSerializer.class));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldThrowIfInvalidType() throws Exception {
+        uut.register(null);
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.serialization.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class KryoPoolTest {
+    private KryoPool uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new KryoPool(new KryoFactory());
+    }
+
+    @Test
+    public void shouldReturnSameInstanceOnSameThread() throws Exception {
+        assertThat(uut.get(), sameInstance(uut.get()));
+    }
+
+    @Test
+    public void shouldReturnDifferentInstanceOnOtherThread() throws Exception {
+        Kryo local = uut.get();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Kryo other = executor.submit(new Callable<Kryo>() {
+            @Override
+            public Kryo call() throws Exception {
+                return uut.get();
+            }
+        }).get();
+        executor.shutdown();
+
+        assertThat(other, not(sameInstance(local)));
+    }
+
+    @Test
+    public void shouldApplyRegistrationsMadeAfterCreation() throws Exception {
+        Kryo kryo = uut.get();
+
+        uut.register(TestSerialization.class);
+
+        assertThat(uut.get(), sameInstance(kryo));
+        assertThat(kryo.getClassResolver().getRegistration(TestSerialization.class), not(nullValue()));
+    }
+
+    @Test
+    public void shouldRegisterWithFactory() throws Exception {
+        uut.register(TestSerialization.class);
+
+        assertThat(uut.getFactory().getRegistrationCount(), is(1));
+    }
+}
@@ -18,6 +18,7 @@ package com.zaradai.serialization.kryo;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -25,35 +26,46 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class KryoSerializerTest {
     private static final int TEST_VALUE = 42;
+    private static final int TEST_THREADS = 4;
+    private static final int TEST_ITERATIONS = 1000;
     private Kryo kryo;
+    private KryoPool pool;
     private KryoSerializer uut;
 
     @Before
     public void setUp() throws Exception {
         kryo = mock(Kryo.class);
-        uut = new KryoSerializer(kryo);
+        pool = mock(KryoPool.class);
+        when(pool.get()).thenReturn(kryo);
+        uut = new KryoSerializer(pool);
     }
 
     @Test
     public void shouldRegister() throws Exception {
         uut.register(KryoSerializerTest.class);
 
-        verify(kryo).register(KryoSerializerTest.class);
+        verify(pool).register(KryoSerializerTest.class);
     }
 
     @Test
     public void shouldDeserialize() throws Exception {
         final Input input = mock(Input.class);
-        uut = new KryoSerializer(kryo) {
+        uut = new KryoSerializer(pool) {
             @Override
             protected Input createInput(InputStream in) {
                 return input;
@@ -69,7 +81,7 @@ public class KryoSerializerTest {
     public void shouldSerialize() throws Exception {
         TestSerialization test = new TestSerialization(TEST_VALUE);
         final Output output = mock(Output.class);
-        uut = new KryoSerializer(kryo) {
+        uut = new KryoSerializer(pool) {
             @Override
             protected Output createOutput(OutputStream out) {
                 return output;
@@ -83,10 +95,9 @@ public class KryoSerializerTest {
 
     @Test
     public void shouldDeserlizeSerializedObject() throws Exception {
-        Kryo serializer = new Kryo();
         TestSerialization test = new TestSerialization(TEST_VALUE);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
-        KryoSerializer uut = new KryoSerializer(serializer);
+        KryoSerializer uut = new KryoSerializer(new KryoPool(new KryoFactory()));
 
         uut.serialize(outputStream, test);
 
@@ -101,10 +112,9 @@ public class KryoSerializerTest {
 
     @Test
     public void shouldDeserlizeSerializedRegisteredObject() throws Exception {
-        Kryo serializer = new Kryo();
         TestSerialization test = new TestSerialization(TEST_VALUE);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
-        KryoSerializer uut = new KryoSerializer(serializer);
+        KryoSerializer uut = new KryoSerializer(new KryoPool(new KryoFactory()));
 
         uut.register(TestSerialization.class);
 
@@ -118,4 +128,37 @@ public class KryoSerializerTest {
         assertThat(res, instanceOf(TestSerialization.class));
         assertThat(((TestSerialization) res).getTest(), is(TEST_VALUE));
     }
+
+    @Test
+    public void shouldSerializeConcurrently() throws Exception {
+        final KryoSerializer uut = new KryoSerializer(new KryoPool(new KryoFactory()));
+        uut.register(TestSerialization.class);
+        ExecutorService executor = Executors.newFixedThreadPool(TEST_THREADS);
+        List<Future<Boolean>> results = Lists.newArrayList();
+
+        for (int i = 0; i < TEST_THREADS; i++) {
+            final int offset = i * TEST_ITERATIONS;
+            results.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    for (int j = 0; j < TEST_ITERATIONS; j++) {
+                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+                        uut.serialize(outputStream, new TestSerialization(offset + j));
+                        Object res = uut.deserialize(new ByteArrayInputStream(outputStream.toByteArray()));
+
+                        if (((TestSerialization) res).getTest() != offset + j) {
+                            return false;
+                        }
+                    }
+
+                    return true;
+                }
+            }));
+        }
+
+        for (Future<Boolean> result : results) {
+            assertThat(result.get(), is(true));
+        }
+        executor.shutdown();
+    }
 }
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TopicTrieTest {
+    private TopicTrie<String> uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new TopicTrie<String>();
+    }
+
+    @Test
+    public void shouldMatchLiteral() throws Exception {
+        uut.add("prices.eu.gbp", "a");
+
+        assertThat(uut.match("prices.eu.gbp"), is((Set<String>) ImmutableSet.of("a")));
+        assertThat(uut.match("prices.eu").isEmpty(), is(true));
+        assertThat(uut.match("prices.eu.gbp.spot").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldMatchOneWord() throws Exception {
+        uut.add("prices.eu.*", "a");
+
+        assertThat(uut.match("prices.eu.gbp").contains("a"), is(true));
+        assertThat(uut.match("prices.eu").isEmpty(), is(true));
+        assertThat(uut.match("prices.eu.gbp.spot").isEmpty(), is(true));
+        assertThat(uut.match("prices.us.gbp").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldMatchAnyNumberOfWords() throws Exception {
+        uut.add("orders.#", "a");
+
+        assertThat(uut.match("orders").contains("a"), is(true));
+        assertThat(uut.match("orders.new").contains("a"), is(true));
+        assertThat(uut.match("orders.new.fx").contains("a"), is(true));
+        assertThat(uut.match("trades.new").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldMatchWordsBetweenLiterals() throws Exception {
+        uut.add("prices.#.gbp", "a");
+
+        assertThat(uut.match("prices.gbp").contains("a"), is(true));
+        assertThat(uut.match("prices.eu.spot.gbp").contains("a"), is(true));
+        assertThat(uut.match("prices.eu.usd").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldMatchEverything() throws Exception {
+        uut.add("#", "a");
+
+        assertThat(uut.match("prices.eu.gbp").contains("a"), is(true));
+    }
+
+    @Test
+    public void shouldCollectFromAllMatchingPatterns() throws Exception {
+        uut.add("prices.eu.gbp", "a");
+        uut.add("prices.*.gbp", "b");
+        uut.add("prices.#", "c");
+        uut.add("prices.#", "a");
+        uut.add("orders.#", "d");
+
+        assertThat(uut.match("prices.eu.gbp"), is((Set<String>) ImmutableSet.of("a", "b", "c")));
+    }
+
+    @Test
+    public void shouldNotAddTwice() throws Exception {
+        assertThat(uut.add("prices.*", "a"), is(true));
+        assertThat(uut.add("prices.*", "a"), is(false));
+    }
+
+    @Test
+    public void shouldRemove() throws Exception {
+        uut.add("prices.*", "a");
+        uut.add("prices.*", "b");
+
+        assertThat(uut.remove("prices.*", "a"), is(true));
+
+        assertThat(uut.match("prices.eu"), is((Set<String>) ImmutableSet.of("b")));
+    }
+
+    @Test
+    public void shouldPruneEmptyBranches() throws Exception {
+        uut.add("prices.eu.*", "a");
+        uut.add("orders.#", "b");
+
+        uut.remove("prices.eu.*", "a");
+        uut.remove("orders.#", "b");
+
+        assertThat(uut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldNotRemoveUnknown() throws Exception {
+        uut.add("prices.*", "a");
+
+        assertThat(uut.remove("prices.*", "b"), is(false));
+        assertThat(uut.remove("orders.*", "a"), is(false));
+    }
+
+    @Test
+    public void shouldCollapseRepeatedAnyWords() throws Exception {
+        assertThat(TopicTrie.compile("orders.#.#.fx").size(), is(3));
+    }
+
+    @Test
+    public void shouldNormaliseRepeatedAnyWords() throws Exception {
+        assertThat(TopicTrie.normalise("orders.#.#.fx.#.#"), is("orders.#.fx.#"));
+        assertThat(TopicTrie.normalise("orders.#"), is("orders.#"));
+    }
+
+    @Test
+    public void shouldShareValuesOfEquivalentPatterns() throws Exception {
+        assertThat(uut.add("orders.#", "a"), is(true));
+        assertThat(uut.add("orders.#.#", "a"), is(false));
+    }
+
+    @Test
+    public void shouldAcceptValidPatterns() throws Exception {
+        TopicTrie.checkPattern("prices.eu.*");
+        TopicTrie.checkPattern("orders.#");
+        TopicTrie.checkPattern("#");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCatchEmptyWord() throws Exception {
+        TopicTrie.checkPattern("prices..gbp");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCatchPartialWildcard() throws Exception {
+        TopicTrie.checkPattern("prices.eu*");
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BlockingWaitStrategyTest extends WaitStrategyTest {
+    private static final int ROUNDS = 10000;
+
+    @Override
+    protected WaitStrategy createStrategy() {
+        return new BlockingWaitStrategy();
+    }
+
+    @Test
+    public void shouldParkWhilstEmpty() throws Exception {
+        Thread waiter = startWaiter(new CountDownLatch(1));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (waiter.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+
+        assertThat(waiter.getState(), is(Thread.State.WAITING));
+        ring.offer(1);
+        uut.signal();
+        waiter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertThat(waiter.isAlive(), is(false));
+    }
+
+    @Test
+    public void shouldNotMissSignalRacingTheConsumerParking() throws Exception {
+        // signal skips the lock unless the consumer is parked, a signal landing as it parks must still wake it
+        final CountDownLatch consumed = new CountDownLatch(ROUNDS);
+        startWaiter(consumed);
+
+        for (int i = 0; i < ROUNDS; i++) {
+            while (!ring.offer(i)) {
+                Thread.yield();
+            }
+            uut.signal();
+        }
+
+        assertThat(consumed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+    }
+
+    private Thread startWaiter(final CountDownLatch consumed) {
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (consumed.getCount() > 0) {
+                        uut.waitFor(ring);
+                        ring.poll();
+                        consumed.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    // fails the test by not counting down
+                }
+            }
+        });
+        waiter.setDaemon(true);
+        waiter.start();
+
+        return waiter;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MpscRingBufferTest {
+    private static final int TEST_CAPACITY = 4;
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 10000;
+    private static final long TEST_TIMEOUT = 10000;
+
+    private MpscRingBuffer<Integer> uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new MpscRingBuffer<Integer>(TEST_CAPACITY);
+    }
+
+    @Test
+    public void shouldRoundCapacityUpToPowerOfTwo() throws Exception {
+        assertThat(new MpscRingBuffer<Integer>(TEST_CAPACITY + 1).capacity(), is(TEST_CAPACITY * 2));
+        assertThat(uut.capacity(), is(TEST_CAPACITY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCatchInvalidCapacity() throws Exception {
+        new MpscRingBuffer<Integer>(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldCatchNullElement() throws Exception {
+        uut.offer(null);
+    }
+
+    @Test
+    public void shouldPollNullWhenEmpty() throws Exception {
+        assertThat(uut.poll(), is(nullValue()));
+        assertThat(uut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldPollInOrder() throws Exception {
+        uut.offer(1);
+        uut.offer(2);
+
+        assertThat(uut.size(), is(2));
+        assertThat(uut.poll(), is(1));
+        assertThat(uut.poll(), is(2));
+        assertThat(uut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldRejectWhenFull() throws Exception {
+        for (int i = 0; i < TEST_CAPACITY; i++) {
+            assertThat(uut.offer(i), is(true));
+        }
+
+        assertThat(uut.offer(TEST_CAPACITY), is(false));
+        uut.poll();
+        assertThat(uut.offer(TEST_CAPACITY), is(true));
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void shouldKeepEachProducersOrder() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < PER_PRODUCER; i++) {
+                        while (!uut.offer(producer * PER_PRODUCER + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        start.countDown();
+
+        int[] last = new int[PRODUCERS];
+        int received = 0;
+
+        while (received < PRODUCERS * PER_PRODUCER) {
+            Integer value = uut.poll();
+
+            if (value != null) {
+                int producer = value / PER_PRODUCER;
+                assertThat(value % PER_PRODUCER, is(last[producer]));
+                last[producer]++;
+                received++;
+            } else {
+                // let the producers run on a machine with fewer cores than threads
+                Thread.yield();
+            }
+        }
+
+        assertThat(uut.isEmpty(), is(true));
+    }
+}
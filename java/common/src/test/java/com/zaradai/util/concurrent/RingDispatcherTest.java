@@ -0,0 +1,180 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RingDispatcherTest {
+    private static final int TEST_CAPACITY = 16;
+    private static final int TEST_COUNT = 1000;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private List<Integer> handled;
+    private List<Boolean> batchEnds;
+    private List<Thread> threads;
+    private CountDownLatch done;
+    private RingDispatcher<Integer> uut;
+
+    @Before
+    public void setUp() throws Exception {
+        handled = Collections.synchronizedList(Lists.<Integer>newArrayList());
+        batchEnds = Collections.synchronizedList(Lists.<Boolean>newArrayList());
+        threads = Collections.synchronizedList(Lists.<Thread>newArrayList());
+        done = new CountDownLatch(TEST_COUNT);
+        uut = new RingDispatcher<Integer>(TEST_CAPACITY, new BlockingWaitStrategy(),
+                Executors.defaultThreadFactory(), new RingDispatcher.Handler<Integer>() {
+                    @Override
+                    public void onEvent(Integer event, boolean endOfBatch) {
+                        handled.add(event);
+                        batchEnds.add(endOfBatch);
+                        threads.add(Thread.currentThread());
+                        done.countDown();
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uut.shutdown();
+    }
+
+    @Test
+    public void shouldHandleOnCallerUntilStarted() throws Exception {
+        uut.dispatch(1);
+
+        assertThat(handled.get(0), is(1));
+        assertThat(threads.get(0), is(Thread.currentThread()));
+        assertThat(uut.isRunning(), is(false));
+    }
+
+    @Test
+    public void shouldHandleInOrderOnDispatchThread() throws Exception {
+        uut.start();
+
+        for (int i = 0; i < TEST_COUNT; i++) {
+            uut.dispatch(i);
+        }
+
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+        for (int i = 0; i < TEST_COUNT; i++) {
+            assertThat(handled.get(i), is(i));
+            assertThat(threads.get(i) == Thread.currentThread(), is(false));
+        }
+        // the last handled closes its batch
+        assertThat(batchEnds.get(TEST_COUNT - 1), is(true));
+    }
+
+    @Test
+    public void shouldHandleAllDispatchedBeforeShutdown() throws Exception {
+        uut.start();
+
+        for (int i = 0; i < TEST_COUNT; i++) {
+            uut.dispatch(i);
+        }
+        uut.shutdown();
+
+        assertThat(handled.size(), is(TEST_COUNT));
+        assertThat(uut.isRunning(), is(false));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldHandleRedispatchIntoFullRing() throws Exception {
+        final int small = 4;
+        final CountDownLatch all = new CountDownLatch(small + 2);
+        final RingDispatcher<Integer>[] dispatcher = new RingDispatcher[1];
+        dispatcher[0] = new RingDispatcher<Integer>(small, new BlockingWaitStrategy(),
+                Executors.defaultThreadFactory(), new RingDispatcher.Handler<Integer>() {
+                    @Override
+                    public void onEvent(Integer event, boolean endOfBatch) {
+                        if (event == 0) {
+                            // one more than fits, the last can only be handled here
+                            for (int i = 1; i <= small + 1; i++) {
+                                dispatcher[0].dispatch(i);
+                            }
+                        }
+                        all.countDown();
+                    }
+                });
+        uut = dispatcher[0];
+        uut.start();
+
+        uut.dispatch(0);
+
+        assertThat(all.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void shouldNotTakeIntoFullRing() throws Exception {
+        uut = new RingDispatcher<Integer>(1, new BlockingWaitStrategy(), Executors.defaultThreadFactory(),
+                new RingDispatcher.Handler<Integer>() {
+                    @Override
+                    public void onEvent(Integer event, boolean endOfBatch) {
+                        Uninterruptibles.awaitUninterruptibly(done);
+                    }
+                });
+        uut.start();
+        // the consumer holds the first, the second fills the ring
+        uut.dispatch(1);
+        while (!uut.tryDispatch(2)) {
+            Thread.yield();
+        }
+
+        assertThat(uut.tryDispatch(3), is(false));
+        assertThat(uut.isConsumer(), is(false));
+        releaseAll();
+    }
+
+    @Test
+    public void shouldContinueAfterHandlerFails() throws Exception {
+        final CountDownLatch second = new CountDownLatch(1);
+        uut = new RingDispatcher<Integer>(TEST_CAPACITY, new YieldingWaitStrategy(),
+                Executors.defaultThreadFactory(), new RingDispatcher.Handler<Integer>() {
+                    @Override
+                    public void onEvent(Integer event, boolean endOfBatch) {
+                        if (event == 1) {
+                            throw new IllegalStateException("test");
+                        }
+                        second.countDown();
+                    }
+                });
+        uut.start();
+
+        uut.dispatch(1);
+        uut.dispatch(2);
+
+        assertThat(second.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+    }
+
+    private void releaseAll() {
+        while (done.getCount() > 0) {
+            done.countDown();
+        }
+    }
+}
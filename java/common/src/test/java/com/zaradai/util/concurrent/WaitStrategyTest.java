@@ -0,0 +1,76 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.util.concurrent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public abstract class WaitStrategyTest {
+    protected static final long TIMEOUT_SECONDS = 5;
+
+    protected MpscRingBuffer<Integer> ring;
+    protected WaitStrategy uut;
+
+    @Before
+    public void setUp() throws Exception {
+        ring = new MpscRingBuffer<Integer>(2);
+        uut = createStrategy();
+    }
+
+    protected abstract WaitStrategy createStrategy();
+
+    @Test
+    public void shouldReturnAtOnceIfNotEmpty() throws Exception {
+        ring.offer(1);
+
+        uut.waitFor(ring);
+    }
+
+    @Test
+    public void shouldReturnOnceAdded() throws Exception {
+        final CountDownLatch returned = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    uut.waitFor(ring);
+                    returned.countDown();
+                } catch (InterruptedException e) {
+                    // fails the test by not counting down
+                }
+            }
+        });
+        waiter.start();
+
+        ring.offer(1);
+        uut.signal();
+
+        assertThat(returned.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void shouldThrowIfInterrupted() throws Exception {
+        Thread.currentThread().interrupt();
+
+        uut.waitFor(ring);
+    }
+}
@@ -15,43 +15,59 @@
  */
 package com.zaradai.distributor;
 
-import com.esotericsoftware.kryo.Kryo;
 import com.google.common.eventbus.EventBus;
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.google.inject.name.Names;
 import com.zaradai.config.ConfigurationSource;
 import com.zaradai.config.InMemoryConfigurationSource;
 import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.config.DistributorConfigImpl;
+import com.zaradai.distributor.events.DispatchingEventPublisher;
 import com.zaradai.distributor.events.EventPublisher;
+import com.zaradai.distributor.events.InterestTrackingEventAggregator;
 import com.zaradai.distributor.messaging.Connection;
+import com.zaradai.distributor.messaging.ClusterMembership;
 import com.zaradai.distributor.messaging.ConnectionFactory;
 import com.zaradai.distributor.messaging.ConnectionManager;
+import com.zaradai.distributor.messaging.LocalInterests;
 import com.zaradai.distributor.messaging.MessagingService;
+import com.zaradai.distributor.messaging.PendingLimits;
+import com.zaradai.distributor.messaging.RoutingTable;
 import com.zaradai.distributor.messaging.netty.ChannelConnection;
 import com.zaradai.distributor.messaging.netty.DefaultMessagingService;
 import com.zaradai.distributor.messaging.netty.EventLoopGroups;
+import com.zaradai.distributor.messaging.netty.KryoByteBufSerializer;
 import com.zaradai.distributor.messaging.netty.NettyClientFactory;
-import com.zaradai.distributor.messaging.netty.NettyEventPublisher;
+import com.zaradai.distributor.messaging.netty.ReconnectScheduler;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodecs;
+import com.zaradai.distributor.messaging.netty.handler.CompressionHandlerFactory;
+import com.zaradai.distributor.messaging.netty.handler.EventClassRegistry;
 import com.zaradai.distributor.messaging.netty.handler.HandshakeHandlerFactory;
+import com.zaradai.distributor.messaging.netty.handler.MessageBatcherFactory;
 import com.zaradai.distributor.messaging.netty.handler.MessageDecoderFactory;
 import com.zaradai.distributor.messaging.netty.handler.MessageEncoderFactory;
 import com.zaradai.distributor.messaging.netty.handler.MessageHandlerFactory;
+import com.zaradai.distributor.messaging.netty.handler.SourceRegistry;
+import com.zaradai.distributor.messaging.netty.outbox.Outboxes;
+import com.zaradai.distributor.messaging.netty.transport.DomainSockets;
+import com.zaradai.distributor.messaging.netty.transport.Transports;
 import com.zaradai.events.EventAggregator;
-import com.zaradai.events.eventbus.EventBusAggregator;
+import com.zaradai.events.dispatch.DirectEventAggregator;
 import com.zaradai.net.authentication.AcceptIfOnApprovedListConnectionAuthenticator;
 import com.zaradai.net.authentication.ConnectionAuthenticator;
 import com.zaradai.serialization.Serializer;
-import com.zaradai.serialization.kryo.KryoSerializer;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
 
 public class DistributorModule extends AbstractModule {
     private final EventBus eventBus;
-    private final Kryo kryo;
+    private final KryoFactory kryoFactory;
 
     public DistributorModule() {
         eventBus = new EventBus("Distributor");
-        kryo = new Kryo();
+        kryoFactory = new KryoFactory();
     }
 
     @Override
@@ -59,34 +75,59 @@ public class DistributorModule extends AbstractModule {
         bindEventAggregator();
         bindConfig();
         bindSerialization();
+        bindCompression();
 
+        bind(DistributorService.class).in(Singleton.class);
         bind(MessagingService.class).to(DefaultMessagingService.class);
         bind(ConnectionManager.class).in(Singleton.class);
+        bind(ClusterMembership.class).in(Singleton.class);
+        bind(LocalInterests.class).in(Singleton.class);
+        bind(RoutingTable.class).in(Singleton.class);
+        bind(PendingLimits.class).in(Singleton.class);
         bind(ConnectionAuthenticator.class).to(AcceptIfOnApprovedListConnectionAuthenticator.class).in(Singleton.class);
         bindNetty();
     }
 
     protected void bindNetty() {
+        bind(Transports.class).in(Singleton.class);
         bind(EventLoopGroups.class).in(Singleton.class);
-        bind(EventPublisher.class).to(NettyEventPublisher.class);
+        bind(DomainSockets.class).in(Singleton.class);
+        bind(ReconnectScheduler.class).in(Singleton.class);
+        bind(Outboxes.class).in(Singleton.class);
+        bind(EventClassRegistry.class).in(Singleton.class);
+        bind(SourceRegistry.class).in(Singleton.class);
+        bind(DispatchingEventPublisher.class).in(Singleton.class);
+        bind(EventPublisher.class).to(DispatchingEventPublisher.class);
 
         install(new FactoryModuleBuilder()
                 .implement(Connection.class, ChannelConnection.class).build(ConnectionFactory.class));
         install(new FactoryModuleBuilder().build(NettyClientFactory.class));
         install(new FactoryModuleBuilder().build(MessageDecoderFactory.class));
+        install(new FactoryModuleBuilder().build(MessageBatcherFactory.class));
         install(new FactoryModuleBuilder().build(MessageEncoderFactory.class));
         install(new FactoryModuleBuilder().build(MessageHandlerFactory.class));
         install(new FactoryModuleBuilder().build(HandshakeHandlerFactory.class));
+        install(new FactoryModuleBuilder().build(CompressionHandlerFactory.class));
     }
 
     protected void bindSerialization() {
-        bind(Kryo.class).toInstance(kryo);
-        bind(Serializer.class).to(KryoSerializer.class).in(Singleton.class);
+        bind(KryoFactory.class).toInstance(kryoFactory);
+        bind(KryoPool.class).in(Singleton.class);
+        bind(Serializer.class).to(KryoByteBufSerializer.class).in(Singleton.class);
+    }
+
+    protected void bindCompression() {
+        // override to register further codecs
+        bind(CompressionCodecs.class).in(Singleton.class);
     }
 
     protected void bindEventAggregator() {
+        // kept for subclasses binding the Guava event bus aggregator instead
         bind(EventBus.class).toInstance(eventBus);
-        bind(EventAggregator.class).to(EventBusAggregator.class);
+        bind(EventAggregator.class).annotatedWith(Names.named(InterestTrackingEventAggregator.DELIVERY))
+                .to(DirectEventAggregator.class).in(Singleton.class);
+        // subscriptions are tracked so they can be advertised to peers
+        bind(EventAggregator.class).to(InterestTrackingEventAggregator.class).in(Singleton.class);
     }
 
     protected void bindConfig() {
@@ -19,23 +19,44 @@ import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.events.DispatchingEventPublisher;
+import com.zaradai.distributor.messaging.ClusterMembership;
+import com.zaradai.distributor.messaging.ClusterView;
+import com.zaradai.distributor.messaging.LocalInterests;
 import com.zaradai.distributor.messaging.Message;
 import com.zaradai.distributor.messaging.MessagingService;
 import com.zaradai.events.EventAggregator;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.net.InetSocketAddress;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DistributorService extends AbstractIdleService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DistributorService.class);
+
     private final EventAggregator eventAggregator;
     private final MessagingService messagingService;
+    private final ClusterMembership clusterMembership;
+    private final DispatchingEventPublisher eventPublisher;
+    private final LocalInterests localInterests;
     private final InetSocketAddress source;
+    private final boolean intercept;
+    private final AtomicBoolean warnedOutgoing = new AtomicBoolean();
 
     @Inject
-    DistributorService(EventAggregator eventAggregator, MessagingService messagingService, DistributorConfig config) {
+    DistributorService(EventAggregator eventAggregator, MessagingService messagingService,
+                       ClusterMembership clusterMembership, DispatchingEventPublisher eventPublisher,
+                       LocalInterests localInterests, DistributorConfig config) {
         this.eventAggregator = eventAggregator;
         this.messagingService = messagingService;
-
+        this.clusterMembership = clusterMembership;
+        this.eventPublisher = eventPublisher;
+        this.localInterests = localInterests;
+        intercept = config.getEventBusIntercept();
+        // messages posted to the event aggregator are sent either way, only received ones depend on intercepting
         this.eventAggregator.subscribe(this);
         source = createSource(config.getHost(), config.getPort());
     }
@@ -53,7 +74,71 @@ public class DistributorService extends AbstractIdleService {
     }
 
     /**
-     * Subscribe for all message based events and distribute across grid.
+     * Send the event to every connected node.
+     *
+     * @param event the event to distribute
+     */
+    public void publish(Object event) {
+        messagingService.publish(createMessage(event));
+    }
+
+    /**
+     * Send the event to every connected node subscribed to a pattern matching the topic.
+     *
+     * @param topic the topic, words separated by '.'
+     * @param event the event to distribute
+     */
+    public void publish(String topic, Object event) {
+        Message message = createMessage(event);
+        message.setTopic(topic);
+        messagingService.publish(message);
+    }
+
+    /**
+     * Ask other nodes for events published on topics matching the pattern, where '*' matches one word and '#' any
+     * number of them, e.g. "prices.eu.*" or "orders.#".  Each call is undone by one to
+     * {@link #unsubscribeTopic(String)}.
+     *
+     * @param pattern the topic pattern
+     */
+    public void subscribeTopic(String pattern) {
+        localInterests.addTopic(pattern);
+    }
+
+    /**
+     * @param pattern a topic pattern previously subscribed to
+     */
+    public void unsubscribeTopic(String pattern) {
+        localInterests.removeTopic(pattern);
+    }
+
+    /**
+     * @param target the node to send to, connected to if need be
+     * @param event the event to distribute
+     */
+    public void send(InetSocketAddress target, Object event) {
+        messagingService.send(target, createMessage(event));
+    }
+
+    /**
+     * @param targets the nodes to send to, connected to if need be
+     * @param event the event to distribute
+     */
+    public void send(Set<InetSocketAddress> targets, Object event) {
+        messagingService.send(targets, createMessage(event));
+    }
+
+    private Message createMessage(Object event) {
+        Message res = new Message();
+        res.setEvent(event);
+        res.setSource(source);
+
+        return res;
+    }
+
+    /**
+     * Subscribe for all message based events and distribute across grid.  Received messages only reach here whilst
+     * intercepting the event aggregator, messages posted to it by the application are always sent.
      *
      * @param message
      */
@@ -70,17 +155,33 @@ public class DistributorService extends AbstractIdleService {
     }
 
 
+    /**
+     * The nodes currently connected, read without locking.
+     *
+     * @return the current cluster view.
+     */
+    public ClusterView getClusterView() {
+        return clusterMembership.getView();
+    }
+
     @Override
     protected void startUp() throws Exception {
+        // ready before the first message can arrive
+        eventPublisher.start();
         messagingService.startAsync().awaitRunning();
     }
 
     @Override
     protected void shutDown() throws Exception {
         messagingService.stopAsync().awaitTerminated();
+        // deliver whatever arrived before the connections closed
+        eventPublisher.shutdown();
     }
 
     private void outgoing(Message message) {
+        if (!intercept && warnedOutgoing.compareAndSet(false, true)) {
+            LOGGER.warn("Message posted to the event aggregator, use DistributorService publish or send instead");
+        }
         // get set of targets
         Set<InetSocketAddress> targets = message.getTargets();
         // clear the targets from the message to reduce size on the wire
@@ -90,14 +191,12 @@ public class DistributorService extends AbstractIdleService {
         if (message.getSource() == null) {
             message.setSource(source);
         }
-        // if no targets then publish to all connected clients
+        // if no targets then publish to all interested clients, by topic if it has one
         if (targets.isEmpty()) {
             messagingService.publish(message);
         } else {
-            // iterate all targets and send one by obe
-            for (InetSocketAddress target : targets) {
-                messagingService.send(target, message);
-            }
+            // send to all targets, the messaging service encodes once for many
+            messagingService.send(targets, message);
         }
     }
 
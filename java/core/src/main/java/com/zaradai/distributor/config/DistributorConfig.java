@@ -70,4 +70,181 @@ public interface DistributorConfig {
      * @return true is logged
      */
     boolean getVerboseLogging();
+
+    /**
+     * The largest message frame accepted, after any decompression.
+     * @return maximum frame size in bytes.
+     */
+    int getMaxMessageSize();
+
+    // Compression
+
+    /**
+     * The compression codec offered to peers, "none" to switch compression off.
+     * @return codec name.
+     */
+    String getCompressionCodec();
+
+    /**
+     * Frames with a body smaller than this are sent uncompressed.
+     * @return threshold in bytes.
+     */
+    int getCompressionThreshold();
+
+    // Batching
+
+    /**
+     * The most messages gathered into a single frame, 1 to send every message in its own frame.
+     * @return maximum messages per batch.
+     */
+    int getBatchMaxMessages();
+
+    /**
+     * A batch is sent once its messages reach this size.
+     * @return maximum batch size in bytes.
+     */
+    int getBatchMaxBytes();
+
+    /**
+     * Time in milliseconds a part filled batch is held after a flush waiting for more messages, 0 to send on flush.
+     * @return linger time in milliseconds.
+     */
+    long getBatchLinger();
+
+    /**
+     * The most queued messages written to a connection before it is flushed.
+     * @return writes per flush.
+     */
+    int getWriteFlushLimit();
+
+    /**
+     * The most messages queued for writing to a connection, rounded up to a power of two.
+     * @return queue capacity.
+     */
+    int getWriteQueueCapacity();
+
+    /**
+     * Time in milliseconds a connection may go without writing before a heartbeat is sent, 0 to disable heartbeats.
+     * @return heartbeat interval in milliseconds.
+     */
+    long getHeartbeatInterval();
+
+    /**
+     * Time in milliseconds without receiving anything, heartbeats included, before a peer is suspected and its
+     * connection closed, 0 to never suspect.  Must be longer than the heartbeat interval.
+     * @return suspect timeout in milliseconds.
+     */
+    long getHeartbeatTimeout();
+
+    // Dispatch
+
+    /**
+     * The most received messages and messaging events waiting for subscribers, rounded up to a power of two.
+     * @return dispatch ring size.
+     */
+    int getDispatchRingSize();
+
+    /**
+     * How the dispatch thread waits for events, "blocking", "yielding" or "busyspin".
+     * @return wait strategy name.
+     */
+    String getDispatchWaitStrategy();
+
+    /**
+     * Compatibility mode, received messages are published whole for the distributor service to unwrap.  Otherwise
+     * received events go straight to subscribers.  Either way messages published to the event aggregator are sent,
+     * though the distributor service's publish and send methods are preferred.
+     * @return true to route received messages through the event aggregator.
+     */
+    boolean getEventBusIntercept();
+
+    /**
+     * Publish each event only to the peers that have advertised a subscriber for it, or have yet to advertise.
+     * @return true to route published events by peer interest.
+     */
+    boolean getInterestRouting();
+
+    // Transport
+
+    /**
+     * The socket transport, "nio", "epoll" or "auto" to use epoll where available.
+     * @return transport name.
+     */
+    String getTransport();
+
+    /**
+     * Set SO_REUSEPORT on the listening socket when using epoll.
+     * @return true to allow several listeners on the port.
+     */
+    boolean getEpollReusePort();
+
+    /**
+     * Set TCP_QUICKACK on connections when using epoll.
+     * @return true to acknowledge immediately.
+     */
+    boolean getEpollTcpQuickAck();
+
+    /**
+     * Use edge rather than level triggered epoll.
+     * @return true for edge triggered.
+     */
+    boolean getEpollEdgeTriggered();
+
+    /**
+     * Directory holding the Unix domain socket files nodes on this host listen on, empty, the default, to only use
+     * TCP.
+     * @return socket directory.
+     */
+    String getDomainSocketDir();
+
+    // Pending messages, held whilst a peer is unreachable, unbounded unless limits are set
+
+    /**
+     * The most messages held for a connection, 0, the default, for no limit.
+     * @return pending messages per connection.
+     */
+    int getPendingMaxMessages();
+
+    /**
+     * The most bytes of encoded messages held for a connection, 0, the default, for no limit.
+     * @return pending bytes per connection.
+     */
+    long getPendingMaxBytes();
+
+    /**
+     * The most messages held across all connections, 0, the default, for no limit.
+     * @return pending messages in total.
+     */
+    int getPendingTotalMaxMessages();
+
+    /**
+     * The most bytes of encoded messages held across all connections, 0, the default, for no limit.
+     * @return pending bytes in total.
+     */
+    long getPendingTotalMaxBytes();
+
+    /**
+     * What to do with a message once the pending limits are reached, "drop-oldest", "drop-newest", "fail" or "block".
+     * @return overflow policy name.
+     */
+    String getPendingOverflowPolicy();
+
+    /**
+     * Time in milliseconds the block policy holds a sender waiting for room before failing the send.
+     * @return block timeout in milliseconds.
+     */
+    long getPendingBlockTimeout();
+
+    /**
+     * Directory holding an outbox for each peer that messages are spilled to whilst it is unreachable, empty to hold
+     * them in memory.
+     * @return outbox directory.
+     */
+    String getOutboxDir();
+
+    /**
+     * Size of each memory mapped outbox segment file, a spilled message must fit in one.
+     * @return segment size in bytes.
+     */
+    int getOutboxSegmentSize();
 }
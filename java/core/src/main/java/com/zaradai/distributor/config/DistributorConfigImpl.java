@@ -34,6 +34,33 @@ public class DistributorConfigImpl implements DistributorConfig {
     public static final String CONNECTION_TIMEOUT = PRE + ".connection.timeout";
     public static final String HANDSHAKE_TIMEOUT = PRE + ".handshake.timeout";
     public static final String VERBOSE_LOGGING = PRE + ".verbose.logging";
+    public static final String MAX_MESSAGE_SIZE = PRE + ".max.message.size";
+    public static final String COMPRESSION_CODEC = PRE + ".compression.codec";
+    public static final String COMPRESSION_THRESHOLD = PRE + ".compression.threshold";
+    public static final String BATCH_MAX_MESSAGES = PRE + ".batch.max.messages";
+    public static final String BATCH_MAX_BYTES = PRE + ".batch.max.bytes";
+    public static final String BATCH_LINGER = PRE + ".batch.linger";
+    public static final String WRITE_FLUSH_LIMIT = PRE + ".write.flush.limit";
+    public static final String WRITE_QUEUE_CAPACITY = PRE + ".write.queue.capacity";
+    public static final String HEARTBEAT_INTERVAL = PRE + ".heartbeat.interval";
+    public static final String HEARTBEAT_TIMEOUT = PRE + ".heartbeat.timeout";
+    public static final String DISPATCH_RING_SIZE = PRE + ".dispatch.ring.size";
+    public static final String DISPATCH_WAIT_STRATEGY = PRE + ".dispatch.wait.strategy";
+    public static final String EVENT_BUS_INTERCEPT = PRE + ".event.bus.intercept";
+    public static final String INTEREST_ROUTING = PRE + ".interest.routing";
+    public static final String TRANSPORT = PRE + ".transport";
+    public static final String EPOLL_REUSE_PORT = PRE + ".epoll.reuse.port";
+    public static final String EPOLL_TCP_QUICKACK = PRE + ".epoll.tcp.quickack";
+    public static final String EPOLL_EDGE_TRIGGERED = PRE + ".epoll.edge.triggered";
+    public static final String DOMAIN_SOCKET_DIR = PRE + ".domain.socket.dir";
+    public static final String PENDING_MAX_MESSAGES = PRE + ".pending.max.messages";
+    public static final String PENDING_MAX_BYTES = PRE + ".pending.max.bytes";
+    public static final String PENDING_TOTAL_MAX_MESSAGES = PRE + ".pending.total.max.messages";
+    public static final String PENDING_TOTAL_MAX_BYTES = PRE + ".pending.total.max.bytes";
+    public static final String PENDING_OVERFLOW_POLICY = PRE + ".pending.overflow.policy";
+    public static final String PENDING_BLOCK_TIMEOUT = PRE + ".pending.block.timeout";
+    public static final String OUTBOX_DIR = PRE + ".outbox.dir";
+    public static final String OUTBOX_SEGMENT_SIZE = PRE + ".outbox.segment.size";
 
     public static final int DEFAULT_PORT = 1907;
     public static final String DEFAULT_HOST = "localhost";
@@ -48,6 +75,33 @@ public class DistributorConfigImpl implements DistributorConfig {
     public static final int DEFAULT_CONNECTION_TIMEOUT = 5000;
     public static final int DEFAULT_HANDSHAKE_TIMEOUT = 5000;
     public static final boolean DEFAULT_VERBOSE_LOGGING = false;
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 1024 * 1024;
+    public static final String DEFAULT_COMPRESSION_CODEC = "none";
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    public static final int DEFAULT_BATCH_MAX_MESSAGES = 1;
+    public static final int DEFAULT_BATCH_MAX_BYTES = 16 * 1024;
+    public static final long DEFAULT_BATCH_LINGER = 0;
+    public static final int DEFAULT_WRITE_FLUSH_LIMIT = 64;
+    public static final int DEFAULT_WRITE_QUEUE_CAPACITY = 8 * 1024;
+    public static final long DEFAULT_HEARTBEAT_INTERVAL = 1000;
+    public static final long DEFAULT_HEARTBEAT_TIMEOUT = 5000;
+    public static final int DEFAULT_DISPATCH_RING_SIZE = 16 * 1024;
+    public static final String DEFAULT_DISPATCH_WAIT_STRATEGY = "blocking";
+    public static final boolean DEFAULT_EVENT_BUS_INTERCEPT = false;
+    public static final boolean DEFAULT_INTEREST_ROUTING = true;
+    public static final String DEFAULT_TRANSPORT = "auto";
+    public static final boolean DEFAULT_EPOLL_REUSE_PORT = false;
+    public static final boolean DEFAULT_EPOLL_TCP_QUICKACK = false;
+    public static final boolean DEFAULT_EPOLL_EDGE_TRIGGERED = true;
+    public static final String DEFAULT_DOMAIN_SOCKET_DIR = "";
+    public static final int DEFAULT_PENDING_MAX_MESSAGES = 0;
+    public static final long DEFAULT_PENDING_MAX_BYTES = 0;
+    public static final int DEFAULT_PENDING_TOTAL_MAX_MESSAGES = 0;
+    public static final long DEFAULT_PENDING_TOTAL_MAX_BYTES = 0;
+    public static final String DEFAULT_PENDING_OVERFLOW_POLICY = "fail";
+    public static final long DEFAULT_PENDING_BLOCK_TIMEOUT = 1000;
+    public static final String DEFAULT_OUTBOX_DIR = "";
+    public static final int DEFAULT_OUTBOX_SEGMENT_SIZE = 16 * 1024 * 1024;
 
     private final ConfigurationSource source;
 
@@ -120,4 +174,139 @@ public class DistributorConfigImpl implements DistributorConfig {
     public boolean getVerboseLogging() {
         return source.get(VERBOSE_LOGGING, DEFAULT_VERBOSE_LOGGING);
     }
+
+    @Override
+    public int getMaxMessageSize() {
+        return source.get(MAX_MESSAGE_SIZE, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    @Override
+    public String getCompressionCodec() {
+        return source.get(COMPRESSION_CODEC, DEFAULT_COMPRESSION_CODEC);
+    }
+
+    @Override
+    public int getCompressionThreshold() {
+        return source.get(COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    @Override
+    public int getBatchMaxMessages() {
+        return source.get(BATCH_MAX_MESSAGES, DEFAULT_BATCH_MAX_MESSAGES);
+    }
+
+    @Override
+    public int getBatchMaxBytes() {
+        return source.get(BATCH_MAX_BYTES, DEFAULT_BATCH_MAX_BYTES);
+    }
+
+    @Override
+    public long getBatchLinger() {
+        return source.get(BATCH_LINGER, DEFAULT_BATCH_LINGER);
+    }
+
+    @Override
+    public int getWriteFlushLimit() {
+        return source.get(WRITE_FLUSH_LIMIT, DEFAULT_WRITE_FLUSH_LIMIT);
+    }
+
+    @Override
+    public int getWriteQueueCapacity() {
+        return source.get(WRITE_QUEUE_CAPACITY, DEFAULT_WRITE_QUEUE_CAPACITY);
+    }
+
+    @Override
+    public long getHeartbeatInterval() {
+        return source.get(HEARTBEAT_INTERVAL, DEFAULT_HEARTBEAT_INTERVAL);
+    }
+
+    @Override
+    public long getHeartbeatTimeout() {
+        return source.get(HEARTBEAT_TIMEOUT, DEFAULT_HEARTBEAT_TIMEOUT);
+    }
+
+    @Override
+    public int getDispatchRingSize() {
+        return source.get(DISPATCH_RING_SIZE, DEFAULT_DISPATCH_RING_SIZE);
+    }
+
+    @Override
+    public String getDispatchWaitStrategy() {
+        return source.get(DISPATCH_WAIT_STRATEGY, DEFAULT_DISPATCH_WAIT_STRATEGY);
+    }
+
+    @Override
+    public boolean getEventBusIntercept() {
+        return source.get(EVENT_BUS_INTERCEPT, DEFAULT_EVENT_BUS_INTERCEPT);
+    }
+
+    @Override
+    public boolean getInterestRouting() {
+        return source.get(INTEREST_ROUTING, DEFAULT_INTEREST_ROUTING);
+    }
+
+    @Override
+    public String getTransport() {
+        return source.get(TRANSPORT, DEFAULT_TRANSPORT);
+    }
+
+    @Override
+    public boolean getEpollReusePort() {
+        return source.get(EPOLL_REUSE_PORT, DEFAULT_EPOLL_REUSE_PORT);
+    }
+
+    @Override
+    public boolean getEpollTcpQuickAck() {
+        return source.get(EPOLL_TCP_QUICKACK, DEFAULT_EPOLL_TCP_QUICKACK);
+    }
+
+    @Override
+    public boolean getEpollEdgeTriggered() {
+        return source.get(EPOLL_EDGE_TRIGGERED, DEFAULT_EPOLL_EDGE_TRIGGERED);
+    }
+
+    @Override
+    public String getDomainSocketDir() {
+        return source.get(DOMAIN_SOCKET_DIR, DEFAULT_DOMAIN_SOCKET_DIR);
+    }
+
+    @Override
+    public int getPendingMaxMessages() {
+        return source.get(PENDING_MAX_MESSAGES, DEFAULT_PENDING_MAX_MESSAGES);
+    }
+
+    @Override
+    public long getPendingMaxBytes() {
+        return source.get(PENDING_MAX_BYTES, DEFAULT_PENDING_MAX_BYTES);
+    }
+
+    @Override
+    public int getPendingTotalMaxMessages() {
+        return source.get(PENDING_TOTAL_MAX_MESSAGES, DEFAULT_PENDING_TOTAL_MAX_MESSAGES);
+    }
+
+    @Override
+    public long getPendingTotalMaxBytes() {
+        return source.get(PENDING_TOTAL_MAX_BYTES, DEFAULT_PENDING_TOTAL_MAX_BYTES);
+    }
+
+    @Override
+    public String getPendingOverflowPolicy() {
+        return source.get(PENDING_OVERFLOW_POLICY, DEFAULT_PENDING_OVERFLOW_POLICY);
+    }
+
+    @Override
+    public long getPendingBlockTimeout() {
+        return source.get(PENDING_BLOCK_TIMEOUT, DEFAULT_PENDING_BLOCK_TIMEOUT);
+    }
+
+    @Override
+    public String getOutboxDir() {
+        return source.get(OUTBOX_DIR, DEFAULT_OUTBOX_DIR);
+    }
+
+    @Override
+    public int getOutboxSegmentSize() {
+        return source.get(OUTBOX_SEGMENT_SIZE, DEFAULT_OUTBOX_SEGMENT_SIZE);
+    }
 }
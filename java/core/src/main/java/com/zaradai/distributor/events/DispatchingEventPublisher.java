@@ -0,0 +1,94 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.events;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.events.EventAggregator;
+import com.zaradai.util.concurrent.BlockingWaitStrategy;
+import com.zaradai.util.concurrent.BusySpinWaitStrategy;
+import com.zaradai.util.concurrent.RingDispatcher;
+import com.zaradai.util.concurrent.WaitStrategy;
+import com.zaradai.util.concurrent.YieldingWaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes received messages and messaging events from a dedicated dispatch thread so subscribers never run on, or
+ * hold up, an event loop.  Events pass through a preallocated ring, nothing is allocated per event.  Until started
+ * events are published on the calling thread.
+ */
+public class DispatchingEventPublisher implements EventPublisher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DispatchingEventPublisher.class);
+    public static final String BLOCKING = "blocking";
+    public static final String YIELDING = "yielding";
+    public static final String BUSY_SPIN = "busyspin";
+    private static final String THREAD_NAME = "distributor-dispatch";
+
+    private final RingDispatcher<Object> dispatcher;
+
+    @Inject
+    DispatchingEventPublisher(final EventAggregator eventAggregator, DistributorConfig config) {
+        dispatcher = new RingDispatcher<Object>(config.getDispatchRingSize(),
+                createWaitStrategy(config.getDispatchWaitStrategy()),
+                new ThreadFactoryBuilder().setNameFormat(THREAD_NAME).setDaemon(true).build(),
+                new RingDispatcher.Handler<Object>() {
+                    @Override
+                    public void onEvent(Object event, boolean endOfBatch) {
+                        eventAggregator.publish(event);
+                    }
+                });
+    }
+
+    static WaitStrategy createWaitStrategy(String name) {
+        if (YIELDING.equals(name)) {
+            return new YieldingWaitStrategy();
+        }
+        if (BUSY_SPIN.equals(name)) {
+            return new BusySpinWaitStrategy();
+        }
+        if (!BLOCKING.equals(name)) {
+            LOGGER.warn("Unknown wait strategy {}, using {}", name, BLOCKING);
+        }
+
+        return new BlockingWaitStrategy();
+    }
+
+    /**
+     * Hand the event to the dispatch thread, safe to call from any thread.
+     * @param event
+     */
+    @Override
+    public void publish(Object event) {
+        dispatcher.dispatch(event);
+    }
+
+    public void start() {
+        dispatcher.start();
+    }
+
+    /**
+     * Stop the dispatch thread once every event already published has reached its subscribers.
+     */
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    public boolean isRunning() {
+        return dispatcher.isRunning();
+    }
+}
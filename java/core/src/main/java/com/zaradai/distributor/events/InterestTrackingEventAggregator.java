@@ -0,0 +1,60 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.events;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.zaradai.distributor.messaging.LocalInterests;
+import com.zaradai.events.EventAggregator;
+
+/**
+ * The event aggregator applications subscribe to, delivering through another while keeping {@link LocalInterests}
+ * up to date so peers are told as this node gains or loses subscribers for a type.
+ */
+public class InterestTrackingEventAggregator implements EventAggregator {
+    /**
+     * Names the binding of the aggregator that delivers events.
+     */
+    public static final String DELIVERY = "delivery";
+
+    private final EventAggregator delegate;
+    private final LocalInterests localInterests;
+
+    @Inject
+    InterestTrackingEventAggregator(@Named(DELIVERY) EventAggregator delegate, LocalInterests localInterests) {
+        this.delegate = delegate;
+        this.localInterests = localInterests;
+    }
+
+    @Override
+    public void publish(Object event) {
+        delegate.publish(event);
+    }
+
+    @Override
+    public void subscribe(Object listener) {
+        delegate.subscribe(listener);
+        // only once delivery is in place, events the advertisement brings in must reach the listener
+        localInterests.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(Object listener) {
+        // fails for a listener never subscribed, which must not be counted off
+        delegate.unsubscribe(listener);
+        localInterests.remove(listener);
+    }
+}
@@ -15,10 +15,13 @@
  */
 package com.zaradai.distributor.events;
 
+import com.zaradai.distributor.messaging.ClusterView;
+
 import java.net.InetSocketAddress;
 
 public class NodeConnectedEvent {
     private InetSocketAddress address;
+    private ClusterView view;
 
     public NodeConnectedEvent() {
     }
@@ -27,6 +30,11 @@ public class NodeConnectedEvent {
         this.address = address;
     }
 
+    public NodeConnectedEvent(InetSocketAddress address, ClusterView view) {
+        this.address = address;
+        this.view = view;
+    }
+
     public InetSocketAddress getAddress() {
         return address;
     }
@@ -34,4 +42,15 @@ public class NodeConnectedEvent {
     public void setAddress(InetSocketAddress address) {
         this.address = address;
     }
+
+    /**
+     * @return the cluster view produced by this change.
+     */
+    public ClusterView getView() {
+        return view;
+    }
+
+    public void setView(ClusterView view) {
+        this.view = view;
+    }
 }
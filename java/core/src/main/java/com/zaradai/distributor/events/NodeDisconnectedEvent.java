@@ -15,10 +15,13 @@
  */
 package com.zaradai.distributor.events;
 
+import com.zaradai.distributor.messaging.ClusterView;
+
 import java.net.InetSocketAddress;
 
 public class NodeDisconnectedEvent {
     private InetSocketAddress address;
+    private ClusterView view;
 
     public NodeDisconnectedEvent() {
 
@@ -28,6 +31,11 @@ public class NodeDisconnectedEvent {
         this.address = address;
     }
 
+    public NodeDisconnectedEvent(InetSocketAddress address, ClusterView view) {
+        this.address = address;
+        this.view = view;
+    }
+
     public InetSocketAddress getAddress() {
         return address;
     }
@@ -35,4 +43,15 @@ public class NodeDisconnectedEvent {
     public void setAddress(InetSocketAddress address) {
         this.address = address;
     }
+
+    /**
+     * @return the cluster view produced by this change.
+     */
+    public ClusterView getView() {
+        return view;
+    }
+
+    public void setView(ClusterView view) {
+        this.view = view;
+    }
 }
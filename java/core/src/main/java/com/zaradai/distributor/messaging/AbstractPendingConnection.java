@@ -15,21 +15,23 @@
  */
 package com.zaradai.distributor.messaging;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
-
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 
-public abstract class AbstractPendingConnection implements Connection {
-    private final BlockingQueue<Message> pendingQueue;
+public abstract class AbstractPendingConnection implements Connection, PendingQueue.Listener {
+    private final PendingLimits limits;
+    private final PendingQueue pendingQueue;
 
     protected AbstractPendingConnection() {
+        this(new PendingLimits());
+    }
+
+    protected AbstractPendingConnection(PendingLimits limits) {
+        this.limits = limits;
         pendingQueue = createPendingQueue();
     }
 
-    protected BlockingQueue<Message> createPendingQueue() {
-        return Queues.newLinkedBlockingQueue();
+    protected PendingQueue createPendingQueue() {
+        return new PendingQueue(limits, this);
     }
 
     @Override
@@ -37,12 +39,8 @@ public abstract class AbstractPendingConnection implements Connection {
         if (isConnected()) {
             doSend(message);
         } else {
-            // store all messages until the connection lives again
-            try {
-                pendingQueue.put(message);
-            } catch (InterruptedException e) {
-                throw new MessagingException("Interrupted whilst caching message to send", e);
-            }
+            // store all messages until the connection lives again, or as many as the limits allow
+            addPending(message);
             // attempt to connect
             connect();
         }
@@ -52,12 +50,62 @@ public abstract class AbstractPendingConnection implements Connection {
     protected abstract void doSend(Message message) throws MessagingException;
     protected abstract boolean isConnected();
 
+    /**
+     * Hold a message until connected.
+     * @param message the message
+     * @throws MessagingException if the message could not be held
+     */
+    protected void addPending(Message message) throws MessagingException {
+        pendingQueue.add(message, sizeOf(message));
+    }
 
-    protected List<Message> drainPending() {
-        final List<Message> drained = Lists.newArrayList();
-        // drain all pending messages
-        pendingQueue.drainTo(drained);
+    /**
+     * The size a pending message counts against the byte limits.
+     * @param message the message
+     * @return size in bytes, 0 if not known
+     */
+    protected int sizeOf(Message message) {
+        return 0;
+    }
+
+    @Override
+    public void onDropped(Message message) {
+        //NOP
+    }
+
+    protected PendingQueue getPendingQueue() {
+        return pendingQueue;
+    }
+
+    /**
+     * @return messages held until connected
+     */
+    public int getPendingMessages() {
+        return pendingQueue.size();
+    }
+
+    /**
+     * @return bytes of encoded messages held until connected
+     */
+    public long getPendingBytes() {
+        return pendingQueue.getBytes();
+    }
 
-        return drained;
+    /**
+     * @return messages discarded by the drop policies
+     */
+    public long getPendingDropped() {
+        return pendingQueue.getDropped();
+    }
+
+    /**
+     * @return sends rejected by the fail and block policies
+     */
+    public long getPendingRejected() {
+        return pendingQueue.getRejected();
+    }
+
+    protected List<Message> drainPending() {
+        return pendingQueue.drain();
     }
 }
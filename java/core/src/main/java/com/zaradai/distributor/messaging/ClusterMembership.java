@@ -0,0 +1,70 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.zaradai.distributor.events.EventPublisher;
+import com.zaradai.distributor.events.NodeConnectedEvent;
+import com.zaradai.distributor.events.NodeDisconnectedEvent;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * Tracks which nodes have a live link and publishes a {@link NodeConnectedEvent} or {@link NodeDisconnectedEvent}
+ * as they come and go.  The current {@link ClusterView} is read without locking.  A node is keyed by the link that
+ * joined it so a late notice that an older link closed does not remove a node which has since reconnected.
+ */
+public class ClusterMembership {
+    private final EventPublisher eventPublisher;
+    private final Map<InetSocketAddress, Object> links;
+    private volatile ClusterView view;
+
+    @Inject
+    ClusterMembership(EventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        links = Maps.newHashMap();
+        view = ClusterView.EMPTY;
+    }
+
+    public ClusterView getView() {
+        return view;
+    }
+
+    /**
+     * @param address the node's address
+     * @param link the link now serving the node
+     */
+    public synchronized void joined(InetSocketAddress address, Object link) {
+        if (links.put(address, link) == null) {
+            view = view.with(address);
+            eventPublisher.publish(new NodeConnectedEvent(address, view));
+        }
+    }
+
+    /**
+     * @param address the node's address
+     * @param link the link that has gone, ignored unless it is still the one serving the node
+     */
+    public synchronized void left(InetSocketAddress address, Object link) {
+        if (links.get(address) == link) {
+            links.remove(address);
+            view = view.without(address);
+            eventPublisher.publish(new NodeDisconnectedEvent(address, view));
+        }
+    }
+}
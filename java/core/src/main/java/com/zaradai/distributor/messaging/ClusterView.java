@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the connected nodes.  Each change of membership produces a new view with a higher version
+ * so a decision made from one view can be cached against its version and reused until the version moves on.
+ */
+public final class ClusterView {
+    public static final ClusterView EMPTY = new ClusterView(0, ImmutableSet.<InetSocketAddress>of());
+
+    private final long version;
+    private final ImmutableSet<InetSocketAddress> members;
+
+    private ClusterView(long version, ImmutableSet<InetSocketAddress> members) {
+        this.version = version;
+        this.members = members;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Set<InetSocketAddress> getMembers() {
+        return members;
+    }
+
+    public boolean contains(InetSocketAddress address) {
+        return members.contains(address);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    ClusterView with(InetSocketAddress address) {
+        return new ClusterView(version + 1,
+                ImmutableSet.<InetSocketAddress>builder().addAll(members).add(address).build());
+    }
+
+    ClusterView without(InetSocketAddress address) {
+        return new ClusterView(version + 1,
+                ImmutableSet.copyOf(Sets.difference(members, ImmutableSet.of(address))));
+    }
+}
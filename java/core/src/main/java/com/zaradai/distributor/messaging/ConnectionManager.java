@@ -22,34 +22,48 @@ import com.google.inject.Inject;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Holds the connection to each known endpoint.  Lookups do not lock, changes are made under the manager's lock and
+ * also keep an index of connections by host address.  The views of all connections and addresses are built once
+ * after a change and shared until the next, so publishing to every connection does not copy them.
+ */
 public class ConnectionManager {
+    private static final Connection[] NO_CONNECTIONS = new Connection[0];
+
     private final ConcurrentMap<InetSocketAddress, Connection> activeConnections;
+    private final ConcurrentMap<InetAddress, ImmutableSet<Connection>> addressIndex;
     private final ConnectionFactory connectionFactory;
+    private volatile Snapshot snapshot;
 
     @Inject
     ConnectionManager(ConnectionFactory connectionFactory) {
         this.connectionFactory = connectionFactory;
         activeConnections = createConnectionsMap();
+        addressIndex = Maps.newConcurrentMap();
     }
 
     protected ConcurrentMap<InetSocketAddress, Connection> createConnectionsMap() {
         return Maps.newConcurrentMap();
     }
 
-    public void add(InetSocketAddress endpoint, Connection connection) {
-        activeConnections.put(endpoint, connection);
+    public synchronized void add(InetSocketAddress endpoint, Connection connection) {
+        Connection previous = activeConnections.put(endpoint, connection);
+
+        if (previous != connection) {
+            unindex(endpoint, previous);
+            index(endpoint, connection);
+        }
     }
 
-    public void remove(InetSocketAddress endpoint) {
-        activeConnections.remove(endpoint);
+    public synchronized void remove(InetSocketAddress endpoint) {
+        unindex(endpoint, activeConnections.remove(endpoint));
     }
 
     public Set<InetSocketAddress> getKnownAddresses() {
-        return ImmutableSet.copyOf(activeConnections.keySet());
+        return getSnapshot().addresses;
     }
 
     public Connection getForEndpoint(InetSocketAddress endpoint) {
@@ -57,35 +71,98 @@ public class ConnectionManager {
     }
 
     public Set<Connection> getForAddress(InetAddress address) {
-        Set<Connection> res = Sets.newHashSet();
+        Set<Connection> res = addressIndex.get(address);
 
-        for (Map.Entry<InetSocketAddress, Connection> entry : activeConnections.entrySet()) {
-            if (entry.getKey().getAddress().equals(address)) {
-                res.add(entry.getValue());
-            }
-        }
-
-        return res;
+        return (res != null) ? res : ImmutableSet.<Connection>of();
     }
 
     public Set<Connection> getAll() {
-        return ImmutableSet.copyOf(activeConnections.values());
+        return getSnapshot().all;
+    }
+
+    /**
+     * Every connection, shared between callers until the connections change so it must not be modified.
+     * @return the connections.
+     */
+    public Connection[] getConnections() {
+        return getSnapshot().connections;
     }
 
     public Connection getOrCreate(InetSocketAddress endpoint) {
-        Connection connection = connectionFactory.create(endpoint);
-        Connection previous = activeConnections.putIfAbsent(endpoint, connection);
+        Connection res = activeConnections.get(endpoint);
+
+        return (res != null) ? res : create(endpoint);
+    }
+
+    private synchronized Connection create(InetSocketAddress endpoint) {
+        // another thread may have created it while we waited
+        Connection res = activeConnections.get(endpoint);
 
-        if (previous != null) {
-            return previous;
+        if (res == null) {
+            res = connectionFactory.create(endpoint);
+            activeConnections.put(endpoint, res);
+            index(endpoint, res);
         }
 
-        return connection;
+        return res;
     }
 
     public void shutdown() {
-        for (Connection connection : getAll()) {
+        for (Connection connection : getConnections()) {
             connection.shutdown();
         }
     }
+
+    private void index(InetSocketAddress endpoint, Connection connection) {
+        InetAddress address = endpoint.getAddress();
+        // unresolved endpoints have no host address to index
+        if (address != null && connection != null) {
+            Set<Connection> existing = getForAddress(address);
+            addressIndex.put(address, ImmutableSet.<Connection>builder().addAll(existing).add(connection).build());
+        }
+        snapshot = null;
+    }
+
+    private void unindex(InetSocketAddress endpoint, Connection connection) {
+        InetAddress address = endpoint.getAddress();
+
+        if (address != null && connection != null) {
+            Set<Connection> remaining = Sets.newHashSet(getForAddress(address));
+            remaining.remove(connection);
+
+            if (remaining.isEmpty()) {
+                addressIndex.remove(address);
+            } else {
+                addressIndex.put(address, ImmutableSet.copyOf(remaining));
+            }
+        }
+        snapshot = null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot res = snapshot;
+
+        return (res != null) ? res : buildSnapshot();
+    }
+
+    private synchronized Snapshot buildSnapshot() {
+        if (snapshot == null) {
+            snapshot = new Snapshot(ImmutableSet.copyOf(activeConnections.keySet()),
+                    ImmutableSet.copyOf(activeConnections.values()));
+        }
+
+        return snapshot;
+    }
+
+    private static final class Snapshot {
+        private final ImmutableSet<InetSocketAddress> addresses;
+        private final ImmutableSet<Connection> all;
+        private final Connection[] connections;
+
+        private Snapshot(ImmutableSet<InetSocketAddress> addresses, ImmutableSet<Connection> all) {
+            this.addresses = addresses;
+            this.all = all;
+            connections = all.isEmpty() ? NO_CONNECTIONS : all.toArray(NO_CONNECTIONS);
+        }
+    }
 }
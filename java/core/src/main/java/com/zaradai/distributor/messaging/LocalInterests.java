@@ -0,0 +1,148 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import com.zaradai.util.TopicTrie;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The event types this node has subscribers for, counted per listener so a type stays of interest until the last
+ * listener taking it unsubscribes.  Types are known by class name, the form they are advertised to peers in.  A
+ * subscriber of {@link DeadEvent} wants to hear of anything nobody else takes so it counts as an interest in every
+ * type.  Topic patterns subscribed to are counted the same way, per call to {@link #addTopic(String)}.  Watchers are
+ * told of each type or pattern gained or lost in order, under the same lock as the changes are made.
+ */
+public class LocalInterests {
+    /**
+     * Told of each change to the types of interest.
+     */
+    public interface Watcher {
+        void onChanged(String type, boolean interested);
+
+        void onTopicChanged(String pattern, boolean subscribed);
+    }
+
+    // guarded by this
+    private final Multiset<String> types = HashMultiset.create();
+    private final Multiset<String> topics = HashMultiset.create();
+    private final List<Watcher> watchers = Lists.newArrayList();
+
+    /**
+     * @param listener a listener just subscribed to the event aggregator
+     */
+    public synchronized void add(Object listener) {
+        for (String type : typesOf(listener)) {
+            if (types.add(type, 1) == 0) {
+                notifyWatchers(type, true);
+            }
+        }
+    }
+
+    /**
+     * @param listener a listener just unsubscribed from the event aggregator
+     */
+    public synchronized void remove(Object listener) {
+        for (String type : typesOf(listener)) {
+            if (types.remove(type, 1) == 1) {
+                notifyWatchers(type, false);
+            }
+        }
+    }
+
+    /**
+     * @param pattern a topic pattern, as taken by {@link TopicTrie}, counted and advertised in its normal form
+     */
+    public synchronized void addTopic(String pattern) {
+        TopicTrie.checkPattern(pattern);
+        String normal = TopicTrie.normalise(pattern);
+
+        if (topics.add(normal, 1) == 0) {
+            for (Watcher watcher : watchers) {
+                watcher.onTopicChanged(normal, true);
+            }
+        }
+    }
+
+    /**
+     * @param pattern a topic pattern previously added, in any form equivalent to the one added
+     */
+    public synchronized void removeTopic(String pattern) {
+        String normal = TopicTrie.normalise(pattern);
+
+        if (topics.remove(normal, 1) == 1) {
+            for (Watcher watcher : watchers) {
+                watcher.onTopicChanged(normal, false);
+            }
+        }
+    }
+
+    public synchronized Set<String> getTopics() {
+        return ImmutableSet.copyOf(topics.elementSet());
+    }
+
+    public synchronized Set<String> getTypes() {
+        return ImmutableSet.copyOf(types.elementSet());
+    }
+
+    /**
+     * Start telling the watcher of changes.
+     *
+     * @param watcher the watcher
+     * @return the types of interest at the moment the watcher was added, later changes are all passed to it.
+     */
+    public synchronized Set<String> watch(Watcher watcher) {
+        watchers.add(watcher);
+
+        return getTypes();
+    }
+
+    public synchronized void unwatch(Watcher watcher) {
+        watchers.remove(watcher);
+    }
+
+    private void notifyWatchers(String type, boolean interested) {
+        for (Watcher watcher : watchers) {
+            watcher.onChanged(type, interested);
+        }
+    }
+
+    /**
+     * @param listener an object with {@link Subscribe} methods
+     * @return the name of each type taken by a subscriber method.
+     */
+    static Set<String> typesOf(Object listener) {
+        Set<String> res = Sets.newHashSet();
+
+        for (Method method : listener.getClass().getMethods()) {
+            if (method.isAnnotationPresent(Subscribe.class) && method.getParameterTypes().length == 1) {
+                Class<?> type = method.getParameterTypes()[0];
+                res.add((type == DeadEvent.class) ? Object.class.getName() : type.getName());
+            }
+        }
+
+        return res;
+    }
+}
@@ -28,6 +28,7 @@ public class Message {
     private Set<InetSocketAddress> targets;
     private InetSocketAddress source;
     private Object event;
+    private String topic;
     private boolean incoming;
 
     public Message() {
@@ -54,6 +55,17 @@ public class Message {
         this.event = Preconditions.checkNotNull(event, "Invalid event");
     }
 
+    /**
+     * @return the topic the message is published on, used only to choose the peers it goes to and not sent with it.
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
     public boolean isIncoming() {
         return incoming;
     }
@@ -86,6 +98,11 @@ public class Message {
             return this;
         }
 
+        public Builder topic(String topic) {
+            message.setTopic(topic);
+            return this;
+        }
+
         public Builder addTarget(InetSocketAddress address) {
             message.addTarget(address);
             return this;
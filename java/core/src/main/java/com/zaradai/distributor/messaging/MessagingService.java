@@ -18,8 +18,10 @@ package com.zaradai.distributor.messaging;
 import com.google.common.util.concurrent.Service;
 
 import java.net.InetSocketAddress;
+import java.util.Set;
 
 public interface MessagingService extends Service {
     void publish(Message message);
     void send(InetSocketAddress target, Message message);
+    void send(Set<InetSocketAddress> targets, Message message);
 }
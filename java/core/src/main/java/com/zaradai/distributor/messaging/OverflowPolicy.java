@@ -0,0 +1,54 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+/**
+ * What a connection does with a message when its pending queue, or the process wide pending total, is full.
+ */
+public enum OverflowPolicy {
+    /** Evict the oldest pending messages of the connection to make room. */
+    DROP_OLDEST("drop-oldest"),
+    /** Discard the message being sent. */
+    DROP_NEWEST("drop-newest"),
+    /** Reject the send, the sender is notified with a {@link com.zaradai.distributor.events.MessageErrorEvent}. */
+    FAIL("fail"),
+    /** Hold the sender until room is made or the block timeout passes, then reject it. */
+    BLOCK("block");
+
+    private final String name;
+
+    private OverflowPolicy(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name the configured policy name
+     * @return the policy or null if the name is not recognised
+     */
+    public static OverflowPolicy fromName(String name) {
+        for (OverflowPolicy policy : values()) {
+            if (policy.name.equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The bounds placed on messages held for peers that are not connected, both for each connection and for the process
+ * as a whole.  The process wide total is accounted here so it also reports the depth and drop counts across all
+ * pending queues.  A limit of 0 or less is unbounded.
+ */
+public class PendingLimits {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PendingLimits.class);
+
+    private final int maxMessages;
+    private final long maxBytes;
+    private final int totalMaxMessages;
+    private final long totalMaxBytes;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeout;
+    // guarded by this
+    private long messages;
+    private long bytes;
+    private long dropped;
+    private long rejected;
+    private int waiting;
+
+    /**
+     * Creates unbounded limits that never overflow.
+     */
+    public PendingLimits() {
+        this(0, 0, 0, 0, OverflowPolicy.FAIL, 0);
+    }
+
+    @Inject
+    PendingLimits(DistributorConfig config) {
+        this(config.getPendingMaxMessages(), config.getPendingMaxBytes(), config.getPendingTotalMaxMessages(),
+                config.getPendingTotalMaxBytes(), toPolicy(config.getPendingOverflowPolicy()),
+                config.getPendingBlockTimeout());
+    }
+
+    public PendingLimits(int maxMessages, long maxBytes, int totalMaxMessages, long totalMaxBytes,
+                         OverflowPolicy overflowPolicy, long blockTimeout) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.totalMaxMessages = totalMaxMessages;
+        this.totalMaxBytes = totalMaxBytes;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeout = blockTimeout;
+    }
+
+    private static OverflowPolicy toPolicy(String name) {
+        OverflowPolicy res = OverflowPolicy.fromName(name);
+
+        if (res == null) {
+            LOGGER.warn("Unknown overflow policy {}, failing sends on overflow", name);
+            res = OverflowPolicy.FAIL;
+        }
+
+        return res;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    /**
+     * @param queued messages already pending on the connection
+     * @param queuedBytes bytes already pending on the connection
+     * @param size size of the message to add
+     * @return true if the connection has room for the message
+     */
+    public boolean fits(int queued, long queuedBytes, int size) {
+        return within(queued + 1, maxMessages) && within(queuedBytes + size, maxBytes);
+    }
+
+    /**
+     * Reserves room for a message in the process wide total.
+     * @param size size of the message
+     * @return false if the total is full
+     */
+    public synchronized boolean tryAcquire(int size) {
+        if (!within(messages + 1, totalMaxMessages) || !within(bytes + size, totalMaxBytes)) {
+            return false;
+        }
+        messages++;
+        bytes += size;
+
+        return true;
+    }
+
+    /**
+     * Returns room taken by a message that has left its pending queue, waking any blocked senders.
+     * @param size size of the message
+     */
+    public synchronized void release(int size) {
+        messages--;
+        bytes -= size;
+
+        if (waiting > 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits for room to be released anywhere in the process.
+     * @param millis the most time to wait
+     * @throws InterruptedException if interrupted whilst waiting
+     */
+    public synchronized void awaitRelease(long millis) throws InterruptedException {
+        waiting++;
+
+        try {
+            wait(millis);
+        } finally {
+            waiting--;
+        }
+    }
+
+    public synchronized void recordDropped() {
+        dropped++;
+    }
+
+    public synchronized void recordRejected() {
+        rejected++;
+    }
+
+    /**
+     * @return messages pending across all connections
+     */
+    public synchronized long getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return bytes pending across all connections
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return messages discarded by the drop policies since start
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return sends rejected by the fail and block policies since start
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    private static boolean within(long value, long limit) {
+        return limit <= 0 || value <= limit;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages held for a connection whilst its peer is unreachable, bounded by {@link PendingLimits} and applying its
+ * {@link OverflowPolicy} once full.
+ */
+public class PendingQueue {
+    private final PendingLimits limits;
+    private final Listener listener;
+    // guarded by this
+    private final Deque<Entry> entries;
+    private long bytes;
+    private long dropped;
+    private long rejected;
+
+    public PendingQueue(PendingLimits limits, Listener listener) {
+        this.limits = Preconditions.checkNotNull(limits, "Invalid limits");
+        this.listener = Preconditions.checkNotNull(listener, "Invalid listener");
+        entries = new ArrayDeque<Entry>();
+    }
+
+    /**
+     * Adds the message, applying the overflow policy if there is no room for it.
+     * @param message the message to hold
+     * @param size the size of the message in bytes, 0 if unknown
+     * @throws MessagingException if the fail or block policy rejects the message
+     */
+    public void add(Message message, int size) throws MessagingException {
+        if (tryAdd(message, size)) {
+            return;
+        }
+
+        switch (limits.getOverflowPolicy()) {
+            case DROP_OLDEST:
+                addDroppingOldest(message, size);
+                break;
+            case DROP_NEWEST:
+                drop(message);
+                break;
+            case BLOCK:
+                addBlocking(message, size);
+                break;
+            default:
+                reject();
+                throw new MessagingException("Pending queue full");
+        }
+    }
+
+    private void addDroppingOldest(Message message, int size) {
+        while (!tryAdd(message, size)) {
+            Entry oldest = poll();
+
+            if (oldest == null) {
+                // nothing of ours left to evict, the process total is held by other connections
+                drop(message);
+                return;
+            }
+            drop(oldest.message);
+        }
+    }
+
+    private void addBlocking(Message message, int size) throws MessagingException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.getBlockTimeout());
+
+        try {
+            do {
+                long remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0) {
+                    reject();
+                    throw new MessagingException("Timed out waiting for room in pending queue");
+                }
+                limits.awaitRelease(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            } while (!tryAdd(message, size));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted whilst caching message to send", e);
+        }
+    }
+
+    private void drop(Message message) {
+        synchronized (this) {
+            dropped++;
+        }
+        limits.recordDropped();
+        listener.onDropped(message);
+    }
+
+    private void reject() {
+        synchronized (this) {
+            rejected++;
+        }
+        limits.recordRejected();
+    }
+
+    private synchronized boolean tryAdd(Message message, int size) {
+        if (!limits.fits(entries.size(), bytes, size) || !limits.tryAcquire(size)) {
+            return false;
+        }
+        entries.addLast(new Entry(message, size));
+        bytes += size;
+
+        return true;
+    }
+
+    private Entry poll() {
+        Entry res;
+
+        synchronized (this) {
+            res = entries.pollFirst();
+
+            if (res == null) {
+                return null;
+            }
+            bytes -= res.size;
+        }
+        limits.release(res.size);
+
+        return res;
+    }
+
+    /**
+     * Removes all held messages in the order they were added.
+     * @return the messages
+     */
+    public List<Message> drain() {
+        List<Message> res = Lists.newArrayList();
+        long size = 0;
+
+        synchronized (this) {
+            for (Entry entry : entries) {
+                res.add(entry.message);
+                limits.release(entry.size);
+                size += entry.size;
+            }
+            entries.clear();
+            bytes -= size;
+        }
+
+        return res;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return messages discarded from this queue by the drop policies
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return sends to this queue rejected by the fail and block policies
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Told of messages discarded by the drop policies so they can be reported and released.
+     */
+    public interface Listener {
+        void onDropped(Message message);
+    }
+
+    private static final class Entry {
+        private final Message message;
+        private final int size;
+
+        private Entry(Message message, int size) {
+            this.message = message;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.util.TopicTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The event types each connected peer has advertised a subscriber for, and from them the connections a published
+ * event is sent to.  A peer that has not advertised, because it has only just connected, is not connected or does
+ * not advertise, is sent everything as before.  The connections for each event class are resolved once and reused
+ * until a peer's interests or the set of connections change.  As with membership a peer's interests are keyed by
+ * the link that advertised them so a replaced link cannot overwrite those of its successor.  Peers also advertise the
+ * topic patterns they subscribe to, kept in a {@link TopicTrie} so a message published on a topic is matched against
+ * all of them in one walk of its words, and the connections for recently published topics are kept until the routes
+ * change.
+ */
+public class RoutingTable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoutingTable.class);
+    private static final Connection[] NO_CONNECTIONS = new Connection[0];
+    private static final int TOPIC_ROUTES = 10000;
+
+    private final ConnectionManager connectionManager;
+    private final boolean enabled;
+    private final ConcurrentMap<InetSocketAddress, Interests> peers;
+    private final TopicTrie<InetSocketAddress> topics;
+    private volatile long version;
+    private volatile Routes routes;
+
+    @Inject
+    RoutingTable(ConnectionManager connectionManager, DistributorConfig config) {
+        this.connectionManager = connectionManager;
+        enabled = config.getInterestRouting();
+        peers = Maps.newConcurrentMap();
+        topics = new TopicTrie<InetSocketAddress>();
+        routes = new Routes(ImmutableSet.<InetSocketAddress>of(), 0);
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link now serving the peer, its interests are unknown until advertised over it
+     */
+    public synchronized void joined(InetSocketAddress peer, Object link) {
+        update(peer, new Interests(link, null, null));
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link that has gone, ignored unless it is still the one serving the peer
+     */
+    public synchronized void left(InetSocketAddress peer, Object link) {
+        if (isCurrent(peer, link)) {
+            updateTopics(peer, peers.remove(peer).topics, null);
+            version++;
+        }
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link the advertisement arrived on
+     * @param types every type the peer now subscribes to, replacing any advertised before
+     */
+    public synchronized void advertised(InetSocketAddress peer, Object link, Collection<String> types) {
+        if (isCurrent(peer, link)) {
+            update(peer, new Interests(link, ImmutableSet.copyOf(types), peers.get(peer).topics));
+        }
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link the change arrived on
+     * @param types types the peer has gained subscribers for
+     */
+    public synchronized void subscribed(InetSocketAddress peer, Object link, Collection<String> types) {
+        Interests current = peers.get(peer);
+
+        if (isCurrent(peer, link) && current.types != null) {
+            update(peer, new Interests(link, ImmutableSet.<String>builder().addAll(current.types).addAll(types)
+                    .build(), current.topics));
+        }
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link the change arrived on
+     * @param types types the peer no longer has any subscriber for
+     */
+    public synchronized void unsubscribed(InetSocketAddress peer, Object link, Collection<String> types) {
+        Interests current = peers.get(peer);
+
+        if (isCurrent(peer, link) && current.types != null) {
+            update(peer, new Interests(link, ImmutableSet.copyOf(Sets.difference(current.types,
+                    ImmutableSet.copyOf(types))), current.topics));
+        }
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link the advertisement arrived on
+     * @param patterns every topic pattern the peer now subscribes to, replacing any advertised before
+     */
+    public synchronized void advertisedTopics(InetSocketAddress peer, Object link, Collection<String> patterns) {
+        if (isCurrent(peer, link)) {
+            update(peer, new Interests(link, peers.get(peer).types, validPatterns(patterns)));
+        }
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link the change arrived on
+     * @param patterns topic patterns the peer has subscribed to
+     */
+    public synchronized void subscribedTopics(InetSocketAddress peer, Object link, Collection<String> patterns) {
+        Interests current = peers.get(peer);
+
+        if (isCurrent(peer, link) && current.topics != null) {
+            update(peer, new Interests(link, current.types, ImmutableSet.<String>builder().addAll(current.topics)
+                    .addAll(validPatterns(patterns)).build()));
+        }
+    }
+
+    /**
+     * @param peer the peer's address
+     * @param link the link the change arrived on
+     * @param patterns topic patterns the peer has unsubscribed from
+     */
+    public synchronized void unsubscribedTopics(InetSocketAddress peer, Object link, Collection<String> patterns) {
+        Interests current = peers.get(peer);
+
+        if (isCurrent(peer, link) && current.topics != null) {
+            update(peer, new Interests(link, current.types, ImmutableSet.copyOf(Sets.difference(current.topics,
+                    validPatterns(patterns)))));
+        }
+    }
+
+    /**
+     * The connections an event of the type is to be published to, shared between callers until the routes change so
+     * it must not be modified.
+     *
+     * @param eventType the class of the event
+     * @return the connections to peers subscribing to the type or any of its supertypes, or yet to advertise.
+     */
+    public Connection[] route(Class<?> eventType) {
+        if (!enabled) {
+            return connectionManager.getConnections();
+        }
+
+        Routes current = getRoutes();
+        Connection[] res = current.byType.get(eventType);
+
+        if (res == null) {
+            res = resolve(eventType, current.addresses);
+            current.byType.put(eventType, res);
+        }
+
+        return res;
+    }
+
+    /**
+     * The connections a message published on the topic is to be sent to, shared between callers until the routes
+     * change so it must not be modified.
+     *
+     * @param topic the topic, words separated by '.'
+     * @return the connections to peers with a pattern matching the topic, or yet to advertise their patterns.
+     */
+    public Connection[] route(String topic) {
+        if (!enabled) {
+            return connectionManager.getConnections();
+        }
+
+        Routes current = getRoutes();
+        Connection[] res = current.byTopic.getIfPresent(topic);
+
+        if (res == null) {
+            res = resolve(topic, current.addresses);
+            current.byTopic.put(topic, res);
+        }
+
+        return res;
+    }
+
+    private boolean isCurrent(InetSocketAddress peer, Object link) {
+        Interests current = peers.get(peer);
+
+        return current != null && current.link == link;
+    }
+
+    private void update(InetSocketAddress peer, Interests interests) {
+        Interests previous = peers.put(peer, interests);
+        updateTopics(peer, (previous != null) ? previous.topics : null, interests.topics);
+        // published after the change so routes resolved for the new version see it
+        version++;
+    }
+
+    private Routes getRoutes() {
+        Set<InetSocketAddress> addresses = connectionManager.getKnownAddresses();
+        long currentVersion = version;
+        Routes res = routes;
+
+        if (res.addresses != addresses || res.version != currentVersion) {
+            // connections or interests have moved on, start again
+            res = new Routes(addresses, currentVersion);
+            routes = res;
+        }
+
+        return res;
+    }
+
+    private void updateTopics(InetSocketAddress peer, Set<String> previous, Set<String> current) {
+        Set<String> before = (previous != null) ? previous : ImmutableSet.<String>of();
+        Set<String> after = (current != null) ? current : ImmutableSet.<String>of();
+
+        for (String pattern : Sets.difference(before, after)) {
+            topics.remove(pattern, peer);
+        }
+
+        for (String pattern : Sets.difference(after, before)) {
+            topics.add(pattern, peer);
+        }
+    }
+
+    private Connection[] resolve(String topic, Set<InetSocketAddress> addresses) {
+        Set<InetSocketAddress> matched = topics.match(topic);
+        List<Connection> res = Lists.newArrayList();
+
+        for (InetSocketAddress address : addresses) {
+            Interests interests = peers.get(address);
+            Connection connection = connectionManager.getForEndpoint(address);
+            // unknown peers are sent everything
+            if (connection != null && (interests == null || interests.topics == null || matched.contains(address))) {
+                res.add(connection);
+            }
+        }
+
+        return res.isEmpty() ? NO_CONNECTIONS : res.toArray(NO_CONNECTIONS);
+    }
+
+    private Connection[] resolve(Class<?> eventType, Set<InetSocketAddress> addresses) {
+        Set<String> names = typeNames(eventType);
+        List<Connection> res = Lists.newArrayList();
+
+        for (InetSocketAddress address : addresses) {
+            Connection connection = connectionManager.getForEndpoint(address);
+
+            if (connection != null && isInterested(peers.get(address), names)) {
+                res.add(connection);
+            }
+        }
+
+        return res.isEmpty() ? NO_CONNECTIONS : res.toArray(NO_CONNECTIONS);
+    }
+
+    private boolean isInterested(Interests interests, Set<String> names) {
+        // unknown peers are sent everything
+        return interests == null || interests.types == null || !Collections.disjoint(interests.types, names);
+    }
+
+    private static ImmutableSet<String> validPatterns(Collection<String> patterns) {
+        ImmutableSet.Builder<String> res = ImmutableSet.builder();
+        // a malformed pattern from the peer is dropped rather than taken into the trie, the rest are held in the form
+        // the trie holds them so equivalent patterns are one entry, added and removed together
+        for (String pattern : patterns) {
+            try {
+                TopicTrie.checkPattern(pattern);
+                res.add(TopicTrie.normalise(pattern));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Ignoring invalid topic pattern {}", pattern);
+            }
+        }
+
+        return res.build();
+    }
+
+    private static Set<String> typeNames(Class<?> eventType) {
+        Set<String> res = Sets.newHashSet();
+
+        for (Class<?> type : TypeToken.of(eventType).getTypes().rawTypes()) {
+            res.add(type.getName());
+        }
+
+        return res;
+    }
+
+    private static final class Interests {
+        private final Object link;
+        // null until advertised
+        private final ImmutableSet<String> types;
+        private final ImmutableSet<String> topics;
+
+        private Interests(Object link, ImmutableSet<String> types, ImmutableSet<String> topics) {
+            this.link = link;
+            this.types = types;
+            this.topics = topics;
+        }
+    }
+
+    private static final class Routes {
+        private final Set<InetSocketAddress> addresses;
+        private final long version;
+        private final Map<Class<?>, Connection[]> byType;
+        // topics are open ended so only the most recent are kept
+        private final Cache<String, Connection[]> byTopic;
+
+        private Routes(Set<InetSocketAddress> addresses, long version) {
+            this.addresses = addresses;
+            this.version = version;
+            byType = Maps.newConcurrentMap();
+            byTopic = CacheBuilder.newBuilder().maximumSize(TOPIC_ROUTES).build();
+        }
+    }
+}
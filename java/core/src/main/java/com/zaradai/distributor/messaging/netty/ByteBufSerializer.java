@@ -0,0 +1,55 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.zaradai.serialization.Serializer;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A {@link Serializer} that can write to and read from netty buffers directly, avoiding the stream
+ * adapters and intermediate copies needed by the stream based methods.
+ */
+public interface ByteBufSerializer extends Serializer {
+    /**
+     * Serialize the object into the buffer at its writer index.
+     * @param out buffer to write to.
+     * @param object to serialize.
+     */
+    void serialize(ByteBuf out, Object object);
+
+    /**
+     * Deserialize an object from the buffer at its reader index, the reader index is advanced past
+     * the bytes read.
+     * @param in buffer to read from.
+     * @return the deserialized object.
+     */
+    Object deserialize(ByteBuf in);
+
+    /**
+     * Serialize the object without recording its class, the caller is responsible for carrying the type.
+     * @param out buffer to write to.
+     * @param object to serialize.
+     */
+    void serializeObject(ByteBuf out, Object object);
+
+    /**
+     * Deserialize an object of a known type written by {@link #serializeObject(ByteBuf, Object)}.
+     * @param in buffer to read from.
+     * @param type of the object.
+     * @return the deserialized object.
+     */
+    Object deserializeObject(ByteBuf in, Class<?> type);
+}
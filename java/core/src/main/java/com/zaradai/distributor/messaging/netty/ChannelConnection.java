@@ -15,65 +15,171 @@
  */
 package com.zaradai.distributor.messaging.netty;
 
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.events.EventPublisher;
 import com.zaradai.distributor.events.MessageErrorEvent;
 import com.zaradai.distributor.events.MessageSentEvent;
 import com.zaradai.distributor.messaging.AbstractPendingConnection;
 import com.zaradai.distributor.messaging.Message;
 import com.zaradai.distributor.messaging.MessagingException;
+import com.zaradai.distributor.messaging.PendingLimits;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessage;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessageFactory;
+import com.zaradai.distributor.messaging.netty.handler.EncodingException;
+import com.zaradai.distributor.messaging.netty.outbox.Outbox;
+import com.zaradai.distributor.messaging.netty.outbox.Outboxes;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class ChannelConnection extends AbstractPendingConnection {
+public class ChannelConnection extends AbstractPendingConnection implements ChannelWriter.Callback {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChannelConnection.class);
 
     private final NettyClientFactory nettyClientFactory;
     private final EventPublisher eventPublisher;
+    private final EncodedMessageFactory encodedMessageFactory;
+    private final int flushLimit;
+    private final int writeQueueCapacity;
     private volatile Channel channel;
+    private volatile ChannelWriter writer;
     private final InetSocketAddress endpoint;
+    private final Outbox outbox;
+    // set whilst spilled messages are being sent so later messages queue behind them, guarded by outbox for writes
+    private volatile boolean draining;
+    // spilled messages handed to the channel and not yet known to be written, guarded by outbox
+    private final Deque<Message> spilledInFlight;
     private AtomicBoolean doReconnect;
     private final ChannelFutureListener lostNotifier = new ChannelFutureListener() {
         @Override
         public void operationComplete(ChannelFuture channelFuture) throws Exception {
-            setChannel(null);
+            lost(channelFuture.channel());
         }
     };
 
     @Inject
-    ChannelConnection(EventPublisher eventPublisher, NettyClientFactory nettyClientFactory,
+    ChannelConnection(EventPublisher eventPublisher, NettyClientFactory nettyClientFactory, DistributorConfig config,
+                      PendingLimits pendingLimits, Outboxes outboxes, EncodedMessageFactory encodedMessageFactory,
                       @Assisted InetSocketAddress endpoint) {
+        super(pendingLimits);
         this.eventPublisher = eventPublisher;
+        this.encodedMessageFactory = encodedMessageFactory;
         this.nettyClientFactory = nettyClientFactory;
         this.endpoint = endpoint;
+        flushLimit = config.getWriteFlushLimit();
+        writeQueueCapacity = config.getWriteQueueCapacity();
         doReconnect = new AtomicBoolean(true);
+        spilledInFlight = new ArrayDeque<Message>();
+        outbox = openOutbox(outboxes);
+    }
+
+    private Outbox openOutbox(Outboxes outboxes) {
+        if (!outboxes.isEnabled()) {
+            return null;
+        }
+
+        try {
+            return outboxes.open(endpoint);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to open outbox for {}, holding messages in memory", endpoint, e);
+            return null;
+        }
     }
 
     public void setChannel(Channel channel) {
         logActivity(channel);
         removeCloseListener();
+
+        if (channel != null && outbox != null) {
+            synchronized (outbox) {
+                // whatever the last channel did not get written goes again
+                outbox.rewind();
+                spilledInFlight.clear();
+                // before the channel is visible so no message overtakes those spilled
+                draining = true;
+            }
+        }
         this.channel = channel;
+        writer = (channel != null) ? new ChannelWriter(channel, flushLimit, writeQueueCapacity, this) : null;
         addCloseListener();
 
         if (channel != null) {
             // after a successful connection we will wish to reconnect if dropped
             doReconnect.set(true);
             // flush any pending messages
-            flushPending();
+            if (outbox != null) {
+                flushOutbox();
+            } else {
+                flushPending();
+            }
         } else {
             // try to reconnect we lost the connection
             connect();
         }
     }
 
+    /**
+     * Offer a channel that has completed its handshake.  Whilst another channel is active only a preferred one
+     * replaces it, the replaced channel is closed once the writes already queued on it have gone.
+     *
+     * @param candidate the newly handshaken channel
+     * @param preferred true if this channel wins over any other to the same node
+     * @param onActivated run once the channel is accepted, before any channel it replaced is closed
+     * @return false if the channel was refused and should be closed by the caller
+     */
+    public boolean activate(Channel candidate, boolean preferred, Runnable onActivated) {
+        Channel current;
+
+        synchronized (this) {
+            current = channel;
+
+            if (current != null && current.isActive() && !preferred) {
+                return false;
+            }
+
+            setChannel(candidate);
+        }
+        // outside the lock as it may publish, but before the replaced channel can close
+        onActivated.run();
+
+        if (current != null && current != candidate) {
+            retire(current);
+        }
+
+        return true;
+    }
+
+    private void retire(final Channel replaced) {
+        LOGGER.info("Replacing duplicate channel to {}", endpoint);
+        // queued behind the pending drain so nothing already accepted is lost
+        replaced.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                replaced.close();
+            }
+        });
+    }
+
+    private synchronized void lost(Channel closed) {
+        // a replaced channel closing late must not take down its successor
+        if (closed == channel) {
+            setChannel(null);
+        }
+    }
+
     private void logActivity(Channel toSet) {
         if (toSet != null) {
             LOGGER.info("Activating: {}", endpoint);
@@ -97,6 +203,11 @@ public class ChannelConnection extends AbstractPendingConnection {
 
     @Override
     protected void connect() {
+        if (channel != null) {
+            // connected but still sending spilled messages
+            return;
+        }
+
         if (doReconnect.get()) {
             // stop repeated attempts
             doReconnect.set(false);
@@ -106,22 +217,206 @@ public class ChannelConnection extends AbstractPendingConnection {
     }
 
     @Override
-    protected void doSend(final Message message) throws MessagingException {
-        channel.writeAndFlush(message).addListener(new ChannelFutureListener() {
-            @Override
-            public void operationComplete(ChannelFuture future) throws Exception {
-                if (future.isSuccess()) {
-                    onSuccess(message);
+    protected void doSend(Message message) throws MessagingException {
+        ChannelWriter current = writer;
+
+        if (current == null) {
+            throw new MessagingException("Connection lost whilst sending");
+        }
+
+        current.write(message);
+    }
+
+    @Override
+    protected void addPending(Message message) throws MessagingException {
+        if (outbox == null) {
+            holdEncoded(message);
+            return;
+        }
+
+        synchronized (outbox) {
+            if (draining || channel == null) {
+                spill(message);
+                return;
+            }
+        }
+        // caught up whilst waiting on the outbox
+        doSend(message);
+    }
+
+    private void holdEncoded(Message message) throws MessagingException {
+        EncodedMessage encoded;
+        // held as an off heap frame so the event can be collected and the frame written as is on reconnect
+        try {
+            encoded = encodedMessageFactory.createDetached(message);
+        } catch (EncodingException e) {
+            throw new MessagingException("Unable to encode pending message", e);
+        }
+
+        try {
+            super.addPending(encoded);
+        } catch (MessagingException e) {
+            encoded.release();
+            throw e;
+        }
+        // the pending copy holds its own reference
+        ReferenceCountUtil.release(message);
+    }
+
+    private void spill(Message message) throws MessagingException {
+        try {
+            outbox.append(message);
+        } catch (EncodingException e) {
+            throw new MessagingException("Unable to encode message for outbox", e);
+        } catch (IOException e) {
+            throw new MessagingException("Unable to spill message to outbox", e);
+        }
+        // the outbox holds its own copy
+        ReferenceCountUtil.release(message);
+    }
+
+    private void flushOutbox() {
+        synchronized (outbox) {
+            // a chunk at a time, the next is read as this one is written so the backlog streams from disk
+            for (int i = 0; draining && i < flushLimit; i++) {
+                EncodedMessage message = readOutbox();
+
+                if (message == null) {
+                    draining = false;
+                } else if (!sendSpilled(message)) {
+                    // the channel has gone, the message is read again once reconnected
+                    break;
+                }
+            }
+        }
+
+        if (!draining) {
+            flushPending();
+        }
+    }
+
+    private EncodedMessage readOutbox() {
+        try {
+            return outbox.read();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read outbox for {}", endpoint, e);
+            return null;
+        }
+    }
+
+    private boolean sendSpilled(EncodedMessage message) {
+        spilledInFlight.addLast(message);
+
+        try {
+            doSend(message);
+            return true;
+        } catch (MessagingException e) {
+            spilledInFlight.pollLast();
+            message.release();
+            return false;
+        }
+    }
+
+    @Override
+    public void onWritten(List<Message> messages) {
+        if (outbox != null) {
+            synchronized (outbox) {
+                for (Message message : messages) {
+                    if (removeSpilled(message)) {
+                        // only now is it safe to remove from disk
+                        outbox.commit();
+                    }
+                }
+            }
+        }
+
+        for (Message message : messages) {
+            onSuccess(message);
+        }
+
+        if (draining) {
+            flushOutbox();
+        }
+    }
+
+    @Override
+    public void onFailed(List<Message> messages, Throwable cause) {
+        List<Message> failed = (outbox != null) ? settleSpilled(messages) : messages;
+
+        for (Message message : failed) {
+            onFailure(message, cause);
+        }
+    }
+
+    /**
+     * Spilled messages that failed because the channel has gone are read again from the outbox for the next channel,
+     * any others are at fault themselves and are committed so they are not retried forever.
+     * @return the messages to report as failed
+     */
+    private List<Message> settleSpilled(List<Message> messages) {
+        Channel current = channel;
+        boolean lost = current == null || !current.isActive();
+        List<Message> res = Lists.newArrayListWithCapacity(messages.size());
+        boolean rewind = false;
+        boolean committed = false;
+
+        synchronized (outbox) {
+            for (Message message : messages) {
+                if (!removeSpilled(message)) {
+                    res.add(message);
+                } else if (lost) {
+                    rewind = true;
                 } else {
-                    onFailure(message, future.cause());
+                    outbox.commit();
+                    committed = true;
+                    res.add(message);
                 }
             }
-        });
+
+            if (rewind) {
+                outbox.rewind();
+                spilledInFlight.clear();
+            }
+        }
+
+        if (committed && draining) {
+            flushOutbox();
+        }
+
+        return res;
+    }
+
+    private boolean removeSpilled(Message message) {
+        // by identity, the outbox rebuilds each message so none are shared
+        for (Iterator<Message> i = spilledInFlight.iterator(); i.hasNext();) {
+            if (i.next() == message) {
+                i.remove();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    protected int sizeOf(Message message) {
+        if (message instanceof EncodedMessage) {
+            return ((EncodedMessage) message).getFrame().readableBytes();
+        }
+
+        return 0;
+    }
+
+    @Override
+    public void onDropped(Message message) {
+        LOGGER.debug("Pending queue for {} full, dropped message", endpoint);
+        eventPublisher.publish(new MessageErrorEvent(message, "Dropped, pending queue full"));
+        ReferenceCountUtil.release(message);
     }
 
     @Override
     protected boolean isConnected() {
-        return channel != null;
+        return channel != null && !draining;
     }
 
     @Override
@@ -129,6 +424,16 @@ public class ChannelConnection extends AbstractPendingConnection {
         if (channel != null) {
             channel.close();
         }
+        // release any shared frames that will now never be written
+        for (Message message : drainPending()) {
+            ReferenceCountUtil.release(message);
+        }
+        // spilled messages stay on disk for the next run
+        if (outbox != null) {
+            synchronized (outbox) {
+                outbox.close();
+            }
+        }
     }
 
     protected void onSuccess(Message message) {
@@ -141,6 +446,13 @@ public class ChannelConnection extends AbstractPendingConnection {
 
     private void flushPending() {
         final List<Message> drainedMessages = drainPending();
+        ChannelWriter current = writer;
+
+        if (current != null && !drainedMessages.isEmpty()) {
+            // already encoded, hand the whole backlog over in one go
+            current.writeAll(drainedMessages);
+            return;
+        }
 
         for (Message message : drainedMessages) {
             try {
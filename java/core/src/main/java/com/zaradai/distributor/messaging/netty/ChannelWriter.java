@@ -0,0 +1,292 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.google.common.collect.Lists;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.util.concurrent.MpscRingBuffer;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes messages to a channel from any thread.  Messages are queued and drained by a single task on the channel's
+ * event loop which flushes once the queue is empty or after every flush limit writes, instead of one flush and
+ * system call per message.  The outcome of each message is recorded as it completes and once the whole of a flushed
+ * group has, those written and each run of those failing with the same cause are reported to the callback.  Writes
+ * are given promises recycled by the writer so the common path allocates nothing per message.
+ * <p>
+ * Writers share a lock free ring buffer, only the drain task polls it.  A writer finding it full drains it in place
+ * when already on the event loop, otherwise it yields until the drain has made room.
+ */
+public class ChannelWriter {
+    private final Channel channel;
+    private final int flushLimit;
+    private final Callback callback;
+    private final MpscRingBuffer<Message> queue;
+    private final AtomicBoolean scheduled;
+    // only touched on the event loop
+    private final Deque<WritePromise> promises;
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param channel the channel to write to
+     * @param flushLimit the most writes per flush
+     * @param capacity the most queued messages, raised to the flush limit if smaller
+     * @param callback told the outcome of each flushed group
+     */
+    public ChannelWriter(Channel channel, int flushLimit, int capacity, Callback callback) {
+        this.channel = channel;
+        this.flushLimit = Math.max(1, flushLimit);
+        this.callback = callback;
+        queue = new MpscRingBuffer<Message>(Math.max(this.flushLimit, capacity));
+        scheduled = new AtomicBoolean(false);
+        promises = new ArrayDeque<WritePromise>();
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public void write(Message message) {
+        if (enqueue(message)) {
+            schedule();
+        }
+    }
+
+    /**
+     * Queue the messages together, they are drained in order by a single pass.
+     * @param messages the messages to write
+     */
+    public void writeAll(Collection<? extends Message> messages) {
+        boolean queued = false;
+
+        for (Message message : messages) {
+            queued |= enqueue(message);
+        }
+
+        if (queued) {
+            schedule();
+        }
+    }
+
+    private boolean enqueue(Message message) {
+        while (!queue.offer(message)) {
+            if (channel.eventLoop().inEventLoop()) {
+                // the drain cannot run while we hold the loop so make room here
+                drain();
+            } else if (channel.eventLoop().isShuttingDown()) {
+                callback.onFailed(Collections.singletonList(message),
+                        new RejectedExecutionException("Event loop shut down"));
+                return false;
+            } else {
+                schedule();
+                Thread.yield();
+            }
+        }
+
+        return true;
+    }
+
+    private void schedule() {
+        // only one drain pending at a time, it picks up everything queued before it runs
+        if (scheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(drainTask);
+        }
+    }
+
+    private void drain() {
+        // clear first so a write racing with the drain schedules another pass rather than being missed
+        scheduled.set(false);
+        List<Message> group = Lists.newArrayListWithCapacity(Math.min(flushLimit, queue.size()));
+        Message message;
+
+        // stops early at a slot still being published, its producer schedules another pass once its offer returns
+        while ((message = queue.poll()) != null) {
+            group.add(message);
+
+            if (group.size() == flushLimit) {
+                writeGroup(group);
+                group = Lists.newArrayList();
+            }
+        }
+
+        if (!group.isEmpty()) {
+            writeGroup(group);
+        }
+    }
+
+    private void writeGroup(List<Message> group) {
+        Group outcome = new Group(group);
+
+        for (int i = 0; i < group.size(); i++) {
+            channel.write(group.get(i), acquire(outcome, i));
+        }
+
+        channel.flush();
+    }
+
+    private WritePromise acquire(Group group, int index) {
+        WritePromise res = promises.poll();
+
+        if (res == null) {
+            res = new WritePromise();
+        }
+        res.group = group;
+        res.index = index;
+
+        return res;
+    }
+
+    /**
+     * Told which messages of each flushed group were written and which failed, on the channel's event loop.  Messages
+     * refused once the event loop has shut down are reported on the writing thread.
+     */
+    public interface Callback {
+        void onWritten(List<Message> messages);
+        void onFailed(List<Message> messages, Throwable cause);
+    }
+
+    /**
+     * The outcome of each write in a group, reported once all the writes have completed.
+     */
+    private final class Group {
+        private final List<Message> messages;
+        private int remaining;
+        // only created once a write fails
+        private Throwable[] causes;
+
+        private Group(List<Message> messages) {
+            this.messages = messages;
+            remaining = messages.size();
+        }
+
+        private void complete(int index, Throwable cause) {
+            if (cause != null) {
+                if (causes == null) {
+                    causes = new Throwable[messages.size()];
+                }
+                causes[index] = cause;
+            }
+
+            if (--remaining == 0) {
+                report();
+            }
+        }
+
+        private void report() {
+            if (causes == null) {
+                callback.onWritten(messages);
+                return;
+            }
+
+            List<Message> written = Lists.newArrayList();
+            int index = 0;
+
+            while (index < messages.size()) {
+                int end = index + 1;
+
+                if (causes[index] == null) {
+                    written.add(messages.get(index));
+                } else {
+                    // the whole run failing with the same cause
+                    while (end < messages.size() && causes[end] == causes[index]) {
+                        end++;
+                    }
+                    callback.onFailed(messages.subList(index, end), causes[index]);
+                }
+                index = end;
+            }
+
+            if (!written.isEmpty()) {
+                callback.onWritten(written);
+            }
+        }
+    }
+
+    /**
+     * Passes the outcome of a single write to its group then returns to the writer for the next write.  It never
+     * completes itself so it can be handed to the pipeline again.
+     */
+    private final class WritePromise extends DefaultChannelPromise {
+        private Group group;
+        private int index;
+
+        private WritePromise() {
+            super(channel);
+        }
+
+        private boolean complete(Throwable cause) {
+            Group current = group;
+
+            if (current == null) {
+                // already completed, the pipeline should not complete a write twice
+                return false;
+            }
+            group = null;
+            promises.offer(this);
+            current.complete(index, cause);
+
+            return true;
+        }
+
+        @Override
+        public ChannelPromise setSuccess() {
+            complete(null);
+            return this;
+        }
+
+        @Override
+        public ChannelPromise setSuccess(Void result) {
+            complete(null);
+            return this;
+        }
+
+        @Override
+        public boolean trySuccess() {
+            return complete(null);
+        }
+
+        @Override
+        public boolean trySuccess(Void result) {
+            return complete(null);
+        }
+
+        @Override
+        public ChannelPromise setFailure(Throwable cause) {
+            complete(cause);
+            return this;
+        }
+
+        @Override
+        public boolean tryFailure(Throwable cause) {
+            return complete(cause);
+        }
+    }
+}
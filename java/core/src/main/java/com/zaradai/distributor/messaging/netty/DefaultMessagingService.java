@@ -24,22 +24,34 @@ import com.zaradai.distributor.messaging.ConnectionManager;
 import com.zaradai.distributor.messaging.Message;
 import com.zaradai.distributor.messaging.MessagingException;
 import com.zaradai.distributor.messaging.MessagingService;
+import com.zaradai.distributor.messaging.RoutingTable;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessage;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessageFactory;
+import com.zaradai.distributor.messaging.netty.handler.EncodingException;
 
 import java.net.InetSocketAddress;
+import java.util.Set;
 
 public class DefaultMessagingService extends AbstractIdleService implements MessagingService {
     private final EventPublisher eventPublisher;
     private final ConnectionManager connectionManager;
     private final NettyServer server;
     private final EventLoopGroups eventLoopGroups;
+    private final EncodedMessageFactory encodedMessageFactory;
+    private final ReconnectScheduler reconnectScheduler;
+    private final RoutingTable routingTable;
 
     @Inject
     DefaultMessagingService(EventPublisher eventPublisher, ConnectionManager connectionManager, NettyServer server,
-                            EventLoopGroups eventLoopGroups) {
+                            EventLoopGroups eventLoopGroups, EncodedMessageFactory encodedMessageFactory,
+                            ReconnectScheduler reconnectScheduler, RoutingTable routingTable) {
         this.eventPublisher = eventPublisher;
         this.connectionManager = connectionManager;
         this.server = server;
         this.eventLoopGroups = eventLoopGroups;
+        this.encodedMessageFactory = encodedMessageFactory;
+        this.reconnectScheduler = reconnectScheduler;
+        this.routingTable = routingTable;
     }
 
     @Override
@@ -51,6 +63,8 @@ public class DefaultMessagingService extends AbstractIdleService implements Mess
     protected void shutDown() throws Exception {
         // stop listening and close down the server.
         server.shutdown();
+        // drop pending retries so closed connections are not re-established
+        reconnectScheduler.shutdown();
         // Shutdown any active connections.
         connectionManager.shutdown();
         // finally shutdown the event loops
@@ -59,36 +73,88 @@ public class DefaultMessagingService extends AbstractIdleService implements Mess
 
     @Override
     public void publish(Message message) {
-        for (Connection connection : connectionManager.getAll()) {
-            sendMessage(connection, message);
+        // the shared routes, iterated without copying
+        sendToAll(getInterested(message), message);
+    }
+
+    private Connection[] getInterested(Message message) {
+        if (message.getTopic() != null) {
+            // only peers subscribed to a matching topic pattern
+            return routingTable.route(message.getTopic());
+        }
+        Object event = message.getEvent();
+        // only peers with a subscriber for the event, or yet to say what they subscribe to
+        return (event != null) ? routingTable.route(event.getClass()) : connectionManager.getConnections();
+    }
+
+    private void sendToAll(Connection[] connections, Message message) {
+        if (connections.length == 0) {
+            return;
         }
 
+        if (connections.length == 1) {
+            // nothing to share, let the channel encode it
+            sendMessage(connections[0], message);
+        } else {
+            fanOut(connections, message);
+        }
     }
 
-    private void sendMessage(Connection connection, Message message)  {
+    private void fanOut(Connection[] connections, Message message) {
+        EncodedMessage encoded;
+        // encode once and share the frame across all connections
+        try {
+            encoded = encodedMessageFactory.create(message);
+        } catch (EncodingException e) {
+            eventPublisher.publish(new MessageErrorEvent(message, e.getMessage()));
+            return;
+        }
+
+        try {
+            for (Connection connection : connections) {
+                // each connection owns a reference until the frame is written
+                encoded.retain();
+
+                if (!sendMessage(connection, encoded)) {
+                    encoded.release();
+                }
+            }
+        } finally {
+            // drop the reference taken when encoding
+            encoded.release();
+        }
+    }
+
+    private boolean sendMessage(Connection connection, Message message)  {
         try {
             connection.send(message);
+            return true;
         } catch (MessagingException e) {
             // notify of send error
             eventPublisher.publish(new MessageErrorEvent(message, e.getMessage()));
+            return false;
         }
     }
 
     @Override
     public void send(InetSocketAddress target, Message message) {
-        Connection connection = connectionManager.getForEndpoint(target);
+        sendMessage(getConnection(target), message);
+    }
 
-        if (connection != null) {
-            sendMessage(connection, message);
-        } else {
-            createConnectionAndSend(target, message);
+    @Override
+    public void send(Set<InetSocketAddress> targets, Message message) {
+        Connection[] connections = new Connection[targets.size()];
+        int i = 0;
+
+        for (InetSocketAddress target : targets) {
+            connections[i++] = getConnection(target);
         }
+
+        sendToAll(connections, message);
     }
 
-    private void createConnectionAndSend(InetSocketAddress target, Message message) {
-        // create a connection
-        Connection connection = connectionManager.getOrCreate(target);
-        // and send on it
-        sendMessage(connection, message);
+    private Connection getConnection(InetSocketAddress target) {
+        // only creates a connection on a miss
+        return connectionManager.getOrCreate(target);
     }
 }
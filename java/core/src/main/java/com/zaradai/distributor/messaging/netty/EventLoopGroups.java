@@ -15,24 +15,45 @@
  */
 package com.zaradai.distributor.messaging.netty;
 
+import com.google.inject.Inject;
+import com.zaradai.distributor.messaging.netty.transport.NioTransport;
+import com.zaradai.distributor.messaging.netty.transport.Transport;
+import com.zaradai.distributor.messaging.netty.transport.Transports;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 
 public class EventLoopGroups {
+    private final Transport transport;
     private final EventLoopGroup serverGroup;
     private final EventLoopGroup clientGroup;
 
     public EventLoopGroups() {
+        this(new NioTransport());
+    }
+
+    @Inject
+    EventLoopGroups(Transports transports) {
+        this(transports.select());
+    }
+
+    public EventLoopGroups(Transport transport) {
+        this.transport = transport;
         clientGroup = createClientGroup();
         serverGroup = createServerGroup();
     }
 
     protected EventLoopGroup createServerGroup() {
-        return new NioEventLoopGroup(1);
+        return transport.createEventLoopGroup(1);
     }
 
     protected EventLoopGroup createClientGroup() {
-        return new NioEventLoopGroup();
+        return transport.createEventLoopGroup(0);
+    }
+
+    /**
+     * @return the transport the groups were created for, channels must be of the same transport.
+     */
+    public Transport getTransport() {
+        return transport;
     }
 
     public EventLoopGroup getClientGroup() {
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.inject.Inject;
+import com.zaradai.serialization.kryo.KryoPool;
+import com.zaradai.serialization.kryo.KryoSerializer;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Kryo serializer that works on netty buffers.  Each thread owns a reusable output and input so that
+ * serialization is a single copy into the target buffer and heap buffers are read in place.
+ */
+public class KryoByteBufSerializer extends KryoSerializer implements ByteBufSerializer {
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    @Inject
+    public KryoByteBufSerializer(KryoPool pool) {
+        super(pool);
+    }
+
+    @Override
+    public void serialize(ByteBuf out, Object object) {
+        Output output = buffers.get().output();
+        getKryo().writeClassAndObject(output, object);
+        out.writeBytes(output.getBuffer(), 0, output.position());
+    }
+
+    @Override
+    public Object deserialize(ByteBuf in) {
+        return read(in, null);
+    }
+
+    @Override
+    public void serializeObject(ByteBuf out, Object object) {
+        Output output = buffers.get().output();
+        getKryo().writeObject(output, object);
+        out.writeBytes(output.getBuffer(), 0, output.position());
+    }
+
+    @Override
+    public Object deserializeObject(ByteBuf in, Class<?> type) {
+        return read(in, type);
+    }
+
+    private Object read(ByteBuf in, Class<?> type) {
+        Buffers local = buffers.get();
+        Input input = local.input;
+        int readable = in.readableBytes();
+        int offset;
+
+        if (in.hasArray()) {
+            offset = in.arrayOffset() + in.readerIndex();
+            input.setBuffer(in.array(), offset, readable);
+        } else {
+            offset = 0;
+            input.setBuffer(local.scratch(readable), 0, readable);
+            in.getBytes(in.readerIndex(), input.getBuffer(), 0, readable);
+        }
+
+        try {
+            Object res = (type == null) ? getKryo().readClassAndObject(input) : getKryo().readObject(input, type);
+            in.skipBytes(input.position() - offset);
+
+            return res;
+        } finally {
+            // do not hold on to the callers buffer
+            input.setBuffer(local.empty);
+        }
+    }
+
+    private static final class Buffers {
+        private final byte[] empty = new byte[0];
+        private final Input input = new Input(empty);
+        private Output output;
+        private byte[] scratch = empty;
+
+        private Output output() {
+            if (output == null || output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+                // drop any oversized buffer from a previous large object
+                output = new Output(INITIAL_BUFFER_SIZE, -1);
+            } else {
+                output.clear();
+            }
+
+            return output;
+        }
+
+        private byte[] scratch(int size) {
+            if (scratch.length < size) {
+                scratch = new byte[Math.max(size, INITIAL_BUFFER_SIZE)];
+            }
+
+            return scratch;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodecs;
+import com.zaradai.distributor.messaging.netty.handler.CompressionHandlerFactory;
+import com.zaradai.distributor.messaging.netty.handler.HandshakeHandlerFactory;
+import com.zaradai.distributor.messaging.netty.handler.HeartbeatHandler;
+import com.zaradai.distributor.messaging.netty.handler.MessageBatcherFactory;
+import com.zaradai.distributor.messaging.netty.handler.MessageDecoderFactory;
+import com.zaradai.distributor.messaging.netty.handler.MessageEncoderFactory;
+import com.zaradai.distributor.messaging.netty.handler.MessageHandlerFactory;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.logging.LoggingHandler;
+
+/**
+ * Builds the handler pipeline shared by accepted and initiated connections.
+ */
+public class MessagingPipeline {
+    private final DistributorConfig config;
+    private final HandshakeHandlerFactory handshakeHandlerFactory;
+    private final CompressionHandlerFactory compressionHandlerFactory;
+    private final MessageBatcherFactory messageBatcherFactory;
+    private final MessageDecoderFactory messageDecoderFactory;
+    private final MessageEncoderFactory messageEncoderFactory;
+    private final MessageHandlerFactory messageHandlerFactory;
+
+    @Inject
+    MessagingPipeline(DistributorConfig config,
+                      HandshakeHandlerFactory handshakeHandlerFactory,
+                      CompressionHandlerFactory compressionHandlerFactory,
+                      MessageBatcherFactory messageBatcherFactory,
+                      MessageDecoderFactory messageDecoderFactory,
+                      MessageEncoderFactory messageEncoderFactory,
+                      MessageHandlerFactory messageHandlerFactory) {
+        this.config = config;
+        this.handshakeHandlerFactory = handshakeHandlerFactory;
+        this.compressionHandlerFactory = compressionHandlerFactory;
+        this.messageBatcherFactory = messageBatcherFactory;
+        this.messageDecoderFactory = messageDecoderFactory;
+        this.messageEncoderFactory = messageEncoderFactory;
+        this.messageHandlerFactory = messageHandlerFactory;
+        checkHeartbeat(config.getHeartbeatInterval(), config.getHeartbeatTimeout());
+    }
+
+    private static void checkHeartbeat(long interval, long timeout) {
+        // a peer only heard from by its heartbeats would otherwise be suspected between two of them
+        Preconditions.checkArgument(interval <= 0 || timeout <= 0 || timeout > interval,
+                "Heartbeat timeout %sms must be longer than the interval %sms", timeout, interval);
+    }
+
+    public void configure(ChannelPipeline pipeline, boolean isClient) {
+        if (config.getVerboseLogging()) {
+            pipeline.addLast(new LoggingHandler(isClient ? "CLIENT" : "SERVER-CLIENT"));
+        }
+        pipeline.addLast("handshake", handshakeHandlerFactory.create(isClient));
+        // next to the socket so every read and write counts as activity, heartbeats skip batching and compression
+        if (config.getHeartbeatInterval() > 0) {
+            pipeline.addLast("heartbeat", new HeartbeatHandler(config.getHeartbeatInterval(),
+                    config.getHeartbeatTimeout()));
+        }
+        addCompression(pipeline);
+        // batches are built from encoded frames and compressed as a whole
+        if (config.getBatchMaxMessages() > 1) {
+            pipeline.addLast("batcher", messageBatcherFactory.create());
+        }
+        pipeline.addLast("decoder", messageDecoderFactory.create());
+        pipeline.addLast("encoder", messageEncoderFactory.create());
+        // ahead of the handler to take interest updates out of the inbound messages
+        pipeline.addLast("interests", messageHandlerFactory.createInterestHandler());
+        pipeline.addLast("handler", messageHandlerFactory.create());
+    }
+
+    private void addCompression(ChannelPipeline pipeline) {
+        // negotiated during the handshake which removes the stages if the peer does not agree
+        if (!CompressionCodecs.NONE.equals(config.getCompressionCodec())) {
+            pipeline.addLast("decompressor", compressionHandlerFactory.createDecompressor());
+            pipeline.addLast("compressor", compressionHandlerFactory.createCompressor());
+        }
+    }
+}
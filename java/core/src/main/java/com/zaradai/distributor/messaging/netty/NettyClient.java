@@ -18,55 +18,51 @@ package com.zaradai.distributor.messaging.netty;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.zaradai.distributor.config.DistributorConfig;
-import com.zaradai.distributor.messaging.netty.handler.HandshakeHandlerFactory;
-import com.zaradai.distributor.messaging.netty.handler.MessageDecoderFactory;
-import com.zaradai.distributor.messaging.netty.handler.MessageEncoderFactory;
-import com.zaradai.distributor.messaging.netty.handler.MessageHandlerFactory;
 import com.zaradai.net.retry.RetryPolicy;
 import com.zaradai.net.retry.RetryPolicyBuilder;
+import com.zaradai.distributor.messaging.netty.handler.MessagingHandshake;
+import com.zaradai.distributor.messaging.netty.transport.DomainSockets;
+import com.zaradai.distributor.messaging.netty.transport.Transport;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.ChannelPipeline;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.logging.LoggingHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 
 public class NettyClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyClient.class);
 
     private final DistributorConfig config;
     private final EventLoopGroups eventLoopGroups;
-    private final MessageEncoderFactory messageEncoderFactory;
-    private final MessageDecoderFactory messageDecoderFactory;
-    private final MessageHandlerFactory messageHandlerFactory;
-    private final HandshakeHandlerFactory handshakeHandlerFactory;
+    private final MessagingPipeline messagingPipeline;
+    private final DomainSockets domainSockets;
+    private final ReconnectScheduler reconnectScheduler;
     private final InetSocketAddress endpoint;
     private final Bootstrap bootstrap;
+    private Bootstrap domainBootstrap;
 
     @Inject
     NettyClient(
             DistributorConfig config,
             EventLoopGroups eventLoopGroups,
-            MessageEncoderFactory messageEncoderFactory,
-            MessageDecoderFactory messageDecoderFactory,
-            MessageHandlerFactory messageHandlerFactory,
-            HandshakeHandlerFactory handshakeHandlerFactory,
+            MessagingPipeline messagingPipeline,
+            DomainSockets domainSockets,
+            ReconnectScheduler reconnectScheduler,
             @Assisted InetSocketAddress endpoint) {
         this.config = config;
         this.eventLoopGroups = eventLoopGroups;
-        this.messageEncoderFactory = messageEncoderFactory;
-        this.messageDecoderFactory = messageDecoderFactory;
-        this.messageHandlerFactory = messageHandlerFactory;
-        this.handshakeHandlerFactory = handshakeHandlerFactory;
+        this.messagingPipeline = messagingPipeline;
+        this.domainSockets = domainSockets;
+        this.reconnectScheduler = reconnectScheduler;
         this.endpoint = endpoint;
-        bootstrap = createBootstrap();
+        bootstrap = createBootstrap(eventLoopGroups.getTransport());
+        configure(bootstrap);
     }
 
     public void connect() {
@@ -81,30 +77,61 @@ public class NettyClient {
     }
 
     private void connect(final RetryPolicy retryPolicy) {
-        ChannelFuture future = bootstrap.connect(endpoint);
-        future.addListener(new ChannelFutureListener() {
+        // a node on this host that advertises a domain socket is reached through it, bypassing TCP
+        SocketAddress local = domainSockets.getLocalEndpoint(endpoint);
+
+        if (local != null) {
+            connectLocal(local, retryPolicy);
+        } else {
+            connectTcp(retryPolicy);
+        }
+    }
+
+    private void connectLocal(final SocketAddress local, final RetryPolicy retryPolicy) {
+        LOGGER.debug("Using domain socket {} for {}", local, endpoint);
+        getDomainBootstrap().connect(local).addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture channelFuture) throws Exception {
-                final ChannelFuture fut = channelFuture;
+                if (channelFuture.isSuccess()) {
+                    connected();
+                } else {
+                    // a socket file left by a node that died, or one not yet listening, try TCP
+                    LOGGER.info("Unable to use domain socket {} for {}, using TCP", local, endpoint);
+                    connectTcp(retryPolicy);
+                }
+            }
+        });
+    }
 
+    private void connectTcp(final RetryPolicy retryPolicy) {
+        bootstrap.connect(endpoint).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture channelFuture) throws Exception {
                 if (channelFuture.isSuccess()) {
                     connected();
                 } else {
-                    eventLoopGroups.getClientGroup().submit(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (retryPolicy.retry()) {
-                                connect(retryPolicy);
-                            } else {
-                                failed(fut.cause());
-                            }
-                        }
-                    });
+                    retry(retryPolicy, channelFuture.cause());
                 }
             }
         });
     }
 
+    private void retry(final RetryPolicy retryPolicy, Throwable cause) {
+        // never wait out the back-off here, this is an event loop shared with live connections
+        long delay = retryPolicy.nextRetryDelay();
+
+        if (delay == RetryPolicy.NO_RETRY) {
+            failed(cause);
+        } else {
+            reconnectScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    connect(retryPolicy);
+                }
+            }, delay);
+        }
+    }
+
     private void failed(Throwable cause) {
         // not needed remove after dev
         LOGGER.warn("Unable to connect to {}", endpoint, cause);
@@ -115,27 +142,32 @@ public class NettyClient {
         LOGGER.info("Connected to {}", endpoint);
     }
 
-    private Bootstrap createBootstrap() {
-        Bootstrap res = new Bootstrap().group(eventLoopGroups.getClientGroup()).channel(NioSocketChannel.class);
-        configure(res);
+    private Bootstrap getDomainBootstrap() {
+        if (domainBootstrap == null) {
+            domainBootstrap = createBootstrap(domainSockets.getTransport());
+            domainBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectionTimeout());
+        }
+
+        return domainBootstrap;
+    }
+
+    private Bootstrap createBootstrap(Transport transport) {
+        Bootstrap res = new Bootstrap()
+                .group(eventLoopGroups.getClientGroup())
+                .channel(transport.getChannelClass());
+        transport.configureClient(res);
+        // the handshake knows the connection by the endpoint dialled whatever socket carries it
+        res.attr(MessagingHandshake.ENDPOINT, endpoint);
         res.handler(createClientInitializer());
 
         return res;
     }
 
-    private ChannelInitializer<SocketChannel> createClientInitializer() {
-        return new ChannelInitializer<SocketChannel>() {
+    private ChannelInitializer<Channel> createClientInitializer() {
+        return new ChannelInitializer<Channel>() {
             @Override
-            protected void initChannel(SocketChannel ch) throws Exception {
-                ChannelPipeline pipeline = ch.pipeline();
-
-                if (config.getVerboseLogging()) {
-                    pipeline.addLast(new LoggingHandler("CLIENT"));
-                }
-                pipeline.addLast("handshake", handshakeHandlerFactory.create(true));
-                pipeline.addLast("decoder", messageDecoderFactory.create());
-                pipeline.addLast("encoder", messageEncoderFactory.create());
-                pipeline.addLast("handler", messageHandlerFactory.create());
+            protected void initChannel(Channel ch) throws Exception {
+                messagingPipeline.configure(ch.pipeline(), true);
             }
         };
     }
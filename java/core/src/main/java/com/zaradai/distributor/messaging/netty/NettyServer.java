@@ -18,20 +18,15 @@ package com.zaradai.distributor.messaging.netty;
 import com.google.inject.Inject;
 import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.messaging.MessagingException;
-import com.zaradai.distributor.messaging.netty.handler.HandshakeHandlerFactory;
-import com.zaradai.distributor.messaging.netty.handler.MessageDecoderFactory;
-import com.zaradai.distributor.messaging.netty.handler.MessageEncoderFactory;
-import com.zaradai.distributor.messaging.netty.handler.MessageHandlerFactory;
+import com.zaradai.distributor.messaging.netty.transport.DomainSockets;
+import com.zaradai.distributor.messaging.netty.transport.Transport;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.ChannelPipeline;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.logging.LoggingHandler;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,10 +39,8 @@ public class NettyServer {
 
     private final DistributorConfig config;
     private final EventLoopGroups eventLoopGroups;
-    private final MessageEncoderFactory messageEncoderFactory;
-    private final MessageDecoderFactory messageDecoderFactory;
-    private final MessageHandlerFactory messageHandlerFactory;
-    private final HandshakeHandlerFactory handshakeHandlerFactory;
+    private final MessagingPipeline messagingPipeline;
+    private final DomainSockets domainSockets;
     private final DefaultChannelGroup serverChannelGroup;
     private final ServerBootstrap bootstrap;
 
@@ -61,22 +54,22 @@ public class NettyServer {
     @Inject
     NettyServer(DistributorConfig config,
                 EventLoopGroups eventLoopGroups,
-                MessageEncoderFactory messageEncoderFactory,
-                MessageDecoderFactory messageDecoderFactory,
-                MessageHandlerFactory messageHandlerFactory,
-                HandshakeHandlerFactory handshakeHandlerFactory) {
+                MessagingPipeline messagingPipeline,
+                DomainSockets domainSockets) {
         this.config = config;
         this.eventLoopGroups = eventLoopGroups;
-        this.messageEncoderFactory = messageEncoderFactory;
-        this.messageDecoderFactory = messageDecoderFactory;
-        this.messageHandlerFactory = messageHandlerFactory;
-        this.handshakeHandlerFactory = handshakeHandlerFactory;
+        this.messagingPipeline = messagingPipeline;
+        this.domainSockets = domainSockets;
         serverChannelGroup = new DefaultChannelGroup("Server Accept Channels", GlobalEventExecutor.INSTANCE);
         bootstrap = createBootstrap();
     }
 
     public void listen() throws MessagingException {
         bootstrap.bind(getBindAddress(), config.getPort()).addListener(bound);
+        // also advertise to nodes on this host
+        if (domainSockets.isEnabled()) {
+            createDomainBootstrap().bind(domainSockets.getListenAddress()).addListener(bound);
+        }
     }
 
     public void shutdown() throws MessagingException {
@@ -85,31 +78,39 @@ public class NettyServer {
         } catch (InterruptedException e) {
             throw new MessagingException("Error closing server", e);
         }
+
+        if (domainSockets.isEnabled() && !domainSockets.getSocketFile(config.getPort()).delete()) {
+            LOGGER.debug("No socket file to remove");
+        }
+    }
+
+    private ServerBootstrap createDomainBootstrap() {
+        Transport transport = domainSockets.getTransport();
+        ServerBootstrap res = new ServerBootstrap()
+                .group(eventLoopGroups.getServerGroup(), eventLoopGroups.getClientGroup())
+                .channel(transport.getServerChannelClass());
+        res.option(ChannelOption.SO_BACKLOG, config.getAcceptBacklog());
+        transport.configureServer(res);
+        res.childHandler(createClientInitializer());
+
+        return res;
     }
 
     private ServerBootstrap createBootstrap() {
         ServerBootstrap res = new ServerBootstrap()
                 .group(eventLoopGroups.getServerGroup(), eventLoopGroups.getClientGroup())
-                .channel(NioServerSocketChannel.class);
+                .channel(eventLoopGroups.getTransport().getServerChannelClass());
         configure(res);
         res.childHandler(createClientInitializer());
 
         return res;
     }
 
-    private ChannelInitializer<SocketChannel> createClientInitializer() {
-        return new ChannelInitializer<SocketChannel>() {
+    private ChannelInitializer<Channel> createClientInitializer() {
+        return new ChannelInitializer<Channel>() {
             @Override
-            protected void initChannel(SocketChannel ch) throws Exception {
-                ChannelPipeline pipeline = ch.pipeline();
-
-                if (config.getVerboseLogging()) {
-                    pipeline.addLast(new LoggingHandler("SERVER-CLIENT"));
-                }
-                pipeline.addLast("handshake", handshakeHandlerFactory.create(false));
-                pipeline.addLast("decoder", messageDecoderFactory.create());
-                pipeline.addLast("encoder", messageEncoderFactory.create());
-                pipeline.addLast("handler", messageHandlerFactory.create());
+            protected void initChannel(Channel ch) throws Exception {
+                messagingPipeline.configure(ch.pipeline(), false);
             }
         };
     }
@@ -119,6 +120,7 @@ public class NettyServer {
         b.option(ChannelOption.SO_REUSEADDR, config.getReuseAddress());
         b.childOption(ChannelOption.TCP_NODELAY, config.getTcpNoDelay());
         b.childOption(ChannelOption.SO_KEEPALIVE, config.getKeepAlive());
+        eventLoopGroups.getTransport().configureServer(b);
     }
 
     private void bindComplete(ChannelFuture channelFuture) {
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs connection retries after their back-off period without holding a thread for the wait.  Pending retries sit in
+ * a timer wheel so thousands of unreachable peers cost a slot each rather than a sleeping event loop, and the connect
+ * itself is asynchronous so the wheel thread only ever initiates it.
+ */
+public class ReconnectScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconnectScheduler.class);
+    private static final long TICK_MILLIS = 10;
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private final Timer timer;
+
+    public ReconnectScheduler() {
+        timer = createTimer();
+    }
+
+    protected Timer createTimer() {
+        return new HashedWheelTimer(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread res = new Thread(r, "obsidian-reconnect");
+                res.setDaemon(true);
+
+                return res;
+            }
+        }, TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Schedules the retry, it runs no sooner than the next tick even when there is no delay.
+     * @param retry the connection attempt
+     * @param delayInMillis the back-off period
+     * @return false if the scheduler has been shutdown and the retry dropped
+     */
+    public boolean schedule(final Runnable retry, long delayInMillis) {
+        try {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    retry.run();
+                }
+            }, delayInMillis, TimeUnit.MILLISECONDS);
+
+            return true;
+        } catch (IllegalStateException e) {
+            LOGGER.debug("Retry dropped, scheduler shutdown");
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        timer.stop();
+    }
+}
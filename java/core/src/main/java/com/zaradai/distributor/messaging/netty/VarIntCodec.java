@@ -0,0 +1,76 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Variable length encoding of small integers and strings onto netty buffers.
+ */
+public final class VarIntCodec {
+    /**
+     * The most bytes an int can take once encoded.
+     */
+    public static final int MAX_VAR_INT_SIZE = 5;
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int CONTINUATION = 0x80;
+    private static final int SHIFT = 7;
+    private static final int MAX_SHIFT = 28;
+
+    private VarIntCodec() {
+    }
+
+    public static void writeVarInt(ByteBuf out, int value) {
+        int remaining = value;
+
+        while ((remaining & ~SEVEN_BITS) != 0) {
+            out.writeByte((remaining & SEVEN_BITS) | CONTINUATION);
+            remaining >>>= SHIFT;
+        }
+
+        out.writeByte(remaining);
+    }
+
+    public static int readVarInt(ByteBuf in) {
+        int res = 0;
+
+        for (int shift = 0; shift <= MAX_SHIFT; shift += SHIFT) {
+            int b = in.readByte();
+            res |= (b & SEVEN_BITS) << shift;
+
+            if ((b & CONTINUATION) == 0) {
+                return res;
+            }
+        }
+
+        throw new IllegalStateException("Malformed variable length integer");
+    }
+
+    public static void writeString(ByteBuf out, String value) {
+        byte[] bytes = value.getBytes(CharsetUtil.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    public static String readString(ByteBuf in) {
+        int length = readVarInt(in);
+        String res = in.toString(in.readerIndex(), length, CharsetUtil.UTF_8);
+        in.skipBytes(length);
+
+        return res;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Compresses the body of a frame.  Implementations must be safe to use from several event loops at once.
+ */
+public interface CompressionCodec {
+    /**
+     * The name peers use to agree on the codec during the handshake.
+     * @return codec name.
+     */
+    String getName();
+
+    /**
+     * Compress all readable bytes of the input into the output.
+     * @param in bytes to compress, fully consumed.
+     * @param out buffer to write the compressed bytes to.
+     */
+    void compress(ByteBuf in, ByteBuf out);
+
+    /**
+     * Decompress all readable bytes of the input into the output.
+     * @param in compressed bytes, fully consumed.
+     * @param out buffer to write the original bytes to.
+     * @param length the number of bytes the input decompresses to.
+     */
+    void decompress(ByteBuf in, ByteBuf out, int length);
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The compression codecs this node can negotiate with its peers.  Deflate and snappy are always available,
+ * further codecs can be registered before the messaging service is started.
+ */
+public class CompressionCodecs {
+    public static final String NONE = "none";
+
+    private final ConcurrentMap<String, CompressionCodec> codecs;
+
+    public CompressionCodecs() {
+        codecs = Maps.newConcurrentMap();
+        register(new DeflateCodec());
+        register(new SnappyCodec());
+    }
+
+    public void register(CompressionCodec codec) {
+        Preconditions.checkNotNull(codec, "Invalid codec");
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * Get the named codec.
+     * @param name codec name
+     * @return the codec or null if compression is off or the codec is not known
+     */
+    public CompressionCodec get(String name) {
+        return (name == null) ? null : codecs.get(name);
+    }
+}
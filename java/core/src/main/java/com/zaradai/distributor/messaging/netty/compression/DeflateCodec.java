@@ -0,0 +1,138 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.DecompressionException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate using the JDK zlib bindings.  Each event loop thread reuses its own deflater and inflater.
+ */
+public class DeflateCodec implements CompressionCodec {
+    public static final String NAME = "deflate";
+    private static final int MIN_OUTPUT_SIZE = 64;
+
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters;
+
+    public DeflateCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public DeflateCodec(final int level) {
+        deflaters = new ThreadLocal<Deflater>() {
+            @Override
+            protected Deflater initialValue() {
+                return new Deflater(level, true);
+            }
+        };
+        inflaters = new ThreadLocal<Inflater>() {
+            @Override
+            protected Inflater initialValue() {
+                return new Inflater(true);
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        setInput(deflater, in);
+        deflater.finish();
+        ByteBuf target = heapTarget(out, in.readableBytes());
+
+        while (!deflater.finished()) {
+            target.ensureWritable(Math.max(MIN_OUTPUT_SIZE, in.readableBytes() / 2));
+            int written = deflater.deflate(target.array(), target.arrayOffset() + target.writerIndex(),
+                    target.writableBytes());
+            target.writerIndex(target.writerIndex() + written);
+        }
+
+        in.skipBytes(in.readableBytes());
+        transfer(target, out);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int length) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        setInput(inflater, in);
+        ByteBuf target = heapTarget(out, length);
+        target.ensureWritable(length);
+
+        try {
+            int read = inflater.inflate(target.array(), target.arrayOffset() + target.writerIndex(), length);
+
+            if (read != length || !inflater.finished()) {
+                throw new DecompressionException("Unexpected decompressed length " + read + ", expected " + length);
+            }
+
+            target.writerIndex(target.writerIndex() + read);
+        } catch (DataFormatException e) {
+            throw new DecompressionException(e);
+        } finally {
+            transfer(target, out);
+        }
+
+        in.skipBytes(in.readableBytes());
+    }
+
+    private ByteBuf heapTarget(ByteBuf out, int size) {
+        // zlib works on arrays, direct buffers go through a temporary heap buffer
+        return out.hasArray() ? out : Unpooled.buffer(size);
+    }
+
+    private void transfer(ByteBuf target, ByteBuf out) {
+        if (target != out) {
+            out.writeBytes(target);
+            target.release();
+        }
+    }
+
+    private void setInput(Deflater deflater, ByteBuf in) {
+        if (in.hasArray()) {
+            deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+        } else {
+            deflater.setInput(copy(in));
+        }
+    }
+
+    private void setInput(Inflater inflater, ByteBuf in) {
+        if (in.hasArray()) {
+            inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+        } else {
+            inflater.setInput(copy(in));
+        }
+    }
+
+    private byte[] copy(ByteBuf in) {
+        byte[] res = new byte[in.readableBytes()];
+        in.getBytes(in.readerIndex(), res);
+
+        return res;
+    }
+}
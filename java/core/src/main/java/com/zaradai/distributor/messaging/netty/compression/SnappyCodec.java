@@ -0,0 +1,83 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.handler.codec.compression.Snappy;
+
+/**
+ * Fast, low ratio compression using netty's pure java snappy implementation.  Its encoder keeps offsets in a
+ * short hash table so input is compressed in independent blocks, each prefixed by its compressed length.
+ */
+public class SnappyCodec implements CompressionCodec {
+    public static final String NAME = "snappy";
+    private static final int BLOCK_SIZE = 16 * 1024;
+    private static final int BLOCK_LENGTH_SIZE = 4;
+
+    private final ThreadLocal<Snappy> snappies = new ThreadLocal<Snappy>() {
+        @Override
+        protected Snappy initialValue() {
+            return new Snappy();
+        }
+    };
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Snappy snappy = snappies.get();
+
+        while (in.isReadable()) {
+            ByteBuf block = in.readSlice(Math.min(BLOCK_SIZE, in.readableBytes()));
+            int index = out.writerIndex();
+            out.writeInt(0);
+
+            try {
+                snappy.encode(block, out, block.readableBytes());
+            } finally {
+                snappy.reset();
+            }
+
+            out.setInt(index, out.writerIndex() - index - BLOCK_LENGTH_SIZE);
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int length) {
+        Snappy snappy = snappies.get();
+        int start = out.writerIndex();
+        out.ensureWritable(length);
+
+        while (in.isReadable()) {
+            ByteBuf block = in.readSlice(in.readInt());
+
+            try {
+                snappy.decode(block, out);
+            } finally {
+                snappy.reset();
+            }
+        }
+
+        if (out.writerIndex() - start != length) {
+            throw new DecompressionException("Unexpected decompressed length " + (out.writerIndex() - start)
+                    + ", expected " + length);
+        }
+    }
+}
@@ -47,6 +47,10 @@ public abstract class AbstractHandshakeHandler extends ByteToMessageDecoder {
         this.handshakeTimeout = handshakeTimeout;
     }
 
+    protected boolean isClient() {
+        return client;
+    }
+
     @Override
     public void handlerAdded(ChannelHandlerContext handlerContext) throws Exception {
         if (handlerContext.channel().isActive()) {
@@ -79,11 +83,19 @@ public abstract class AbstractHandshakeHandler extends ByteToMessageDecoder {
     }
 
     protected abstract boolean canRead(boolean isClient, ByteBuf in);
-    protected abstract void clientWrite(ByteBuf buffer);
-    protected abstract void serverWrite(ByteBuf buffer);
+    protected abstract void clientWrite(ChannelHandlerContext ctx, ByteBuf buffer);
+    protected abstract void serverWrite(ChannelHandlerContext ctx, ByteBuf buffer);
     protected abstract boolean serverReadAndValidate(ChannelHandlerContext ctx, ByteBuf in);
     protected abstract boolean clientReadAndValidate(ChannelHandlerContext ctx, ByteBuf in);
 
+    /**
+     * Called once the handshake has completed and the server response has been written, the channel is
+     * ready for messages.  The handshake handler is still in the pipeline.
+     *
+     * @param ctx the handler context
+     */
+    protected abstract void handshakeSucceeded(ChannelHandlerContext ctx);
+
     private Future<Channel> handshake(final ChannelHandlerContext handlerContext) {
         handshakePromise = new DefaultPromise<Channel>(handlerContext.executor());
         final ScheduledFuture<?> timeoutFuture;
@@ -122,7 +134,7 @@ public abstract class AbstractHandshakeHandler extends ByteToMessageDecoder {
     private void beginHandshake(ChannelHandlerContext handlerContext) {
         if (client) {
             final ByteBuf buffer = handlerContext.alloc().buffer(BUFFER_SIZE);
-            clientWrite(buffer);
+            clientWrite(handlerContext, buffer);
             handlerContext.writeAndFlush(buffer);
         }
     }
@@ -131,7 +143,7 @@ public abstract class AbstractHandshakeHandler extends ByteToMessageDecoder {
     private void decodeAsServer(ChannelHandlerContext handlerContext, ByteBuf in) {
         if (serverReadAndValidate(handlerContext, in)) {
             final ByteBuf buffer = handlerContext.alloc().buffer(BUFFER_SIZE);
-            serverWrite(buffer);
+            serverWrite(handlerContext, buffer);
             handlerContext.writeAndFlush(buffer);
             notifyHandshakeSuccess(handlerContext);
         } else {
@@ -151,6 +163,8 @@ public abstract class AbstractHandshakeHandler extends ByteToMessageDecoder {
     }
 
     private void notifyHandshakeSuccess(ChannelHandlerContext handlerContext) {
+        // complete the pipeline before any bytes following the handshake are passed on
+        handshakeSucceeded(handlerContext);
         removeFromPipeline(handlerContext);
 
         try {
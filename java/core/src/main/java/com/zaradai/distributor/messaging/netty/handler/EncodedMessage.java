@@ -0,0 +1,105 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.base.Preconditions;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
+
+import java.net.InetSocketAddress;
+
+/**
+ * A message that has already been framed for the wire.  The frame is shared by every connection the message is sent
+ * on, each send holding its own reference which is released once the frame has been written.  The source and type ids
+ * the frame refers to are kept so a connection can announce them without the event itself.
+ */
+public class EncodedMessage extends Message implements ReferenceCounted {
+    private final ByteBuf frame;
+    private final int sourceId;
+    private final int typeId;
+    private final int payloadOffset;
+
+    public EncodedMessage(Message message, ByteBuf frame) {
+        this(message.getSource(), frame);
+        setEvent(message.getEvent());
+        setTopic(message.getTopic());
+        setIncoming(message.isIncoming());
+    }
+
+    /**
+     * Wrap a frame whose event is only held in its encoded form.
+     *
+     * @param source the source of the message
+     * @param frame a data frame
+     */
+    public EncodedMessage(InetSocketAddress source, ByteBuf frame) {
+        this.frame = Preconditions.checkNotNull(frame, "Invalid frame");
+        setSource(source);
+        ByteBuf header = frame.duplicate();
+        header.skipBytes(FrameFormat.DATA_OFFSET);
+        sourceId = VarIntCodec.readVarInt(header);
+        typeId = VarIntCodec.readVarInt(header);
+        payloadOffset = header.readerIndex() - frame.readerIndex();
+    }
+
+    public ByteBuf getFrame() {
+        return frame;
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    public int getTypeId() {
+        return typeId;
+    }
+
+    /**
+     * @return a view of the serialized event at the end of the frame
+     */
+    public ByteBuf getPayload() {
+        return frame.slice(frame.readerIndex() + payloadOffset, frame.readableBytes() - payloadOffset);
+    }
+
+    @Override
+    public int refCnt() {
+        return frame.refCnt();
+    }
+
+    @Override
+    public EncodedMessage retain() {
+        frame.retain();
+        return this;
+    }
+
+    @Override
+    public EncodedMessage retain(int increment) {
+        frame.retain(increment);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return frame.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return frame.release(decrement);
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.inject.Inject;
+import com.zaradai.distributor.messaging.Message;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Encodes a message once so the same frame can be written to many connections.
+ */
+public class EncodedMessageFactory {
+    private final MessageEncoder encoder;
+
+    @Inject
+    EncodedMessageFactory(MessageEncoderFactory encoderFactory) {
+        encoder = encoderFactory.create();
+    }
+
+    /**
+     * Create an encoded message holding a single reference to its frame, the caller is responsible for releasing it.
+     *
+     * @param message the message to encode
+     * @return the encoded message
+     * @throws EncodingException if the message could not be encoded
+     */
+    public EncodedMessage create(Message message) throws EncodingException {
+        if (message instanceof EncodedMessage) {
+            return ((EncodedMessage) message).retain();
+        }
+
+        ByteBuf frame = allocate();
+
+        try {
+            encoder.encode(message, frame);
+        } catch (EncodingException e) {
+            frame.release();
+            throw e;
+        }
+
+        return new EncodedMessage(message, frame);
+    }
+
+    /**
+     * Create an encoded message that keeps only the frame and source, the event is left for collection.  Meant for
+     * messages held for a while before sending, the caller is responsible for releasing it.
+     *
+     * @param message the message to encode
+     * @return the encoded message without its event
+     * @throws EncodingException if the message could not be encoded
+     */
+    public EncodedMessage createDetached(Message message) throws EncodingException {
+        if (message instanceof EncodedMessage && message.getEvent() == null) {
+            return ((EncodedMessage) message).retain();
+        }
+        EncodedMessage encoded = create(message);
+
+        // the reference taken by create passes to the detached message
+        return new EncodedMessage(encoded.getSource(), encoded.getFrame());
+    }
+
+    protected ByteBuf allocate() {
+        return PooledByteBufAllocator.DEFAULT.ioBuffer();
+    }
+}
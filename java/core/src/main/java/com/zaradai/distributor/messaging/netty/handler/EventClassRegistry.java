@@ -0,0 +1,125 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Node wide table of compact ids for event classes.  Ids are assigned by the sending node the first time a class
+ * is seen and never change, so a frame encoded once is valid on every connection.  Peers learn the table during the
+ * handshake and from definition frames sent ahead of the first use of a new id.
+ */
+public class EventClassRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventClassRegistry.class);
+    /**
+     * Type id meaning the class is carried in the event payload itself.
+     */
+    public static final int EMBEDDED_TYPE_ID = 0;
+
+    private final ConcurrentMap<Class<?>, Integer> ids;
+    private final List<Class<?>> classes;
+
+    public EventClassRegistry() {
+        ids = Maps.newConcurrentMap();
+        classes = new CopyOnWriteArrayList<Class<?>>();
+    }
+
+    /**
+     * Get the id for the class, assigning the next free id if it has not been seen before.
+     *
+     * @param type the event class
+     * @return the id of the class
+     */
+    public int register(Class<?> type) {
+        Integer res = ids.get(type);
+
+        if (res == null) {
+            res = assign(Preconditions.checkNotNull(type, "Invalid type"));
+        }
+
+        return res;
+    }
+
+    private synchronized int assign(Class<?> type) {
+        Integer res = ids.get(type);
+
+        if (res == null) {
+            classes.add(type);
+            res = classes.size();
+            ids.put(type, res);
+        }
+
+        return res;
+    }
+
+    /**
+     * @return the highest id assigned so far.
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    public Class<?> getType(int id) {
+        return classes.get(id - 1);
+    }
+
+    /**
+     * Write all classes registered so far as a count followed by the class names in id order.
+     *
+     * @param out buffer to write to
+     * @return the number of classes written
+     */
+    public int writeDefinitions(ByteBuf out) {
+        Object[] snapshot = classes.toArray();
+        VarIntCodec.writeVarInt(out, snapshot.length);
+
+        for (Object type : snapshot) {
+            VarIntCodec.writeString(out, ((Class<?>) type).getName());
+        }
+
+        return snapshot.length;
+    }
+
+    /**
+     * Load the named class so it can be bound to a peer's id.
+     *
+     * @param name the class name
+     * @return the class or null if not available on this node
+     */
+    public Class<?> resolve(String name) {
+        try {
+            return Class.forName(name, false, getClassLoader());
+        } catch (ClassNotFoundException e) {
+            LOGGER.warn("Unknown event class {}", name);
+            return null;
+        }
+    }
+
+    protected ClassLoader getClassLoader() {
+        ClassLoader res = Thread.currentThread().getContextClassLoader();
+
+        return (res != null) ? res : getClass().getClassLoader();
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.collect.Lists;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.List;
+
+/**
+ * Per channel view of the class ids exchanged with the peer.  Tracks how many of our ids have been announced to
+ * the peer and the classes bound to the ids the peer has announced to us.  Only accessed from the channel's
+ * event loop.
+ */
+public class EventClassTable {
+    private static final AttributeKey<EventClassTable> KEY = AttributeKey.valueOf("eventClassTable");
+
+    private final List<Class<?>> inbound;
+    private int announced;
+
+    public EventClassTable() {
+        inbound = Lists.newArrayList();
+    }
+
+    public static EventClassTable get(Channel channel) {
+        Attribute<EventClassTable> attribute = channel.attr(KEY);
+        EventClassTable res = attribute.get();
+
+        if (res == null) {
+            res = new EventClassTable();
+            EventClassTable existing = attribute.setIfAbsent(res);
+
+            if (existing != null) {
+                res = existing;
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * @return the highest of our ids the peer knows about.
+     */
+    public int getAnnounced() {
+        return announced;
+    }
+
+    public void setAnnounced(int announced) {
+        this.announced = Math.max(this.announced, announced);
+    }
+
+    /**
+     * Bind a class to one of the peer's ids, a null class marks an id the peer uses for a class we do not have.
+     *
+     * @param id the peer's id
+     * @param type the class
+     */
+    public void define(int id, Class<?> type) {
+        while (inbound.size() < id) {
+            inbound.add(null);
+        }
+
+        inbound.set(id - 1, type);
+    }
+
+    public Class<?> getType(int id) throws EncodingException {
+        Class<?> res = (id > 0 && id <= inbound.size()) ? inbound.get(id - 1) : null;
+
+        if (res == null) {
+            throw new EncodingException("Unknown event type id " + id);
+        }
+
+        return res;
+    }
+
+    /**
+     * Read the definitions written by {@link EventClassRegistry#writeDefinitions(ByteBuf)} from the peer.
+     *
+     * @param in buffer to read from
+     * @param registry used to resolve the class names
+     */
+    public void readDefinitions(ByteBuf in, EventClassRegistry registry) {
+        int count = VarIntCodec.readVarInt(in);
+
+        for (int id = 1; id <= count; id++) {
+            define(id, registry.resolve(VarIntCodec.readString(in)));
+        }
+    }
+}
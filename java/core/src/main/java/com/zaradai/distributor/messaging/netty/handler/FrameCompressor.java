@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
+
+/**
+ * Compresses outgoing frames whose body is above the configured threshold.  Sits between the encoder and the
+ * socket and passes frames through untouched until a codec has been negotiated.
+ */
+public class FrameCompressor extends MessageToMessageEncoder<ByteBuf> {
+    private final int threshold;
+    private CompressionCodec codec;
+
+    @Inject
+    FrameCompressor(DistributorConfig config) {
+        threshold = config.getCompressionThreshold();
+    }
+
+    public void setCodec(CompressionCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out) throws Exception {
+        int bodyLength = frame.readableBytes() - FrameFormat.HEADER_SIZE;
+
+        if (codec == null || bodyLength < threshold) {
+            out.add(frame.retain());
+            return;
+        }
+
+        ByteBuf compressed = compress(ctx, frame, bodyLength);
+
+        if (compressed.readableBytes() < frame.readableBytes()) {
+            out.add(compressed);
+        } else {
+            // not worth it, send as is
+            compressed.release();
+            out.add(frame.retain());
+        }
+    }
+
+    private ByteBuf compress(ChannelHandlerContext ctx, ByteBuf frame, int bodyLength) {
+        int flags = frame.getByte(frame.readerIndex() + FrameFormat.LENGTH_SIZE);
+        ByteBuf res = ctx.alloc().heapBuffer(FrameFormat.HEADER_SIZE + bodyLength / 2);
+
+        try {
+            res.writeInt(0);
+            res.writeByte(flags | FrameFormat.FLAG_COMPRESSED);
+            VarIntCodec.writeVarInt(res, bodyLength);
+            codec.compress(frame.slice(frame.readerIndex() + FrameFormat.HEADER_SIZE, bodyLength), res);
+            res.setInt(0, res.readableBytes() - FrameFormat.LENGTH_SIZE);
+        } catch (RuntimeException e) {
+            res.release();
+            throw e;
+        }
+
+        return res;
+    }
+}
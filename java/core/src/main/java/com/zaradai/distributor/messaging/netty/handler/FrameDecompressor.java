@@ -0,0 +1,92 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * Splits the incoming stream into frames and restores compressed frames to their original form before they reach
+ * the message decoder.  Frames pass through untouched until a codec has been negotiated.
+ */
+public class FrameDecompressor extends LengthFieldBasedFrameDecoder {
+    private final int maxMessageSize;
+    private CompressionCodec codec;
+
+    @Inject
+    FrameDecompressor(DistributorConfig config) {
+        super(config.getMaxMessageSize(), 0, FrameFormat.LENGTH_SIZE);
+        maxMessageSize = config.getMaxMessageSize();
+    }
+
+    public void setCodec(CompressionCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+
+        if (frame == null) {
+            return null;
+        }
+
+        int flags = frame.getByte(frame.readerIndex() + FrameFormat.LENGTH_SIZE);
+
+        if (codec == null || (flags & FrameFormat.FLAG_COMPRESSED) == 0) {
+            return frame;
+        }
+
+        try {
+            return decompress(ctx, frame, flags);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private ByteBuf decompress(ChannelHandlerContext ctx, ByteBuf frame, int flags) throws Exception {
+        frame.skipBytes(FrameFormat.HEADER_SIZE);
+        int length = VarIntCodec.readVarInt(frame);
+
+        if (length > maxMessageSize) {
+            throw new TooLongFrameException("Decompressed frame of " + length + " bytes exceeds " + maxMessageSize);
+        }
+
+        ByteBuf res = ctx.alloc().heapBuffer(FrameFormat.HEADER_SIZE + length);
+
+        try {
+            res.writeInt(FrameFormat.FLAGS_SIZE + length);
+            res.writeByte(flags & ~FrameFormat.FLAG_COMPRESSED);
+            codec.decompress(frame, res, length);
+        } catch (RuntimeException e) {
+            res.release();
+            throw e;
+        }
+
+        return res;
+    }
+
+    @Override
+    protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
+        return buffer.slice(index, length).retain();
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+/**
+ * Layout shared by all frames on the wire: a length covering the rest of the frame, a flags byte then the body.
+ */
+public final class FrameFormat {
+    public static final int LENGTH_SIZE = 4;
+    public static final int FLAGS_SIZE = 1;
+    public static final int HEADER_SIZE = LENGTH_SIZE + FLAGS_SIZE;
+    public static final int MAGIC_SIZE = 4;
+
+    public static final int NO_FLAGS = 0;
+    /**
+     * The body is compressed with the codec negotiated for the connection and prefixed by its original length.
+     */
+    public static final int FLAG_COMPRESSED = 0x01;
+    /**
+     * The body is a message header, a count then that many entries, each its length then its source, type and
+     * event.  The length bounds the entry so a serializer reading ahead from a stream cannot run into the next.
+     */
+    public static final int FLAG_BATCH = 0x02;
+    /**
+     * Offset of the first entry of a single message data frame, after the frame header and the message magic number.
+     */
+    public static final int DATA_OFFSET = HEADER_SIZE + MAGIC_SIZE;
+
+    private FrameFormat() {
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a connection alive and detects a dead peer well before the socket would.  Once the handshake completes an
+ * idle state handler is placed in front of this one, a heartbeat frame is sent whenever nothing has been written for
+ * the interval and if nothing at all has been read for the timeout the peer is suspected and the connection closed,
+ * which moves its traffic to the pending path until it reconnects.
+ */
+public class HeartbeatHandler extends ChannelHandlerAdapter {
+    public static final String IDLE_HANDLER_NAME = "idle";
+    private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatHandler.class);
+    private static final int HEARTBEAT_SIZE = FrameFormat.HEADER_SIZE + FrameFormat.MAGIC_SIZE;
+
+    private final long interval;
+    private final long timeout;
+
+    /**
+     * @param interval time in milliseconds without writing before sending a heartbeat
+     * @param timeout time in milliseconds without reading before suspecting the peer, 0 to never suspect
+     */
+    public HeartbeatHandler(long interval, long timeout) {
+        this.interval = interval;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            onIdle(ctx, (IdleStateEvent) evt);
+            return;
+        }
+
+        if (evt instanceof HandshakeCompletionEvent && ((HandshakeCompletionEvent) evt).isSuccess()) {
+            // only now, a heartbeat during the handshake would be taken for the peer's reply
+            ctx.pipeline().addBefore(ctx.name(), IDLE_HANDLER_NAME,
+                    new IdleStateHandler(timeout, interval, 0, TimeUnit.MILLISECONDS));
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    private void onIdle(ChannelHandlerContext ctx, IdleStateEvent evt) {
+        if (evt.state() == IdleState.WRITER_IDLE) {
+            ctx.writeAndFlush(createHeartbeat(ctx.alloc()));
+        } else if (evt.state() == IdleState.READER_IDLE) {
+            LOGGER.warn("Peer {} suspect, nothing received for {}ms, closing", ctx.channel().remoteAddress(), timeout);
+            ctx.close();
+        }
+    }
+
+    /**
+     * @param allocator allocator for the frame
+     * @return a heartbeat frame, length prefix included.
+     */
+    public static ByteBuf createHeartbeat(ByteBufAllocator allocator) {
+        ByteBuf res = allocator.buffer(HEARTBEAT_SIZE);
+        res.writeInt(FrameFormat.FLAGS_SIZE + FrameFormat.MAGIC_SIZE);
+        res.writeByte(FrameFormat.NO_FLAGS);
+        res.writeInt(MessageEncoder.HEARTBEAT_MAGIC);
+
+        return res;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import com.zaradai.distributor.messaging.LocalInterests;
+import com.zaradai.distributor.messaging.RoutingTable;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+
+/**
+ * Exchanges the event types and topic patterns each end subscribes to so publishing can skip peers with no use for
+ * an event.  Once the connection is activated every type and pattern of interest here is advertised, then each one
+ * gained or lost as listeners and topics are subscribed and unsubscribed.  Advertisements from the peer are applied
+ * to the {@link RoutingTable} against this channel, which forgets them when the channel closes.
+ */
+public class InterestHandler extends ChannelHandlerAdapter {
+    private static final int INTEREST_BUFFER_SIZE = 256;
+
+    private final LocalInterests localInterests;
+    private final RoutingTable routingTable;
+    private InetSocketAddress peer;
+    private LocalInterests.Watcher watcher;
+
+    @Inject
+    InterestHandler(LocalInterests localInterests, RoutingTable routingTable) {
+        this.localInterests = localInterests;
+        this.routingTable = routingTable;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        // a duplicate channel has already been closed by the handshake
+        if (evt instanceof HandshakeCompletionEvent && ((HandshakeCompletionEvent) evt).isSuccess()
+                && ctx.channel().isActive()) {
+            start(ctx.channel());
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    private void start(final Channel channel) {
+        peer = channel.attr(MessagingHandshake.ENDPOINT).get();
+
+        if (peer == null) {
+            return;
+        }
+        // sent everything until it advertises
+        routingTable.joined(peer, channel);
+        watcher = new LocalInterests.Watcher() {
+            @Override
+            public void onChanged(String type, boolean interested) {
+                channel.writeAndFlush(createFrame(channel.alloc(), interested ? InterestUpdate.ADD
+                        : InterestUpdate.REMOVE, ImmutableSet.of(type)));
+            }
+
+            @Override
+            public void onTopicChanged(String pattern, boolean subscribed) {
+                channel.writeAndFlush(createTopicFrame(channel.alloc(), subscribed ? InterestUpdate.ADD
+                        : InterestUpdate.REMOVE, ImmutableSet.of(pattern)));
+            }
+        };
+        // on the event loop, a change made by another thread from now on is written after this
+        channel.writeAndFlush(createFrame(channel.alloc(), InterestUpdate.REPLACE, localInterests.watch(watcher)));
+        // a pattern changed since watching is in both the snapshot and a later frame, applying either twice is harmless
+        channel.writeAndFlush(createTopicFrame(channel.alloc(), InterestUpdate.REPLACE, localInterests.getTopics()));
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof InterestUpdate) {
+            apply(ctx.channel(), (InterestUpdate) msg);
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    private void apply(Channel channel, InterestUpdate update) {
+        if (peer == null) {
+            return;
+        }
+
+        if (update.isTopics()) {
+            applyTopics(channel, update);
+        } else if (update.getKind() == InterestUpdate.REPLACE) {
+            routingTable.advertised(peer, channel, update.getNames());
+        } else if (update.getKind() == InterestUpdate.ADD) {
+            routingTable.subscribed(peer, channel, update.getNames());
+        } else {
+            routingTable.unsubscribed(peer, channel, update.getNames());
+        }
+    }
+
+    private void applyTopics(Channel channel, InterestUpdate update) {
+        if (update.getKind() == InterestUpdate.REPLACE) {
+            routingTable.advertisedTopics(peer, channel, update.getNames());
+        } else if (update.getKind() == InterestUpdate.ADD) {
+            routingTable.subscribedTopics(peer, channel, update.getNames());
+        } else {
+            routingTable.unsubscribedTopics(peer, channel, update.getNames());
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (watcher != null) {
+            localInterests.unwatch(watcher);
+            routingTable.left(peer, ctx.channel());
+        }
+        ctx.fireChannelInactive();
+    }
+
+    /**
+     * @param allocator allocator for the frame
+     * @param kind one of the {@link InterestUpdate} kinds
+     * @param types names of the event types
+     * @return an interest frame, length prefix included.
+     */
+    public static ByteBuf createFrame(ByteBufAllocator allocator, int kind, Collection<String> types) {
+        return createFrame(allocator, MessageEncoder.INTEREST_MAGIC, kind, types);
+    }
+
+    /**
+     * @param allocator allocator for the frame
+     * @param kind one of the {@link InterestUpdate} kinds
+     * @param patterns topic patterns
+     * @return a topic interest frame, length prefix included.
+     */
+    public static ByteBuf createTopicFrame(ByteBufAllocator allocator, int kind, Collection<String> patterns) {
+        return createFrame(allocator, MessageEncoder.TOPIC_MAGIC, kind, patterns);
+    }
+
+    private static ByteBuf createFrame(ByteBufAllocator allocator, int magic, int kind, Collection<String> names) {
+        ByteBuf res = allocator.buffer(INTEREST_BUFFER_SIZE);
+        int index = res.writerIndex();
+        res.writeInt(0);
+        int start = res.writerIndex();
+        res.writeByte(FrameFormat.NO_FLAGS);
+        res.writeInt(magic);
+        VarIntCodec.writeVarInt(res, kind);
+        VarIntCodec.writeVarInt(res, names.size());
+
+        for (String name : names) {
+            VarIntCodec.writeString(res, name);
+        }
+        res.setInt(index, res.writerIndex() - start);
+
+        return res;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A change to the event types or topic patterns a peer subscribes to, as read from an interest frame.
+ */
+public class InterestUpdate {
+    /**
+     * The names are every one the peer subscribes to, replacing any advertised before.
+     */
+    public static final int REPLACE = 0;
+    /**
+     * The peer has gained subscribers for the names.
+     */
+    public static final int ADD = 1;
+    /**
+     * The peer no longer has any subscriber for the names.
+     */
+    public static final int REMOVE = 2;
+
+    private final int kind;
+    private final boolean topics;
+    private final List<String> names;
+
+    public InterestUpdate(int kind, Collection<String> types) {
+        this(kind, false, types);
+    }
+
+    /**
+     * @param kind one of the kinds above
+     * @param topics true if the names are topic patterns rather than event types
+     * @param names the names
+     */
+    public InterestUpdate(int kind, boolean topics, Collection<String> names) {
+        Preconditions.checkArgument(kind >= REPLACE && kind <= REMOVE, "Invalid kind");
+        this.kind = kind;
+        this.topics = topics;
+        this.names = ImmutableList.copyOf(names);
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    public boolean isTopics() {
+        return topics;
+    }
+
+    /**
+     * @return names of event types, or topic patterns if {@link #isTopics()}.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+}
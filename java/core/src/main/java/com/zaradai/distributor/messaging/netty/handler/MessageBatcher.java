@@ -0,0 +1,191 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers encoded message frames into a single batch frame, sharing one frame header and magic number.  A batch is
+ * written once it holds the configured number of messages or bytes, or on flush, optionally held back for a linger
+ * time so more messages can join.  Any other frame, such as a definition, first writes the open batch so ordering
+ * on the wire is kept.  Each entry is prefixed by its length so it can be decoded on its own.  The promises of the
+ * gathered messages complete with the batch.
+ */
+public class MessageBatcher extends ChannelHandlerAdapter {
+    private static final int BATCH_HEADER_SIZE = FrameFormat.DATA_OFFSET + VarIntCodec.MAX_VAR_INT_SIZE;
+
+    private final int maxMessages;
+    private final int maxBytes;
+    private final long linger;
+    private final List<ByteBuf> frames;
+    private final List<ChannelPromise> promises;
+    private int bytes;
+    private ScheduledFuture<?> lingerTask;
+
+    @Inject
+    MessageBatcher(DistributorConfig config) {
+        maxMessages = config.getBatchMaxMessages();
+        maxBytes = config.getBatchMaxBytes();
+        linger = config.getBatchLinger();
+        frames = Lists.newArrayList();
+        promises = Lists.newArrayList();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!isDataFrame(msg)) {
+            writeBatch(ctx);
+            ctx.write(msg, promise);
+            return;
+        }
+
+        ByteBuf frame = (ByteBuf) msg;
+        int entryLength = getEntryLength(frame) + VarIntCodec.MAX_VAR_INT_SIZE;
+
+        if (!frames.isEmpty() && bytes + entryLength > maxBytes) {
+            writeBatch(ctx);
+        }
+
+        frames.add(frame);
+        promises.add(promise);
+        bytes += entryLength;
+
+        if (frames.size() >= maxMessages || bytes >= maxBytes) {
+            writeBatch(ctx);
+        }
+    }
+
+    @Override
+    public void flush(final ChannelHandlerContext ctx) throws Exception {
+        if (linger > 0 && !frames.isEmpty()) {
+            // hold the open batch back a little so more messages can join it
+            if (lingerTask == null) {
+                lingerTask = ctx.executor().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        lingerTask = null;
+                        writeBatch(ctx);
+                        ctx.flush();
+                    }
+                }, linger, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            writeBatch(ctx);
+        }
+
+        ctx.flush();
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        writeBatch(ctx);
+        ctx.flush();
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        cancelLinger();
+        // anything still held will never be written
+        ClosedChannelException cause = new ClosedChannelException();
+
+        for (int i = 0; i < frames.size(); i++) {
+            frames.get(i).release();
+            promises.get(i).tryFailure(cause);
+        }
+
+        clear();
+    }
+
+    private boolean isDataFrame(Object msg) {
+        if (!(msg instanceof ByteBuf)) {
+            return false;
+        }
+
+        ByteBuf frame = (ByteBuf) msg;
+        int index = frame.readerIndex();
+
+        return frame.readableBytes() > FrameFormat.DATA_OFFSET
+                && frame.getByte(index + FrameFormat.LENGTH_SIZE) == FrameFormat.NO_FLAGS
+                && frame.getInt(index + FrameFormat.HEADER_SIZE) == Message.MAGIC_NUMBER;
+    }
+
+    private int getEntryLength(ByteBuf frame) {
+        return frame.readableBytes() - FrameFormat.DATA_OFFSET;
+    }
+
+    private void writeBatch(ChannelHandlerContext ctx) {
+        cancelLinger();
+
+        if (frames.size() == 1) {
+            // nothing to share, send the frame as it is
+            ctx.write(frames.get(0), promises.get(0));
+        } else if (!frames.isEmpty()) {
+            ChannelPromise batchPromise = ctx.newPromise();
+            batchPromise.addListener(new ChannelPromiseNotifier(promises.toArray(new ChannelPromise[promises.size()])));
+            ctx.write(createBatch(ctx), batchPromise);
+        }
+
+        clear();
+    }
+
+    private ByteBuf createBatch(ChannelHandlerContext ctx) {
+        ByteBuf res = ctx.alloc().ioBuffer(BATCH_HEADER_SIZE + bytes);
+        int index = res.writerIndex();
+        res.writeInt(0);
+        int start = res.writerIndex();
+        res.writeByte(FrameFormat.FLAG_BATCH);
+        res.writeInt(Message.MAGIC_NUMBER);
+        VarIntCodec.writeVarInt(res, frames.size());
+
+        for (ByteBuf frame : frames) {
+            VarIntCodec.writeVarInt(res, getEntryLength(frame));
+            res.writeBytes(frame, frame.readerIndex() + FrameFormat.DATA_OFFSET, getEntryLength(frame));
+            frame.release();
+        }
+
+        res.setInt(index, res.writerIndex() - start);
+
+        return res;
+    }
+
+    private void clear() {
+        frames.clear();
+        promises.clear();
+        bytes = 0;
+    }
+
+    private void cancelLinger() {
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+    }
+}
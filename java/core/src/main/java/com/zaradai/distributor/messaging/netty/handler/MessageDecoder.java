@@ -15,45 +15,112 @@
  */
 package com.zaradai.distributor.messaging.netty.handler;
 
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.ByteBufSerializer;
 import com.zaradai.distributor.messaging.netty.InetSocketAddressSerializer;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
 import com.zaradai.serialization.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
-public class MessageDecoder extends LengthFieldBasedFrameDecoder {
-    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
-    private static final int LENGTH_SIZE = 4;
+import java.util.List;
+
+public class MessageDecoder extends ByteToMessageDecoder {
+    private final FrameExtractor frameExtractor;
     private final Serializer serializer;
+    private final ByteBufSerializer byteBufSerializer;
+    private final EventClassRegistry classRegistry;
 
     @Inject
-    MessageDecoder(Serializer serializer) {
-        super(MAX_MESSAGE_SIZE, 0, LENGTH_SIZE, 0, LENGTH_SIZE);
+    MessageDecoder(Serializer serializer, EventClassRegistry classRegistry, DistributorConfig config) {
+        frameExtractor = new FrameExtractor(config.getMaxMessageSize());
         this.serializer = serializer;
+        this.classRegistry = classRegistry;
+        byteBufSerializer = (serializer instanceof ByteBufSerializer) ? (ByteBufSerializer) serializer : null;
     }
 
     @Override
-    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
-        ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        ByteBuf frame = frameExtractor.extract(ctx, in);
 
         if (frame == null) {
-            return null;
+            return;
         }
 
+        int flags = readFlags(frame);
+        EventClassTable table = EventClassTable.get(ctx.channel());
+        SourceTable sources = SourceTable.get(ctx.channel());
+        int header = readHeader(frame);
+
+        if (header == MessageEncoder.CLASS_DEFINITION_MAGIC) {
+            readDefinition(table, frame);
+        } else if (header == MessageEncoder.SOURCE_DEFINITION_MAGIC) {
+            readSourceDefinition(sources, frame);
+        } else if (header == MessageEncoder.HEARTBEAT_MAGIC) {
+            // nothing to decode, its arrival was all the heartbeat handler needed
+            return;
+        } else if (header == MessageEncoder.INTEREST_MAGIC) {
+            out.add(readInterests(frame, false));
+        } else if (header == MessageEncoder.TOPIC_MAGIC) {
+            out.add(readInterests(frame, true));
+        } else if ((flags & FrameFormat.FLAG_BATCH) != 0) {
+            readBatch(table, sources, frame, out);
+        } else {
+            out.add(readMessage(table, sources, frame));
+        }
+    }
+
+    private int readFlags(ByteBuf frame) throws EncodingException {
+        int res = frame.readByte();
+
+        if ((res & FrameFormat.FLAG_COMPRESSED) != 0) {
+            throw new EncodingException("Compressed frame received without a negotiated codec");
+        }
+
+        return res;
+    }
+
+    private void readBatch(EventClassTable table, SourceTable sources, ByteBuf frame, List<Object> out)
+        throws EncodingException {
+        int count;
+
+        try {
+            count = VarIntCodec.readVarInt(frame);
+        } catch (Exception e) {
+            throw new EncodingException("Unable to read batch size", e);
+        }
+
+        for (int i = 0; i < count; i++) {
+            out.add(readMessage(table, sources, readEntry(frame)));
+        }
+    }
+
+    private ByteBuf readEntry(ByteBuf frame) throws EncodingException {
+        try {
+            // bounded so reading one event cannot consume the next
+            return frame.readSlice(VarIntCodec.readVarInt(frame));
+        } catch (Exception e) {
+            throw new EncodingException("Unable to read batch entry", e);
+        }
+    }
+
+    private Message readMessage(EventClassTable table, SourceTable sources, ByteBuf frame) throws EncodingException {
         Message res = new Message();
 
-        readHeader(frame);
-        readSource(res, frame);
-        readEvent(res, frame);
+        readSource(res, sources, frame);
+        readEvent(res, table, frame);
         res.setIncoming(true);
 
         return res;
     }
 
-    private void readHeader(ByteBuf frame) throws EncodingException {
+    private int readHeader(ByteBuf frame) throws EncodingException {
         int header;
 
         try {
@@ -62,30 +129,117 @@ public class MessageDecoder extends LengthFieldBasedFrameDecoder {
             throw new EncodingException("Unable to read header data", e);
         }
 
-        if (header != Message.MAGIC_NUMBER) {
+        if (header != Message.MAGIC_NUMBER && header != MessageEncoder.CLASS_DEFINITION_MAGIC
+                && header != MessageEncoder.SOURCE_DEFINITION_MAGIC && header != MessageEncoder.HEARTBEAT_MAGIC
+                && header != MessageEncoder.INTEREST_MAGIC && header != MessageEncoder.TOPIC_MAGIC) {
             throw new EncodingException("Invalid header");
         }
+
+        return header;
+    }
+
+    private void readDefinition(EventClassTable table, ByteBuf frame) throws EncodingException {
+        try {
+            int id = VarIntCodec.readVarInt(frame);
+            table.define(id, classRegistry.resolve(VarIntCodec.readString(frame)));
+        } catch (Exception e) {
+            throw new EncodingException("Unable to read class definition", e);
+        }
     }
 
-    private void readSource(Message res, ByteBuf frame) throws EncodingException {
+    private void readSourceDefinition(SourceTable sources, ByteBuf frame) throws EncodingException {
         try {
-            res.setSource(InetSocketAddressSerializer.deserialize(frame));
+            int id = VarIntCodec.readVarInt(frame);
+            sources.define(id, InetSocketAddressSerializer.deserialize(frame));
+        } catch (Exception e) {
+            throw new EncodingException("Unable to read source definition", e);
+        }
+    }
+
+    private InterestUpdate readInterests(ByteBuf frame, boolean topics) throws EncodingException {
+        try {
+            int kind = VarIntCodec.readVarInt(frame);
+            int count = VarIntCodec.readVarInt(frame);
+            List<String> names = Lists.newArrayList();
+
+            for (int i = 0; i < count; i++) {
+                names.add(VarIntCodec.readString(frame));
+            }
+
+            return new InterestUpdate(kind, topics, names);
+        } catch (Exception e) {
+            throw new EncodingException("Unable to read interests", e);
+        }
+    }
+
+    private void readSource(Message res, SourceTable sources, ByteBuf frame) throws EncodingException {
+        int sourceId;
+
+        try {
+            sourceId = VarIntCodec.readVarInt(frame);
         } catch (Exception e) {
             throw new EncodingException("Unable to read source", e);
         }
+        // same instance for every message on the connection
+        res.setSource(sources.getSource(sourceId));
+    }
+
+    private void readEvent(Message res, EventClassTable table, ByteBuf frame) throws EncodingException {
+        int typeId;
+
+        try {
+            typeId = VarIntCodec.readVarInt(frame);
+        } catch (Exception e) {
+            throw new EncodingException("Unable to read event type", e);
+        }
+
+        if (typeId != EventClassRegistry.EMBEDDED_TYPE_ID) {
+            readTypedEvent(res, table.getType(typeId), frame);
+        } else {
+            readEmbeddedEvent(res, frame);
+        }
     }
 
-    private void readEvent(Message res, ByteBuf frame) throws EncodingException {
+    private void readTypedEvent(Message res, Class<?> type, ByteBuf frame) throws EncodingException {
+        if (byteBufSerializer == null) {
+            throw new EncodingException("Serializer does not support typed events");
+        }
+
         try {
-            ByteBufInputStream in = new ByteBufInputStream(frame);
-            res.setEvent(serializer.deserialize(in));
+            res.setEvent(byteBufSerializer.deserializeObject(frame, type));
         } catch (Exception e) {
             throw new EncodingException("Unable to read event", e);
         }
     }
 
-    @Override
-    protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
-        return buffer.slice(index, length);
+    private void readEmbeddedEvent(Message res, ByteBuf frame) throws EncodingException {
+        try {
+            if (byteBufSerializer != null) {
+                res.setEvent(byteBufSerializer.deserialize(frame));
+            } else {
+                // fallback for serializers that only support streams
+                res.setEvent(serializer.deserialize(new ByteBufInputStream(frame)));
+            }
+        } catch (Exception e) {
+            throw new EncodingException("Unable to read event", e);
+        }
+    }
+
+    /**
+     * Splits the stream on the frame length, leaving the decoder free to turn a frame into any number of messages.
+     */
+    private static final class FrameExtractor extends LengthFieldBasedFrameDecoder {
+        private FrameExtractor(int maxFrameLength) {
+            super(maxFrameLength, 0, FrameFormat.LENGTH_SIZE, 0, FrameFormat.LENGTH_SIZE);
+        }
+
+        private ByteBuf extract(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+            return (ByteBuf) decode(ctx, in);
+        }
+
+        @Override
+        protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
+            return buffer.slice(index, length);
+        }
     }
 }
@@ -17,28 +17,74 @@ package com.zaradai.distributor.messaging.netty.handler;
 
 import com.google.inject.Inject;
 import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.ByteBufSerializer;
 import com.zaradai.distributor.messaging.netty.InetSocketAddressSerializer;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
 import com.zaradai.serialization.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 public class MessageEncoder extends MessageToByteEncoder<Message> {
+    public static final int CLASS_DEFINITION_MAGIC = 0xFA4527D9;
+    public static final int SOURCE_DEFINITION_MAGIC = 0xFA4527DA;
+    public static final int HEARTBEAT_MAGIC = 0xFA4527DB;
+    public static final int INTEREST_MAGIC = 0xFA4527DC;
+    public static final int TOPIC_MAGIC = 0xFA4527DD;
+    private static final int DEFINITION_BUFFER_SIZE = 128;
+
     private final Serializer serializer;
+    private final ByteBufSerializer byteBufSerializer;
+    private final EventClassRegistry classRegistry;
+    private final SourceRegistry sourceRegistry;
 
     @Inject
-    MessageEncoder(Serializer serializer) {
+    MessageEncoder(Serializer serializer, EventClassRegistry classRegistry, SourceRegistry sourceRegistry) {
         this.serializer = serializer;
+        this.classRegistry = classRegistry;
+        this.sourceRegistry = sourceRegistry;
+        byteBufSerializer = (serializer instanceof ByteBufSerializer) ? (ByteBufSerializer) serializer : null;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        // make sure the peer can resolve the source and event type before it sees the frame
+        if (msg instanceof EncodedMessage) {
+            EncodedMessage encoded = (EncodedMessage) msg;
+            announceSource(ctx, encoded.getSourceId());
+            announce(ctx, encoded.getTypeId());
+            // already framed, pass on a view of the shared frame which carries the reference handed to this write
+            ctx.write(encoded.getFrame().duplicate(), promise);
+        } else {
+            if (msg instanceof Message) {
+                announceSource(ctx, sourceRegistry.register(((Message) msg).getSource()));
+                announce(ctx, getTypeId((Message) msg));
+            }
+            super.write(ctx, msg, promise);
+        }
     }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Message msg, ByteBuf out) throws Exception {
+        encode(msg, out);
+    }
+
+    /**
+     * Writes the complete frame for the message, length prefix included, into the buffer.
+     *
+     * @param msg the message to encode
+     * @param out the buffer to write the frame into
+     * @throws EncodingException if any part of the message could not be encoded
+     */
+    public void encode(Message msg, ByteBuf out) throws EncodingException {
         int index = out.writerIndex();
         // reserve space for length
         out.writeInt(0);
         // get the slot start for the message bytes
         int start = out.writerIndex();
+        out.writeByte(FrameFormat.NO_FLAGS);
         // write the message
         writeHeader(out);
         writeSource(msg, out);
@@ -59,20 +105,89 @@ public class MessageEncoder extends MessageToByteEncoder<Message> {
 
     private void writeSource(Message msg, ByteBuf out) throws EncodingException {
         try {
-            InetSocketAddressSerializer.serialize(msg.getSource(), out);
+            // the peer binds our address at handshake so only relayed sources need an id of their own
+            VarIntCodec.writeVarInt(out, sourceRegistry.register(msg.getSource()));
         } catch (Exception e) {
             throw new EncodingException("Unable to encode source", e);
         }
     }
 
+    private void announceSource(ChannelHandlerContext ctx, int sourceId) {
+        SourceTable table = SourceTable.get(ctx.channel());
+
+        for (int id = table.getAnnounced() + 1; id <= sourceId; id++) {
+            ctx.write(createSourceDefinition(ctx, id));
+        }
+
+        table.setAnnounced(sourceId);
+    }
+
+    private ByteBuf createSourceDefinition(ChannelHandlerContext ctx, int id) {
+        ByteBuf res = ctx.alloc().buffer(DEFINITION_BUFFER_SIZE);
+        int index = res.writerIndex();
+        res.writeInt(0);
+        int start = res.writerIndex();
+        res.writeByte(FrameFormat.NO_FLAGS);
+        res.writeInt(SOURCE_DEFINITION_MAGIC);
+        VarIntCodec.writeVarInt(res, id);
+        InetSocketAddressSerializer.serialize(sourceRegistry.getSource(id), res);
+        res.setInt(index, res.writerIndex() - start);
+
+        return res;
+    }
+
+    private void announce(ChannelHandlerContext ctx, int typeId) {
+        EventClassTable table = EventClassTable.get(ctx.channel());
+
+        for (int id = table.getAnnounced() + 1; id <= typeId; id++) {
+            ctx.write(createDefinition(ctx, id));
+        }
+
+        table.setAnnounced(typeId);
+    }
+
+    private ByteBuf createDefinition(ChannelHandlerContext ctx, int id) {
+        ByteBuf res = ctx.alloc().buffer(DEFINITION_BUFFER_SIZE);
+        int index = res.writerIndex();
+        res.writeInt(0);
+        int start = res.writerIndex();
+        res.writeByte(FrameFormat.NO_FLAGS);
+        res.writeInt(CLASS_DEFINITION_MAGIC);
+        VarIntCodec.writeVarInt(res, id);
+        VarIntCodec.writeString(res, classRegistry.getType(id).getName());
+        res.setInt(index, res.writerIndex() - start);
+
+        return res;
+    }
+
+    private int getTypeId(Message msg) {
+        if (byteBufSerializer == null || msg.getEvent() == null) {
+            return EventClassRegistry.EMBEDDED_TYPE_ID;
+        }
+
+        return classRegistry.register(msg.getEvent().getClass());
+    }
+
     private void writeEvent(Message msg, ByteBuf out) throws EncodingException {
         try {
-            ByteBufOutputStream outputStream = new ByteBufOutputStream(out);
-            serializer.serialize(outputStream, msg.getEvent());
-            outputStream.flush();
-            outputStream.close();
+            int typeId = getTypeId(msg);
+            VarIntCodec.writeVarInt(out, typeId);
+
+            if (typeId != EventClassRegistry.EMBEDDED_TYPE_ID) {
+                byteBufSerializer.serializeObject(out, msg.getEvent());
+            } else {
+                writeEventToStream(msg, out);
+            }
         } catch (Exception e) {
             throw new EncodingException("Unable to encode event", e);
         }
     }
+
+    private void writeEventToStream(Message msg, ByteBuf out) throws Exception {
+        // fallback for serializers that only support streams
+        ByteBufOutputStream outputStream = new ByteBufOutputStream(out);
+        serializer.serialize(outputStream, msg.getEvent());
+        outputStream.flush();
+        outputStream.close();
+    }
 }
@@ -16,6 +16,7 @@
 package com.zaradai.distributor.messaging.netty.handler;
 
 import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.events.EventPublisher;
 import com.zaradai.distributor.messaging.Message;
 import io.netty.channel.ChannelHandlerContext;
@@ -23,14 +24,17 @@ import io.netty.channel.SimpleChannelInboundHandler;
 
 public class MessageHandler extends SimpleChannelInboundHandler<Message> {
     private final EventPublisher eventPublisher;
+    private final boolean intercept;
 
     @Inject
-    MessageHandler(EventPublisher eventPublisher) {
+    MessageHandler(EventPublisher eventPublisher, DistributorConfig config) {
         this.eventPublisher = eventPublisher;
+        intercept = config.getEventBusIntercept();
     }
 
     @Override
     protected void messageReceived(ChannelHandlerContext ctx, Message message) throws Exception {
-        eventPublisher.publish(message);
+        // straight to subscribers unless the distributor service is to unwrap it
+        eventPublisher.publish(intercept ? message : message.getEvent());
     }
 }
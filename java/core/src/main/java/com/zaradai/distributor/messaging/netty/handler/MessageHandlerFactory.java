@@ -17,4 +17,5 @@ package com.zaradai.distributor.messaging.netty.handler;
 
 public interface MessageHandlerFactory {
     MessageHandler create();
+    InterestHandler createInterestHandler();
 }
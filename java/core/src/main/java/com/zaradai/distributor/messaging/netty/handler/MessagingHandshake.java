@@ -18,46 +18,76 @@ package com.zaradai.distributor.messaging.netty.handler;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.ClusterMembership;
 import com.zaradai.distributor.messaging.ConnectionManager;
 import com.zaradai.distributor.messaging.netty.ChannelConnection;
 import com.zaradai.distributor.messaging.netty.InetSocketAddressSerializer;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodec;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodecs;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 
 public class MessagingHandshake extends AbstractHandshakeHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(MessagingHandshake.class);
-    private static final int PROTOCOL_HEADER = 0xFA45A99;
+    private static final int PROTOCOL_HEADER = 0xFA45A9C;
+    private static final String NO_CODEC = "";
     public static final int HEADER_INT_SIZE = 4;
+    /**
+     * The endpoint a channel's connection is known by, set when a client channel is opened, which may be over a
+     * socket other than TCP, and for either kind once the connection is activated.
+     */
+    public static final AttributeKey<InetSocketAddress> ENDPOINT = AttributeKey.valueOf("endpoint");
     private final DistributorConfig config;
     private final ConnectionManager connectionManager;
-    private int serverHeaderSize = -1;
+    private final ClusterMembership clusterMembership;
+    private final EventClassRegistry classRegistry;
+    private final SourceRegistry sourceRegistry;
+    private final CompressionCodecs compressionCodecs;
+    private int headerSize = -1;
+    private InetSocketAddress remoteAddress;
+    private CompressionCodec codec;
 
     @Inject
     MessagingHandshake(DistributorConfig config, ConnectionManager connectionManager,
-                              @Assisted Boolean isClient) {
+                       ClusterMembership clusterMembership, EventClassRegistry classRegistry,
+                       SourceRegistry sourceRegistry, CompressionCodecs compressionCodecs,
+                       @Assisted Boolean isClient) {
         super(isClient, config.getHandshakeTimeout());
         this.config = config;
         this.connectionManager = connectionManager;
+        this.clusterMembership = clusterMembership;
+        this.classRegistry = classRegistry;
+        this.sourceRegistry = sourceRegistry;
+        this.compressionCodecs = compressionCodecs;
     }
 
     @Override
     protected boolean canRead(boolean client, ByteBuf in) {
-        if (client) {
-            return canReadClientHeader(in);
-        } else {
-            return canReadServerHeader(in);
+        // both directions are length prefixed
+        if (headerSize == -1) {
+            if (in.readableBytes() >= HEADER_INT_SIZE) {
+                headerSize = in.readInt();
+            } else {
+                return false;
+            }
         }
+
+        return (in.readableBytes() >= headerSize);
     }
 
     @Override
-    protected void clientWrite(ByteBuf out) {
+    protected void clientWrite(ChannelHandlerContext ctx, ByteBuf out) {
         int idx = out.writerIndex();
         // reserve space for length
         out.writeInt(0);
@@ -66,6 +96,9 @@ public class MessagingHandshake extends AbstractHandshakeHandler {
         // write protocol header
         writeProtocolHeader(out);
         writeAddress(out);
+        writeClassDefinitions(ctx, out);
+        // offer our codec, the server decides
+        writeCodec(out, getLocalCodec());
         // note end of the object slot
         int end = out.writerIndex();
         // write length
@@ -73,8 +106,15 @@ public class MessagingHandshake extends AbstractHandshakeHandler {
     }
 
     @Override
-    protected void serverWrite(ByteBuf out) {
+    protected void serverWrite(ChannelHandlerContext ctx, ByteBuf out) {
+        int idx = out.writerIndex();
+        out.writeInt(0);
+        int start = out.writerIndex();
         writeProtocolHeader(out);
+        writeAddress(out);
+        writeClassDefinitions(ctx, out);
+        writeCodec(out, codec);
+        out.setInt(idx, (out.writerIndex() - start));
     }
 
     @Override
@@ -83,9 +123,13 @@ public class MessagingHandshake extends AbstractHandshakeHandler {
 
         if (protocol == PROTOCOL_HEADER) {
             try {
-                InetSocketAddress address = readAddress(in);
-                // activate the caller
-                activateConnection(address, ctx.channel());
+                // the caller is known by its listen address, activated once our response is written
+                remoteAddress = readAddress(in);
+                SourceTable.get(ctx.channel()).setPeer(remoteAddress);
+                readClassDefinitions(ctx, in);
+                // only agree to compress if we would compress ourselves
+                String offered = VarIntCodec.readString(in);
+                codec = (getLocalCodec() != null) ? compressionCodecs.get(offered) : null;
 
                 return true;
             } catch (UnknownHostException e) {
@@ -100,37 +144,120 @@ public class MessagingHandshake extends AbstractHandshakeHandler {
     @Override
     protected boolean clientReadAndValidate(ChannelHandlerContext ctx, ByteBuf in) {
         if (readProtocolHeader(in) == PROTOCOL_HEADER) {
-            activateConnection((InetSocketAddress) ctx.channel().remoteAddress(), ctx.channel());
-            return true;
+            try {
+                // connection is known by the endpoint we dialled, its messages by the address the server listens on
+                remoteAddress = getEndpoint(ctx.channel());
+                SourceTable.get(ctx.channel()).setPeer(readAddress(in));
+                readClassDefinitions(ctx, in);
+                codec = compressionCodecs.get(VarIntCodec.readString(in));
+                return true;
+            } catch (UnknownHostException e) {
+                LOGGER.debug("Unable to read address from server", e);
+            }
         }
 
         return false;
     }
 
-    private void activateConnection(InetSocketAddress socketAddress, Channel channel) {
-        // get or create associated channel
-        ChannelConnection connection = (ChannelConnection) connectionManager.getOrCreate(socketAddress);
-        // now activate
-        connection.setChannel(channel);
+    @Override
+    protected void handshakeSucceeded(ChannelHandlerContext ctx) {
+        configureCompression(ctx.pipeline());
+        activateConnection(remoteAddress, ctx.channel());
     }
 
+    private InetSocketAddress getEndpoint(Channel channel) {
+        InetSocketAddress res = channel.attr(ENDPOINT).get();
 
-    private boolean canReadServerHeader(ByteBuf in) {
-        if (serverHeaderSize == -1) {
-            if (in.readableBytes() >= HEADER_INT_SIZE) {
-                serverHeaderSize = in.readInt();
-            } else {
-                return false;
+        return (res != null) ? res : (InetSocketAddress) channel.remoteAddress();
+    }
+
+    private void writeCodec(ByteBuf out, CompressionCodec toWrite) {
+        VarIntCodec.writeString(out, (toWrite != null) ? toWrite.getName() : NO_CODEC);
+    }
+
+    private CompressionCodec getLocalCodec() {
+        return compressionCodecs.get(config.getCompressionCodec());
+    }
+
+    private void configureCompression(ChannelPipeline pipeline) {
+        FrameCompressor compressor = pipeline.get(FrameCompressor.class);
+        FrameDecompressor decompressor = pipeline.get(FrameDecompressor.class);
+
+        if (codec != null && compressor != null && decompressor != null) {
+            compressor.setCodec(codec);
+            decompressor.setCodec(codec);
+        } else {
+            // nothing agreed so take the stages out of the path
+            if (compressor != null) {
+                pipeline.remove(compressor);
+            }
+            if (decompressor != null) {
+                pipeline.remove(decompressor);
             }
         }
+    }
 
-        return (in.readableBytes() >= serverHeaderSize);
+    private void writeClassDefinitions(ChannelHandlerContext ctx, ByteBuf out) {
+        // the peer now knows every id we have assigned so far
+        EventClassTable.get(ctx.channel()).setAnnounced(classRegistry.writeDefinitions(out));
     }
 
-    private boolean canReadClientHeader(ByteBuf in) {
-        return in.readableBytes() >= HEADER_INT_SIZE;
+    private void readClassDefinitions(ChannelHandlerContext ctx, ByteBuf in) {
+        EventClassTable.get(ctx.channel()).readDefinitions(in, classRegistry);
+    }
+
+    /**
+     * Of two channels between the same pair of nodes the one dialled by the node with the lower listen address
+     * is kept, each end reaches the same answer without further exchange.
+     */
+    private boolean isPreferred(InetSocketAddress peer) {
+        boolean localIsLower = compareNodes(sourceRegistry.getLocalAddress(), peer) < 0;
+
+        return isClient() == localIsLower;
     }
 
+    static int compareNodes(InetSocketAddress first, InetSocketAddress second) {
+        int res = hostOf(first).compareTo(hostOf(second));
+
+        return (res != 0) ? res : (first.getPort() - second.getPort());
+    }
+
+    private static String hostOf(InetSocketAddress address) {
+        return (address.getAddress() != null) ? address.getAddress().getHostAddress() : address.getHostName();
+    }
+
+    private void activateConnection(final InetSocketAddress socketAddress, final Channel channel) {
+        // get or create associated channel
+        ChannelConnection connection = (ChannelConnection) connectionManager.getOrCreate(socketAddress);
+        // both ends agree which of two simultaneous channels survives
+        boolean preferred = isPreferred(SourceTable.get(channel).getPeer());
+        Runnable join = new Runnable() {
+            @Override
+            public void run() {
+                joinCluster(socketAddress, channel);
+            }
+        };
+
+        if (!connection.activate(channel, preferred, join)) {
+            LOGGER.info("Closing duplicate channel to {}", socketAddress);
+            channel.close();
+        }
+    }
+
+    private void joinCluster(final InetSocketAddress socketAddress, final Channel channel) {
+        channel.attr(ENDPOINT).set(socketAddress);
+        // the node is a member for as long as this channel stays open, recorded before any channel it replaced
+        // closes so that closing never looks like the node leaving
+        clusterMembership.joined(socketAddress, channel);
+        channel.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                clusterMembership.left(socketAddress, channel);
+            }
+        });
+    }
+
+
     private void writeProtocolHeader(ByteBuf out) {
         out.writeInt(PROTOCOL_HEADER);
     }
@@ -144,16 +271,6 @@ public class MessagingHandshake extends AbstractHandshakeHandler {
     }
 
     private void writeAddress(ByteBuf out) {
-        InetSocketAddress address;
-
-        try {
-            InetAddress local = InetAddress.getByName(config.getHost());
-            address = new InetSocketAddress(local, config.getPort());
-        } catch (UnknownHostException e) {
-            LOGGER.debug("Unable to get host address", e);
-            address = new InetSocketAddress(config.getPort());
-        }
-
-        InetSocketAddressSerializer.serialize(address, out);
+        InetSocketAddressSerializer.serialize(sourceRegistry.getLocalAddress(), out);
     }
 }
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Node wide table of compact ids for message sources.  Id 0 is always this node, which the peer already knows from
+ * the handshake, so only relayed messages carry a source other than 0.  Relayed sources are assigned ids the first
+ * time they are seen and announced to each peer ahead of their first use, as with event class ids.
+ */
+public class SourceRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SourceRegistry.class);
+    /**
+     * Source id meaning the node at the other end of the connection.
+     */
+    public static final int LOCAL_SOURCE_ID = 0;
+
+    private final DistributorConfig config;
+    private final ConcurrentMap<InetSocketAddress, Integer> ids;
+    private final List<InetSocketAddress> sources;
+    private volatile InetSocketAddress localAddress;
+
+    @Inject
+    SourceRegistry(DistributorConfig config) {
+        this.config = config;
+        ids = Maps.newConcurrentMap();
+        sources = new CopyOnWriteArrayList<InetSocketAddress>();
+    }
+
+    /**
+     * The address this node listens on and is known by to its peers.  Resolved on first use as the configuration
+     * may change up to the point the node is started.
+     *
+     * @return the listen address of this node
+     */
+    public InetSocketAddress getLocalAddress() {
+        InetSocketAddress res = localAddress;
+
+        if (res == null) {
+            res = createLocalAddress();
+            localAddress = res;
+        }
+
+        return res;
+    }
+
+    private InetSocketAddress createLocalAddress() {
+        try {
+            InetAddress local = InetAddress.getByName(config.getHost());
+            return new InetSocketAddress(local, config.getPort());
+        } catch (UnknownHostException e) {
+            LOGGER.debug("Unable to get host address", e);
+            return new InetSocketAddress(config.getPort());
+        }
+    }
+
+    /**
+     * Get the id for the source, assigning the next free id if it is a relayed source not seen before.
+     *
+     * @param source the message source
+     * @return {@link #LOCAL_SOURCE_ID} for messages from this node, otherwise the id of the source
+     */
+    public int register(InetSocketAddress source) {
+        if (source == null || source.equals(getLocalAddress())) {
+            return LOCAL_SOURCE_ID;
+        }
+
+        Integer res = ids.get(source);
+
+        if (res == null) {
+            res = assign(source);
+        }
+
+        return res;
+    }
+
+    private synchronized int assign(InetSocketAddress source) {
+        Integer res = ids.get(source);
+
+        if (res == null) {
+            sources.add(source);
+            res = sources.size();
+            ids.put(source, res);
+        }
+
+        return res;
+    }
+
+    public InetSocketAddress getSource(int id) {
+        Preconditions.checkArgument(id > LOCAL_SOURCE_ID, "Invalid source id");
+
+        return sources.get(id - 1);
+    }
+}
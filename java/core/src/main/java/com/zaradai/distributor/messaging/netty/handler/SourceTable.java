@@ -0,0 +1,113 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.collect.Lists;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Per channel view of the source ids exchanged with the peer.  Holds the peer's listen address, bound once at
+ * handshake time and shared by every message the peer sends from itself, together with the relayed sources the peer
+ * has announced.  Only accessed from the channel's event loop.
+ */
+public class SourceTable {
+    private static final AttributeKey<SourceTable> KEY = AttributeKey.valueOf("sourceTable");
+
+    private final List<InetSocketAddress> inbound;
+    private InetSocketAddress peer;
+    private int announced;
+
+    public SourceTable() {
+        inbound = Lists.newArrayList();
+    }
+
+    public static SourceTable get(Channel channel) {
+        Attribute<SourceTable> attribute = channel.attr(KEY);
+        SourceTable res = attribute.get();
+
+        if (res == null) {
+            res = new SourceTable();
+            SourceTable existing = attribute.setIfAbsent(res);
+
+            if (existing != null) {
+                res = existing;
+            }
+        }
+
+        return res;
+    }
+
+    public InetSocketAddress getPeer() {
+        return peer;
+    }
+
+    public void setPeer(InetSocketAddress peer) {
+        this.peer = peer;
+    }
+
+    /**
+     * @return the highest of our source ids the peer knows about.
+     */
+    public int getAnnounced() {
+        return announced;
+    }
+
+    public void setAnnounced(int announced) {
+        this.announced = Math.max(this.announced, announced);
+    }
+
+    /**
+     * Bind an address to one of the peer's source ids.
+     *
+     * @param id the peer's id
+     * @param source the source address
+     */
+    public void define(int id, InetSocketAddress source) {
+        while (inbound.size() < id) {
+            inbound.add(null);
+        }
+
+        inbound.set(id - 1, source);
+    }
+
+    /**
+     * Get the source for one of the peer's ids.
+     *
+     * @param id the peer's id
+     * @return the peer for {@link SourceRegistry#LOCAL_SOURCE_ID} otherwise the relayed source
+     * @throws EncodingException if the id is not known
+     */
+    public InetSocketAddress getSource(int id) throws EncodingException {
+        InetSocketAddress res;
+
+        if (id == SourceRegistry.LOCAL_SOURCE_ID) {
+            res = peer;
+        } else {
+            res = (id > 0 && id <= inbound.size()) ? inbound.get(id - 1) : null;
+        }
+
+        if (res == null) {
+            throw new EncodingException("Unknown source id " + id);
+        }
+
+        return res;
+    }
+}
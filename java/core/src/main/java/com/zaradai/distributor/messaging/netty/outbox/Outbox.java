@@ -0,0 +1,180 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.outbox;
+
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.InetSocketAddressSerializer;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessage;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessageFactory;
+import com.zaradai.distributor.messaging.netty.handler.EncodingException;
+import com.zaradai.distributor.messaging.netty.handler.EventClassRegistry;
+import com.zaradai.distributor.messaging.netty.handler.FrameFormat;
+import com.zaradai.distributor.messaging.netty.handler.SourceRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Messages for one peer spilled to disk whilst it is unreachable.  The event is kept in its encoded form, but the
+ * source and type ids of the frame are only meaningful to the process that assigned them so each record carries the
+ * source address and class name instead and the frame is rebuilt against the current registries when read.  A message
+ * read stays in the outbox until committed once written, or is read again after a rewind.
+ * <pre>[varint class name length][class name][source kind][source address][serialized event]</pre>
+ */
+public class Outbox {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Outbox.class);
+    private static final int LOCAL_SOURCE = 0;
+    private static final int RELAYED_SOURCE = 1;
+    private static final int HEADER_ESTIMATE = 128;
+
+    private final SegmentLog log;
+    private final EncodedMessageFactory encodedMessageFactory;
+    private final EventClassRegistry classRegistry;
+    private final SourceRegistry sourceRegistry;
+
+    public Outbox(SegmentLog log, EncodedMessageFactory encodedMessageFactory, EventClassRegistry classRegistry,
+                  SourceRegistry sourceRegistry) {
+        this.log = log;
+        this.encodedMessageFactory = encodedMessageFactory;
+        this.classRegistry = classRegistry;
+        this.sourceRegistry = sourceRegistry;
+    }
+
+    /**
+     * Spills the message, encoding it if it has not been already.  The caller keeps its own reference to the message.
+     * @param message the message to hold
+     * @throws EncodingException if the message could not be encoded
+     * @throws IOException if the message could not be written to the log
+     */
+    public void append(Message message) throws EncodingException, IOException {
+        EncodedMessage encoded = encodedMessageFactory.create(message);
+        ByteBuf payload = encoded.getPayload();
+        ByteBuf record = allocate(HEADER_ESTIMATE + payload.readableBytes());
+
+        try {
+            writeType(encoded.getTypeId(), record);
+            writeSource(encoded.getSourceId(), record);
+            record.writeBytes(payload);
+            log.append(record);
+        } finally {
+            record.release();
+            encoded.release();
+        }
+    }
+
+    private void writeType(int typeId, ByteBuf record) {
+        String name = (typeId == EventClassRegistry.EMBEDDED_TYPE_ID) ? "" : classRegistry.getType(typeId).getName();
+        VarIntCodec.writeString(record, name);
+    }
+
+    private void writeSource(int sourceId, ByteBuf record) {
+        if (sourceId == SourceRegistry.LOCAL_SOURCE_ID) {
+            record.writeByte(LOCAL_SOURCE);
+        } else {
+            record.writeByte(RELAYED_SOURCE);
+            InetSocketAddressSerializer.serialize(sourceRegistry.getSource(sourceId), record);
+        }
+    }
+
+    /**
+     * Reads the oldest spilled message not yet read, its frame is off heap and owned by the caller.
+     * @return the message or null if every message has been read
+     * @throws IOException if a record could not be read
+     */
+    public EncodedMessage read() throws IOException {
+        ByteBuf record;
+
+        while ((record = log.read()) != null) {
+            try {
+                EncodedMessage res = readRecord(record);
+
+                if (res != null) {
+                    return res;
+                }
+                log.discard();
+            } finally {
+                record.release();
+            }
+        }
+
+        return null;
+    }
+
+    private EncodedMessage readRecord(ByteBuf record) throws IOException {
+        String name = VarIntCodec.readString(record);
+        int typeId = EventClassRegistry.EMBEDDED_TYPE_ID;
+
+        if (!name.isEmpty()) {
+            Class<?> type = classRegistry.resolve(name);
+
+            if (type == null) {
+                LOGGER.warn("Discarding spilled message of unknown class {}", name);
+                return null;
+            }
+            typeId = classRegistry.register(type);
+        }
+        InetSocketAddress source = (record.readByte() == RELAYED_SOURCE)
+                ? InetSocketAddressSerializer.deserialize(record) : null;
+
+        return new EncodedMessage(source, createFrame(sourceRegistry.register(source), typeId, record));
+    }
+
+    private ByteBuf createFrame(int sourceId, int typeId, ByteBuf payload) {
+        // the data frame layout written by MessageEncoder
+        ByteBuf res = allocate(FrameFormat.DATA_OFFSET + 2 * VarIntCodec.MAX_VAR_INT_SIZE + payload.readableBytes());
+        res.writeInt(0);
+        int start = res.writerIndex();
+        res.writeByte(FrameFormat.NO_FLAGS);
+        res.writeInt(Message.MAGIC_NUMBER);
+        VarIntCodec.writeVarInt(res, sourceId);
+        VarIntCodec.writeVarInt(res, typeId);
+        res.writeBytes(payload);
+        res.setInt(0, res.writerIndex() - start);
+
+        return res;
+    }
+
+    /**
+     * Removes the oldest message read and not yet committed, once it has been written.
+     */
+    public void commit() {
+        log.commit();
+    }
+
+    /**
+     * Reads again every message read since the last commit, as none of them can be known to have been written.
+     */
+    public void rewind() {
+        log.rewind();
+    }
+
+    protected ByteBuf allocate(int capacity) {
+        return PooledByteBufAllocator.DEFAULT.directBuffer(capacity);
+    }
+
+    public boolean isEmpty() {
+        return log.isEmpty();
+    }
+
+    public void close() {
+        log.close();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.outbox;
+
+import com.google.common.base.Strings;
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessageFactory;
+import com.zaradai.distributor.messaging.netty.handler.EventClassRegistry;
+import com.zaradai.distributor.messaging.netty.handler.SourceRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Opens the outbox of a peer in its own directory under the configured outbox directory.  Spilling is off if no
+ * directory is configured.
+ */
+public class Outboxes {
+    private final DistributorConfig config;
+    private final EncodedMessageFactory encodedMessageFactory;
+    private final EventClassRegistry classRegistry;
+    private final SourceRegistry sourceRegistry;
+
+    @Inject
+    Outboxes(DistributorConfig config, EncodedMessageFactory encodedMessageFactory, EventClassRegistry classRegistry,
+             SourceRegistry sourceRegistry) {
+        this.config = config;
+        this.encodedMessageFactory = encodedMessageFactory;
+        this.classRegistry = classRegistry;
+        this.sourceRegistry = sourceRegistry;
+    }
+
+    public boolean isEnabled() {
+        return !Strings.isNullOrEmpty(config.getOutboxDir());
+    }
+
+    /**
+     * Opens the outbox, any messages left from a previous run are kept.
+     * @param peer the peer the outbox holds messages for
+     * @return the outbox
+     * @throws IOException if the outbox files could not be opened
+     */
+    public Outbox open(InetSocketAddress peer) throws IOException {
+        SegmentLog log = new SegmentLog(getDirectory(peer), config.getOutboxSegmentSize());
+
+        return new Outbox(log, encodedMessageFactory, classRegistry, sourceRegistry);
+    }
+
+    File getDirectory(InetSocketAddress peer) {
+        String host = (peer.getAddress() != null) ? peer.getAddress().getHostAddress() : peer.getHostName();
+        // keep IPv6 addresses usable as file names
+        return new File(config.getOutboxDir(), host.replace(':', '_') + "-" + peer.getPort());
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.outbox;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * An append only log of records held in fixed size memory mapped segment files, read back in the order written.  A
+ * segment starts with the position its reader has committed followed by length prefixed records, a zero length
+ * marking the end of those written.  Reading only moves a cursor, a record stays in the log until committed once it
+ * has been sent so a rewind, or reopening the log, reads again everything not yet committed.  Segments are deleted
+ * once committed, except the last which is reused from its start when everything in it has been committed.
+ */
+public class SegmentLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentLog.class);
+    private static final String SUFFIX = ".seg";
+    private static final int READ_POSITION_SIZE = 8;
+    private static final int LENGTH_SIZE = 4;
+
+    private final File dir;
+    private final int segmentSize;
+    private final LinkedList<Segment> segments;
+    // the end of each record read but not yet committed, oldest first
+    private final Deque<Position> uncommitted;
+    private long nextSequence;
+    private int commitPosition;
+    private int readIndex;
+    private int readPosition;
+    private int writePosition;
+
+    public SegmentLog(File dir, int segmentSize) throws IOException {
+        Preconditions.checkArgument(segmentSize > READ_POSITION_SIZE + LENGTH_SIZE, "Invalid segment size");
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        segments = Lists.newLinkedList();
+        uncommitted = new ArrayDeque<Position>();
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create log directory " + dir);
+        }
+        recover();
+    }
+
+    private void recover() throws IOException {
+        for (Long sequence : listSequences()) {
+            segments.addLast(new Segment(getFile(sequence)));
+            nextSequence = sequence + 1;
+        }
+
+        if (!segments.isEmpty()) {
+            commitPosition = segments.getFirst().getReadPosition();
+            readPosition = commitPosition;
+            writePosition = segments.getLast().findEnd();
+            LOGGER.info("Recovered {} segments from {}", segments.size(), dir);
+        }
+    }
+
+    private List<Long> listSequences() {
+        String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File parent, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        List<Long> res = Lists.newArrayList();
+
+        for (String name : (names != null) ? names : new String[0]) {
+            try {
+                res.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Ignoring unknown file {} in {}", name, dir);
+            }
+        }
+        Collections.sort(res);
+
+        return res;
+    }
+
+    private File getFile(long sequence) {
+        return new File(dir, String.format("%016d%s", sequence, SUFFIX));
+    }
+
+    /**
+     * Appends the readable bytes of the record, the record itself is left untouched.
+     * @param record the record to append, must not be empty
+     * @throws IOException if the record is too big for a segment or a new segment could not be created
+     */
+    public synchronized void append(ByteBuf record) throws IOException {
+        int length = record.readableBytes();
+        Preconditions.checkArgument(length > 0, "Empty record");
+
+        if (READ_POSITION_SIZE + LENGTH_SIZE + length > segmentSize) {
+            throw new IOException("Record of " + length + " bytes is larger than a segment");
+        }
+
+        if (segments.isEmpty() || writePosition + LENGTH_SIZE + length > segments.getLast().size()) {
+            roll();
+        }
+        Segment tail = segments.getLast();
+        ByteBuffer out = tail.duplicate();
+        out.position(writePosition + LENGTH_SIZE);
+        record.getBytes(record.readerIndex(), out);
+        int end = writePosition + LENGTH_SIZE + length;
+
+        if (end + LENGTH_SIZE <= tail.size()) {
+            tail.buffer.putInt(end, 0);
+        }
+        // the length goes in last so a torn append reads as the end of the log
+        tail.buffer.putInt(writePosition, length);
+        writePosition = end;
+    }
+
+    private void roll() throws IOException {
+        Segment segment = new Segment(getFile(nextSequence), segmentSize);
+        nextSequence++;
+
+        if (segments.isEmpty()) {
+            commitPosition = READ_POSITION_SIZE;
+            readIndex = 0;
+            readPosition = READ_POSITION_SIZE;
+        }
+        segments.addLast(segment);
+        writePosition = READ_POSITION_SIZE;
+    }
+
+    /**
+     * Reads the next record into an off heap buffer the caller must release.  The record is held in the log until
+     * committed.
+     * @return the record or null if all records have been read
+     */
+    public synchronized ByteBuf read() {
+        while (readIndex < segments.size()) {
+            Segment segment = segments.get(readIndex);
+            int length = segment.getLength(readPosition);
+
+            if (length > 0) {
+                ByteBuffer in = segment.duplicate();
+                in.position(readPosition + LENGTH_SIZE);
+                in.limit(readPosition + LENGTH_SIZE + length);
+                ByteBuf res = allocate(length);
+                res.writeBytes(in);
+                readPosition += LENGTH_SIZE + length;
+                uncommitted.addLast(new Position(segment, readPosition));
+
+                return res;
+            }
+
+            if (readIndex == segments.size() - 1) {
+                if (readPosition < writePosition) {
+                    // not possible unless the segment was damaged, its remaining records are lost
+                    LOGGER.warn("Corrupt record at {} in {}", readPosition, segment.file);
+                    readPosition = writePosition;
+                }
+                break;
+            }
+            // everything in the segment has been read
+            readIndex++;
+            readPosition = READ_POSITION_SIZE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Commits the oldest record read but not yet committed, once it has been sent.  The commit position only moves
+     * past records that have all been committed or discarded, so records may be committed in any order.
+     */
+    public synchronized void commit() {
+        for (Position position : uncommitted) {
+            if (!position.done) {
+                position.done = true;
+                advance();
+                return;
+            }
+        }
+
+        throw new IllegalStateException("No record to commit");
+    }
+
+    /**
+     * Commits the record last read without it being sent, it will not be read again.
+     */
+    public synchronized void discard() {
+        Position last = uncommitted.peekLast();
+        Preconditions.checkState(last != null && !last.done, "No record to discard");
+        last.done = true;
+        advance();
+    }
+
+    private void advance() {
+        Position committed = null;
+
+        while (!uncommitted.isEmpty() && uncommitted.peekFirst().done) {
+            committed = uncommitted.pollFirst();
+        }
+
+        if (committed == null) {
+            return;
+        }
+
+        while (segments.getFirst() != committed.segment) {
+            removeHead();
+        }
+        commitPosition = committed.offset;
+        committed.segment.setReadPosition(commitPosition);
+
+        if (segments.size() > 1 && committed.segment.getLength(commitPosition) <= 0) {
+            // wholly committed with later records in another segment
+            removeHead();
+        } else if (segments.size() == 1 && uncommitted.isEmpty() && commitPosition == writePosition) {
+            reuseTail();
+        }
+    }
+
+    private void removeHead() {
+        Segment head = segments.removeFirst();
+        head.delete();
+        commitPosition = READ_POSITION_SIZE;
+
+        if (readIndex > 0) {
+            readIndex--;
+        } else {
+            readPosition = READ_POSITION_SIZE;
+        }
+    }
+
+    private void reuseTail() {
+        Segment tail = segments.getFirst();
+        // the read position goes first, a crash in between reads the old records again rather than losing new ones
+        tail.setReadPosition(READ_POSITION_SIZE);
+        tail.buffer.putInt(READ_POSITION_SIZE, 0);
+        commitPosition = READ_POSITION_SIZE;
+        readPosition = READ_POSITION_SIZE;
+        writePosition = READ_POSITION_SIZE;
+    }
+
+    /**
+     * Moves the read cursor back to the oldest record not committed, so every record read since is read again.
+     */
+    public synchronized void rewind() {
+        uncommitted.clear();
+        readIndex = 0;
+        readPosition = commitPosition;
+    }
+
+    protected ByteBuf allocate(int length) {
+        return PooledByteBufAllocator.DEFAULT.directBuffer(length);
+    }
+
+    /**
+     * @return true if every record has been read, committed or not
+     */
+    public synchronized boolean isEmpty() {
+        return segments.isEmpty()
+                || (readIndex == segments.size() - 1 && segments.getLast().getLength(readPosition) <= 0);
+    }
+
+    /**
+     * @return the number of segment files held
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Flushes the mapped segments to disk, the log can no longer be used.  Records not committed are read again when
+     * the log is reopened.
+     */
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+        uncommitted.clear();
+    }
+
+    private static final class Position {
+        private final Segment segment;
+        private final int offset;
+        private boolean done;
+
+        private Position(Segment segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    private static final class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        private Segment(File file) throws IOException {
+            this(file, (int) file.length());
+        }
+
+        private Segment(File file, int size) throws IOException {
+            this.file = file;
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+            try {
+                raf.setLength(size);
+                // the mapping outlives the channel
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                raf.close();
+            }
+        }
+
+        private int size() {
+            return buffer.capacity();
+        }
+
+        private ByteBuffer duplicate() {
+            return buffer.duplicate();
+        }
+
+        /**
+         * @return the length of the record at the position, 0 if there is none or it would overrun the segment
+         */
+        private int getLength(int position) {
+            if (position + LENGTH_SIZE > size()) {
+                return 0;
+            }
+            int res = buffer.getInt(position);
+
+            return (res > 0 && res <= size() - position - LENGTH_SIZE) ? res : 0;
+        }
+
+        private int getReadPosition() {
+            long res = buffer.getLong(0);
+
+            return (res < READ_POSITION_SIZE) ? READ_POSITION_SIZE : (int) res;
+        }
+
+        private void setReadPosition(int position) {
+            buffer.putLong(0, position);
+        }
+
+        private int findEnd() {
+            int res = READ_POSITION_SIZE;
+            int length;
+
+            while ((length = getLength(res)) > 0) {
+                res += LENGTH_SIZE + length;
+            }
+
+            return res;
+        }
+
+        private void delete() {
+            if (!file.delete()) {
+                LOGGER.warn("Unable to delete segment {}", file);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ServerChannel;
+
+/**
+ * Unix domain sockets over the native epoll transport, sharing the epoll event loops.  TCP options do not apply.
+ */
+public class DomainSocketTransport extends EpollTransport {
+    public static final String NAME = "domain";
+
+    public DomainSocketTransport(DistributorConfig config) {
+        super(config);
+    }
+
+    /**
+     * @return true if the native domain socket channels are on the classpath and usable on this host.
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName(EPOLL_PACKAGE + "EpollDomainSocketChannel");
+            return EpollTransport.isAvailable();
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        return load("EpollServerDomainSocketChannel").asSubclass(ServerChannel.class);
+    }
+
+    @Override
+    public Class<? extends Channel> getChannelClass() {
+        return load("EpollDomainSocketChannel").asSubclass(Channel.class);
+    }
+
+    @Override
+    public void configureServer(ServerBootstrap bootstrap) {
+        setOption(bootstrap, "EPOLL_MODE", getMode());
+        setChildOption(bootstrap, "EPOLL_MODE", getMode());
+    }
+
+    @Override
+    public void configureClient(Bootstrap bootstrap) {
+        setOption(bootstrap, "EPOLL_MODE", getMode());
+    }
+}
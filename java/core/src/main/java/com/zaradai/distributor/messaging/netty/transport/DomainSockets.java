@@ -0,0 +1,131 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.google.common.base.Strings;
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.EventLoopGroups;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.SocketException;
+
+/**
+ * Lets nodes on the same host talk over Unix domain sockets instead of loopback TCP.  A node advertises itself by
+ * listening on a socket file in the configured directory named after its TCP port, and a connection to a local
+ * address uses the socket file for that port when it exists, falling back to TCP if it cannot be connected to.
+ * Off unless a directory is configured, and requires the native epoll transport to be in use as the domain socket
+ * channels run on its event loops.
+ */
+public class DomainSockets {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DomainSockets.class);
+    private static final String ADDRESS_CLASS = "io.netty.channel.unix.DomainSocketAddress";
+    private static final String FILE_PREFIX = "obsidian-";
+    private static final String FILE_SUFFIX = ".sock";
+
+    private final DistributorConfig config;
+    private final EventLoopGroups eventLoopGroups;
+
+    @Inject
+    DomainSockets(DistributorConfig config, EventLoopGroups eventLoopGroups) {
+        this.config = config;
+        this.eventLoopGroups = eventLoopGroups;
+    }
+
+    /**
+     * @return true if a directory is configured and the event loops can run domain socket channels.
+     */
+    public boolean isEnabled() {
+        return !Strings.isNullOrEmpty(config.getDomainSocketDir())
+                && EpollTransport.NAME.equals(eventLoopGroups.getTransport().getName())
+                && isTransportAvailable();
+    }
+
+    protected boolean isTransportAvailable() {
+        return DomainSocketTransport.isAvailable();
+    }
+
+    public Transport getTransport() {
+        return new DomainSocketTransport(config);
+    }
+
+    /**
+     * @param port the TCP port a node listens on
+     * @return the socket file advertised by the node listening on that port on this host
+     */
+    public File getSocketFile(int port) {
+        return new File(config.getDomainSocketDir(), FILE_PREFIX + port + FILE_SUFFIX);
+    }
+
+    /**
+     * @return the domain socket address this node listens on.
+     */
+    public SocketAddress getListenAddress() {
+        File file = getSocketFile(config.getPort());
+        // a file left by a previous run would stop the bind
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Unable to remove stale socket file {}", file);
+        }
+
+        return createAddress(file);
+    }
+
+    /**
+     * Get the domain socket to use in place of a TCP endpoint.
+     *
+     * @param endpoint the TCP endpoint to connect to
+     * @return the domain socket address if the endpoint is on this host and advertises one, otherwise null
+     */
+    public SocketAddress getLocalEndpoint(InetSocketAddress endpoint) {
+        if (!isEnabled() || !isLocal(endpoint.getAddress())) {
+            return null;
+        }
+
+        File file = getSocketFile(endpoint.getPort());
+
+        return file.exists() ? createAddress(file) : null;
+    }
+
+    static boolean isLocal(InetAddress address) {
+        if (address == null) {
+            return false;
+        }
+        if (address.isLoopbackAddress() || address.isAnyLocalAddress()) {
+            return true;
+        }
+
+        try {
+            return NetworkInterface.getByInetAddress(address) != null;
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+
+    private SocketAddress createAddress(File file) {
+        try {
+            return (SocketAddress) Class.forName(ADDRESS_CLASS).getConstructor(String.class)
+                    .newInstance(file.getAbsolutePath());
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to create domain socket address", e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import io.netty.bootstrap.AbstractBootstrap;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Linux native epoll transport.  The netty build we compile against, netty-all 5.0.0.Alpha1, does not ship the native
+ * transport and no native artifact matches it, so as things stand this transport is never available and "auto"
+ * always resolves to nio.  Its classes are loaded by name so the transport, and the epoll options, come into use
+ * without a code change once a netty version with a native epoll jar is on the classpath and its library loads on
+ * this host.
+ */
+public class EpollTransport implements Transport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EpollTransport.class);
+    public static final String NAME = "epoll";
+    static final String EPOLL_PACKAGE = "io.netty.channel.epoll.";
+    private static final String OPTIONS_CLASS = "EpollChannelOption";
+
+    private final String epollPackage;
+    private final boolean reusePort;
+    private final boolean tcpQuickAck;
+    private final boolean edgeTriggered;
+
+    public EpollTransport(DistributorConfig config) {
+        this(config, EPOLL_PACKAGE);
+    }
+
+    /**
+     * @param config the configuration
+     * @param epollPackage prefix the epoll classes are loaded by, their package in the native transport
+     */
+    EpollTransport(DistributorConfig config, String epollPackage) {
+        this.epollPackage = epollPackage;
+        reusePort = config.getEpollReusePort();
+        tcpQuickAck = config.getEpollTcpQuickAck();
+        edgeTriggered = config.getEpollEdgeTriggered();
+    }
+
+    /**
+     * @return true if the native transport is on the classpath and usable on this host.
+     */
+    public static boolean isAvailable() {
+        return isAvailable(EPOLL_PACKAGE);
+    }
+
+    static boolean isAvailable(String epollPackage) {
+        try {
+            Class<?> epoll = Class.forName(epollPackage + "Epoll");
+            return (Boolean) epoll.getMethod("isAvailable").invoke(null);
+        } catch (Exception e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public EventLoopGroup createEventLoopGroup(int threads) {
+        try {
+            return (EventLoopGroup) load("EpollEventLoopGroup").getConstructor(int.class).newInstance(threads);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to create epoll event loop group", e);
+        }
+    }
+
+    @Override
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        return load("EpollServerSocketChannel").asSubclass(ServerChannel.class);
+    }
+
+    @Override
+    public Class<? extends Channel> getChannelClass() {
+        return load("EpollSocketChannel").asSubclass(Channel.class);
+    }
+
+    @Override
+    public void configureServer(ServerBootstrap bootstrap) {
+        // lets several listeners share the port, the kernel spreads accepts between them
+        setOption(bootstrap, "SO_REUSEPORT", reusePort);
+        setOption(bootstrap, "EPOLL_MODE", getMode());
+        setChildOption(bootstrap, "TCP_QUICKACK", tcpQuickAck);
+        setChildOption(bootstrap, "EPOLL_MODE", getMode());
+    }
+
+    @Override
+    public void configureClient(Bootstrap bootstrap) {
+        setOption(bootstrap, "TCP_QUICKACK", tcpQuickAck);
+        setOption(bootstrap, "EPOLL_MODE", getMode());
+    }
+
+    Object getMode() {
+        String mode = edgeTriggered ? "EDGE_TRIGGERED" : "LEVEL_TRIGGERED";
+
+        try {
+            for (Object constant : Class.forName(epollPackage + "EpollMode").getEnumConstants()) {
+                if (mode.equals(constant.toString())) {
+                    return constant;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            LOGGER.debug("Epoll mode not supported by this netty version");
+        }
+
+        return null;
+    }
+
+    void setOption(AbstractBootstrap<?, ?> bootstrap, String name, Object value) {
+        ChannelOption<Object> option = getOption(name);
+
+        if (option != null && value != null) {
+            bootstrap.option(option, value);
+        }
+    }
+
+    void setChildOption(ServerBootstrap bootstrap, String name, Object value) {
+        ChannelOption<Object> option = getOption(name);
+
+        if (option != null && value != null) {
+            bootstrap.childOption(option, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    ChannelOption<Object> getOption(String name) {
+        try {
+            return (ChannelOption<Object>) Class.forName(epollPackage + OPTIONS_CLASS).getField(name).get(null);
+        } catch (Exception e) {
+            LOGGER.debug("Epoll option {} not supported by this netty version", name);
+            return null;
+        }
+    }
+
+    Class<?> load(String name) {
+        try {
+            return Class.forName(epollPackage + name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Native epoll transport not on the classpath", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * Portable transport over java.nio, always available.
+ */
+public class NioTransport implements Transport {
+    public static final String NAME = "nio";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public EventLoopGroup createEventLoopGroup(int threads) {
+        return new NioEventLoopGroup(threads);
+    }
+
+    @Override
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        return NioServerSocketChannel.class;
+    }
+
+    @Override
+    public Class<? extends Channel> getChannelClass() {
+        return NioSocketChannel.class;
+    }
+
+    @Override
+    public void configureServer(ServerBootstrap bootstrap) {
+        // nothing beyond the common options
+    }
+
+    @Override
+    public void configureClient(Bootstrap bootstrap) {
+        // nothing beyond the common options
+    }
+}
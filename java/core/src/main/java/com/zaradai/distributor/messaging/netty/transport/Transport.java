@@ -0,0 +1,43 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+
+/**
+ * The event loops and socket channels used for connections, along with any options specific to them.
+ */
+public interface Transport {
+    String getName();
+
+    /**
+     * @param threads number of event loops, 0 for the netty default
+     * @return a new event loop group for this transport
+     */
+    EventLoopGroup createEventLoopGroup(int threads);
+
+    Class<? extends ServerChannel> getServerChannelClass();
+
+    Class<? extends Channel> getChannelClass();
+
+    void configureServer(ServerBootstrap bootstrap);
+
+    void configureClient(Bootstrap bootstrap);
+}
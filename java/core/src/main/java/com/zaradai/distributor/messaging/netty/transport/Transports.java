@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.google.inject.Inject;
+import com.zaradai.distributor.config.DistributorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the transport named in the configuration.  "auto" prefers native epoll and falls back to nio when
+ * the native transport is not available, as does asking for epoll explicitly on a host that cannot load it.  With the
+ * netty build used today epoll is never available, see {@link EpollTransport}.
+ */
+public class Transports {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Transports.class);
+    public static final String AUTO = "auto";
+
+    private final DistributorConfig config;
+
+    @Inject
+    Transports(DistributorConfig config) {
+        this.config = config;
+    }
+
+    public Transport select() {
+        String name = config.getTransport();
+
+        if (NioTransport.NAME.equals(name)) {
+            return new NioTransport();
+        }
+        if (!AUTO.equals(name) && !EpollTransport.NAME.equals(name)) {
+            LOGGER.warn("Unknown transport {}, using {}", name, NioTransport.NAME);
+            return new NioTransport();
+        }
+        if (isEpollAvailable()) {
+            LOGGER.info("Using native {} transport", EpollTransport.NAME);
+            return new EpollTransport(config);
+        }
+        if (EpollTransport.NAME.equals(name)) {
+            LOGGER.warn("Native {} transport not available, using {}", EpollTransport.NAME, NioTransport.NAME);
+        }
+
+        return new NioTransport();
+    }
+
+    protected boolean isEpollAvailable() {
+        return EpollTransport.isAvailable();
+    }
+}
@@ -15,25 +15,36 @@
  */
 package com.zaradai.distributor;
 
-import com.esotericsoftware.kryo.Kryo;
 import com.google.common.eventbus.EventBus;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.zaradai.config.ConfigurationSource;
 import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.events.EventPublisher;
+import com.zaradai.distributor.events.InterestTrackingEventAggregator;
 import com.zaradai.distributor.messaging.ConnectionFactory;
 import com.zaradai.distributor.messaging.ConnectionManager;
+import com.zaradai.distributor.messaging.LocalInterests;
 import com.zaradai.distributor.messaging.MessagingService;
+import com.zaradai.distributor.messaging.PendingLimits;
+import com.zaradai.distributor.messaging.RoutingTable;
 import com.zaradai.distributor.messaging.netty.EventLoopGroups;
 import com.zaradai.distributor.messaging.netty.NettyClientFactory;
 import com.zaradai.distributor.messaging.netty.handler.HandshakeHandlerFactory;
 import com.zaradai.distributor.messaging.netty.handler.MessageDecoderFactory;
 import com.zaradai.distributor.messaging.netty.handler.MessageEncoderFactory;
 import com.zaradai.distributor.messaging.netty.handler.MessageHandlerFactory;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodecs;
+import com.zaradai.distributor.messaging.netty.handler.EventClassRegistry;
+import com.zaradai.distributor.messaging.netty.handler.SourceRegistry;
+import com.zaradai.distributor.messaging.netty.ReconnectScheduler;
+import com.zaradai.distributor.messaging.netty.outbox.Outboxes;
+import com.zaradai.distributor.messaging.netty.transport.Transports;
 import com.zaradai.events.EventAggregator;
 import com.zaradai.net.authentication.ConnectionAuthenticator;
 import com.zaradai.serialization.Serializer;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -60,11 +71,18 @@ public class DistributorModuleTest {
         assertThat(injector.getInstance(EventAggregator.class), not(nullValue()));
         assertThat(injector.getInstance(ConfigurationSource.class), not(nullValue()));
         assertThat(injector.getInstance(DistributorConfig.class), not(nullValue()));
-        assertThat(injector.getInstance(Kryo.class), not(nullValue()));
+        assertThat(injector.getInstance(KryoFactory.class), not(nullValue()));
+        assertThat(injector.getInstance(KryoPool.class), not(nullValue()));
         assertThat(injector.getInstance(Serializer.class), not(nullValue()));
+        assertThat(injector.getInstance(EventClassRegistry.class), not(nullValue()));
+        assertThat(injector.getInstance(SourceRegistry.class), not(nullValue()));
+        assertThat(injector.getInstance(CompressionCodecs.class), not(nullValue()));
         assertThat(injector.getInstance(MessagingService.class), not(nullValue()));
         assertThat(injector.getInstance(ConnectionManager.class), not(nullValue()));
+        assertThat(injector.getInstance(LocalInterests.class), not(nullValue()));
+        assertThat(injector.getInstance(RoutingTable.class), not(nullValue()));
         assertThat(injector.getInstance(ConnectionAuthenticator.class), not(nullValue()));
+        assertThat(injector.getInstance(Transports.class), not(nullValue()));
         assertThat(injector.getInstance(EventLoopGroups.class), not(nullValue()));
         assertThat(injector.getInstance(EventPublisher.class), not(nullValue()));
         assertThat(injector.getInstance(ConnectionFactory.class), not(nullValue()));
@@ -80,9 +98,17 @@ public class DistributorModuleTest {
         // Singletons
         assertThat(injector.getInstance(EventBus.class), is(injector.getInstance(EventBus.class)));
         assertThat(injector.getInstance(ConfigurationSource.class), is(injector.getInstance(ConfigurationSource.class)));
+        assertThat(injector.getInstance(EventAggregator.class), is(injector.getInstance(EventAggregator.class)));
+        assertThat(injector.getInstance(DistributorService.class), is(injector.getInstance(DistributorService.class)));
         assertThat(injector.getInstance(ConnectionManager.class), is(injector.getInstance(ConnectionManager.class)));
+        assertThat(injector.getInstance(PendingLimits.class), is(injector.getInstance(PendingLimits.class)));
+        assertThat(injector.getInstance(LocalInterests.class), is(injector.getInstance(LocalInterests.class)));
+        assertThat(injector.getInstance(RoutingTable.class), is(injector.getInstance(RoutingTable.class)));
         assertThat(injector.getInstance(ConnectionAuthenticator.class), is(injector.getInstance(ConnectionAuthenticator.class)));
         assertThat(injector.getInstance(EventLoopGroups.class), is(injector.getInstance(EventLoopGroups.class)));
+        assertThat(injector.getInstance(ReconnectScheduler.class), is(injector.getInstance(ReconnectScheduler.class)));
+        assertThat(injector.getInstance(Outboxes.class), is(injector.getInstance(Outboxes.class)));
+        assertThat(injector.getInstance(EventPublisher.class), is(injector.getInstance(EventPublisher.class)));
         assertThat(injector.getInstance(ConnectionFactory.class), is(injector.getInstance(ConnectionFactory.class)));
         assertThat(injector.getInstance(NettyClientFactory.class), is(injector.getInstance(NettyClientFactory.class)));
         assertThat(injector.getInstance(MessageDecoderFactory.class), is(injector.getInstance(MessageDecoderFactory.class)));
@@ -90,11 +116,11 @@ public class DistributorModuleTest {
         assertThat(injector.getInstance(MessageHandlerFactory.class), is(injector.getInstance(MessageHandlerFactory.class)));
         assertThat(injector.getInstance(HandshakeHandlerFactory.class), is(injector.getInstance(HandshakeHandlerFactory.class)));
         assertThat(injector.getInstance(Serializer.class), is(injector.getInstance(Serializer.class)));
+        assertThat(injector.getInstance(KryoFactory.class), is(injector.getInstance(KryoFactory.class)));
+        assertThat(injector.getInstance(KryoPool.class), is(injector.getInstance(KryoPool.class)));
         // Scoped instances
-        assertThat(injector.getInstance(EventAggregator.class), not(injector.getInstance(EventAggregator.class)));
         assertThat(injector.getInstance(DistributorConfig.class), not(injector.getInstance(DistributorConfig.class)));
         assertThat(injector.getInstance(MessagingService.class), not(injector.getInstance(MessagingService.class)));
-        assertThat(injector.getInstance(EventPublisher.class), not(injector.getInstance(EventPublisher.class)));
     }
 
     @Test
@@ -127,6 +153,17 @@ public class DistributorModuleTest {
         assertThat(factory.create(), not(nullValue()));
     }
 
+    @Test
+    public void shouldBuildInterestHandler() throws Exception {
+        MessageHandlerFactory factory = injector.getInstance(MessageHandlerFactory.class);
+        assertThat(factory.createInterestHandler(), not(nullValue()));
+    }
+
+    @Test
+    public void shouldTrackSubscriptions() throws Exception {
+        assertThat(injector.getInstance(EventAggregator.class) instanceof InterestTrackingEventAggregator, is(true));
+    }
+
     @Test
     public void shouldBuildHandshakeHandler() throws Exception {
         HandshakeHandlerFactory factory = injector.getInstance(HandshakeHandlerFactory.class);
@@ -15,29 +15,51 @@
  */
 package com.zaradai.distributor;
 
+import ch.qos.logback.core.Appender;
 import com.google.common.collect.Sets;
 import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.events.DispatchingEventPublisher;
+import com.zaradai.distributor.messaging.ClusterMembership;
+import com.zaradai.distributor.messaging.ClusterView;
+import com.zaradai.distributor.messaging.LocalInterests;
 import com.zaradai.distributor.messaging.Message;
 import com.zaradai.distributor.messaging.MessagingService;
 import com.zaradai.events.EventAggregator;
+import com.zaradai.mocks.ClusterMembershipMocker;
+import com.zaradai.mocks.DispatchingEventPublisherMocker;
 import com.zaradai.mocks.DistributorConfigMocker;
 import com.zaradai.mocks.EventAggregatorMocker;
+import com.zaradai.mocks.LocalInterestsMocker;
 import com.zaradai.mocks.MessageMocker;
 import com.zaradai.mocks.MessagingServiceMocker;
+import com.zaradai.util.LoggerTester;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.net.InetSocketAddress;
-
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
 public class DistributorServiceTest {
     private static final Object TEST_EVENT = new Object();
     private static final InetSocketAddress TEST_TARGET_1 = mock(InetSocketAddress.class);
     private static final InetSocketAddress TEST_TARGET_2 = mock(InetSocketAddress.class);
+    private static final InetSocketAddress PEER_1 = new InetSocketAddress("127.0.0.1", 1801);
+    private static final InetSocketAddress PEER_2 = new InetSocketAddress("127.0.0.1", 1802);
 
     private EventAggregator eventAggregator;
     private MessagingService messagingService;
+    private ClusterMembership clusterMembership;
+    private DispatchingEventPublisher eventPublisher;
+    private LocalInterests localInterests;
     private DistributorService uut;
     private DistributorConfig config;
 
@@ -47,7 +69,20 @@ public class DistributorServiceTest {
         messagingService = MessagingServiceMocker.create();
         config = DistributorConfigMocker.create();
 
-        uut = new DistributorService(eventAggregator, messagingService, config);
+        clusterMembership = ClusterMembershipMocker.create();
+        eventPublisher = DispatchingEventPublisherMocker.create();
+        localInterests = LocalInterestsMocker.create();
+        when(config.getEventBusIntercept()).thenReturn(true);
+
+        uut = new DistributorService(eventAggregator, messagingService, clusterMembership, eventPublisher,
+                localInterests, config);
+    }
+
+    @Test
+    public void shouldGetClusterView() throws Exception {
+        when(clusterMembership.getView()).thenReturn(ClusterView.EMPTY);
+
+        assertThat(uut.getClusterView() == ClusterView.EMPTY, is(true));
     }
 
     @Test
@@ -55,6 +90,101 @@ public class DistributorServiceTest {
         verify(eventAggregator).subscribe(uut);
     }
 
+    @Test
+    public void shouldSendPostedMessagesWhenNotIntercepting() throws Exception {
+        DistributorService service = createDirectService();
+        Message message = MessageMocker.create(false, TEST_EVENT);
+
+        service.onMessage(message);
+
+        verify(messagingService).publish(message);
+    }
+
+    @Test
+    public void shouldWarnOnceOfPostedMessagesWhenNotIntercepting() throws Exception {
+        DistributorService service = createDirectService();
+        Appender appender = LoggerTester.create();
+
+        service.onMessage(MessageMocker.create(false, TEST_EVENT));
+        service.onMessage(MessageMocker.create(false, TEST_EVENT));
+
+        List<String> logged = LoggerTester.captureLogMessages(appender, 1);
+        assertThat(logged.get(0), containsString("DistributorService publish or send"));
+    }
+
+    @Test
+    public void shouldNotWarnOfPostedMessagesWhenIntercepting() throws Exception {
+        Appender appender = LoggerTester.create();
+
+        uut.onMessage(MessageMocker.create(false, TEST_EVENT));
+
+        verify(appender, never()).doAppend(any());
+    }
+
+    private DistributorService createDirectService() {
+        EventAggregator direct = EventAggregatorMocker.create();
+        when(config.getEventBusIntercept()).thenReturn(false);
+        DistributorService res = new DistributorService(direct, messagingService, clusterMembership,
+                eventPublisher, localInterests, config);
+        verify(direct).subscribe(res);
+
+        return res;
+    }
+
+    @Test
+    public void shouldPublishEventToAll() throws Exception {
+        uut.publish(TEST_EVENT);
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingService).publish(captor.capture());
+        assertThat(captor.getValue().getEvent(), is(TEST_EVENT));
+    }
+
+    @Test
+    public void shouldPublishEventOnTopic() throws Exception {
+        uut.publish("prices.eu.gbp", TEST_EVENT);
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingService).publish(captor.capture());
+        assertThat(captor.getValue().getEvent(), is(TEST_EVENT));
+        assertThat(captor.getValue().getTopic(), is("prices.eu.gbp"));
+    }
+
+    @Test
+    public void shouldSubscribeTopic() throws Exception {
+        uut.subscribeTopic("prices.eu.*");
+
+        verify(localInterests).addTopic("prices.eu.*");
+    }
+
+    @Test
+    public void shouldUnsubscribeTopic() throws Exception {
+        uut.unsubscribeTopic("prices.eu.*");
+
+        verify(localInterests).removeTopic("prices.eu.*");
+    }
+
+    @Test
+    public void shouldSendEventToTarget() throws Exception {
+        uut.send(PEER_1, TEST_EVENT);
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingService).send(eq(PEER_1), captor.capture());
+        assertThat(captor.getValue().getEvent(), is(TEST_EVENT));
+        assertThat(captor.getValue().getSource(), not(nullValue()));
+    }
+
+    @Test
+    public void shouldSendEventToTargets() throws Exception {
+        Set<InetSocketAddress> targets = Sets.newHashSet(PEER_1, PEER_2);
+
+        uut.send(targets, TEST_EVENT);
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingService).send(eq(targets), captor.capture());
+        assertThat(captor.getValue().getEvent(), is(TEST_EVENT));
+    }
+
     @Test
     public void shouldPublishIncomingMessage() throws Exception {
         Message message = MessageMocker.create(true, TEST_EVENT);
@@ -74,13 +204,12 @@ public class DistributorServiceTest {
     }
 
     @Test
-    public void shouldSendToTargetAddressIfOutgoing() throws Exception {
+    public void shouldSendToTargetAddressesIfOutgoing() throws Exception {
         Message message = MessageMocker.create(false, TEST_EVENT, Sets.newHashSet(TEST_TARGET_1, TEST_TARGET_2));
 
         uut.onMessage(message);
 
-        verify(messagingService).send(TEST_TARGET_1, message);
-        verify(messagingService).send(TEST_TARGET_2, message);
+        verify(messagingService).send(Sets.newHashSet(TEST_TARGET_1, TEST_TARGET_2), message);
     }
 
     @Test
@@ -107,4 +236,18 @@ public class DistributorServiceTest {
         verify(messagingService, atLeastOnce()).startAsync();
     }
 
+    @Test
+    public void shouldStartDispatchingWhenStarted() throws Exception {
+        uut.startAsync().awaitRunning();
+
+        verify(eventPublisher).start();
+    }
+
+    @Test
+    public void shouldStopDispatchingWhenStopped() throws Exception {
+        uut.startAsync().awaitRunning();
+        uut.stopAsync().awaitTerminated();
+
+        verify(eventPublisher).shutdown();
+    }
 }
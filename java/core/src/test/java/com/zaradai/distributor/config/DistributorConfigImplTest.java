@@ -116,4 +116,198 @@ public class DistributorConfigImplTest {
 
         verify(source).get(DistributorConfigImpl.HANDSHAKE_TIMEOUT, DistributorConfigImpl.DEFAULT_HANDSHAKE_TIMEOUT);
     }
+
+    @Test
+    public void shouldGetMaxMessageSize() throws Exception {
+        uut.getMaxMessageSize();
+
+        verify(source).get(DistributorConfigImpl.MAX_MESSAGE_SIZE, DistributorConfigImpl.DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    @Test
+    public void shouldGetCompressionCodec() throws Exception {
+        uut.getCompressionCodec();
+
+        verify(source).get(DistributorConfigImpl.COMPRESSION_CODEC, DistributorConfigImpl.DEFAULT_COMPRESSION_CODEC);
+    }
+
+    @Test
+    public void shouldGetCompressionThreshold() throws Exception {
+        uut.getCompressionThreshold();
+
+        verify(source).get(DistributorConfigImpl.COMPRESSION_THRESHOLD,
+                DistributorConfigImpl.DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    @Test
+    public void shouldGetBatchMaxMessages() throws Exception {
+        uut.getBatchMaxMessages();
+
+        verify(source).get(DistributorConfigImpl.BATCH_MAX_MESSAGES, DistributorConfigImpl.DEFAULT_BATCH_MAX_MESSAGES);
+    }
+
+    @Test
+    public void shouldGetBatchMaxBytes() throws Exception {
+        uut.getBatchMaxBytes();
+
+        verify(source).get(DistributorConfigImpl.BATCH_MAX_BYTES, DistributorConfigImpl.DEFAULT_BATCH_MAX_BYTES);
+    }
+
+    @Test
+    public void shouldGetBatchLinger() throws Exception {
+        uut.getBatchLinger();
+
+        verify(source).get(DistributorConfigImpl.BATCH_LINGER, DistributorConfigImpl.DEFAULT_BATCH_LINGER);
+    }
+
+    @Test
+    public void shouldGetWriteFlushLimit() throws Exception {
+        uut.getWriteFlushLimit();
+
+        verify(source).get(DistributorConfigImpl.WRITE_FLUSH_LIMIT, DistributorConfigImpl.DEFAULT_WRITE_FLUSH_LIMIT);
+    }
+
+    @Test
+    public void shouldGetWriteQueueCapacity() throws Exception {
+        uut.getWriteQueueCapacity();
+
+        verify(source).get(DistributorConfigImpl.WRITE_QUEUE_CAPACITY,
+                DistributorConfigImpl.DEFAULT_WRITE_QUEUE_CAPACITY);
+    }
+
+    @Test
+    public void shouldGetHeartbeatInterval() throws Exception {
+        uut.getHeartbeatInterval();
+
+        verify(source).get(DistributorConfigImpl.HEARTBEAT_INTERVAL, DistributorConfigImpl.DEFAULT_HEARTBEAT_INTERVAL);
+    }
+
+    @Test
+    public void shouldGetHeartbeatTimeout() throws Exception {
+        uut.getHeartbeatTimeout();
+
+        verify(source).get(DistributorConfigImpl.HEARTBEAT_TIMEOUT, DistributorConfigImpl.DEFAULT_HEARTBEAT_TIMEOUT);
+    }
+
+    @Test
+    public void shouldGetDispatchRingSize() throws Exception {
+        uut.getDispatchRingSize();
+
+        verify(source).get(DistributorConfigImpl.DISPATCH_RING_SIZE, DistributorConfigImpl.DEFAULT_DISPATCH_RING_SIZE);
+    }
+
+    @Test
+    public void shouldGetDispatchWaitStrategy() throws Exception {
+        uut.getDispatchWaitStrategy();
+
+        verify(source).get(DistributorConfigImpl.DISPATCH_WAIT_STRATEGY,
+                DistributorConfigImpl.DEFAULT_DISPATCH_WAIT_STRATEGY);
+    }
+
+    @Test
+    public void shouldGetEventBusIntercept() throws Exception {
+        uut.getEventBusIntercept();
+
+        verify(source).get(DistributorConfigImpl.EVENT_BUS_INTERCEPT,
+                DistributorConfigImpl.DEFAULT_EVENT_BUS_INTERCEPT);
+    }
+
+    @Test
+    public void shouldGetInterestRouting() throws Exception {
+        uut.getInterestRouting();
+
+        verify(source).get(DistributorConfigImpl.INTEREST_ROUTING, DistributorConfigImpl.DEFAULT_INTEREST_ROUTING);
+    }
+
+    @Test
+    public void shouldGetTransport() throws Exception {
+        uut.getTransport();
+
+        verify(source).get(DistributorConfigImpl.TRANSPORT, DistributorConfigImpl.DEFAULT_TRANSPORT);
+    }
+
+    @Test
+    public void shouldGetEpollReusePort() throws Exception {
+        uut.getEpollReusePort();
+
+        verify(source).get(DistributorConfigImpl.EPOLL_REUSE_PORT, DistributorConfigImpl.DEFAULT_EPOLL_REUSE_PORT);
+    }
+
+    @Test
+    public void shouldGetEpollTcpQuickAck() throws Exception {
+        uut.getEpollTcpQuickAck();
+
+        verify(source).get(DistributorConfigImpl.EPOLL_TCP_QUICKACK, DistributorConfigImpl.DEFAULT_EPOLL_TCP_QUICKACK);
+    }
+
+    @Test
+    public void shouldGetEpollEdgeTriggered() throws Exception {
+        uut.getEpollEdgeTriggered();
+
+        verify(source).get(DistributorConfigImpl.EPOLL_EDGE_TRIGGERED,
+                DistributorConfigImpl.DEFAULT_EPOLL_EDGE_TRIGGERED);
+    }
+
+    @Test
+    public void shouldGetDomainSocketDir() throws Exception {
+        uut.getDomainSocketDir();
+
+        verify(source).get(DistributorConfigImpl.DOMAIN_SOCKET_DIR, DistributorConfigImpl.DEFAULT_DOMAIN_SOCKET_DIR);
+    }
+
+    @Test
+    public void shouldGetPendingMaxMessages() throws Exception {
+        uut.getPendingMaxMessages();
+
+        verify(source).get(DistributorConfigImpl.PENDING_MAX_MESSAGES, DistributorConfigImpl.DEFAULT_PENDING_MAX_MESSAGES);
+    }
+
+    @Test
+    public void shouldGetPendingMaxBytes() throws Exception {
+        uut.getPendingMaxBytes();
+
+        verify(source).get(DistributorConfigImpl.PENDING_MAX_BYTES, DistributorConfigImpl.DEFAULT_PENDING_MAX_BYTES);
+    }
+
+    @Test
+    public void shouldGetPendingTotalMaxMessages() throws Exception {
+        uut.getPendingTotalMaxMessages();
+
+        verify(source).get(DistributorConfigImpl.PENDING_TOTAL_MAX_MESSAGES, DistributorConfigImpl.DEFAULT_PENDING_TOTAL_MAX_MESSAGES);
+    }
+
+    @Test
+    public void shouldGetPendingTotalMaxBytes() throws Exception {
+        uut.getPendingTotalMaxBytes();
+
+        verify(source).get(DistributorConfigImpl.PENDING_TOTAL_MAX_BYTES, DistributorConfigImpl.DEFAULT_PENDING_TOTAL_MAX_BYTES);
+    }
+
+    @Test
+    public void shouldGetPendingOverflowPolicy() throws Exception {
+        uut.getPendingOverflowPolicy();
+
+        verify(source).get(DistributorConfigImpl.PENDING_OVERFLOW_POLICY, DistributorConfigImpl.DEFAULT_PENDING_OVERFLOW_POLICY);
+    }
+
+    @Test
+    public void shouldGetPendingBlockTimeout() throws Exception {
+        uut.getPendingBlockTimeout();
+
+        verify(source).get(DistributorConfigImpl.PENDING_BLOCK_TIMEOUT, DistributorConfigImpl.DEFAULT_PENDING_BLOCK_TIMEOUT);
+    }
+
+    @Test
+    public void shouldGetOutboxDir() throws Exception {
+        uut.getOutboxDir();
+
+        verify(source).get(DistributorConfigImpl.OUTBOX_DIR, DistributorConfigImpl.DEFAULT_OUTBOX_DIR);
+    }
+
+    @Test
+    public void shouldGetOutboxSegmentSize() throws Exception {
+        uut.getOutboxSegmentSize();
+
+        verify(source).get(DistributorConfigImpl.OUTBOX_SEGMENT_SIZE, DistributorConfigImpl.DEFAULT_OUTBOX_SEGMENT_SIZE);
+    }
 }
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.events;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.events.EventAggregator;
+import com.zaradai.mocks.DistributorConfigMocker;
+import com.zaradai.mocks.EventAggregatorMocker;
+import com.zaradai.util.concurrent.BlockingWaitStrategy;
+import com.zaradai.util.concurrent.BusySpinWaitStrategy;
+import com.zaradai.util.concurrent.YieldingWaitStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class DispatchingEventPublisherTest {
+    private static final Object TEST_EVENT = new Object();
+    private static final int TEST_RING_SIZE = 16;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private EventAggregator eventAggregator;
+    private DistributorConfig config;
+    private DispatchingEventPublisher uut;
+
+    @Before
+    public void setUp() throws Exception {
+        eventAggregator = EventAggregatorMocker.create();
+        config = DistributorConfigMocker.create();
+        when(config.getDispatchRingSize()).thenReturn(TEST_RING_SIZE);
+        when(config.getDispatchWaitStrategy()).thenReturn(DispatchingEventPublisher.BLOCKING);
+        uut = new DispatchingEventPublisher(eventAggregator, config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uut.shutdown();
+    }
+
+    @Test
+    public void shouldPublishOnCallerUntilStarted() throws Exception {
+        uut.publish(TEST_EVENT);
+
+        verify(eventAggregator).publish(TEST_EVENT);
+    }
+
+    @Test
+    public void shouldPublishOnDispatchThreadOnceStarted() throws Exception {
+        final Thread caller = Thread.currentThread();
+        final CountDownLatch published = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                if (Thread.currentThread() != caller) {
+                    published.countDown();
+                }
+                return null;
+            }
+        }).when(eventAggregator).publish(TEST_EVENT);
+        uut.start();
+
+        uut.publish(TEST_EVENT);
+
+        assertThat(published.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+        assertThat(uut.isRunning(), is(true));
+    }
+
+    @Test
+    public void shouldPublishEverythingBeforeShutdown() throws Exception {
+        uut.start();
+
+        uut.publish(TEST_EVENT);
+        uut.publish(TEST_EVENT);
+        uut.shutdown();
+
+        verify(eventAggregator, times(2)).publish(TEST_EVENT);
+        assertThat(uut.isRunning(), is(false));
+    }
+
+    @Test
+    public void shouldCreateWaitStrategyByName() throws Exception {
+        assertThat(DispatchingEventPublisher.createWaitStrategy(DispatchingEventPublisher.YIELDING),
+                instanceOf(YieldingWaitStrategy.class));
+        assertThat(DispatchingEventPublisher.createWaitStrategy(DispatchingEventPublisher.BUSY_SPIN),
+                instanceOf(BusySpinWaitStrategy.class));
+        assertThat(DispatchingEventPublisher.createWaitStrategy(DispatchingEventPublisher.BLOCKING),
+                instanceOf(BlockingWaitStrategy.class));
+    }
+
+    @Test
+    public void shouldBlockForUnknownWaitStrategy() throws Exception {
+        assertThat(DispatchingEventPublisher.createWaitStrategy("unknown"), instanceOf(BlockingWaitStrategy.class));
+    }
+}
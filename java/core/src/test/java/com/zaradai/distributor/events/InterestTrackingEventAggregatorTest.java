@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.events;
+
+import com.zaradai.distributor.messaging.LocalInterests;
+import com.zaradai.events.EventAggregator;
+import com.zaradai.mocks.EventAggregatorMocker;
+import com.zaradai.mocks.LocalInterestsMocker;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class InterestTrackingEventAggregatorTest {
+    private static final Object TEST_EVENT = new Object();
+    private static final Object TEST_LISTENER = new Object();
+
+    private EventAggregator delegate;
+    private LocalInterests localInterests;
+    private InterestTrackingEventAggregator uut;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = EventAggregatorMocker.create();
+        localInterests = LocalInterestsMocker.create();
+        uut = new InterestTrackingEventAggregator(delegate, localInterests);
+    }
+
+    @Test
+    public void shouldPublishThroughDelegate() throws Exception {
+        uut.publish(TEST_EVENT);
+
+        verify(delegate).publish(TEST_EVENT);
+    }
+
+    @Test
+    public void shouldTrackSubscribedListener() throws Exception {
+        uut.subscribe(TEST_LISTENER);
+
+        InOrder order = inOrder(delegate, localInterests);
+        order.verify(delegate).subscribe(TEST_LISTENER);
+        order.verify(localInterests).add(TEST_LISTENER);
+    }
+
+    @Test
+    public void shouldTrackUnsubscribedListener() throws Exception {
+        uut.unsubscribe(TEST_LISTENER);
+
+        verify(delegate).unsubscribe(TEST_LISTENER);
+        verify(localInterests).remove(TEST_LISTENER);
+    }
+
+    @Test
+    public void shouldNotTrackListenerNeverSubscribed() throws Exception {
+        doThrow(IllegalArgumentException.class).when(delegate).unsubscribe(TEST_LISTENER);
+
+        try {
+            uut.unsubscribe(TEST_LISTENER);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        verify(localInterests, never()).remove(TEST_LISTENER);
+    }
+}
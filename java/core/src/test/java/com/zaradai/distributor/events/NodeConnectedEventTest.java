@@ -15,6 +15,7 @@
  */
 package com.zaradai.distributor.events;
 
+import com.zaradai.distributor.messaging.ClusterView;
 import org.junit.Test;
 
 import java.net.InetSocketAddress;
@@ -41,4 +42,11 @@ public class NodeConnectedEventTest {
 
         assertThat(uut.getAddress(), is(TEST_ADDRESS));
     }
+
+    @Test
+    public void shouldCreateWithView() throws Exception {
+        NodeConnectedEvent uut = new NodeConnectedEvent(TEST_ADDRESS, ClusterView.EMPTY);
+
+        assertThat(uut.getView(), is(ClusterView.EMPTY));
+    }
 }
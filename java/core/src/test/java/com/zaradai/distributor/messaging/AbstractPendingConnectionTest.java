@@ -22,17 +22,17 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class AbstractPendingConnectionTest {
     private static final Message TEST_MESSAGE = MessageMocker.create();
     @Mock
-    private BlockingQueue<Message> mockQueue;
+    private PendingQueue mockQueue;
     private boolean connectCalled;
     private boolean doSendCalled;
     private boolean isConnected;
@@ -51,7 +51,7 @@ public class AbstractPendingConnectionTest {
 
         uut = new AbstractPendingConnection() {
             @Override
-            protected BlockingQueue<Message> createPendingQueue() {
+            protected PendingQueue createPendingQueue() {
                 return mockQueue;
             }
 
@@ -92,7 +92,7 @@ public class AbstractPendingConnectionTest {
         isConnected = false;
         uut.send(TEST_MESSAGE);
 
-        verify(mockQueue).put(TEST_MESSAGE);
+        verify(mockQueue).add(TEST_MESSAGE, 0);
     }
 
     @Test
@@ -104,12 +104,25 @@ public class AbstractPendingConnectionTest {
     }
 
     @Test(expected = MessagingException.class)
-    public void shouldThrowIfInterrupted() throws Exception {
-        doThrow(InterruptedException.class).when(mockQueue).put(TEST_MESSAGE);
+    public void shouldThrowIfQueueRejects() throws Exception {
+        doThrow(MessagingException.class).when(mockQueue).add(TEST_MESSAGE, 0);
         isConnected = false;
         uut.send(TEST_MESSAGE);
     }
 
+    @Test
+    public void shouldReportPendingDepthAndCounts() throws Exception {
+        when(mockQueue.size()).thenReturn(2);
+        when(mockQueue.getBytes()).thenReturn(20L);
+        when(mockQueue.getDropped()).thenReturn(3L);
+        when(mockQueue.getRejected()).thenReturn(4L);
+
+        assertThat(uut.getPendingMessages(), is(2));
+        assertThat(uut.getPendingBytes(), is(20L));
+        assertThat(uut.getPendingDropped(), is(3L));
+        assertThat(uut.getPendingRejected(), is(4L));
+    }
+
     @Test
     public void shouldDrainMessages() throws Exception {
         uut = new AbstractPendingConnection() {
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.zaradai.distributor.events.EventPublisher;
+import com.zaradai.distributor.events.NodeConnectedEvent;
+import com.zaradai.distributor.events.NodeDisconnectedEvent;
+import com.zaradai.mocks.EventPublisherMocker;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ClusterMembershipTest {
+    private static final InetSocketAddress TEST_ADDRESS = new InetSocketAddress("127.0.0.1", 1707);
+    private static final Object TEST_LINK = new Object();
+
+    private EventPublisher eventPublisher;
+    private ClusterMembership uut;
+
+    @Before
+    public void setUp() throws Exception {
+        eventPublisher = EventPublisherMocker.create();
+        uut = new ClusterMembership(eventPublisher);
+    }
+
+    @Test
+    public void shouldStartWithEmptyView() throws Exception {
+        assertThat(uut.getView() == ClusterView.EMPTY, is(true));
+    }
+
+    @Test
+    public void shouldPublishConnectedWithView() throws Exception {
+        uut.joined(TEST_ADDRESS, TEST_LINK);
+
+        ArgumentCaptor<NodeConnectedEvent> captor = ArgumentCaptor.forClass(NodeConnectedEvent.class);
+        verify(eventPublisher).publish(captor.capture());
+        assertThat(captor.getValue().getAddress(), is(TEST_ADDRESS));
+        assertThat(captor.getValue().getView() == uut.getView(), is(true));
+        assertThat(uut.getView().contains(TEST_ADDRESS), is(true));
+    }
+
+    @Test
+    public void shouldNotChangeViewWhenLinkReplaced() throws Exception {
+        uut.joined(TEST_ADDRESS, TEST_LINK);
+        ClusterView view = uut.getView();
+
+        uut.joined(TEST_ADDRESS, new Object());
+
+        assertThat(uut.getView() == view, is(true));
+    }
+
+    @Test
+    public void shouldPublishDisconnectedWithView() throws Exception {
+        uut.joined(TEST_ADDRESS, TEST_LINK);
+
+        uut.left(TEST_ADDRESS, TEST_LINK);
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publish(captor.capture());
+        NodeDisconnectedEvent res = (NodeDisconnectedEvent) captor.getAllValues().get(1);
+        assertThat(res.getAddress(), is(TEST_ADDRESS));
+        assertThat(res.getView().getVersion(), is(2L));
+        assertThat(uut.getView().contains(TEST_ADDRESS), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreLeaveFromReplacedLink() throws Exception {
+        uut.joined(TEST_ADDRESS, TEST_LINK);
+        uut.joined(TEST_ADDRESS, new Object());
+
+        uut.left(TEST_ADDRESS, TEST_LINK);
+
+        // only the first join was published
+        verify(eventPublisher, times(1)).publish(Matchers.any());
+        assertThat(uut.getView().contains(TEST_ADDRESS), is(true));
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ClusterViewTest {
+    private static final InetSocketAddress TEST_ADDRESS = new InetSocketAddress("127.0.0.1", 1707);
+
+    @Test
+    public void shouldStartEmpty() throws Exception {
+        assertThat(ClusterView.EMPTY.getVersion(), is(0L));
+        assertThat(ClusterView.EMPTY.size(), is(0));
+    }
+
+    @Test
+    public void shouldAddMemberInNewVersion() throws Exception {
+        ClusterView res = ClusterView.EMPTY.with(TEST_ADDRESS);
+
+        assertThat(res.getVersion(), is(1L));
+        assertThat(res.contains(TEST_ADDRESS), is(true));
+        assertThat(ClusterView.EMPTY.contains(TEST_ADDRESS), is(false));
+    }
+
+    @Test
+    public void shouldRemoveMemberInNewVersion() throws Exception {
+        ClusterView joined = ClusterView.EMPTY.with(TEST_ADDRESS);
+
+        ClusterView res = joined.without(TEST_ADDRESS);
+
+        assertThat(res.getVersion(), is(2L));
+        assertThat(res.contains(TEST_ADDRESS), is(false));
+        assertThat(joined.contains(TEST_ADDRESS), is(true));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowMembersToBeModified() throws Exception {
+        ClusterView.EMPTY.getMembers().add(TEST_ADDRESS);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.zaradai.distributor.messaging;
 
+import com.google.common.collect.Sets;
 import com.zaradai.mocks.ConnectionFactoryMocker;
 import com.zaradai.mocks.ConnectionMocker;
 import org.junit.Before;
@@ -32,6 +33,7 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -110,11 +112,66 @@ public class ConnectionManagerTest {
         uut.add(new InetSocketAddress(local, 81), ConnectionMocker.create());
         uut.add(new InetSocketAddress(local, 82), ConnectionMocker.create());
 
-        Set<Connection> res = uut.getForAddress(local);
+        Set<Connection> res = uut.getAll();
 
         assertThat(res.size(), is(3));
     }
 
+    @Test
+    public void shouldRemoveFromAddressIndex() throws Exception {
+        InetAddress local = InetAddress.getLocalHost();
+        Connection kept = ConnectionMocker.create();
+        uut = new ConnectionManager(connectionFactory);
+        uut.add(new InetSocketAddress(local, 80), ConnectionMocker.create());
+        uut.add(new InetSocketAddress(local, 81), kept);
+
+        uut.remove(new InetSocketAddress(local, 80));
+
+        assertThat(uut.getForAddress(local), is((Set<Connection>) Sets.newHashSet(kept)));
+        uut.remove(new InetSocketAddress(local, 81));
+        assertThat(uut.getForAddress(local).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReplaceInAddressIndex() throws Exception {
+        InetAddress local = InetAddress.getLocalHost();
+        Connection replacement = ConnectionMocker.create();
+        uut = new ConnectionManager(connectionFactory);
+        uut.add(new InetSocketAddress(local, 80), ConnectionMocker.create());
+
+        uut.add(new InetSocketAddress(local, 80), replacement);
+
+        assertThat(uut.getForAddress(local), is((Set<Connection>) Sets.newHashSet(replacement)));
+    }
+
+    @Test
+    public void shouldShareConnectionsUntilChanged() throws Exception {
+        InetAddress local = InetAddress.getLocalHost();
+        uut = new ConnectionManager(connectionFactory);
+        uut.add(new InetSocketAddress(local, 80), ConnectionMocker.create());
+
+        Connection[] res = uut.getConnections();
+
+        assertThat(res.length, is(1));
+        assertThat(uut.getConnections() == res, is(true));
+        uut.add(new InetSocketAddress(local, 81), ConnectionMocker.create());
+        assertThat(uut.getConnections().length, is(2));
+    }
+
+    @Test
+    public void shouldOnlyCreateConnectionOnMiss() throws Exception {
+        InetSocketAddress endpoint = new InetSocketAddress(InetAddress.getLocalHost(), 80);
+        when(connectionFactory.create(endpoint)).thenReturn(TEST_CONNECTOR);
+        uut = new ConnectionManager(connectionFactory);
+
+        uut.getOrCreate(endpoint);
+        Connection res = uut.getOrCreate(endpoint);
+
+        assertThat(res, is(TEST_CONNECTOR));
+        verify(connectionFactory, times(1)).create(endpoint);
+        assertThat(uut.getForAddress(endpoint.getAddress()), is((Set<Connection>) Sets.newHashSet(TEST_CONNECTOR)));
+    }
+
     @Test
     public void shouldShutdown() throws Exception {
         uut = new ConnectionManager(connectionFactory);
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class LocalInterestsTest {
+    private LocalInterests.Watcher watcher;
+    private LocalInterests uut;
+
+    @Before
+    public void setUp() throws Exception {
+        watcher = mock(LocalInterests.Watcher.class);
+        uut = new LocalInterests();
+    }
+
+    @Test
+    public void shouldFindSubscribedTypes() throws Exception {
+        uut.add(new StringListener());
+
+        assertThat(uut.getTypes().size(), is(2));
+        assertThat(uut.getTypes().contains(String.class.getName()), is(true));
+        assertThat(uut.getTypes().contains(Integer.class.getName()), is(true));
+    }
+
+    @Test
+    public void shouldTakeDeadEventsAsInterestInEverything() throws Exception {
+        uut.add(new DeadEventListener());
+
+        assertThat(uut.getTypes().contains(Object.class.getName()), is(true));
+        assertThat(uut.getTypes().contains(DeadEvent.class.getName()), is(false));
+    }
+
+    @Test
+    public void shouldReturnCurrentTypesWhenWatching() throws Exception {
+        uut.add(new StringListener());
+
+        assertThat(uut.watch(watcher).contains(String.class.getName()), is(true));
+    }
+
+    @Test
+    public void shouldNotifyWhenTypeGained() throws Exception {
+        uut.watch(watcher);
+
+        uut.add(new StringListener());
+
+        verify(watcher).onChanged(String.class.getName(), true);
+        verify(watcher).onChanged(Integer.class.getName(), true);
+    }
+
+    @Test
+    public void shouldOnlyNotifyFirstListenerOfType() throws Exception {
+        uut.add(new StringListener());
+        uut.watch(watcher);
+
+        uut.add(new StringListener());
+
+        verify(watcher, never()).onChanged(anyString(), anyBoolean());
+    }
+
+    @Test
+    public void shouldKeepTypeUntilLastListenerRemoved() throws Exception {
+        StringListener first = new StringListener();
+        StringListener second = new StringListener();
+        uut.add(first);
+        uut.add(second);
+        uut.watch(watcher);
+
+        uut.remove(first);
+        verify(watcher, never()).onChanged(String.class.getName(), false);
+        uut.remove(second);
+
+        verify(watcher).onChanged(String.class.getName(), false);
+        assertThat(uut.getTypes().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldStopNotifyingWhenUnwatched() throws Exception {
+        uut.watch(watcher);
+        uut.unwatch(watcher);
+
+        uut.add(new StringListener());
+
+        verify(watcher, never()).onChanged(anyString(), anyBoolean());
+    }
+
+    @Test
+    public void shouldCountTopicSubscriptions() throws Exception {
+        uut.addTopic("prices.eu.*");
+        uut.addTopic("prices.eu.*");
+        uut.watch(watcher);
+
+        uut.removeTopic("prices.eu.*");
+        verify(watcher, never()).onTopicChanged("prices.eu.*", false);
+        uut.removeTopic("prices.eu.*");
+
+        verify(watcher).onTopicChanged("prices.eu.*", false);
+        assertThat(uut.getTopics().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldCountEquivalentTopicPatternsTogether() throws Exception {
+        uut.addTopic("orders.#");
+        uut.addTopic("orders.#.#");
+        uut.watch(watcher);
+
+        uut.removeTopic("orders.#");
+
+        verify(watcher, never()).onTopicChanged(anyString(), anyBoolean());
+        assertThat(uut.getTopics(), is((Set<String>) ImmutableSet.of("orders.#")));
+        uut.removeTopic("orders.#.#");
+        verify(watcher).onTopicChanged("orders.#", false);
+    }
+
+    @Test
+    public void shouldNotifyWhenTopicGained() throws Exception {
+        uut.watch(watcher);
+
+        uut.addTopic("orders.#");
+
+        verify(watcher).onTopicChanged("orders.#", true);
+        assertThat(uut.getTopics().contains("orders.#"), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCatchInvalidTopicPattern() throws Exception {
+        uut.addTopic("orders..new");
+    }
+
+    public static class StringListener {
+        @Subscribe
+        public void onString(String event) {
+        }
+
+        @Subscribe
+        public void onInteger(Integer event) {
+        }
+
+        public void notSubscribed(Long event) {
+        }
+    }
+
+    public static class DeadEventListener {
+        @Subscribe
+        public void onDeadEvent(DeadEvent event) {
+        }
+    }
+}
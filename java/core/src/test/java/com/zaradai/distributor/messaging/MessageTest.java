@@ -82,6 +82,13 @@ public class MessageTest {
         assertThat(res.size(), is(0));
     }
 
+    @Test
+    public void shouldGetTopic() throws Exception {
+        Message uut = new Message.Builder().event(TEST_EVENT).topic("prices.eu.gbp").build();
+
+        assertThat(uut.getTopic(), is("prices.eu.gbp"));
+    }
+
     @Test
     public void shouldCreateWihBuilder() throws Exception {
         Message uut = new Message.Builder().addTarget(TEST_ADDRESS).event(TEST_EVENT).from(TEST_ADDRESS).build();
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.mocks.DistributorConfigMocker;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class PendingLimitsTest {
+    private static final int TEST_SIZE = 10;
+
+    @Test
+    public void shouldReadConfig() throws Exception {
+        DistributorConfig config = DistributorConfigMocker.create();
+        when(config.getPendingOverflowPolicy()).thenReturn("drop-oldest");
+        when(config.getPendingBlockTimeout()).thenReturn(100L);
+
+        PendingLimits uut = new PendingLimits(config);
+
+        assertThat(uut.getOverflowPolicy(), is(OverflowPolicy.DROP_OLDEST));
+        assertThat(uut.getBlockTimeout(), is(100L));
+    }
+
+    @Test
+    public void shouldFailOnUnknownPolicy() throws Exception {
+        DistributorConfig config = DistributorConfigMocker.create();
+        when(config.getPendingOverflowPolicy()).thenReturn("bogus");
+
+        assertThat(new PendingLimits(config).getOverflowPolicy(), is(OverflowPolicy.FAIL));
+        assertThat(OverflowPolicy.fromName("bogus"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldNotBoundIfUnlimited() throws Exception {
+        PendingLimits uut = new PendingLimits();
+
+        assertThat(uut.fits(Integer.MAX_VALUE - 1, Long.MAX_VALUE / 2, TEST_SIZE), is(true));
+        assertThat(uut.tryAcquire(TEST_SIZE), is(true));
+    }
+
+    @Test
+    public void shouldBoundConnection() throws Exception {
+        PendingLimits uut = new PendingLimits(2, TEST_SIZE * 2, 0, 0, OverflowPolicy.FAIL, 0);
+
+        assertThat(uut.fits(1, TEST_SIZE, TEST_SIZE), is(true));
+        assertThat(uut.fits(2, 0, TEST_SIZE), is(false));
+        assertThat(uut.fits(1, TEST_SIZE, TEST_SIZE + 1), is(false));
+    }
+
+    @Test
+    public void shouldBoundTotal() throws Exception {
+        PendingLimits uut = new PendingLimits(0, 0, 0, TEST_SIZE, OverflowPolicy.FAIL, 0);
+
+        assertThat(uut.tryAcquire(TEST_SIZE), is(true));
+        assertThat(uut.tryAcquire(1), is(false));
+
+        uut.release(TEST_SIZE);
+
+        assertThat(uut.tryAcquire(1), is(true));
+        assertThat(uut.getMessages(), is(1L));
+        assertThat(uut.getBytes(), is(1L));
+    }
+
+    @Test
+    public void shouldCountDropsAndRejects() throws Exception {
+        PendingLimits uut = new PendingLimits();
+
+        uut.recordDropped();
+        uut.recordRejected();
+        uut.recordRejected();
+
+        assertThat(uut.getDropped(), is(1L));
+        assertThat(uut.getRejected(), is(2L));
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.zaradai.mocks.MessageMocker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class PendingQueueTest {
+    private static final int MAX_MESSAGES = 2;
+    private static final int TEST_SIZE = 10;
+    private static final long BLOCK_TIMEOUT = 50;
+    private static final long TEST_WAIT = 5000;
+
+    private Message message1;
+    private Message message2;
+    private Message message3;
+    private PendingQueue.Listener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        message1 = MessageMocker.create();
+        message2 = MessageMocker.create();
+        message3 = MessageMocker.create();
+        listener = mock(PendingQueue.Listener.class);
+    }
+
+    @Test
+    public void shouldDrainInOrder() throws Exception {
+        PendingQueue uut = new PendingQueue(new PendingLimits(), listener);
+        uut.add(message1, TEST_SIZE);
+        uut.add(message2, TEST_SIZE);
+
+        List<Message> res = uut.drain();
+
+        assertThat(res.size(), is(2));
+        assertThat(res.get(0), is(message1));
+        assertThat(res.get(1), is(message2));
+        assertThat(uut.size(), is(0));
+        assertThat(uut.getBytes(), is(0L));
+    }
+
+    @Test
+    public void shouldTrackDepth() throws Exception {
+        PendingLimits limits = new PendingLimits();
+        PendingQueue uut = new PendingQueue(limits, listener);
+
+        uut.add(message1, TEST_SIZE);
+        uut.add(message2, TEST_SIZE);
+
+        assertThat(uut.size(), is(2));
+        assertThat(uut.getBytes(), is(2L * TEST_SIZE));
+        assertThat(limits.getMessages(), is(2L));
+        assertThat(limits.getBytes(), is(2L * TEST_SIZE));
+
+        uut.drain();
+
+        assertThat(limits.getMessages(), is(0L));
+        assertThat(limits.getBytes(), is(0L));
+    }
+
+    @Test
+    public void shouldFailWhenFull() throws Exception {
+        PendingLimits limits = createLimits(OverflowPolicy.FAIL);
+        PendingQueue uut = fill(limits);
+
+        try {
+            uut.add(message3, TEST_SIZE);
+            fail("Expected full queue to reject message");
+        } catch (MessagingException e) {
+            assertThat(limits.getRejected(), is(1L));
+            assertThat(uut.getRejected(), is(1L));
+            assertThat(uut.size(), is(MAX_MESSAGES));
+        }
+    }
+
+    @Test
+    public void shouldDropNewestWhenFull() throws Exception {
+        PendingLimits limits = createLimits(OverflowPolicy.DROP_NEWEST);
+        PendingQueue uut = fill(limits);
+
+        uut.add(message3, TEST_SIZE);
+
+        verify(listener).onDropped(message3);
+        assertThat(uut.getDropped(), is(1L));
+        assertThat(limits.getDropped(), is(1L));
+        assertThat(uut.drain().get(1), is(message2));
+    }
+
+    @Test
+    public void shouldDropOldestWhenFull() throws Exception {
+        PendingLimits limits = createLimits(OverflowPolicy.DROP_OLDEST);
+        PendingQueue uut = fill(limits);
+
+        uut.add(message3, TEST_SIZE);
+
+        verify(listener).onDropped(message1);
+        List<Message> res = uut.drain();
+        assertThat(res.get(0), is(message2));
+        assertThat(res.get(1), is(message3));
+        assertThat(limits.getMessages(), is(0L));
+    }
+
+    @Test
+    public void shouldBoundBytes() throws Exception {
+        PendingLimits limits = new PendingLimits(0, TEST_SIZE * 2, 0, 0, OverflowPolicy.DROP_NEWEST, 0);
+        PendingQueue uut = new PendingQueue(limits, listener);
+
+        uut.add(message1, TEST_SIZE);
+        uut.add(message2, TEST_SIZE + 1);
+
+        verify(listener).onDropped(message2);
+        assertThat(uut.size(), is(1));
+    }
+
+    @Test
+    public void shouldBoundTotalAcrossQueues() throws Exception {
+        PendingLimits limits = new PendingLimits(0, 0, MAX_MESSAGES, 0, OverflowPolicy.DROP_OLDEST, 0);
+        PendingQueue other = new PendingQueue(limits, listener);
+        other.add(message1, TEST_SIZE);
+        other.add(message2, TEST_SIZE);
+        PendingQueue uut = new PendingQueue(limits, listener);
+
+        uut.add(message3, TEST_SIZE);
+
+        // the other queue's messages are not ours to evict
+        verify(listener).onDropped(message3);
+        verify(listener, never()).onDropped(message1);
+        assertThat(other.size(), is(MAX_MESSAGES));
+    }
+
+    @Test
+    public void shouldFailBlockedSendAfterTimeout() throws Exception {
+        PendingLimits limits = createLimits(OverflowPolicy.BLOCK);
+        PendingQueue uut = fill(limits);
+        long start = System.nanoTime();
+
+        try {
+            uut.add(message3, TEST_SIZE);
+            fail("Expected blocked send to time out");
+        } catch (MessagingException e) {
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= BLOCK_TIMEOUT, is(true));
+            assertThat(limits.getRejected(), is(1L));
+        }
+    }
+
+    @Test
+    public void shouldUnblockSendOnceDrained() throws Exception {
+        PendingLimits limits = new PendingLimits(MAX_MESSAGES, 0, 0, 0, OverflowPolicy.BLOCK, TEST_WAIT);
+        final PendingQueue uut = fill(limits);
+        Thread drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(BLOCK_TIMEOUT);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                uut.drain();
+            }
+        });
+        drainer.start();
+
+        uut.add(message3, TEST_SIZE);
+
+        drainer.join();
+        assertThat(uut.size(), is(1));
+        assertThat(limits.getRejected(), is(0L));
+    }
+
+    private PendingLimits createLimits(OverflowPolicy policy) {
+        return new PendingLimits(MAX_MESSAGES, 0, 0, 0, policy, BLOCK_TIMEOUT);
+    }
+
+    private PendingQueue fill(PendingLimits limits) throws MessagingException {
+        PendingQueue res = new PendingQueue(limits, listener);
+        res.add(message1, TEST_SIZE);
+        res.add(message2, TEST_SIZE);
+
+        return res;
+    }
+}
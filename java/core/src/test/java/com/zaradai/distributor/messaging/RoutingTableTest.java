@@ -0,0 +1,256 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.mocks.ConnectionManagerMocker;
+import com.zaradai.mocks.ConnectionMocker;
+import com.zaradai.mocks.DistributorConfigMocker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class RoutingTableTest {
+    private static final InetSocketAddress TEST_PEER_1 = new InetSocketAddress("127.0.0.1", 1711);
+    private static final InetSocketAddress TEST_PEER_2 = new InetSocketAddress("127.0.0.1", 1712);
+    private static final Object TEST_LINK = new Object();
+    private static final List<String> STRINGS = ImmutableList.of(String.class.getName());
+    private static final List<String> NUMBERS = ImmutableList.of(Number.class.getName());
+    private static final List<String> EU_PRICES = ImmutableList.of("prices.eu.*");
+    private static final List<String> ORDERS = ImmutableList.of("orders.#");
+
+    private ConnectionManager connectionManager;
+    private DistributorConfig config;
+    private Connection connection1;
+    private Connection connection2;
+    private RoutingTable uut;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionManager = ConnectionManagerMocker.create();
+        config = DistributorConfigMocker.create();
+        when(config.getInterestRouting()).thenReturn(true);
+        connection1 = ConnectionMocker.create();
+        connection2 = ConnectionMocker.create();
+        Set<InetSocketAddress> addresses = ImmutableSet.of(TEST_PEER_1, TEST_PEER_2);
+        when(connectionManager.getKnownAddresses()).thenReturn(addresses);
+        when(connectionManager.getForEndpoint(TEST_PEER_1)).thenReturn(connection1);
+        when(connectionManager.getForEndpoint(TEST_PEER_2)).thenReturn(connection2);
+        uut = new RoutingTable(connectionManager, config);
+    }
+
+    @Test
+    public void shouldRouteToPeersYetToAdvertise() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+
+        assertThat(uut.route(String.class).length, is(2));
+    }
+
+    @Test
+    public void shouldRouteOnlyToInterestedPeers() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+
+        Connection[] res = uut.route(String.class);
+
+        assertThat(res.length, is(1));
+        assertThat(res[0] == connection2, is(true));
+    }
+
+    @Test
+    public void shouldRouteBySupertype() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+
+        assertThat(uut.route(Integer.class).length, is(2));
+    }
+
+    @Test
+    public void shouldApplyChanges() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+        assertThat(uut.route(String.class).length, is(1));
+
+        uut.subscribed(TEST_PEER_1, TEST_LINK, STRINGS);
+        assertThat(uut.route(String.class).length, is(2));
+
+        uut.unsubscribed(TEST_PEER_1, TEST_LINK, STRINGS);
+        assertThat(uut.route(String.class).length, is(1));
+    }
+
+    @Test
+    public void shouldReuseRoutesUntilChanged() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        Connection[] first = uut.route(String.class);
+
+        assertThat(uut.route(String.class) == first, is(true));
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+        assertThat(uut.route(String.class) == first, is(false));
+    }
+
+    @Test
+    public void shouldResolveAgainWhenConnectionsChange() throws Exception {
+        Connection[] first = uut.route(String.class);
+        Set<InetSocketAddress> changed = ImmutableSet.of(TEST_PEER_1);
+        when(connectionManager.getKnownAddresses()).thenReturn(changed);
+
+        assertThat(uut.route(String.class) == first, is(false));
+        assertThat(uut.route(String.class).length, is(1));
+    }
+
+    @Test
+    public void shouldIgnoreAdvertisementFromReplacedLink() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.joined(TEST_PEER_1, new Object());
+
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+
+        assertThat(uut.route(String.class).length, is(2));
+    }
+
+    @Test
+    public void shouldForgetInterestsWhenLinkLeaves() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+
+        uut.left(TEST_PEER_1, TEST_LINK);
+
+        assertThat(uut.route(String.class).length, is(2));
+    }
+
+    @Test
+    public void shouldRouteTopicToPeersYetToAdvertise() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+
+        assertThat(uut.route("prices.eu.gbp").length, is(2));
+    }
+
+    @Test
+    public void shouldRouteTopicOnlyToMatchingPeers() throws Exception {
+        Object link = new Object();
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.joined(TEST_PEER_2, link);
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, EU_PRICES);
+        uut.advertisedTopics(TEST_PEER_2, link, ORDERS);
+
+        Connection[] res = uut.route("prices.eu.gbp");
+
+        assertThat(res.length, is(1));
+        assertThat(res[0] == connection1, is(true));
+        assertThat(uut.route("orders.new.fx")[0] == connection2, is(true));
+        assertThat(uut.route("trades.new").length, is(0));
+    }
+
+    @Test
+    public void shouldApplyTopicChanges() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        joinWithoutTopics(TEST_PEER_2);
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, EU_PRICES);
+        assertThat(uut.route("orders.new").length, is(0));
+
+        uut.subscribedTopics(TEST_PEER_1, TEST_LINK, ORDERS);
+        assertThat(uut.route("orders.new").length, is(1));
+
+        uut.unsubscribedTopics(TEST_PEER_1, TEST_LINK, ORDERS);
+        assertThat(uut.route("orders.new").length, is(0));
+    }
+
+    @Test
+    public void shouldApplyEquivalentTopicChangesToOneEntry() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        joinWithoutTopics(TEST_PEER_2);
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, ImmutableList.of("orders.#.#"));
+        assertThat(uut.route("orders.new").length, is(1));
+
+        uut.unsubscribedTopics(TEST_PEER_1, TEST_LINK, ORDERS);
+
+        assertThat(uut.route("orders.new").length, is(0));
+    }
+
+    @Test
+    public void shouldReuseTopicRoutesUntilChanged() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        Connection[] first = uut.route("prices.eu.gbp");
+
+        assertThat(uut.route("prices.eu.gbp") == first, is(true));
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, ORDERS);
+        assertThat(uut.route("prices.eu.gbp") == first, is(false));
+    }
+
+    @Test
+    public void shouldKeepTopicsWhenTypesAdvertised() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        joinWithoutTopics(TEST_PEER_2);
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, EU_PRICES);
+
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+
+        assertThat(uut.route("prices.eu.gbp").length, is(1));
+    }
+
+    @Test
+    public void shouldIgnoreInvalidTopicPatterns() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        joinWithoutTopics(TEST_PEER_2);
+
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, ImmutableList.of("prices..eu", "orders.#"));
+
+        Connection[] res = uut.route("orders.new");
+
+        assertThat(res.length, is(1));
+        assertThat(res[0] == connection1, is(true));
+    }
+
+    @Test
+    public void shouldForgetTopicsWhenLinkLeaves() throws Exception {
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        joinWithoutTopics(TEST_PEER_2);
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, EU_PRICES);
+        uut.left(TEST_PEER_1, TEST_LINK);
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.advertisedTopics(TEST_PEER_1, TEST_LINK, ORDERS);
+
+        assertThat(uut.route("prices.eu.gbp").length, is(0));
+    }
+
+    @Test
+    public void shouldRouteToAllIfDisabled() throws Exception {
+        Connection[] all = {connection1, connection2};
+        when(config.getInterestRouting()).thenReturn(false);
+        when(connectionManager.getConnections()).thenReturn(all);
+        uut = new RoutingTable(connectionManager, config);
+        uut.joined(TEST_PEER_1, TEST_LINK);
+        uut.advertised(TEST_PEER_1, TEST_LINK, NUMBERS);
+
+        assertThat(uut.route(String.class) == all, is(true));
+        assertThat(uut.route("prices.eu.gbp") == all, is(true));
+    }
+
+    private void joinWithoutTopics(InetSocketAddress peer) {
+        Object link = new Object();
+        uut.joined(peer, link);
+        uut.advertisedTopics(peer, link, ImmutableList.<String>of());
+    }
+}
@@ -16,24 +16,44 @@
 package com.zaradai.distributor.messaging.netty;
 
 import ch.qos.logback.core.Appender;
+import com.google.common.collect.Lists;
+import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.events.EventPublisher;
 import com.zaradai.distributor.events.MessageErrorEvent;
 import com.zaradai.distributor.events.MessageSentEvent;
 import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.MessagingException;
+import com.zaradai.distributor.messaging.PendingLimits;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessage;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessageFactory;
+import com.zaradai.distributor.messaging.netty.handler.EncodingException;
+import com.zaradai.distributor.messaging.netty.handler.FrameFormat;
+import com.zaradai.distributor.messaging.netty.outbox.Outbox;
+import com.zaradai.distributor.messaging.netty.outbox.Outboxes;
+import com.zaradai.mocks.DistributorConfigMocker;
+import com.zaradai.mocks.EncodedMessageFactoryMocker;
 import com.zaradai.mocks.EventPublisherMocker;
 import com.zaradai.mocks.MessageMocker;
 import com.zaradai.mocks.NettyClientFactoryMocker;
 import com.zaradai.mocks.NettyClientMocker;
+import com.zaradai.mocks.OutboxMocker;
+import com.zaradai.mocks.OutboxesMocker;
 import com.zaradai.util.LoggerTester;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Matchers;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.any;
@@ -44,12 +64,24 @@ import static org.mockito.Mockito.*;
 
 public class ChannelConnectionTest {
     private final InetSocketAddress TEST_ADDRESS = mock(InetSocketAddress.class);
+    private static final int FLUSH_LIMIT = 64;
+    private static final int FRAME_SIZE = 16;
+    private static final InetSocketAddress PEER_ADDRESS = new InetSocketAddress("127.0.0.1", 1907);
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
     private EventPublisher eventPublisher;
+    private DistributorConfig config;
     private NettyClientFactory nettyClientFactory;
     private ChannelConnection uut;
     private Channel channel;
     private ChannelFuture future;
     private NettyClient client;
+    private Outboxes outboxes;
+    private EncodedMessageFactory encodedMessageFactory;
+    private PendingLimits pendingLimits;
 
     @Before
     public void setUp() throws Exception {
@@ -61,7 +93,19 @@ public class ChannelConnectionTest {
         client = NettyClientMocker.create();
         when(nettyClientFactory.create(TEST_ADDRESS)).thenReturn(client);
 
-        uut = new ChannelConnection(eventPublisher, nettyClientFactory, TEST_ADDRESS);
+        config = DistributorConfigMocker.create();
+        when(config.getWriteFlushLimit()).thenReturn(FLUSH_LIMIT);
+
+        outboxes = OutboxesMocker.create();
+        encodedMessageFactory = EncodedMessageFactoryMocker.create();
+        pendingLimits = new PendingLimits();
+
+        uut = createConnection(TEST_ADDRESS);
+    }
+
+    private ChannelConnection createConnection(InetSocketAddress endpoint) {
+        return new ChannelConnection(eventPublisher, nettyClientFactory, config, pendingLimits, outboxes,
+                encodedMessageFactory, endpoint);
     }
 
     @Test
@@ -116,6 +160,83 @@ public class ChannelConnectionTest {
         verify(channel).close();
     }
 
+    @Test
+    public void shouldActivateFirstChannel() throws Exception {
+        uut = createPeerConnection();
+        EmbeddedChannel first = new EmbeddedChannel();
+
+        assertThat(uut.activate(first, false, NO_OP), is(true));
+        assertThat(uut.isConnected(), is(true));
+    }
+
+    @Test
+    public void shouldRefuseDuplicateWhilstActive() throws Exception {
+        uut = createPeerConnection();
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel duplicate = new EmbeddedChannel();
+        uut.activate(first, false, NO_OP);
+
+        Runnable onActivated = mock(Runnable.class);
+
+        assertThat(uut.activate(duplicate, false, onActivated), is(false));
+        verify(onActivated, never()).run();
+        first.runPendingTasks();
+        assertThat(first.isOpen(), is(true));
+    }
+
+    @Test
+    public void shouldReplaceAndCloseActiveChannelWithPreferred() throws Exception {
+        uut = createPeerConnection();
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel preferred = new EmbeddedChannel();
+        uut.activate(first, false, NO_OP);
+
+        assertThat(uut.activate(preferred, true, NO_OP), is(true));
+        first.runPendingTasks();
+
+        assertThat(first.isOpen(), is(false));
+        assertThat(preferred.isOpen(), is(true));
+        assertThat(uut.isConnected(), is(true));
+        verify(client, never()).connect();
+    }
+
+    @Test
+    public void shouldRunActivatedBeforeClosingReplacedChannel() throws Exception {
+        uut = createPeerConnection();
+        final EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel preferred = new EmbeddedChannel();
+        final List<Boolean> firstOpen = Lists.newArrayList();
+        uut.activate(first, false, NO_OP);
+
+        uut.activate(preferred, true, new Runnable() {
+            @Override
+            public void run() {
+                // anything already queued to close the replaced channel runs now
+                first.runPendingTasks();
+                firstOpen.add(first.isOpen());
+            }
+        });
+        first.runPendingTasks();
+
+        assertThat(firstOpen, is(Collections.singletonList(true)));
+        assertThat(first.isOpen(), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreCloseOfReplacedChannel() throws Exception {
+        uut = createPeerConnection();
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel preferred = new EmbeddedChannel();
+        uut.activate(first, false, NO_OP);
+        uut.activate(preferred, true, NO_OP);
+
+        first.close();
+
+        assertThat(uut.isConnected(), is(true));
+        preferred.close();
+        assertThat(uut.isConnected(), is(false));
+    }
+
     @Test
     public void shouldAttemptConnectOnFirstConnect() throws Exception {
         uut.connect();
@@ -136,14 +257,74 @@ public class ChannelConnectionTest {
 
     @Test
     public void shouldSendMessageAfterChannelConnected() throws Exception {
+        EmbeddedChannel embeddedChannel = new EmbeddedChannel();
         Message testMessage = MessageMocker.create();
-        ChannelFuture channelFuture = mock(ChannelFuture.class);
-        when(channel.writeAndFlush(testMessage)).thenReturn(channelFuture);
+        EncodedMessage held = holdAs(testMessage);
         uut.send(testMessage);
 
-        uut.setChannel(channel);
+        uut.setChannel(embeddedChannel);
+        embeddedChannel.runPendingTasks();
 
-        verify(channel).writeAndFlush(testMessage);
+        assertThat(embeddedChannel.readOutbound() == held, is(true));
+    }
+
+    @Test
+    public void shouldHoldEncodedMessageAndReleaseOriginalWhilstDisconnected() throws Exception {
+        uut = createPeerConnection();
+        EncodedMessage testMessage = new EncodedMessage(new Message.Builder().event("test").build(), createFrame());
+        EncodedMessage held = holdAs(testMessage);
+
+        uut.send(testMessage);
+
+        assertThat(pendingLimits.getMessages(), is(1L));
+        assertThat(pendingLimits.getBytes(), is((long) held.getFrame().readableBytes()));
+        assertThat(testMessage.refCnt(), is(0));
+        held.release();
+    }
+
+    @Test
+    public void shouldWriteAllHeldMessagesOnConnect() throws Exception {
+        uut = createPeerConnection();
+        EmbeddedChannel embeddedChannel = new EmbeddedChannel();
+        Message first = MessageMocker.create();
+        Message second = MessageMocker.create();
+        EncodedMessage firstHeld = holdAs(first);
+        EncodedMessage secondHeld = holdAs(second);
+        uut.send(first);
+        uut.send(second);
+
+        uut.setChannel(embeddedChannel);
+        embeddedChannel.runPendingTasks();
+
+        assertThat(embeddedChannel.readOutbound() == firstHeld, is(true));
+        assertThat(embeddedChannel.readOutbound() == secondHeld, is(true));
+        assertThat(pendingLimits.getMessages(), is(0L));
+    }
+
+    @Test(expected = MessagingException.class)
+    public void shouldFailSendIfUnableToEncodeWhilstDisconnected() throws Exception {
+        Message testMessage = MessageMocker.create();
+        when(encodedMessageFactory.createDetached(testMessage)).thenThrow(new EncodingException("test"));
+
+        uut.send(testMessage);
+    }
+
+    @Test
+    public void shouldPublishSentForEachQueuedMessage() throws Exception {
+        EmbeddedChannel embeddedChannel = new EmbeddedChannel();
+        uut.setChannel(embeddedChannel);
+
+        uut.send(MessageMocker.create());
+        uut.send(MessageMocker.create());
+        embeddedChannel.runPendingTasks();
+
+        assertThat(embeddedChannel.outboundMessages().size(), is(2));
+        verify(eventPublisher, times(2)).publish(Matchers.any(MessageSentEvent.class));
+    }
+
+    @Test(expected = MessagingException.class)
+    public void shouldFailSendIfChannelLostWhileSending() throws Exception {
+        uut.doSend(MessageMocker.create());
     }
 
     @Test
@@ -159,4 +340,151 @@ public class ChannelConnectionTest {
 
         verify(eventPublisher).publish(Matchers.any(MessageErrorEvent.class));
     }
+
+    @Test
+    public void shouldPublishAndReleaseOnDropped() throws Exception {
+        EncodedMessage message = new EncodedMessage(new Message.Builder().event("test").build(),
+                Unpooled.buffer().writeZero(FRAME_SIZE));
+
+        uut.onDropped(message);
+
+        verify(eventPublisher).publish(Matchers.any(MessageErrorEvent.class));
+        assertThat(message.refCnt(), is(0));
+    }
+
+    @Test
+    public void shouldSizeEncodedMessagesByFrame() throws Exception {
+        EncodedMessage message = new EncodedMessage(new Message.Builder().event("test").build(),
+                Unpooled.buffer().writeZero(FRAME_SIZE));
+
+        assertThat(uut.sizeOf(message), is(FRAME_SIZE));
+        assertThat(uut.sizeOf(MessageMocker.create()), is(0));
+        message.release();
+    }
+
+    @Test
+    public void shouldSpillToOutboxWhilstDisconnected() throws Exception {
+        Outbox outbox = enableOutbox();
+        Message testMessage = MessageMocker.create();
+
+        uut.send(testMessage);
+
+        verify(outbox).append(testMessage);
+        verify(client).connect();
+    }
+
+    @Test
+    public void shouldSendSpilledMessagesFirstOnConnect() throws Exception {
+        Outbox outbox = enableOutbox();
+        EncodedMessage spilled = new EncodedMessage(new Message.Builder().event("test").build(),
+                Unpooled.buffer().writeZero(FRAME_SIZE));
+        when(outbox.read()).thenReturn(spilled, (EncodedMessage) null);
+        EmbeddedChannel embeddedChannel = new EmbeddedChannel();
+
+        uut.setChannel(embeddedChannel);
+        Message testMessage = MessageMocker.create();
+        uut.send(testMessage);
+        embeddedChannel.runPendingTasks();
+
+        assertThat(embeddedChannel.readOutbound() == spilled, is(true));
+        assertThat(embeddedChannel.readOutbound() == testMessage, is(true));
+        verify(outbox, never()).append(testMessage);
+        spilled.release();
+    }
+
+    @Test
+    public void shouldCommitSpilledMessageOnceWritten() throws Exception {
+        Outbox outbox = enableOutbox();
+        EncodedMessage spilled = spillOne(outbox);
+        EmbeddedChannel embeddedChannel = new EmbeddedChannel();
+
+        uut.setChannel(embeddedChannel);
+        verify(outbox, never()).commit();
+        embeddedChannel.runPendingTasks();
+
+        verify(outbox).commit();
+        spilled.release();
+    }
+
+    @Test
+    public void shouldReadSpilledMessageAgainIfChannelLost() throws Exception {
+        Outbox outbox = enableOutbox();
+        EncodedMessage spilled = spillOne(outbox);
+        EmbeddedChannel embeddedChannel = new EmbeddedChannel();
+        uut.setChannel(embeddedChannel);
+
+        embeddedChannel.close();
+        uut.onFailed(Collections.<Message>singletonList(spilled), new ClosedChannelException());
+
+        // once when activated and again for the failed write
+        verify(outbox, times(2)).rewind();
+        verify(outbox, never()).commit();
+        verify(eventPublisher, never()).publish(Matchers.any(MessageErrorEvent.class));
+        spilled.release();
+    }
+
+    @Test
+    public void shouldCommitSpilledMessageThatFailsOnLiveChannel() throws Exception {
+        Outbox outbox = enableOutbox();
+        EncodedMessage spilled = spillOne(outbox);
+        uut.setChannel(new EmbeddedChannel());
+
+        uut.onFailed(Collections.<Message>singletonList(spilled), new EncodingException("test"));
+
+        verify(outbox).commit();
+        verify(eventPublisher).publish(Matchers.any(MessageErrorEvent.class));
+        spilled.release();
+    }
+
+    private EncodedMessage spillOne(Outbox outbox) throws Exception {
+        EncodedMessage res = new EncodedMessage(new Message.Builder().event("test").build(),
+                Unpooled.buffer().writeZero(FRAME_SIZE));
+        when(outbox.read()).thenReturn(res, (EncodedMessage) null);
+
+        return res;
+    }
+
+    @Test
+    public void shouldHoldInMemoryIfOutboxUnavailable() throws Exception {
+        when(outboxes.isEnabled()).thenReturn(true);
+        when(outboxes.open(PEER_ADDRESS)).thenThrow(new IOException("test"));
+        uut = createPeerConnection();
+        EmbeddedChannel embeddedChannel = new EmbeddedChannel();
+        Message testMessage = MessageMocker.create();
+        EncodedMessage held = holdAs(testMessage);
+        uut.send(testMessage);
+
+        uut.setChannel(embeddedChannel);
+        embeddedChannel.runPendingTasks();
+
+        assertThat(embeddedChannel.readOutbound() == held, is(true));
+    }
+
+    private EncodedMessage holdAs(Message message) throws Exception {
+        EncodedMessage res = new EncodedMessage(PEER_ADDRESS, createFrame());
+        when(encodedMessageFactory.createDetached(message)).thenReturn(res);
+
+        return res;
+    }
+
+    private ByteBuf createFrame() {
+        return Unpooled.buffer().writeZero(FrameFormat.DATA_OFFSET + 2);
+    }
+
+    private ChannelConnection createPeerConnection() {
+        // a factory of its own as the mocked test address cannot be compared
+        nettyClientFactory = NettyClientFactoryMocker.create();
+        when(nettyClientFactory.create(PEER_ADDRESS)).thenReturn(client);
+
+        return createConnection(PEER_ADDRESS);
+    }
+
+    private Outbox enableOutbox() throws Exception {
+        Outbox res = OutboxMocker.create();
+        when(outboxes.isEnabled()).thenReturn(true);
+        when(outboxes.open(PEER_ADDRESS)).thenReturn(res);
+        uut = createPeerConnection();
+
+        return res;
+    }
 }
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.google.common.collect.Lists;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.mocks.MessageMocker;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ChannelWriterTest {
+    private static final int FLUSH_LIMIT = 2;
+
+    private ChannelWriter.Callback callback;
+    private EmbeddedChannel channel;
+    private ChannelWriter uut;
+
+    @Before
+    public void setUp() throws Exception {
+        callback = mock(ChannelWriter.Callback.class);
+        channel = new EmbeddedChannel();
+        uut = new ChannelWriter(channel, FLUSH_LIMIT, FLUSH_LIMIT, callback);
+    }
+
+    @Test
+    public void shouldNotWriteUntilDrained() throws Exception {
+        uut.write(MessageMocker.create());
+
+        assertThat(channel.outboundMessages().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldWriteInOrder() throws Exception {
+        Message first = MessageMocker.create();
+        Message second = MessageMocker.create();
+
+        uut.write(first);
+        uut.write(second);
+        channel.runPendingTasks();
+
+        assertThat(channel.readOutbound() == first, is(true));
+        assertThat(channel.readOutbound() == second, is(true));
+    }
+
+    @Test
+    public void shouldWriteAllInOrderAfterQueuedMessages() throws Exception {
+        Message first = MessageMocker.create();
+        Message second = MessageMocker.create();
+        Message third = MessageMocker.create();
+
+        uut.write(first);
+        uut.writeAll(Lists.newArrayList(second, third));
+        channel.runPendingTasks();
+
+        assertThat(channel.readOutbound() == first, is(true));
+        assertThat(channel.readOutbound() == second, is(true));
+        assertThat(channel.readOutbound() == third, is(true));
+    }
+
+    @Test
+    public void shouldDrainInPlaceWhenFullOnEventLoop() throws Exception {
+        Message first = MessageMocker.create();
+        Message second = MessageMocker.create();
+        Message third = MessageMocker.create();
+        uut.write(first);
+        uut.write(second);
+
+        uut.write(third);
+
+        assertThat(channel.readOutbound() == first, is(true));
+        assertThat(channel.readOutbound() == second, is(true));
+        assertThat(channel.outboundMessages().isEmpty(), is(true));
+        channel.runPendingTasks();
+        assertThat(channel.readOutbound() == third, is(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReportOncePerFlushedGroup() throws Exception {
+        uut.write(MessageMocker.create());
+        uut.write(MessageMocker.create());
+        uut.write(MessageMocker.create());
+        channel.runPendingTasks();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(callback, times(2)).onWritten(captor.capture());
+        assertThat(captor.getAllValues().get(0).size(), is(FLUSH_LIMIT));
+        assertThat(captor.getAllValues().get(1).size(), is(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReportOnlyFailedMessagesOfGroup() throws Exception {
+        final Exception cause = new Exception("failed");
+        final Message failing = MessageMocker.create();
+        Message written = MessageMocker.create();
+        channel = new EmbeddedChannel(new ChannelHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                if (msg == failing) {
+                    promise.setFailure(cause);
+                } else {
+                    ctx.write(msg, promise);
+                }
+            }
+        });
+        uut = new ChannelWriter(channel, FLUSH_LIMIT, FLUSH_LIMIT, callback);
+
+        uut.write(failing);
+        uut.write(written);
+        channel.runPendingTasks();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(callback).onFailed(captor.capture(), Matchers.eq(cause));
+        assertThat(captor.getValue().size(), is(1));
+        assertThat(captor.getValue().get(0) == failing, is(true));
+        verify(callback).onWritten(captor.capture());
+        assertThat(captor.getValue().size(), is(1));
+        assertThat(captor.getValue().get(0) == written, is(true));
+    }
+
+    @Test
+    public void shouldReuseWritePromises() throws Exception {
+        final List<ChannelPromise> seen = Lists.newArrayList();
+        channel = new EmbeddedChannel(new ChannelHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                seen.add(promise);
+                ctx.write(msg, promise);
+            }
+        });
+        uut = new ChannelWriter(channel, FLUSH_LIMIT, FLUSH_LIMIT, callback);
+
+        uut.write(MessageMocker.create());
+        channel.runPendingTasks();
+        uut.write(MessageMocker.create());
+        channel.runPendingTasks();
+
+        assertThat(seen.get(0) == seen.get(1), is(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReportFailureForGroup() throws Exception {
+        final Exception cause = new Exception("failed");
+        channel = new EmbeddedChannel(new ChannelHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                promise.setFailure(cause);
+            }
+        });
+        uut = new ChannelWriter(channel, FLUSH_LIMIT, FLUSH_LIMIT, callback);
+
+        uut.write(MessageMocker.create());
+        uut.write(MessageMocker.create());
+        channel.runPendingTasks();
+
+        verify(callback).onFailed(Matchers.anyList(), Matchers.eq(cause));
+        verify(callback, never()).onWritten(Matchers.anyList());
+    }
+}
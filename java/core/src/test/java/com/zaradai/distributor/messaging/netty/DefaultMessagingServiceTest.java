@@ -22,21 +22,36 @@ import com.zaradai.distributor.messaging.Connection;
 import com.zaradai.distributor.messaging.ConnectionManager;
 import com.zaradai.distributor.messaging.Message;
 import com.zaradai.distributor.messaging.MessagingException;
+import com.zaradai.distributor.messaging.RoutingTable;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessage;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessageFactory;
+import com.zaradai.distributor.messaging.netty.handler.EncodingException;
+import com.zaradai.distributor.messaging.netty.handler.FrameFormat;
 import com.zaradai.mocks.*;
 import org.junit.Before;
 import org.junit.Test;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
 import java.net.InetSocketAddress;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
 public class DefaultMessagingServiceTest {
     private static final Message TEST_MESSAGE = MessageMocker.create();
     private final InetSocketAddress TEST_ADDRESS = mock(InetSocketAddress.class);
+    private static final InetSocketAddress TEST_TARGET_1 = new InetSocketAddress("127.0.0.1", 1701);
+    private static final InetSocketAddress TEST_TARGET_2 = new InetSocketAddress("127.0.0.1", 1702);
     private EventPublisher eventPublisher;
     private ConnectionManager connectionManager;
     private NettyServer nettyServer;
     private EventLoopGroups eventLoopGroups;
+    private EncodedMessageFactory encodedMessageFactory;
+    private ReconnectScheduler reconnectScheduler;
+    private RoutingTable routingTable;
     private DefaultMessagingService uut;
 
     @Before
@@ -45,7 +60,11 @@ public class DefaultMessagingServiceTest {
         connectionManager = ConnectionManagerMocker.create();
         nettyServer = NettyServerMocker.create();
         eventLoopGroups = EventLoopGroupsMocker.create();
-        uut = new DefaultMessagingService(eventPublisher, connectionManager, nettyServer, eventLoopGroups);
+        encodedMessageFactory = EncodedMessageFactoryMocker.create();
+        reconnectScheduler = ReconnectSchedulerMocker.create();
+        routingTable = RoutingTableMocker.create();
+        uut = new DefaultMessagingService(eventPublisher, connectionManager, nettyServer, eventLoopGroups,
+                encodedMessageFactory, reconnectScheduler, routingTable);
     }
 
     @Test
@@ -60,6 +79,7 @@ public class DefaultMessagingServiceTest {
         uut.shutDown();
 
         verify(nettyServer).shutdown();
+        verify(reconnectScheduler).shutdown();
         verify(connectionManager).shutdown();
         verify(eventLoopGroups).shutdown();
     }
@@ -67,17 +87,45 @@ public class DefaultMessagingServiceTest {
     @Test
     public void shouldPublish() throws Exception {
         Connection connection = ConnectionMocker.create();
-        when(connectionManager.getAll()).thenReturn(Sets.newHashSet(connection));
+        when(connectionManager.getConnections()).thenReturn(new Connection[] {connection});
 
         uut.publish(TEST_MESSAGE);
 
         verify(connection).send(TEST_MESSAGE);
     }
 
+    @Test
+    public void shouldPublishOnlyToRoutedConnections() throws Exception {
+        Connection interested = ConnectionMocker.create();
+        Connection other = ConnectionMocker.create();
+        when(connectionManager.getConnections()).thenReturn(new Connection[] {interested, other});
+        when(routingTable.route(String.class)).thenReturn(new Connection[] {interested});
+        Message message = new Message.Builder().event("test").build();
+
+        uut.publish(message);
+
+        verify(interested).send(message);
+        verify(other, never()).send(any(Message.class));
+    }
+
+    @Test
+    public void shouldPublishByTopicIfSet() throws Exception {
+        Connection subscribed = ConnectionMocker.create();
+        Connection other = ConnectionMocker.create();
+        when(routingTable.route(String.class)).thenReturn(new Connection[] {subscribed, other});
+        when(routingTable.route("prices.eu.gbp")).thenReturn(new Connection[] {subscribed});
+        Message message = new Message.Builder().event("test").topic("prices.eu.gbp").build();
+
+        uut.publish(message);
+
+        verify(subscribed).send(message);
+        verify(other, never()).send(any(Message.class));
+    }
+
     @Test
     public void shouldPublishErrorIfSendThrows() throws Exception {
         Connection connection = ConnectionMocker.create();
-        when(connectionManager.getAll()).thenReturn(Sets.newHashSet(connection));
+        when(connectionManager.getConnections()).thenReturn(new Connection[] {connection});
         doThrow(MessagingException.class).when(connection).send(TEST_MESSAGE);
 
         uut.publish(TEST_MESSAGE);
@@ -88,7 +136,7 @@ public class DefaultMessagingServiceTest {
     @Test
     public void shouldSend() throws Exception {
         Connection connection = ConnectionMocker.create();
-        when(connectionManager.getForEndpoint(TEST_ADDRESS)).thenReturn(connection);
+        when(connectionManager.getOrCreate(TEST_ADDRESS)).thenReturn(connection);
 
         uut.send(TEST_ADDRESS, TEST_MESSAGE);
 
@@ -98,7 +146,6 @@ public class DefaultMessagingServiceTest {
     @Test
     public void shouldCreateConnectionIfNotExistsWhenSending() throws Exception {
         Connection connection = ConnectionMocker.create();
-        when(connectionManager.getForEndpoint(TEST_ADDRESS)).thenReturn(null);
         when(connectionManager.getOrCreate(TEST_ADDRESS)).thenReturn(connection);
 
         uut.send(TEST_ADDRESS, TEST_MESSAGE);
@@ -106,4 +153,73 @@ public class DefaultMessagingServiceTest {
         verify(connection).send(TEST_MESSAGE);
 
     }
+
+    @Test
+    public void shouldEncodeOnceWhenPublishingToMany() throws Exception {
+        Connection connection1 = ConnectionMocker.create();
+        Connection connection2 = ConnectionMocker.create();
+        when(connectionManager.getConnections()).thenReturn(new Connection[] {connection1, connection2});
+        EncodedMessage encoded = createEncodedMessage();
+
+        uut.publish(TEST_MESSAGE);
+
+        verify(encodedMessageFactory, times(1)).create(TEST_MESSAGE);
+        verify(connection1).send(encoded);
+        verify(connection2).send(encoded);
+        // one reference left per connection
+        assertThat(encoded.refCnt(), is(2));
+    }
+
+    @Test
+    public void shouldEncodeOnceWhenSendingToManyTargets() throws Exception {
+        Connection connection1 = ConnectionMocker.create();
+        Connection connection2 = ConnectionMocker.create();
+        when(connectionManager.getOrCreate(TEST_TARGET_1)).thenReturn(connection1);
+        when(connectionManager.getOrCreate(TEST_TARGET_2)).thenReturn(connection2);
+        EncodedMessage encoded = createEncodedMessage();
+
+        uut.send(Sets.newHashSet(TEST_TARGET_1, TEST_TARGET_2), TEST_MESSAGE);
+
+        verify(encodedMessageFactory, times(1)).create(TEST_MESSAGE);
+        verify(connection1).send(encoded);
+        verify(connection2).send(encoded);
+    }
+
+    @Test
+    public void shouldReleaseReferenceIfSendThrows() throws Exception {
+        Connection connection1 = ConnectionMocker.create();
+        Connection connection2 = ConnectionMocker.create();
+        when(connectionManager.getConnections()).thenReturn(new Connection[] {connection1, connection2});
+        EncodedMessage encoded = createEncodedMessage();
+        doThrow(MessagingException.class).when(connection1).send(encoded);
+
+        uut.publish(TEST_MESSAGE);
+
+        assertThat(encoded.refCnt(), is(1));
+        verify(eventPublisher).publish(any(MessageErrorEvent.class));
+    }
+
+    @Test
+    public void shouldPublishErrorIfEncodingFails() throws Exception {
+        Connection connection1 = ConnectionMocker.create();
+        Connection connection2 = ConnectionMocker.create();
+        when(connectionManager.getConnections()).thenReturn(new Connection[] {connection1, connection2});
+        when(encodedMessageFactory.create(TEST_MESSAGE)).thenThrow(new EncodingException("test"));
+
+        uut.publish(TEST_MESSAGE);
+
+        verify(eventPublisher).publish(any(MessageErrorEvent.class));
+        verify(connection1, never()).send(any(Message.class));
+    }
+
+    private EncodedMessage createEncodedMessage() throws Exception {
+        Message message = new Message();
+        message.setEvent(new Object());
+        // an empty data frame, local source and embedded type
+        ByteBuf frame = Unpooled.buffer().writeZero(FrameFormat.DATA_OFFSET + 2);
+        EncodedMessage res = new EncodedMessage(message, frame);
+        when(encodedMessageFactory.create(TEST_MESSAGE)).thenReturn(res);
+
+        return res;
+    }
 }
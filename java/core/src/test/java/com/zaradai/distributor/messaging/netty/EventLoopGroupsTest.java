@@ -15,6 +15,7 @@
  */
 package com.zaradai.distributor.messaging.netty;
 
+import com.zaradai.distributor.messaging.netty.transport.Transport;
 import io.netty.channel.EventLoopGroup;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -24,7 +25,10 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class EventLoopGroupsTest {
     @Mock
@@ -73,4 +77,16 @@ public class EventLoopGroupsTest {
         verify(mockClientGroup).shutdownGracefully();
         verify(mockServerGroup).shutdownGracefully();
     }
+
+    @Test
+    public void shouldCreateGroupsForTransport() throws Exception {
+        Transport transport = mock(Transport.class);
+        when(transport.createEventLoopGroup(anyInt())).thenReturn(mockClientGroup);
+
+        EventLoopGroups uut = new EventLoopGroups(transport);
+
+        verify(transport).createEventLoopGroup(1);
+        verify(transport).createEventLoopGroup(0);
+        assertThat(uut.getTransport(), is(transport));
+    }
 }
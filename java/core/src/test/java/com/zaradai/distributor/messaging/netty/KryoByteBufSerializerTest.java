@@ -0,0 +1,114 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.zaradai.distributor.messaging.netty.handler.TestEvent;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class KryoByteBufSerializerTest {
+    private static final int TEST_VALUE = 675;
+    private static final int TEST_OTHER_VALUE = 576;
+    private static final int BUFFER_SIZE = 256;
+    private static final int LARGE_STRING_SIZE = 64 * 1024;
+    private KryoByteBufSerializer uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new KryoByteBufSerializer(new KryoPool(new KryoFactory()));
+    }
+
+    @Test
+    public void shouldRoundTripHeapBuffer() throws Exception {
+        ByteBuf buffer = Unpooled.buffer(BUFFER_SIZE);
+
+        uut.serialize(buffer, new TestEvent(TEST_VALUE));
+
+        assertThat(((TestEvent) uut.deserialize(buffer)).getTest(), is(TEST_VALUE));
+        assertThat(buffer.isReadable(), is(false));
+    }
+
+    @Test
+    public void shouldRoundTripDirectBuffer() throws Exception {
+        ByteBuf buffer = Unpooled.directBuffer(BUFFER_SIZE);
+
+        uut.serialize(buffer, new TestEvent(TEST_VALUE));
+
+        assertThat(((TestEvent) uut.deserialize(buffer)).getTest(), is(TEST_VALUE));
+        assertThat(buffer.isReadable(), is(false));
+        buffer.release();
+    }
+
+    @Test
+    public void shouldReadConsecutiveObjectsFromSlice() throws Exception {
+        ByteBuf buffer = Unpooled.buffer(BUFFER_SIZE);
+        buffer.writeInt(0);
+        uut.serialize(buffer, new TestEvent(TEST_VALUE));
+        uut.serialize(buffer, new TestEvent(TEST_OTHER_VALUE));
+        ByteBuf slice = buffer.slice(4, buffer.readableBytes() - 4);
+
+        assertThat(((TestEvent) uut.deserialize(slice)).getTest(), is(TEST_VALUE));
+        assertThat(((TestEvent) uut.deserialize(slice)).getTest(), is(TEST_OTHER_VALUE));
+        assertThat(slice.isReadable(), is(false));
+    }
+
+    @Test
+    public void shouldGrowOutputForLargeObjects() throws Exception {
+        ByteBuf buffer = Unpooled.buffer(BUFFER_SIZE);
+        String large = new String(new char[LARGE_STRING_SIZE]).replace('\0', 'x');
+
+        uut.serialize(buffer, large);
+
+        assertThat((String) uut.deserialize(buffer), is(large));
+    }
+
+    @Test
+    public void shouldInteroperateWithStreamSerialization() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        ByteBuf buffer = Unpooled.buffer(BUFFER_SIZE);
+
+        uut.serialize(out, new TestEvent(TEST_VALUE));
+        uut.serialize(buffer, new TestEvent(TEST_VALUE));
+        byte[] bytes = new byte[buffer.readableBytes()];
+        buffer.getBytes(0, bytes);
+
+        assertThat(bytes, is(out.toByteArray()));
+        assertThat(((TestEvent) uut.deserialize(new ByteArrayInputStream(bytes))).getTest(), is(TEST_VALUE));
+    }
+
+    @Test
+    public void shouldRoundTripWithoutClassInformation() throws Exception {
+        ByteBuf typed = Unpooled.buffer(BUFFER_SIZE);
+        ByteBuf untyped = Unpooled.buffer(BUFFER_SIZE);
+
+        uut.serializeObject(typed, new TestEvent(TEST_VALUE));
+        uut.serialize(untyped, new TestEvent(TEST_VALUE));
+
+        assertThat(typed.readableBytes() < untyped.readableBytes(), is(true));
+        assertThat(((TestEvent) uut.deserializeObject(typed, TestEvent.class)).getTest(), is(TEST_VALUE));
+        assertThat(typed.isReadable(), is(false));
+    }
+}
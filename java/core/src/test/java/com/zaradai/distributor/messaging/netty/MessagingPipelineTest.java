@@ -0,0 +1,154 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodecs;
+import com.zaradai.distributor.messaging.netty.compression.DeflateCodec;
+import com.zaradai.distributor.messaging.netty.handler.CompressionHandlerFactory;
+import com.zaradai.distributor.messaging.netty.handler.HandshakeHandlerFactory;
+import com.zaradai.distributor.messaging.netty.handler.HeartbeatHandler;
+import com.zaradai.distributor.messaging.netty.handler.MessageBatcherFactory;
+import com.zaradai.distributor.messaging.netty.handler.MessageHandlerFactory;
+import com.zaradai.mocks.DistributorConfigMocker;
+import com.zaradai.mocks.MessageDecoderFactoryMocker;
+import com.zaradai.mocks.MessageEncoderFactoryMocker;
+import com.zaradai.mocks.MessageHandlerFactoryMocker;
+import io.netty.channel.ChannelPipeline;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Mockito.*;
+
+public class MessagingPipelineTest {
+    private static final int BATCH_SIZE = 32;
+    private static final long HEARTBEAT_INTERVAL = 1000;
+
+    private DistributorConfig config;
+    private HandshakeHandlerFactory handshakeHandlerFactory;
+    private CompressionHandlerFactory compressionHandlerFactory;
+    private MessageBatcherFactory messageBatcherFactory;
+    private MessageHandlerFactory messageHandlerFactory;
+    private ChannelPipeline pipeline;
+    private MessagingPipeline uut;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        handshakeHandlerFactory = mock(HandshakeHandlerFactory.class);
+        compressionHandlerFactory = mock(CompressionHandlerFactory.class);
+        messageBatcherFactory = mock(MessageBatcherFactory.class);
+        messageHandlerFactory = MessageHandlerFactoryMocker.create();
+        pipeline = mock(ChannelPipeline.class);
+        uut = createPipeline();
+    }
+
+    private MessagingPipeline createPipeline() {
+        return new MessagingPipeline(config, handshakeHandlerFactory, compressionHandlerFactory,
+                messageBatcherFactory, MessageDecoderFactoryMocker.create(), MessageEncoderFactoryMocker.create(),
+                messageHandlerFactory);
+    }
+
+    @Test
+    public void shouldCreateClientHandshake() throws Exception {
+        uut.configure(pipeline, true);
+
+        verify(handshakeHandlerFactory).create(true);
+    }
+
+    @Test
+    public void shouldNotAddCompressionIfOff() throws Exception {
+        when(config.getCompressionCodec()).thenReturn(CompressionCodecs.NONE);
+
+        uut.configure(pipeline, false);
+
+        verify(handshakeHandlerFactory).create(false);
+        verify(compressionHandlerFactory, never()).createCompressor();
+        verify(compressionHandlerFactory, never()).createDecompressor();
+    }
+
+    @Test
+    public void shouldAddCompressionIfConfigured() throws Exception {
+        when(config.getCompressionCodec()).thenReturn(DeflateCodec.NAME);
+
+        uut.configure(pipeline, false);
+
+        verify(compressionHandlerFactory).createCompressor();
+        verify(compressionHandlerFactory).createDecompressor();
+    }
+
+    @Test
+    public void shouldAddHeartbeatIfEnabled() throws Exception {
+        when(config.getHeartbeatInterval()).thenReturn(HEARTBEAT_INTERVAL);
+
+        uut.configure(pipeline, false);
+
+        verify(pipeline).addLast(eq("heartbeat"), any(HeartbeatHandler.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCatchHeartbeatTimeoutNotLongerThanInterval() throws Exception {
+        when(config.getHeartbeatInterval()).thenReturn(HEARTBEAT_INTERVAL);
+        when(config.getHeartbeatTimeout()).thenReturn(HEARTBEAT_INTERVAL);
+
+        createPipeline();
+    }
+
+    @Test
+    public void shouldAllowHeartbeatWithoutTimeout() throws Exception {
+        when(config.getHeartbeatInterval()).thenReturn(HEARTBEAT_INTERVAL);
+        when(config.getHeartbeatTimeout()).thenReturn(0L);
+
+        createPipeline().configure(pipeline, false);
+
+        verify(pipeline).addLast(eq("heartbeat"), any(HeartbeatHandler.class));
+    }
+
+    @Test
+    public void shouldNotAddHeartbeatIfDisabled() throws Exception {
+        when(config.getHeartbeatInterval()).thenReturn(0L);
+
+        uut.configure(pipeline, false);
+
+        verify(pipeline, never()).addLast(eq("heartbeat"), any(HeartbeatHandler.class));
+    }
+
+    @Test
+    public void shouldNotAddBatcherByDefault() throws Exception {
+        when(config.getBatchMaxMessages()).thenReturn(1);
+
+        uut.configure(pipeline, false);
+
+        verify(messageBatcherFactory, never()).create();
+    }
+
+    @Test
+    public void shouldAddBatcherIfConfigured() throws Exception {
+        when(config.getBatchMaxMessages()).thenReturn(BATCH_SIZE);
+
+        uut.configure(pipeline, false);
+
+        verify(messageBatcherFactory).create();
+    }
+
+    @Test
+    public void shouldAddInterestHandler() throws Exception {
+        uut.configure(pipeline, false);
+
+        verify(messageHandlerFactory).createInterestHandler();
+        verify(messageHandlerFactory).create();
+    }
+}
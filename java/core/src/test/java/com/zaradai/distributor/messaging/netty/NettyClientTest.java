@@ -0,0 +1,153 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.transport.DomainSockets;
+import com.zaradai.distributor.messaging.netty.transport.NioTransport;
+import com.zaradai.mocks.DistributorConfigMocker;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NettyClientTest {
+    private static final int DOWN_PEERS = 32;
+    private static final long RETRY_DELAY = 100;
+    private static final int PROBES = 20;
+    // a loop sleeping out retries would stall a probe by roughly DOWN_PEERS * RETRY_DELAY
+    private static final long MAX_PROBE_LATENCY = 250;
+    private static final long TEST_WAIT = 5000;
+
+    private DistributorConfig config;
+    private EventLoopGroups eventLoopGroups;
+    private CountingScheduler reconnectScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        when(config.getRetryAttempts()).thenReturn(-1);
+        when(config.getRetryDelay()).thenReturn(RETRY_DELAY);
+        when(config.getConnectionTimeout()).thenReturn((int) TEST_WAIT);
+        when(config.getTcpNoDelay()).thenReturn(true);
+        eventLoopGroups = new EventLoopGroups(new NioTransport()) {
+            @Override
+            protected EventLoopGroup createClientGroup() {
+                // all clients and the probes share the one loop
+                return new NioEventLoopGroup(1);
+            }
+        };
+        reconnectScheduler = new CountingScheduler();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reconnectScheduler.shutdown();
+        eventLoopGroups.shutdown();
+    }
+
+    @Test
+    public void shouldKeepLoopResponsiveWhilstPeersAreDown() throws Exception {
+        for (int i = 0; i < DOWN_PEERS; ++i) {
+            createClient(new InetSocketAddress("127.0.0.1", getClosedPort())).connect();
+        }
+        // wait for every peer to be refused at least once so retries are in progress
+        long deadline = System.currentTimeMillis() + TEST_WAIT;
+        while (reconnectScheduler.getScheduled() < DOWN_PEERS * 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(RETRY_DELAY / 10);
+        }
+        assertThat(reconnectScheduler.getScheduled() >= DOWN_PEERS * 2, is(true));
+
+        EventLoop loop = eventLoopGroups.getClientGroup().next();
+        for (int i = 0; i < PROBES; ++i) {
+            final long submitted = System.nanoTime();
+            long latency = loop.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return System.nanoTime() - submitted;
+                }
+            }).get(TEST_WAIT, TimeUnit.MILLISECONDS);
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(latency) < MAX_PROBE_LATENCY, is(true));
+            Thread.sleep(RETRY_DELAY / 10);
+        }
+    }
+
+    @Test
+    public void shouldFallBackToTcpIfDomainSocketRefused() throws Exception {
+        ServerSocket server = new ServerSocket(0);
+        server.setSoTimeout((int) TEST_WAIT);
+        InetSocketAddress endpoint = new InetSocketAddress("127.0.0.1", server.getLocalPort());
+        DomainSockets domainSockets = mock(DomainSockets.class);
+        // stands in for a stale socket file, nothing listens on it
+        when(domainSockets.getLocalEndpoint(endpoint)).thenReturn(new InetSocketAddress("127.0.0.1",
+                getClosedPort()));
+        when(domainSockets.getTransport()).thenReturn(new NioTransport());
+
+        try {
+            createClient(endpoint, domainSockets).connect();
+
+            server.accept().close();
+            assertThat(reconnectScheduler.getScheduled(), is(0));
+        } finally {
+            server.close();
+        }
+    }
+
+    private NettyClient createClient(InetSocketAddress endpoint) {
+        return createClient(endpoint, mock(DomainSockets.class));
+    }
+
+    private NettyClient createClient(InetSocketAddress endpoint, DomainSockets domainSockets) {
+        return new NettyClient(config, eventLoopGroups, mock(MessagingPipeline.class), domainSockets,
+                reconnectScheduler, endpoint);
+    }
+
+    private static int getClosedPort() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        int res = socket.getLocalPort();
+        socket.close();
+
+        return res;
+    }
+
+    private static final class CountingScheduler extends ReconnectScheduler {
+        private final AtomicInteger scheduled = new AtomicInteger();
+
+        @Override
+        public boolean schedule(Runnable retry, long delayInMillis) {
+            scheduled.incrementAndGet();
+            return super.schedule(retry, delayInMillis);
+        }
+
+        int getScheduled() {
+            return scheduled.get();
+        }
+    }
+}
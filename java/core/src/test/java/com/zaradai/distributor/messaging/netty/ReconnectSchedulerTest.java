@@ -0,0 +1,73 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ReconnectSchedulerTest {
+    private static final long TEST_DELAY = 50;
+    private static final long TEST_WAIT = 5000;
+
+    private ReconnectScheduler uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new ReconnectScheduler();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uut.shutdown();
+    }
+
+    @Test
+    public void shouldRunRetryAfterDelay() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        boolean res = uut.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, TEST_DELAY);
+
+        assertThat(res, is(true));
+        assertThat(latch.await(TEST_WAIT, TimeUnit.MILLISECONDS), is(true));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= TEST_DELAY, is(true));
+    }
+
+    @Test
+    public void shouldDropRetryOnceShutdown() throws Exception {
+        uut.shutdown();
+
+        boolean res = uut.schedule(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, TEST_DELAY);
+
+        assertThat(res, is(false));
+    }
+}
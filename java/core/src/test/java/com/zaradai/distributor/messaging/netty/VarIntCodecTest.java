@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class VarIntCodecTest {
+    private static final int BUFFER_SIZE = 32;
+
+    @Test
+    public void shouldWriteSmallValuesInOneByte() throws Exception {
+        ByteBuf buffer = Unpooled.buffer(BUFFER_SIZE);
+
+        VarIntCodec.writeVarInt(buffer, 127);
+
+        assertThat(buffer.readableBytes(), is(1));
+        assertThat(VarIntCodec.readVarInt(buffer), is(127));
+    }
+
+    @Test
+    public void shouldRoundTripValues() throws Exception {
+        int[] values = { 0, 1, 128, 16384, Integer.MAX_VALUE, -1 };
+        ByteBuf buffer = Unpooled.buffer(BUFFER_SIZE * values.length);
+
+        for (int value : values) {
+            VarIntCodec.writeVarInt(buffer, value);
+        }
+
+        for (int value : values) {
+            assertThat(VarIntCodec.readVarInt(buffer), is(value));
+        }
+    }
+
+    @Test
+    public void shouldRoundTripStrings() throws Exception {
+        ByteBuf buffer = Unpooled.buffer(BUFFER_SIZE);
+
+        VarIntCodec.writeString(buffer, "com.test.Event");
+        VarIntCodec.writeString(buffer, "");
+
+        assertThat(VarIntCodec.readString(buffer), is("com.test.Event"));
+        assertThat(VarIntCodec.readString(buffer), is(""));
+        assertThat(buffer.isReadable(), is(false));
+    }
+}
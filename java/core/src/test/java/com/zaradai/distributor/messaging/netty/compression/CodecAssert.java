@@ -0,0 +1,60 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+final class CodecAssert {
+    private static final int REPEATS = 200;
+    private static final long SEED = 42;
+
+    private CodecAssert() {
+    }
+
+    static ByteBuf createCompressible() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < REPEATS; i++) {
+            builder.append("symbol=ZRD").append(i % 10).append(",bid=100.25,ask=100.50;");
+        }
+
+        return Unpooled.copiedBuffer(builder.toString(), CharsetUtil.US_ASCII);
+    }
+
+    static ByteBuf createRandom(int size) {
+        byte[] bytes = new byte[size];
+        new Random(SEED).nextBytes(bytes);
+
+        return Unpooled.wrappedBuffer(bytes);
+    }
+
+    static void assertRoundTrip(CompressionCodec codec, ByteBuf original, ByteBuf compressed, ByteBuf restored) {
+        int length = original.readableBytes();
+
+        codec.compress(original.duplicate(), compressed);
+        codec.decompress(compressed, restored, length);
+
+        assertThat(compressed.isReadable(), is(false));
+        assertThat(restored.equals(original), is(true));
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CompressionCodecsTest {
+    private CompressionCodecs uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new CompressionCodecs();
+    }
+
+    @Test
+    public void shouldProvideBuiltInCodecs() throws Exception {
+        assertThat(uut.get(DeflateCodec.NAME), instanceOf(DeflateCodec.class));
+        assertThat(uut.get(SnappyCodec.NAME), instanceOf(SnappyCodec.class));
+    }
+
+    @Test
+    public void shouldNotProvideCodecForNone() throws Exception {
+        assertThat(uut.get(CompressionCodecs.NONE), is(nullValue()));
+        assertThat(uut.get(null), is(nullValue()));
+    }
+
+    @Test
+    public void shouldRegisterCodec() throws Exception {
+        CompressionCodec codec = new CompressionCodec() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public void compress(ByteBuf in, ByteBuf out) {
+            }
+
+            @Override
+            public void decompress(ByteBuf in, ByteBuf out, int length) {
+            }
+        };
+
+        uut.register(codec);
+
+        assertThat(uut.get("test") == codec, is(true));
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DeflateCodecTest {
+    private static final int RANDOM_SIZE = 4096;
+    private static final int LARGE_SIZE = 100 * 1024;
+    private DeflateCodec uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new DeflateCodec();
+    }
+
+    @Test
+    public void shouldHaveName() throws Exception {
+        assertThat(uut.getName(), is(DeflateCodec.NAME));
+    }
+
+    @Test
+    public void shouldCompressRepetitiveData() throws Exception {
+        ByteBuf original = CodecAssert.createCompressible();
+        ByteBuf compressed = Unpooled.buffer();
+
+        uut.compress(original.duplicate(), compressed);
+
+        assertThat(compressed.readableBytes() < original.readableBytes() / 2, is(true));
+    }
+
+    @Test
+    public void shouldRoundTripHeapBuffers() throws Exception {
+        CodecAssert.assertRoundTrip(uut, CodecAssert.createCompressible(), Unpooled.buffer(), Unpooled.buffer());
+    }
+
+    @Test
+    public void shouldRoundTripDirectBuffers() throws Exception {
+        ByteBuf original = Unpooled.directBuffer().writeBytes(CodecAssert.createCompressible());
+
+        CodecAssert.assertRoundTrip(uut, original, Unpooled.directBuffer(), Unpooled.directBuffer());
+    }
+
+    @Test
+    public void shouldRoundTripIncompressibleData() throws Exception {
+        CodecAssert.assertRoundTrip(uut, CodecAssert.createRandom(RANDOM_SIZE), Unpooled.buffer(), Unpooled.buffer());
+    }
+
+    @Test
+    public void shouldRoundTripLargeInput() throws Exception {
+        ByteBuf original = Unpooled.buffer();
+
+        while (original.readableBytes() < LARGE_SIZE) {
+            original.writeBytes(CodecAssert.createCompressible());
+            original.writeBytes(CodecAssert.createRandom(RANDOM_SIZE));
+        }
+
+        CodecAssert.assertRoundTrip(uut, original, Unpooled.buffer(), Unpooled.buffer());
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.KryoByteBufSerializer;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
+import com.zaradai.mocks.DistributorConfigMocker;
+import com.zaradai.mocks.MessageEncoderFactoryMocker;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class EncodedMessageFactoryTest {
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+    private static final int TEST_VALUE = 675;
+    private static final InetSocketAddress TEST_ADDRESS = new InetSocketAddress("127.0.0.1", 80);
+
+    private KryoByteBufSerializer serializer;
+    private EventClassRegistry registry;
+    private SourceRegistry sources;
+    private Message testMessage;
+    private DistributorConfig config;
+    private EncodedMessageFactory uut;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        when(config.getMaxMessageSize()).thenReturn(MAX_MESSAGE_SIZE);
+        when(config.getHost()).thenReturn(TEST_ADDRESS.getHostString());
+        when(config.getPort()).thenReturn(TEST_ADDRESS.getPort());
+        serializer = new KryoByteBufSerializer(new KryoPool(new KryoFactory()));
+        testMessage = new Message();
+        testMessage.setEvent(new TestEvent(TEST_VALUE));
+        testMessage.setSource(TEST_ADDRESS);
+        registry = new EventClassRegistry();
+        sources = new SourceRegistry(config);
+        MessageEncoder encoder = new MessageEncoder(serializer, registry, sources);
+        uut = new EncodedMessageFactory(MessageEncoderFactoryMocker.create(encoder));
+    }
+
+    @Test
+    public void shouldEncodeDecodableFrame() throws Exception {
+        EncodedMessage res = uut.create(testMessage);
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+
+        out.writeOutbound(res.retain());
+        MessageDecoderTest.transfer(out, in);
+
+        Message decoded = (Message) in.readInbound();
+        assertThat(decoded.getSource(), is(TEST_ADDRESS));
+        assertThat(((TestEvent) decoded.getEvent()).getTest(), is(TEST_VALUE));
+        assertThat(res.getEvent(), is(testMessage.getEvent()));
+        res.release();
+    }
+
+    @Test
+    public void shouldHoldSingleReference() throws Exception {
+        EncodedMessage res = uut.create(testMessage);
+
+        assertThat(res.refCnt(), is(1));
+        assertThat(res.release(), is(true));
+    }
+
+    @Test
+    public void shouldRetainAlreadyEncodedMessage() throws Exception {
+        EncodedMessage encoded = uut.create(testMessage);
+
+        EncodedMessage res = uut.create(encoded);
+
+        assertThat(res == encoded, is(true));
+        assertThat(res.refCnt(), is(2));
+        res.release(2);
+    }
+
+    @Test
+    public void shouldDetachEventFromEncodedFrame() throws Exception {
+        EncodedMessage res = uut.createDetached(testMessage);
+
+        assertThat(res.getEvent() == null, is(true));
+        assertThat(res.getSource(), is(TEST_ADDRESS));
+        assertThat(res.getTypeId(), is(registry.register(TestEvent.class)));
+        assertThat(res.refCnt(), is(1));
+        assertThat(res.release(), is(true));
+    }
+
+    @Test
+    public void shouldShareFrameWhenDetachingEncodedMessage() throws Exception {
+        EncodedMessage encoded = uut.create(testMessage);
+
+        EncodedMessage res = uut.createDetached(encoded);
+
+        assertThat(res.getFrame() == encoded.getFrame(), is(true));
+        assertThat(encoded.refCnt(), is(2));
+        res.release();
+        assertThat(encoded.release(), is(true));
+    }
+
+    @Test
+    public void shouldWriteSameFrameToManyChannels() throws Exception {
+        EncodedMessage encoded = uut.create(testMessage);
+        EmbeddedChannel first = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel second = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        ByteBuf expected = encoded.getFrame().copy();
+
+        first.writeOutbound(encoded.retain());
+        second.writeOutbound(encoded.retain());
+        // each channel is told about the event class first
+        ((ByteBuf) first.readOutbound()).release();
+        ((ByteBuf) second.readOutbound()).release();
+
+        ByteBuf firstWritten = (ByteBuf) first.readOutbound();
+        ByteBuf secondWritten = (ByteBuf) second.readOutbound();
+        assertThat(firstWritten.equals(expected), is(true));
+        assertThat(secondWritten.equals(expected), is(true));
+        firstWritten.release();
+        secondWritten.release();
+        assertThat(encoded.release(), is(true));
+        expected.release();
+    }
+}
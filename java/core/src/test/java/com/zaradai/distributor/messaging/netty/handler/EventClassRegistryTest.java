@@ -0,0 +1,68 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class EventClassRegistryTest {
+    private EventClassRegistry uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new EventClassRegistry();
+    }
+
+    @Test
+    public void shouldAssignIdsInOrderStartingAtOne() throws Exception {
+        assertThat(uut.register(TestEvent.class), is(1));
+        assertThat(uut.register(String.class), is(2));
+        assertThat(uut.size(), is(2));
+    }
+
+    @Test
+    public void shouldReturnSameIdForKnownClass() throws Exception {
+        int id = uut.register(TestEvent.class);
+
+        assertThat(uut.register(TestEvent.class), is(id));
+        assertThat(uut.getType(id) == TestEvent.class, is(true));
+    }
+
+    @Test
+    public void shouldRoundTripDefinitions() throws Exception {
+        uut.register(TestEvent.class);
+        uut.register(String.class);
+        ByteBuf buffer = Unpooled.buffer();
+        EventClassTable table = new EventClassTable();
+
+        assertThat(uut.writeDefinitions(buffer), is(2));
+        table.readDefinitions(buffer, uut);
+
+        assertThat(table.getType(1) == TestEvent.class, is(true));
+        assertThat(table.getType(2) == String.class, is(true));
+    }
+
+    @Test
+    public void shouldResolveUnknownClassToNull() throws Exception {
+        assertThat(uut.resolve("com.zaradai.NoSuchEvent"), is(nullValue()));
+    }
+}
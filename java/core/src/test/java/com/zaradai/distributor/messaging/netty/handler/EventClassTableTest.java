@@ -0,0 +1,69 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class EventClassTableTest {
+    private EventClassTable uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new EventClassTable();
+    }
+
+    @Test
+    public void shouldBeSharedPerChannel() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+
+        assertThat(EventClassTable.get(channel) == EventClassTable.get(channel), is(true));
+        assertThat(EventClassTable.get(channel) == EventClassTable.get(new EmbeddedChannel()), is(false));
+    }
+
+    @Test
+    public void shouldOnlyMoveAnnouncedForward() throws Exception {
+        uut.setAnnounced(3);
+        uut.setAnnounced(2);
+
+        assertThat(uut.getAnnounced(), is(3));
+    }
+
+    @Test
+    public void shouldDefineOutOfOrder() throws Exception {
+        uut.define(2, String.class);
+        uut.define(1, TestEvent.class);
+
+        assertThat(uut.getType(1) == TestEvent.class, is(true));
+        assertThat(uut.getType(2) == String.class, is(true));
+    }
+
+    @Test(expected = EncodingException.class)
+    public void shouldThrowForUndefinedId() throws Exception {
+        uut.getType(1);
+    }
+
+    @Test(expected = EncodingException.class)
+    public void shouldThrowForUnresolvedClass() throws Exception {
+        uut.define(1, null);
+
+        uut.getType(1);
+    }
+}
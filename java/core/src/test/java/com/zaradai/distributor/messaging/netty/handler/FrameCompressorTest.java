@@ -0,0 +1,164 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.KryoByteBufSerializer;
+import com.zaradai.distributor.messaging.netty.compression.CompressionCodec;
+import com.zaradai.distributor.messaging.netty.compression.DeflateCodec;
+import com.zaradai.distributor.messaging.netty.compression.SnappyCodec;
+import com.zaradai.mocks.DistributorConfigMocker;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class FrameCompressorTest {
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+    private static final int THRESHOLD = 256;
+    private static final int LARGE_SIZE = 8192;
+    private static final InetSocketAddress TEST_ADDRESS = new InetSocketAddress("127.0.0.1", 80);
+
+    private DistributorConfig config;
+    private KryoByteBufSerializer serializer;
+    private EventClassRegistry registry;
+    private SourceRegistry sources;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        when(config.getMaxMessageSize()).thenReturn(MAX_MESSAGE_SIZE);
+        when(config.getHost()).thenReturn(TEST_ADDRESS.getHostString());
+        when(config.getPort()).thenReturn(TEST_ADDRESS.getPort());
+        when(config.getCompressionThreshold()).thenReturn(THRESHOLD);
+        serializer = new KryoByteBufSerializer(new KryoPool(new KryoFactory()));
+        registry = new EventClassRegistry();
+        sources = new SourceRegistry(config);
+    }
+
+    @Test
+    public void shouldNotCompressBelowThreshold() throws Exception {
+        ByteBuf frame = writeThrough(createCompressor(), "small");
+
+        assertThat(isCompressed(frame), is(false));
+        frame.release();
+    }
+
+    @Test
+    public void shouldCompressAboveThreshold() throws Exception {
+        ByteBuf uncompressed = writeThrough(new FrameCompressor(config), createLarge());
+        ByteBuf compressed = writeThrough(createCompressor(), createLarge());
+
+        assertThat(isCompressed(compressed), is(true));
+        assertThat(compressed.readableBytes() < uncompressed.readableBytes(), is(true));
+        uncompressed.release();
+        compressed.release();
+    }
+
+    @Test
+    public void shouldPassThroughWithoutCodec() throws Exception {
+        ByteBuf frame = writeThrough(new FrameCompressor(config), createLarge());
+
+        assertThat(isCompressed(frame), is(false));
+        frame.release();
+    }
+
+    @Test
+    public void shouldRoundTripWithDeflate() throws Exception {
+        assertRoundTrip(new DeflateCodec());
+    }
+
+    @Test
+    public void shouldRoundTripWithSnappy() throws Exception {
+        assertRoundTrip(new SnappyCodec());
+    }
+
+    @Test(expected = DecoderException.class)
+    public void shouldRejectCompressedFrameWithoutDecompressor() throws Exception {
+        EmbeddedChannel out = new EmbeddedChannel(createCompressor(),
+                new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+
+        out.writeOutbound(createMessage(createLarge()));
+        MessageDecoderTest.transfer(out, in);
+        in.checkException();
+    }
+
+    private void assertRoundTrip(CompressionCodec codec) {
+        FrameCompressor compressor = new FrameCompressor(config);
+        compressor.setCodec(codec);
+        FrameDecompressor decompressor = new FrameDecompressor(config);
+        decompressor.setCodec(codec);
+        EmbeddedChannel out = new EmbeddedChannel(compressor, new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(decompressor,
+                new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+
+        out.writeOutbound(createMessage("small"));
+        out.writeOutbound(createMessage(createLarge()));
+        MessageDecoderTest.transfer(out, in);
+
+        assertThat((String) ((Message) in.readInbound()).getEvent(), is("small"));
+        assertThat((String) ((Message) in.readInbound()).getEvent(), is(createLarge()));
+    }
+
+    private FrameCompressor createCompressor() {
+        FrameCompressor res = new FrameCompressor(config);
+        res.setCodec(new DeflateCodec());
+
+        return res;
+    }
+
+    private ByteBuf writeThrough(FrameCompressor compressor, String event) {
+        EmbeddedChannel out = new EmbeddedChannel(compressor, new MessageEncoder(serializer, registry, sources));
+        out.writeOutbound(createMessage(event));
+        // skip class definition
+        ((ByteBuf) out.readOutbound()).release();
+
+        return (ByteBuf) out.readOutbound();
+    }
+
+    private boolean isCompressed(ByteBuf frame) {
+        return (frame.getByte(frame.readerIndex() + FrameFormat.LENGTH_SIZE) & FrameFormat.FLAG_COMPRESSED) != 0;
+    }
+
+    private String createLarge() {
+        char[] chars = new char[LARGE_SIZE];
+        Arrays.fill(chars, 'z');
+
+        return new String(chars);
+    }
+
+    private Message createMessage(Object event) {
+        Message res = new Message();
+        res.setEvent(event);
+        res.setSource(TEST_ADDRESS);
+
+        return res;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HeartbeatHandlerTest {
+    private static final long TEST_INTERVAL = 100;
+    private static final long TEST_TIMEOUT = 500;
+    private static final String TEST_NAME = "heartbeat";
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        channel = new EmbeddedChannel(new HeartbeatHandler(TEST_INTERVAL, TEST_TIMEOUT));
+    }
+
+    @Test
+    public void shouldStartIdleDetectionAfterHandshake() throws Exception {
+        // the embedded event loop cannot schedule the idle checks so check the pipeline is asked to add them
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        ChannelPipeline pipeline = mock(ChannelPipeline.class);
+        when(ctx.pipeline()).thenReturn(pipeline);
+        when(ctx.name()).thenReturn(TEST_NAME);
+        ArgumentCaptor<IdleStateHandler> captor = ArgumentCaptor.forClass(IdleStateHandler.class);
+
+        new HeartbeatHandler(TEST_INTERVAL, TEST_TIMEOUT).userEventTriggered(ctx, HandshakeCompletionEvent.SUCCESS);
+
+        verify(pipeline).addBefore(eq(TEST_NAME), eq(HeartbeatHandler.IDLE_HANDLER_NAME), captor.capture());
+        assertThat(captor.getValue().getWriterIdleTimeInMillis(), is(TEST_INTERVAL));
+        assertThat(captor.getValue().getReaderIdleTimeInMillis(), is(TEST_TIMEOUT));
+        verify(ctx).fireUserEventTriggered(HandshakeCompletionEvent.SUCCESS);
+    }
+
+    @Test
+    public void shouldNotStartIdleDetectionIfHandshakeFailed() throws Exception {
+        channel.pipeline().fireUserEventTriggered(new HandshakeCompletionEvent(new Exception("test")));
+
+        channel.checkException();
+        assertThat(channel.pipeline().get(HeartbeatHandler.IDLE_HANDLER_NAME), is(nullValue()));
+    }
+
+    @Test
+    public void shouldSendHeartbeatWhenWriterIdle() throws Exception {
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.FIRST_WRITER_IDLE_STATE_EVENT);
+
+        ByteBuf res = (ByteBuf) channel.readOutbound();
+        assertThat(res.readInt(), is(res.readableBytes()));
+        assertThat((int) res.readByte(), is(FrameFormat.NO_FLAGS));
+        assertThat(res.readInt(), is(MessageEncoder.HEARTBEAT_MAGIC));
+        res.release();
+    }
+
+    @Test
+    public void shouldCloseWhenReaderIdle() throws Exception {
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT);
+
+        assertThat(channel.isOpen(), is(false));
+    }
+
+    @Test
+    public void shouldCreateCompleteFrame() throws Exception {
+        ByteBuf res = HeartbeatHandler.createHeartbeat(UnpooledByteBufAllocator.DEFAULT);
+
+        assertThat(res.readableBytes(), is(FrameFormat.HEADER_SIZE + FrameFormat.MAGIC_SIZE));
+        res.release();
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.Subscribe;
+import com.zaradai.distributor.messaging.LocalInterests;
+import com.zaradai.distributor.messaging.RoutingTable;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import com.zaradai.mocks.RoutingTableMocker;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class InterestHandlerTest {
+    private static final InetSocketAddress TEST_PEER = new InetSocketAddress("127.0.0.1", 1709);
+    private static final List<String> TEST_TYPES = ImmutableList.of(String.class.getName());
+    private static final List<String> TEST_TOPICS = ImmutableList.of("prices.eu.*");
+
+    private LocalInterests localInterests;
+    private RoutingTable routingTable;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        localInterests = new LocalInterests();
+        routingTable = RoutingTableMocker.create();
+        channel = new EmbeddedChannel(new InterestHandler(localInterests, routingTable));
+        channel.attr(MessagingHandshake.ENDPOINT).set(TEST_PEER);
+    }
+
+    @Test
+    public void shouldAdvertiseAllInterestsOnHandshake() throws Exception {
+        localInterests.add(new TestListener());
+        localInterests.addTopic("prices.eu.*");
+
+        channel.pipeline().fireUserEventTriggered(HandshakeCompletionEvent.SUCCESS);
+
+        verify(routingTable).joined(TEST_PEER, channel);
+        assertFrame(InterestUpdate.REPLACE, String.class.getName());
+        assertFrame(MessageEncoder.TOPIC_MAGIC, InterestUpdate.REPLACE, "prices.eu.*");
+    }
+
+    @Test
+    public void shouldAdvertiseChanges() throws Exception {
+        TestListener listener = new TestListener();
+        channel.pipeline().fireUserEventTriggered(HandshakeCompletionEvent.SUCCESS);
+        releaseAdvertisement();
+
+        localInterests.add(listener);
+        localInterests.remove(listener);
+
+        assertFrame(InterestUpdate.ADD, String.class.getName());
+        assertFrame(InterestUpdate.REMOVE, String.class.getName());
+    }
+
+    @Test
+    public void shouldAdvertiseTopicChanges() throws Exception {
+        channel.pipeline().fireUserEventTriggered(HandshakeCompletionEvent.SUCCESS);
+        releaseAdvertisement();
+
+        localInterests.addTopic("orders.#");
+        localInterests.removeTopic("orders.#");
+
+        assertFrame(MessageEncoder.TOPIC_MAGIC, InterestUpdate.ADD, "orders.#");
+        assertFrame(MessageEncoder.TOPIC_MAGIC, InterestUpdate.REMOVE, "orders.#");
+    }
+
+    @Test
+    public void shouldNotAdvertiseIfHandshakeFailed() throws Exception {
+        channel.pipeline().fireUserEventTriggered(new HandshakeCompletionEvent(new Exception("test")));
+
+        verify(routingTable, never()).joined(any(InetSocketAddress.class), any());
+        assertThat(channel.readOutbound(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldApplyPeerUpdates() throws Exception {
+        channel.pipeline().fireUserEventTriggered(HandshakeCompletionEvent.SUCCESS);
+
+        channel.writeInbound(new InterestUpdate(InterestUpdate.REPLACE, TEST_TYPES));
+        channel.writeInbound(new InterestUpdate(InterestUpdate.ADD, TEST_TYPES));
+        channel.writeInbound(new InterestUpdate(InterestUpdate.REMOVE, TEST_TYPES));
+
+        verify(routingTable).advertised(TEST_PEER, channel, TEST_TYPES);
+        verify(routingTable).subscribed(TEST_PEER, channel, TEST_TYPES);
+        verify(routingTable).unsubscribed(TEST_PEER, channel, TEST_TYPES);
+        assertThat(channel.readInbound(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldApplyPeerTopicUpdates() throws Exception {
+        channel.pipeline().fireUserEventTriggered(HandshakeCompletionEvent.SUCCESS);
+
+        channel.writeInbound(new InterestUpdate(InterestUpdate.REPLACE, true, TEST_TOPICS));
+        channel.writeInbound(new InterestUpdate(InterestUpdate.ADD, true, TEST_TOPICS));
+        channel.writeInbound(new InterestUpdate(InterestUpdate.REMOVE, true, TEST_TOPICS));
+
+        verify(routingTable).advertisedTopics(TEST_PEER, channel, TEST_TOPICS);
+        verify(routingTable).subscribedTopics(TEST_PEER, channel, TEST_TOPICS);
+        verify(routingTable).unsubscribedTopics(TEST_PEER, channel, TEST_TOPICS);
+        verify(routingTable, never()).advertised(TEST_PEER, channel, TEST_TOPICS);
+    }
+
+    @Test
+    public void shouldPassOnMessages() throws Exception {
+        Object message = new Object();
+
+        channel.writeInbound(message);
+
+        assertThat(channel.readInbound() == message, is(true));
+    }
+
+    @Test
+    public void shouldForgetPeerWhenClosed() throws Exception {
+        channel.pipeline().fireUserEventTriggered(HandshakeCompletionEvent.SUCCESS);
+        releaseAdvertisement();
+
+        channel.close();
+        channel.runPendingTasks();
+        localInterests.add(new TestListener());
+
+        verify(routingTable).left(TEST_PEER, channel);
+        assertThat(channel.readOutbound(), is(nullValue()));
+    }
+
+    private void releaseAdvertisement() {
+        // the types then the topics
+        ((ByteBuf) channel.readOutbound()).release();
+        ((ByteBuf) channel.readOutbound()).release();
+    }
+
+    private void assertFrame(int kind, String type) {
+        assertFrame(MessageEncoder.INTEREST_MAGIC, kind, type);
+    }
+
+    private void assertFrame(int magic, int kind, String name) {
+        ByteBuf res = (ByteBuf) channel.readOutbound();
+        assertThat(res.readInt(), is(res.readableBytes()));
+        assertThat((int) res.readByte(), is(FrameFormat.NO_FLAGS));
+        assertThat(res.readInt(), is(magic));
+        assertThat(VarIntCodec.readVarInt(res), is(kind));
+        assertThat(VarIntCodec.readVarInt(res), is(1));
+        assertThat(VarIntCodec.readString(res), is(name));
+        res.release();
+    }
+
+    public static class TestListener {
+        @Subscribe
+        public void onString(String event) {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.KryoByteBufSerializer;
+import com.zaradai.mocks.DistributorConfigMocker;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
+import com.zaradai.serialization.kryo.KryoSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class MessageBatcherTest {
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+    private static final int MAX_MESSAGES = 3;
+    private static final int MAX_BYTES = 1024;
+    private static final InetSocketAddress TEST_ADDRESS = new InetSocketAddress("127.0.0.1", 80);
+
+    private DistributorConfig config;
+    private KryoByteBufSerializer serializer;
+    private EventClassRegistry registry;
+    private SourceRegistry sources;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        when(config.getMaxMessageSize()).thenReturn(MAX_MESSAGE_SIZE);
+        when(config.getHost()).thenReturn(TEST_ADDRESS.getHostString());
+        when(config.getPort()).thenReturn(TEST_ADDRESS.getPort());
+        when(config.getBatchMaxMessages()).thenReturn(MAX_MESSAGES);
+        when(config.getBatchMaxBytes()).thenReturn(MAX_BYTES);
+        serializer = new KryoByteBufSerializer(new KryoPool(new KryoFactory()));
+        registry = new EventClassRegistry();
+        sources = new SourceRegistry(config);
+    }
+
+    @Test
+    public void shouldWriteBatchWhenFull() throws Exception {
+        EmbeddedChannel out = createOutbound();
+
+        for (int i = 0; i <= MAX_MESSAGES; i++) {
+            out.write(createMessage(i));
+        }
+        out.flush();
+
+        // class definition, the full batch then the last message on its own
+        assertThat(out.outboundMessages().size(), is(3));
+        assertDecoded(out, MAX_MESSAGES + 1);
+    }
+
+    @Test
+    public void shouldWriteOpenBatchOnFlush() throws Exception {
+        EmbeddedChannel out = createOutbound();
+
+        out.write(createMessage(0));
+        out.write(createMessage(1));
+        out.flush();
+
+        assertThat(out.outboundMessages().size(), is(2));
+        assertDecoded(out, 2);
+    }
+
+    @Test
+    public void shouldSendSingleMessageAsIs() throws Exception {
+        EmbeddedChannel out = createOutbound();
+
+        out.writeOutbound(createMessage(0));
+        ((ByteBuf) out.readOutbound()).release();
+
+        ByteBuf frame = (ByteBuf) out.readOutbound();
+        assertThat((int) frame.getByte(FrameFormat.LENGTH_SIZE), is(FrameFormat.NO_FLAGS));
+        frame.release();
+    }
+
+    @Test
+    public void shouldDecodeEachEmbeddedEventOfBatch() throws Exception {
+        // a stream serializer reads ahead, each entry must be decoded from its own bounds
+        KryoSerializer streamSerializer = new KryoSerializer(new KryoPool(new KryoFactory()));
+        EmbeddedChannel out = new EmbeddedChannel(new MessageBatcher(config),
+                new MessageEncoder(streamSerializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(streamSerializer, new EventClassRegistry(),
+                config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+
+        for (int i = 0; i < MAX_MESSAGES; i++) {
+            out.write(createMessage(i));
+        }
+        out.flush();
+        MessageDecoderTest.transfer(out, in);
+
+        for (int i = 0; i < MAX_MESSAGES; i++) {
+            assertThat(((TestEvent) ((Message) in.readInbound()).getEvent()).getTest(), is(i));
+        }
+        assertThat(in.readInbound(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldWriteBatchWhenMaxBytesReached() throws Exception {
+        when(config.getBatchMaxBytes()).thenReturn(1);
+        EmbeddedChannel out = createOutbound();
+
+        out.write(createMessage(0));
+        out.write(createMessage(1));
+        out.flush();
+
+        // class definition then each message on its own
+        assertThat(out.outboundMessages().size(), is(3));
+        assertDecoded(out, 2);
+    }
+
+    @Test
+    public void shouldCompletePromisesWithBatch() throws Exception {
+        EmbeddedChannel out = createOutbound();
+
+        ChannelFuture first = out.write(createMessage(0));
+        ChannelFuture second = out.write(createMessage(1));
+        assertThat(first.isDone(), is(false));
+        out.flush();
+
+        assertThat(first.isSuccess(), is(true));
+        assertThat(second.isSuccess(), is(true));
+        releaseAll(out);
+    }
+
+    @Test
+    public void shouldFailHeldMessagesWhenRemoved() throws Exception {
+        EmbeddedChannel out = createOutbound();
+        ChannelFuture future = out.write(createMessage(0));
+
+        out.pipeline().remove(MessageBatcher.class);
+
+        assertThat(future.isDone(), is(true));
+        assertThat(future.isSuccess(), is(false));
+        releaseAll(out);
+    }
+
+    private EmbeddedChannel createOutbound() {
+        return new EmbeddedChannel(new MessageBatcher(config), new MessageEncoder(serializer, registry, sources));
+    }
+
+    private void assertDecoded(EmbeddedChannel out, int count) {
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+
+        MessageDecoderTest.transfer(out, in);
+
+        for (int i = 0; i < count; i++) {
+            Message res = (Message) in.readInbound();
+            assertThat(res.getSource(), is(TEST_ADDRESS));
+            assertThat(((TestEvent) res.getEvent()).getTest(), is(i));
+        }
+        assertThat(in.readInbound(), is(nullValue()));
+    }
+
+    private void releaseAll(EmbeddedChannel channel) {
+        Object written;
+
+        while ((written = channel.readOutbound()) != null) {
+            ((ByteBuf) written).release();
+        }
+    }
+
+    private Message createMessage(int value) {
+        Message res = new Message();
+        res.setEvent(new TestEvent(value));
+        res.setSource(TEST_ADDRESS);
+
+        return res;
+    }
+}
@@ -15,52 +15,274 @@
  */
 package com.zaradai.distributor.messaging.netty.handler;
 
-import com.esotericsoftware.kryo.Kryo;
+import com.google.common.collect.ImmutableList;
+import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.KryoByteBufSerializer;
+import com.zaradai.mocks.DistributorConfigMocker;
 import com.zaradai.serialization.Serializer;
+import com.zaradai.serialization.kryo.KryoFactory;
+import com.zaradai.serialization.kryo.KryoPool;
 import com.zaradai.serialization.kryo.KryoSerializer;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
-import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.CharsetUtil;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.net.InetSocketAddress;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class MessageDecoderTest {
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
     private static final int TEST_VALUE = 675;
     private static final TestEvent TEST_EVENT = new TestEvent(TEST_VALUE);
     private final static InetSocketAddress TEST_ADDRESS = new InetSocketAddress("127.0.0.1", 80);
+    private final static InetSocketAddress RELAYED_ADDRESS = new InetSocketAddress("127.0.0.1", 81);
 
     private Message testMessage;
+    private DistributorConfig config;
+    private EventClassRegistry registry;
+    private SourceRegistry sources;
 
     @Before
     public void setUp() throws Exception {
-        testMessage = new Message();
-        testMessage.setEvent(TEST_EVENT);
-        testMessage.setSource(TEST_ADDRESS);
+        config = DistributorConfigMocker.create();
+        when(config.getMaxMessageSize()).thenReturn(MAX_MESSAGE_SIZE);
+        when(config.getHost()).thenReturn(TEST_ADDRESS.getHostString());
+        when(config.getPort()).thenReturn(TEST_ADDRESS.getPort());
+        testMessage = createMessage(TEST_EVENT);
+        registry = new EventClassRegistry();
+        sources = new SourceRegistry(config);
     }
 
     @Test
     public void shouldDecode() throws Exception {
-        Serializer serializer = new KryoSerializer(new Kryo());
-        MessageEncoder encoder = new MessageEncoder(serializer);
-        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
-        MessageDecoder uut = new MessageDecoder(serializer);
-        ByteBuf buffer = createValidBuffer();
-        encoder.encode(ctx, testMessage, buffer);
+        assertDecodes(new KryoByteBufSerializer(new KryoPool(new KryoFactory())));
+    }
+
+    @Test
+    public void shouldDecodeWithStreamSerializer() throws Exception {
+        assertDecodes(new KryoSerializer(new KryoPool(new KryoFactory())));
+    }
+
+    @Test
+    public void shouldAnnounceClassOnlyOnce() throws Exception {
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(createSerializer(), registry, sources));
+
+        out.writeOutbound(testMessage);
+        out.writeOutbound(createMessage(new TestEvent(1)));
+
+        // definition, then two message frames
+        assertThat(releaseAll(out), is(3));
+    }
+
+    @Test
+    public void shouldNotCarryClassNameInMessageFrame() throws Exception {
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(createSerializer(), registry, sources));
+        out.writeOutbound(testMessage);
+        ByteBuf definition = (ByteBuf) out.readOutbound();
+        ByteBuf frame = (ByteBuf) out.readOutbound();
+
+        assertThat(contains(definition, TestEvent.class.getName()), is(true));
+        assertThat(contains(frame, TestEvent.class.getName()), is(false));
+        definition.release();
+        frame.release();
+    }
+
+    @Test
+    public void shouldAnnounceClassesAssignedAfterHandshake() throws Exception {
+        KryoByteBufSerializer serializer = createSerializer();
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+
+        out.writeOutbound(testMessage);
+        transfer(out, in);
+        out.writeOutbound(createMessage("second type"));
+        transfer(out, in);
+
+        assertThat(((TestEvent) ((Message) in.readInbound()).getEvent()).getTest(), is(TEST_VALUE));
+        assertThat((String) ((Message) in.readInbound()).getEvent(), is("second type"));
+        assertThat(in.readInbound(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldUseIdsExchangedInHandshake() throws Exception {
+        KryoByteBufSerializer serializer = createSerializer();
+        registry.register(TestEvent.class);
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+        ByteBuf handshake = out.alloc().buffer();
+        EventClassTable.get(out).setAnnounced(registry.writeDefinitions(handshake));
+        EventClassTable.get(in).readDefinitions(handshake, registry);
+        handshake.release();
 
-        Message res = (Message) uut.decode(ctx, buffer);
+        out.writeOutbound(testMessage);
+
+        // no definition needed
+        ByteBuf frame = (ByteBuf) out.readOutbound();
+        assertThat(out.readOutbound(), is(nullValue()));
+        in.writeInbound(frame);
+        assertThat(((TestEvent) ((Message) in.readInbound()).getEvent()).getTest(), is(TEST_VALUE));
+    }
 
+    @Test(expected = DecoderException.class)
+    public void shouldFailOnUnknownTypeId() throws Exception {
+        KryoByteBufSerializer serializer = createSerializer();
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+        out.writeOutbound(testMessage);
+        ((ByteBuf) out.readOutbound()).release();
+
+        in.writeInbound(out.readOutbound());
+        in.checkException();
+    }
+
+    @Test
+    public void shouldUseAddressBoundAtHandshakeForLocalSource() throws Exception {
+        KryoByteBufSerializer serializer = createSerializer();
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        InetSocketAddress peer = new InetSocketAddress("127.0.0.1", 80);
+        SourceTable.get(in).setPeer(peer);
+
+        out.writeOutbound(testMessage);
+        out.writeOutbound(createMessage(new TestEvent(1)));
+        transfer(out, in);
+
+        assertThat(((Message) in.readInbound()).getSource() == peer, is(true));
+        assertThat(((Message) in.readInbound()).getSource() == peer, is(true));
+    }
+
+    @Test
+    public void shouldAnnounceRelayedSourceOnce() throws Exception {
+        KryoByteBufSerializer serializer = createSerializer();
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+        testMessage.setSource(RELAYED_ADDRESS);
+        Message second = createMessage(new TestEvent(1));
+        second.setSource(RELAYED_ADDRESS);
+
+        out.writeOutbound(testMessage);
+        out.writeOutbound(second);
+        // source definition, class definition and two message frames
+        assertThat(out.outboundMessages().size(), is(4));
+        transfer(out, in);
+
+        Message first = (Message) in.readInbound();
+        assertThat(first.getSource(), is(RELAYED_ADDRESS));
+        assertThat(((Message) in.readInbound()).getSource() == first.getSource(), is(true));
+    }
+
+    @Test
+    public void shouldConsumeHeartbeat() throws Exception {
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(createSerializer(), registry, config));
+
+        in.writeInbound(HeartbeatHandler.createHeartbeat(in.alloc()));
+
+        in.checkException();
+        assertThat(in.readInbound(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldDecodeInterestUpdate() throws Exception {
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(createSerializer(), registry, config));
+
+        in.writeInbound(InterestHandler.createFrame(in.alloc(), InterestUpdate.ADD,
+                ImmutableList.of(String.class.getName(), TestEvent.class.getName())));
+
+        InterestUpdate res = (InterestUpdate) in.readInbound();
+        assertThat(res.getKind(), is(InterestUpdate.ADD));
+        assertThat(res.isTopics(), is(false));
+        assertThat(res.getNames().size(), is(2));
+        assertThat(res.getNames().get(0), is(String.class.getName()));
+        assertThat(res.getNames().get(1), is(TestEvent.class.getName()));
+    }
+
+    @Test
+    public void shouldDecodeTopicUpdate() throws Exception {
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(createSerializer(), registry, config));
+
+        in.writeInbound(InterestHandler.createTopicFrame(in.alloc(), InterestUpdate.REPLACE,
+                ImmutableList.of("prices.eu.*", "orders.#")));
+
+        InterestUpdate res = (InterestUpdate) in.readInbound();
+        assertThat(res.getKind(), is(InterestUpdate.REPLACE));
+        assertThat(res.isTopics(), is(true));
+        assertThat(res.getNames().size(), is(2));
+        assertThat(res.getNames().get(0), is("prices.eu.*"));
+        assertThat(res.getNames().get(1), is("orders.#"));
+    }
+
+    @Test(expected = DecoderException.class)
+    public void shouldFailOnUnknownSourceId() throws Exception {
+        KryoByteBufSerializer serializer = createSerializer();
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        testMessage.setSource(RELAYED_ADDRESS);
+        out.writeOutbound(testMessage);
+        // drop the source definition
+        ((ByteBuf) out.readOutbound()).release();
+
+        transfer(out, in);
+        in.checkException();
+    }
+
+    private void assertDecodes(Serializer serializer) throws Exception {
+        EmbeddedChannel out = new EmbeddedChannel(new MessageEncoder(serializer, registry, sources));
+        EmbeddedChannel in = new EmbeddedChannel(new MessageDecoder(serializer, new EventClassRegistry(), config));
+        SourceTable.get(in).setPeer(TEST_ADDRESS);
+
+        out.writeOutbound(testMessage);
+        transfer(out, in);
+
+        Message res = (Message) in.readInbound();
         assertThat(res.getSource(), is(TEST_ADDRESS));
         assertThat(((TestEvent) res.getEvent()).getTest(), is(TEST_VALUE));
     }
 
-    ByteBuf createValidBuffer() {
-        return Unpooled.buffer(1024);
+    static void transfer(EmbeddedChannel out, EmbeddedChannel in) {
+        Object written;
+
+        while ((written = out.readOutbound()) != null) {
+            in.writeInbound(written);
+        }
+    }
+
+    private int releaseAll(EmbeddedChannel channel) {
+        int res = 0;
+        Object written;
+
+        while ((written = channel.readOutbound()) != null) {
+            ((ByteBuf) written).release();
+            res++;
+        }
+
+        return res;
+    }
+
+    private boolean contains(ByteBuf buffer, String value) {
+        return buffer.toString(CharsetUtil.ISO_8859_1).contains(value);
+    }
+
+    private KryoByteBufSerializer createSerializer() {
+        return new KryoByteBufSerializer(new KryoPool(new KryoFactory()));
+    }
+
+    private Message createMessage(Object event) {
+        Message res = new Message();
+        res.setEvent(event);
+        res.setSource(TEST_ADDRESS);
+
+        return res;
     }
 }
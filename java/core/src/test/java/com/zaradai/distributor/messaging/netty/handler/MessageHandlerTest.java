@@ -15,21 +15,44 @@
  */
 package com.zaradai.distributor.messaging.netty.handler;
 
+import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.events.EventPublisher;
 import com.zaradai.distributor.messaging.Message;
+import com.zaradai.mocks.DistributorConfigMocker;
 import com.zaradai.mocks.EventPublisherMocker;
 import com.zaradai.mocks.MessageMocker;
+import org.junit.Before;
 import org.junit.Test;
 
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class MessageHandlerTest {
-    private static final Message TEST_MESSAGE = MessageMocker.create();
+    private static final Object TEST_EVENT = new Object();
+    private static final Message TEST_MESSAGE = MessageMocker.create(true, TEST_EVENT);
+
+    private EventPublisher eventPublisher;
+    private DistributorConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        eventPublisher = EventPublisherMocker.create();
+        config = DistributorConfigMocker.create();
+    }
+
+    @Test
+    public void shouldPublishEventOnMessageReceived() throws Exception {
+        MessageHandler uut = new MessageHandler(eventPublisher, config);
+
+        uut.messageReceived(null, TEST_MESSAGE);
+
+        verify(eventPublisher).publish(TEST_EVENT);
+    }
 
     @Test
-    public void shouldPublishOnMessageReceived() throws Exception {
-        EventPublisher eventPublisher = EventPublisherMocker.create();
-        MessageHandler uut = new MessageHandler(eventPublisher);
+    public void shouldPublishMessageOnMessageReceivedIfIntercepting() throws Exception {
+        when(config.getEventBusIntercept()).thenReturn(true);
+        MessageHandler uut = new MessageHandler(eventPublisher, config);
 
         uut.messageReceived(null, TEST_MESSAGE);
 
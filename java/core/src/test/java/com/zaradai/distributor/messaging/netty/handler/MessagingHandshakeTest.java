@@ -0,0 +1,46 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MessagingHandshakeTest {
+    private static final InetSocketAddress LOWER = new InetSocketAddress("10.0.0.1", 1701);
+    private static final InetSocketAddress HIGHER = new InetSocketAddress("10.0.0.2", 1701);
+    private static final InetSocketAddress HIGHER_PORT = new InetSocketAddress("10.0.0.1", 1702);
+
+    @Test
+    public void shouldOrderNodesByHost() throws Exception {
+        assertThat(MessagingHandshake.compareNodes(LOWER, HIGHER) < 0, is(true));
+        assertThat(MessagingHandshake.compareNodes(HIGHER, LOWER) > 0, is(true));
+    }
+
+    @Test
+    public void shouldOrderNodesOnSameHostByPort() throws Exception {
+        assertThat(MessagingHandshake.compareNodes(LOWER, HIGHER_PORT) < 0, is(true));
+        assertThat(MessagingHandshake.compareNodes(HIGHER_PORT, LOWER) > 0, is(true));
+    }
+
+    @Test
+    public void shouldTreatSameNodeAsEqual() throws Exception {
+        assertThat(MessagingHandshake.compareNodes(LOWER, new InetSocketAddress("10.0.0.1", 1701)), is(0));
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.mocks.DistributorConfigMocker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class SourceRegistryTest {
+    private static final InetSocketAddress TEST_LOCAL = new InetSocketAddress("127.0.0.1", 80);
+    private static final InetSocketAddress TEST_RELAYED = new InetSocketAddress("127.0.0.1", 81);
+
+    private DistributorConfig config;
+    private SourceRegistry uut;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        when(config.getHost()).thenReturn("127.0.0.1");
+        when(config.getPort()).thenReturn(TEST_LOCAL.getPort());
+        uut = new SourceRegistry(config);
+    }
+
+    @Test
+    public void shouldResolveLocalAddressFromConfig() throws Exception {
+        assertThat(uut.getLocalAddress(), is(TEST_LOCAL));
+    }
+
+    @Test
+    public void shouldUseLocalIdForLocalOrMissingSource() throws Exception {
+        assertThat(uut.register(TEST_LOCAL), is(SourceRegistry.LOCAL_SOURCE_ID));
+        assertThat(uut.register(null), is(SourceRegistry.LOCAL_SOURCE_ID));
+    }
+
+    @Test
+    public void shouldAssignStableIdToRelayedSource() throws Exception {
+        int id = uut.register(TEST_RELAYED);
+
+        assertThat(id, is(1));
+        assertThat(uut.register(new InetSocketAddress("127.0.0.1", 81)), is(id));
+        assertThat(uut.getSource(id), is(TEST_RELAYED));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotResolveLocalId() throws Exception {
+        uut.getSource(SourceRegistry.LOCAL_SOURCE_ID);
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.handler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SourceTableTest {
+    private static final InetSocketAddress TEST_PEER = new InetSocketAddress("127.0.0.1", 80);
+    private static final InetSocketAddress TEST_RELAYED = new InetSocketAddress("127.0.0.1", 81);
+
+    private SourceTable uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new SourceTable();
+    }
+
+    @Test
+    public void shouldBeSharedPerChannel() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+
+        assertThat(SourceTable.get(channel) == SourceTable.get(channel), is(true));
+        assertThat(SourceTable.get(channel) == SourceTable.get(new EmbeddedChannel()), is(false));
+    }
+
+    @Test
+    public void shouldResolveLocalIdToPeer() throws Exception {
+        uut.setPeer(TEST_PEER);
+
+        assertThat(uut.getSource(SourceRegistry.LOCAL_SOURCE_ID) == TEST_PEER, is(true));
+    }
+
+    @Test
+    public void shouldResolveDefinedId() throws Exception {
+        uut.define(2, TEST_RELAYED);
+
+        assertThat(uut.getSource(2) == TEST_RELAYED, is(true));
+    }
+
+    @Test
+    public void shouldOnlyMoveAnnouncedForward() throws Exception {
+        uut.setAnnounced(3);
+        uut.setAnnounced(2);
+
+        assertThat(uut.getAnnounced(), is(3));
+    }
+
+    @Test(expected = EncodingException.class)
+    public void shouldThrowIfPeerNotBound() throws Exception {
+        uut.getSource(SourceRegistry.LOCAL_SOURCE_ID);
+    }
+
+    @Test(expected = EncodingException.class)
+    public void shouldThrowForUndefinedId() throws Exception {
+        uut.getSource(1);
+    }
+}
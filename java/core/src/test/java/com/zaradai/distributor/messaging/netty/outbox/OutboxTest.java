@@ -0,0 +1,163 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.outbox;
+
+import com.zaradai.distributor.messaging.Message;
+import com.zaradai.distributor.messaging.netty.VarIntCodec;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessage;
+import com.zaradai.distributor.messaging.netty.handler.EncodedMessageFactory;
+import com.zaradai.distributor.messaging.netty.handler.EventClassRegistry;
+import com.zaradai.distributor.messaging.netty.handler.FrameFormat;
+import com.zaradai.distributor.messaging.netty.handler.SourceRegistry;
+import com.zaradai.mocks.EncodedMessageFactoryMocker;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OutboxTest {
+    private static final int SEGMENT_SIZE = 4096;
+    private static final String TEST_PAYLOAD = "serialized event";
+    private static final InetSocketAddress RELAYED = new InetSocketAddress("127.0.0.1", 1701);
+    private static final int RELAYED_ID = 3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File dir;
+    private EncodedMessageFactory encodedMessageFactory;
+    private EventClassRegistry classRegistry;
+    private SourceRegistry sourceRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(folder.getRoot(), "peer");
+        encodedMessageFactory = EncodedMessageFactoryMocker.create();
+        classRegistry = new EventClassRegistry();
+        sourceRegistry = mock(SourceRegistry.class);
+        when(sourceRegistry.getSource(RELAYED_ID)).thenReturn(RELAYED);
+    }
+
+    @Test
+    public void shouldRebuildFrameAgainstNewRegistriesAfterRestart() throws Exception {
+        classRegistry.register(Integer.class);
+        spill(SourceRegistry.LOCAL_SOURCE_ID, classRegistry.register(String.class));
+
+        // a fresh process assigns its own ids
+        EventClassRegistry restartedClasses = new EventClassRegistry();
+        SourceRegistry restartedSources = mock(SourceRegistry.class);
+        Outbox uut = createOutbox(restartedClasses, restartedSources);
+        EncodedMessage res = uut.read();
+
+        assertThat(res.getTypeId(), is(1));
+        assertThat(restartedClasses.getType(res.getTypeId()) == String.class, is(true));
+        assertThat(res.getSourceId(), is(SourceRegistry.LOCAL_SOURCE_ID));
+        assertThat(res.getSource(), is(nullValue()));
+        assertThat(res.getPayload().toString(CharsetUtil.UTF_8), is(TEST_PAYLOAD));
+        assertThat(res.getFrame().getInt(0), is(res.getFrame().readableBytes() - FrameFormat.LENGTH_SIZE));
+        assertThat(uut.read(), is(nullValue()));
+        res.release();
+    }
+
+    @Test
+    public void shouldKeepRelayedSource() throws Exception {
+        spill(RELAYED_ID, EventClassRegistry.EMBEDDED_TYPE_ID);
+        SourceRegistry restartedSources = mock(SourceRegistry.class);
+        when(restartedSources.register(RELAYED)).thenReturn(1);
+
+        EncodedMessage res = createOutbox(new EventClassRegistry(), restartedSources).read();
+
+        assertThat(res.getSource(), is(RELAYED));
+        assertThat(res.getSourceId(), is(1));
+        assertThat(res.getTypeId(), is(EventClassRegistry.EMBEDDED_TYPE_ID));
+        res.release();
+    }
+
+    @Test
+    public void shouldDiscardUnknownClasses() throws Exception {
+        EventClassRegistry restartedClasses = new EventClassRegistry() {
+            @Override
+            public Class<?> resolve(String name) {
+                return null;
+            }
+        };
+        spill(SourceRegistry.LOCAL_SOURCE_ID, classRegistry.register(String.class));
+
+        Outbox uut = createOutbox(restartedClasses, sourceRegistry);
+
+        assertThat(uut.read(), is(nullValue()));
+        assertThat(uut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldKeepMessageUntilCommitted() throws Exception {
+        spill(SourceRegistry.LOCAL_SOURCE_ID, classRegistry.register(String.class));
+        Outbox uut = createOutbox(classRegistry, sourceRegistry);
+
+        uut.read().release();
+        uut.rewind();
+        EncodedMessage res = uut.read();
+        res.release();
+        uut.commit();
+        uut.close();
+
+        assertThat(res, is(notNullValue()));
+        assertThat(createOutbox(classRegistry, sourceRegistry).read(), is(nullValue()));
+    }
+
+    private void spill(int sourceId, int typeId) throws Exception {
+        Message message = new Message();
+        message.setEvent(TEST_PAYLOAD);
+        EncodedMessage encoded = new EncodedMessage(message, createFrame(sourceId, typeId));
+        when(encodedMessageFactory.create(message)).thenReturn(encoded);
+        Outbox outbox = createOutbox(classRegistry, sourceRegistry);
+
+        outbox.append(message);
+
+        assertThat(encoded.refCnt(), is(0));
+        assertThat(outbox.isEmpty(), is(false));
+        outbox.close();
+    }
+
+    private Outbox createOutbox(EventClassRegistry classes, SourceRegistry sources) throws Exception {
+        return new Outbox(new SegmentLog(dir, SEGMENT_SIZE), encodedMessageFactory, classes, sources);
+    }
+
+    private static ByteBuf createFrame(int sourceId, int typeId) {
+        ByteBuf res = Unpooled.buffer();
+        res.writeInt(0);
+        res.writeByte(FrameFormat.NO_FLAGS);
+        res.writeInt(Message.MAGIC_NUMBER);
+        VarIntCodec.writeVarInt(res, sourceId);
+        VarIntCodec.writeVarInt(res, typeId);
+        res.writeBytes(TEST_PAYLOAD.getBytes(CharsetUtil.UTF_8));
+        res.setInt(0, res.readableBytes() - FrameFormat.LENGTH_SIZE);
+
+        return res;
+    }
+}
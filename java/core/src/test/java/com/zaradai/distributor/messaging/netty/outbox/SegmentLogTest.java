@@ -0,0 +1,185 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.outbox;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SegmentLogTest {
+    // room for the read position and two 10 byte records with their lengths
+    private static final int SEGMENT_SIZE = 8 + 2 * (4 + 10);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File dir;
+    private SegmentLog uut;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(folder.getRoot(), "peer");
+        uut = new SegmentLog(dir, SEGMENT_SIZE);
+    }
+
+    @Test
+    public void shouldBeEmptyWhenCreated() throws Exception {
+        assertThat(uut.isEmpty(), is(true));
+        assertThat(uut.read(), is(nullValue()));
+        assertThat(dir.isDirectory(), is(true));
+    }
+
+    @Test
+    public void shouldReadInOrderWritten() throws Exception {
+        append("record-001", "record-002", "record-003");
+
+        assertThat(uut.isEmpty(), is(false));
+        assertThat(read(), is("record-001"));
+        assertThat(read(), is("record-002"));
+        assertThat(read(), is("record-003"));
+        assertThat(uut.read(), is(nullValue()));
+        assertThat(uut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldRollAndDeleteCommittedSegments() throws Exception {
+        append("record-001", "record-002", "record-003");
+
+        assertThat(uut.getSegmentCount(), is(2));
+        assertThat(dir.list().length, is(2));
+
+        read();
+        read();
+        assertThat(uut.getSegmentCount(), is(2));
+
+        uut.commit();
+        uut.commit();
+
+        assertThat(uut.getSegmentCount(), is(1));
+        assertThat(dir.list().length, is(1));
+    }
+
+    @Test
+    public void shouldReuseLastSegmentOnceCommitted() throws Exception {
+        append("record-001");
+        String[] files = dir.list();
+        read();
+        uut.commit();
+
+        append("record-002", "record-003");
+
+        assertThat(uut.getSegmentCount(), is(1));
+        assertThat(dir.list(), is(files));
+        assertThat(read(), is("record-002"));
+        assertThat(read(), is("record-003"));
+    }
+
+    @Test
+    public void shouldReadAgainAfterRewind() throws Exception {
+        append("record-001", "record-002", "record-003");
+        read();
+        uut.commit();
+        read();
+        read();
+
+        uut.rewind();
+
+        assertThat(read(), is("record-002"));
+        assertThat(read(), is("record-003"));
+        assertThat(uut.read(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldOnlyCommitPastRecordsAllDone() throws Exception {
+        append("record-001", "record-002", "record-003");
+        read();
+        read();
+        read();
+        uut.discard();
+        uut.commit();
+        uut.rewind();
+
+        assertThat(read(), is("record-002"));
+    }
+
+    @Test
+    public void shouldReadUncommittedAgainAfterReopen() throws Exception {
+        append("record-001", "record-002");
+        read();
+        read();
+        uut.close();
+
+        uut = new SegmentLog(dir, SEGMENT_SIZE);
+
+        assertThat(read(), is("record-001"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectCommitWithNothingRead() throws Exception {
+        append("record-001");
+
+        uut.commit();
+    }
+
+    @Test
+    public void shouldResumeAfterReopen() throws Exception {
+        append("record-001", "record-002", "record-003");
+        read();
+        uut.commit();
+        uut.close();
+
+        uut = new SegmentLog(dir, SEGMENT_SIZE);
+
+        assertThat(read(), is("record-002"));
+        append("record-004");
+        assertThat(read(), is("record-003"));
+        assertThat(read(), is("record-004"));
+        assertThat(uut.read(), is(nullValue()));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectRecordLargerThanSegment() throws Exception {
+        append("a record far too large to fit in one segment");
+    }
+
+    private void append(String... records) throws IOException {
+        for (String record : records) {
+            ByteBuf buf = Unpooled.copiedBuffer(record, CharsetUtil.UTF_8);
+            uut.append(buf);
+            buf.release();
+        }
+    }
+
+    private String read() {
+        ByteBuf buf = uut.read();
+
+        try {
+            return buf.toString(CharsetUtil.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.distributor.messaging.netty.EventLoopGroups;
+import com.zaradai.mocks.DistributorConfigMocker;
+import com.zaradai.mocks.EventLoopGroupsMocker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class DomainSocketsTest {
+    private static final String TEST_DIR = "/tmp/obsidian";
+    private static final int TEST_PORT = 1907;
+
+    private DistributorConfig config;
+    private EventLoopGroups eventLoopGroups;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        when(config.getDomainSocketDir()).thenReturn(TEST_DIR);
+        Transport epoll = new EpollTransport(config);
+        eventLoopGroups = EventLoopGroupsMocker.create();
+        when(eventLoopGroups.getTransport()).thenReturn(epoll);
+    }
+
+    @Test
+    public void shouldNameSocketFileAfterPort() throws Exception {
+        File file = createDomainSockets(true).getSocketFile(TEST_PORT);
+
+        assertThat(file.getParent(), is(TEST_DIR));
+        assertThat(file.getName(), is("obsidian-1907.sock"));
+    }
+
+    @Test
+    public void shouldBeEnabledWithEpollAndDirectory() throws Exception {
+        assertThat(createDomainSockets(true).isEnabled(), is(true));
+    }
+
+    @Test
+    public void shouldNotBeEnabledWithoutDirectory() throws Exception {
+        when(config.getDomainSocketDir()).thenReturn("");
+
+        assertThat(createDomainSockets(true).isEnabled(), is(false));
+    }
+
+    @Test
+    public void shouldNotBeEnabledOverNio() throws Exception {
+        Transport nio = new NioTransport();
+        when(eventLoopGroups.getTransport()).thenReturn(nio);
+
+        assertThat(createDomainSockets(true).isEnabled(), is(false));
+    }
+
+    @Test
+    public void shouldNotBeEnabledWithoutNativeTransport() throws Exception {
+        assertThat(createDomainSockets(false).isEnabled(), is(false));
+    }
+
+    @Test
+    public void shouldUseTcpIfNotEnabled() throws Exception {
+        InetSocketAddress endpoint = new InetSocketAddress("127.0.0.1", TEST_PORT);
+
+        assertThat(createDomainSockets(false).getLocalEndpoint(endpoint), is(nullValue()));
+    }
+
+    @Test
+    public void shouldUseTcpIfNoSocketAdvertised() throws Exception {
+        when(config.getDomainSocketDir()).thenReturn(new File(TEST_DIR, "missing").getPath());
+        InetSocketAddress endpoint = new InetSocketAddress("127.0.0.1", TEST_PORT);
+
+        assertThat(createDomainSockets(true).getLocalEndpoint(endpoint), is(nullValue()));
+    }
+
+    @Test
+    public void shouldTreatLoopbackAsLocal() throws Exception {
+        assertThat(DomainSockets.isLocal(InetAddress.getByName("127.0.0.1")), is(true));
+    }
+
+    @Test
+    public void shouldNotTreatRemoteAsLocal() throws Exception {
+        // documentation address range, never assigned to a host
+        assertThat(DomainSockets.isLocal(InetAddress.getByName("192.0.2.1")), is(false));
+        assertThat(DomainSockets.isLocal(null), is(false));
+    }
+
+    private DomainSockets createDomainSockets(final boolean available) {
+        return new DomainSockets(config, eventLoopGroups) {
+            @Override
+            protected boolean isTransportAvailable() {
+                return available;
+            }
+        };
+    }
+}
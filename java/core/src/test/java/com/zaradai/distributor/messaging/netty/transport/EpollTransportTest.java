@@ -0,0 +1,168 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.mocks.DistributorConfigMocker;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class EpollTransportTest {
+    // the stand in classes below, loaded by name as the native ones would be
+    private static final String STUB_PACKAGE = EpollTransportTest.class.getName() + "$";
+
+    private DistributorConfig config;
+    private EpollTransport uut;
+    private EpollTransport stubbed;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+        when(config.getEpollReusePort()).thenReturn(true);
+        when(config.getEpollTcpQuickAck()).thenReturn(true);
+        when(config.getEpollEdgeTriggered()).thenReturn(false);
+        uut = new EpollTransport(config);
+        stubbed = new EpollTransport(config, STUB_PACKAGE);
+    }
+
+    @Test
+    public void shouldNotBeAvailableWithThisNettyBuild() throws Exception {
+        assertThat(EpollTransport.isAvailable(), is(false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailToCreateGroupIfNotAvailable() throws Exception {
+        uut.createEventLoopGroup(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailToGetChannelIfNotAvailable() throws Exception {
+        uut.getChannelClass();
+    }
+
+    @Test
+    public void shouldSkipOptionsNotSupported() throws Exception {
+        ServerBootstrap server = new ServerBootstrap();
+        Bootstrap client = new Bootstrap();
+
+        uut.configureServer(server);
+        uut.configureClient(client);
+
+        assertThat(uut.getOption("SO_REUSEPORT"), is(nullValue()));
+        assertThat(uut.getMode(), is(nullValue()));
+        assertThat(server.toString().contains("SO_REUSEPORT"), is(false));
+    }
+
+    @Test
+    public void shouldBeAvailableWhenLoaded() throws Exception {
+        assertThat(EpollTransport.isAvailable(STUB_PACKAGE), is(true));
+    }
+
+    @Test
+    public void shouldCreateGroupAndChannelsByName() throws Exception {
+        EventLoopGroup group = stubbed.createEventLoopGroup(1);
+
+        assertThat(group instanceof EpollEventLoopGroup, is(true));
+        assertThat(stubbed.getChannelClass() == EpollSocketChannel.class, is(true));
+        assertThat(stubbed.getServerChannelClass() == EpollServerSocketChannel.class, is(true));
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void shouldGetOption() throws Exception {
+        assertThat(stubbed.getOption("SO_REUSEPORT") == (Object) EpollChannelOption.SO_REUSEPORT, is(true));
+        assertThat(stubbed.getOption("NOT_AN_OPTION"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldGetConfiguredMode() throws Exception {
+        assertThat(stubbed.getMode() == EpollMode.LEVEL_TRIGGERED, is(true));
+    }
+
+    @Test
+    public void shouldSetServerOptions() throws Exception {
+        ServerBootstrap bootstrap = new ServerBootstrap();
+
+        stubbed.configureServer(bootstrap);
+
+        String res = bootstrap.toString();
+        assertThat(res.contains(EpollChannelOption.SO_REUSEPORT + "=true"), is(true));
+        assertThat(res.contains(EpollChannelOption.TCP_QUICKACK + "=true"), is(true));
+        assertThat(res.contains(EpollChannelOption.EPOLL_MODE + "=" + EpollMode.LEVEL_TRIGGERED), is(true));
+    }
+
+    @Test
+    public void shouldSetClientOptions() throws Exception {
+        Bootstrap bootstrap = new Bootstrap();
+
+        stubbed.configureClient(bootstrap);
+
+        String res = bootstrap.toString();
+        assertThat(res.contains(EpollChannelOption.TCP_QUICKACK + "=true"), is(true));
+        assertThat(res.contains(EpollChannelOption.EPOLL_MODE + "=" + EpollMode.LEVEL_TRIGGERED), is(true));
+    }
+
+    public static final class Epoll {
+        public static boolean isAvailable() {
+            return true;
+        }
+    }
+
+    public static final class EpollChannelOption {
+        public static final ChannelOption<Boolean> SO_REUSEPORT =
+                ChannelOption.valueOf(EpollChannelOption.class, "SO_REUSEPORT");
+        public static final ChannelOption<Boolean> TCP_QUICKACK =
+                ChannelOption.valueOf(EpollChannelOption.class, "TCP_QUICKACK");
+        public static final ChannelOption<EpollMode> EPOLL_MODE =
+                ChannelOption.valueOf(EpollChannelOption.class, "EPOLL_MODE");
+    }
+
+    public enum EpollMode {
+        EDGE_TRIGGERED,
+        LEVEL_TRIGGERED
+    }
+
+    public static class EpollEventLoopGroup extends NioEventLoopGroup {
+        public EpollEventLoopGroup(int threads) {
+            super(threads);
+        }
+    }
+
+    public static class EpollSocketChannel extends NioSocketChannel {
+        public EpollSocketChannel(EventLoop eventLoop) {
+            super(eventLoop);
+        }
+    }
+
+    public static class EpollServerSocketChannel extends NioServerSocketChannel {
+        public EpollServerSocketChannel(EventLoop eventLoop, EventLoopGroup childGroup) {
+            super(eventLoop, childGroup);
+        }
+    }
+}
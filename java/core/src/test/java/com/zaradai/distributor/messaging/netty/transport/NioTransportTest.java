@@ -0,0 +1,44 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NioTransportTest {
+    private final NioTransport uut = new NioTransport();
+
+    @Test
+    public void shouldCreateNioGroup() throws Exception {
+        EventLoopGroup group = uut.createEventLoopGroup(1);
+
+        assertThat(group instanceof NioEventLoopGroup, is(true));
+        assertThat(group.children().size(), is(1));
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void shouldUseNioChannels() throws Exception {
+        assertThat(uut.getServerChannelClass() == NioServerSocketChannel.class, is(true));
+        assertThat(uut.getChannelClass() == NioSocketChannel.class, is(true));
+    }
+}
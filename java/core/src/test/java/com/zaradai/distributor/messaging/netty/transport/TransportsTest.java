@@ -0,0 +1,78 @@
+/**
+ * Copyright 2014 Zaradai
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaradai.distributor.messaging.netty.transport;
+
+import com.zaradai.distributor.config.DistributorConfig;
+import com.zaradai.mocks.DistributorConfigMocker;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class TransportsTest {
+    private DistributorConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = DistributorConfigMocker.create();
+    }
+
+    @Test
+    public void shouldSelectNioIfConfigured() throws Exception {
+        when(config.getTransport()).thenReturn(NioTransport.NAME);
+
+        assertThat(createTransports(true).select().getName(), is(NioTransport.NAME));
+    }
+
+    @Test
+    public void shouldPreferEpollIfAuto() throws Exception {
+        when(config.getTransport()).thenReturn(Transports.AUTO);
+
+        assertThat(createTransports(true).select().getName(), is(EpollTransport.NAME));
+    }
+
+    @Test
+    public void shouldFallBackToNioIfEpollNotAvailable() throws Exception {
+        when(config.getTransport()).thenReturn(EpollTransport.NAME);
+
+        assertThat(createTransports(false).select().getName(), is(NioTransport.NAME));
+    }
+
+    @Test
+    public void shouldFallBackToNioIfAutoAndEpollNotAvailable() throws Exception {
+        when(config.getTransport()).thenReturn(Transports.AUTO);
+
+        assertThat(createTransports(false).select().getName(), is(NioTransport.NAME));
+    }
+
+    @Test
+    public void shouldUseNioForUnknownTransport() throws Exception {
+        when(config.getTransport()).thenReturn("carrier-pigeon");
+
+        assertThat(createTransports(true).select().getName(), is(NioTransport.NAME));
+    }
+
+    private Transports createTransports(final boolean epollAvailable) {
+        return new Transports(config) {
+            @Override
+            protected boolean isEpollAvailable() {
+                return epollAvailable;
+            }
+        };
+    }
+}
@@ -22,7 +22,6 @@ import com.zaradai.distributor.config.DistributorConfig;
 import com.zaradai.distributor.events.MessageErrorEvent;
 import com.zaradai.distributor.events.MessageSentEvent;
 import com.zaradai.distributor.events.NodeConnectedEvent;
-import com.zaradai.distributor.messaging.Message;
 import com.zaradai.events.EventAggregator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,13 +34,13 @@ import java.util.concurrent.TimeUnit;
 public class PingPongTester {
     private static final Logger LOGGER = LoggerFactory.getLogger(PingPongTester.class);
 
-    private final EventAggregator eventAggregator;
+    private final DistributorService distributorService;
     private final InetSocketAddress source;
     private CountDownLatch gate;
 
     @Inject
-    PingPongTester(EventAggregator eventAggregator, DistributorConfig config) {
-        this.eventAggregator = eventAggregator;
+    PingPongTester(EventAggregator eventAggregator, DistributorService distributorService, DistributorConfig config) {
+        this.distributorService = distributorService;
         source = createSource(config);
 
         eventAggregator.subscribe(this);
@@ -53,7 +52,7 @@ public class PingPongTester {
 
             for (InetSocketAddress target : targets) {
                 LOGGER.info("Pinging: {}", target);
-                eventAggregator.publish(new Message.Builder().addTarget(target).event(new PingEvent(source)).build());
+                distributorService.send(target, new PingEvent(source));
             }
         }
     }
@@ -82,7 +81,7 @@ public class PingPongTester {
     public void onPing(PingEvent event) {
         LOGGER.info("On Ping: {}", event.getFrom());
 
-        eventAggregator.publish(new Message.Builder().addTarget(event.getFrom()).event(new PongEvent(source)).build());
+        distributorService.send(event.getFrom(), new PongEvent(source));
     }
 
     @Subscribe